@@ -0,0 +1,28 @@
+package ca.nutrisci.application.dto;
+
+/**
+ * FoodMatch - A food name suggested for a (possibly misspelled) ingredient
+ * Distance is the number of single-character edits between the two names.
+ */
+public class FoodMatch {
+    private final String name;
+    private final int distance;
+
+    public FoodMatch(String name, int distance) {
+        this.name = name;
+        this.distance = distance;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FoodMatch{name='%s', distance=%d}", name, distance);
+    }
+}
@@ -0,0 +1,47 @@
+package ca.nutrisci.application.dto;
+
+/**
+ * FoodRef - A resolved food: its CNF FoodID and canonical name
+ * Handed out by the nutrition gateway when an ingredient name is first
+ * entered, so later lookups, swaps and rollups can go by id instead of
+ * normalizing and matching the name again. Food ids are positive; 0 is used
+ * throughout for "not resolved".
+ */
+public final class FoodRef {
+
+    public static final int UNRESOLVED_ID = 0;
+
+    private final int foodId;
+    private final String name;
+
+    public FoodRef(int foodId, String name) {
+        this.foodId = foodId;
+        this.name = name;
+    }
+
+    public int getFoodId() {
+        return foodId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        FoodRef that = (FoodRef) obj;
+        return foodId == that.foodId && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * foodId + name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FoodRef{%d, '%s'}", foodId, name);
+    }
+}
@@ -4,6 +4,8 @@ public class IngredientDTO {
     private String name;
     private double quantity;
     private String unit;
+    private int foodId; // CNF FoodID, FoodRef.UNRESOLVED_ID until resolved
+    private boolean asPurchased; // Weighed before trimming or cooking (bone-in, unpeeled, dry)
 
     public IngredientDTO(String name, double quantity, String unit) {
         this.name = name;
@@ -11,12 +13,20 @@ public class IngredientDTO {
         this.unit = unit;
     }
 
+    public IngredientDTO(String name, double quantity, String unit, int foodId) {
+        this(name, quantity, unit);
+        this.foodId = foodId;
+    }
+
     // Getters and Setters
     public String getName() {
         return name;
     }
 
     public void setName(String name) {
+        if (name == null || !name.equals(this.name)) {
+            this.foodId = FoodRef.UNRESOLVED_ID; // A renamed ingredient has to be resolved again
+        }
         this.name = name;
     }
 
@@ -35,4 +45,24 @@ public class IngredientDTO {
     public void setUnit(String unit) {
         this.unit = unit;
     }
+
+    public int getFoodId() {
+        return foodId;
+    }
+
+    public void setFoodId(int foodId) {
+        this.foodId = foodId;
+    }
+
+    public boolean hasFoodId() {
+        return foodId != FoodRef.UNRESOLVED_ID;
+    }
+
+    public boolean isAsPurchased() {
+        return asPurchased;
+    }
+
+    public void setAsPurchased(boolean asPurchased) {
+        this.asPurchased = asPurchased;
+    }
 } 
\ No newline at end of file
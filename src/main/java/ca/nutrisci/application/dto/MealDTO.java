@@ -16,6 +16,7 @@ public class MealDTO {
     private String mealType; // breakfast, lunch, dinner, snack
     private List<IngredientDTO> ingredients;
     private NutrientInfo nutrients;
+    private NutrientTotals nutrientTotals; // Full profile; computed, not persisted
 
     // Default constructor
     public MealDTO() {}
@@ -114,6 +115,20 @@ public class MealDTO {
         return names;
     }
 
+    /**
+     * CNF FoodID of each ingredient, FoodRef.UNRESOLVED_ID where not resolved
+     */
+    public int[] getFoodIds() {
+        if (ingredients == null) {
+            return new int[0];
+        }
+        int[] foodIds = new int[ingredients.size()];
+        for (int i = 0; i < foodIds.length; i++) {
+            foodIds[i] = ingredients.get(i).getFoodId();
+        }
+        return foodIds;
+    }
+
     public NutrientInfo getNutrients() {
         return nutrients;
     }
@@ -122,6 +137,14 @@ public class MealDTO {
         this.nutrients = nutrients;
     }
 
+    public NutrientTotals getNutrientTotals() {
+        return nutrientTotals;
+    }
+
+    public void setNutrientTotals(NutrientTotals nutrientTotals) {
+        this.nutrientTotals = nutrientTotals;
+    }
+
     @Override
     public String toString() {
         return String.format("MealDTO{id=%s, profileId=%s, date=%s, mealType='%s', ingredients=%s, nutrients=%s}",
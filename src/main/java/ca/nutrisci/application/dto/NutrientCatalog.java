@@ -0,0 +1,96 @@
+package ca.nutrisci.application.dto;
+
+import java.util.Arrays;
+
+/**
+ * NutrientCatalog - The nutrients known to the nutrition database
+ * Maps CNF nutrient ids (e.g. 307 for sodium) to positions in NutrientVector
+ * and NutrientTotals, and holds each nutrient's symbol, unit and name.
+ * Immutable and shared by every vector built from the same data.
+ */
+public final class NutrientCatalog {
+
+    // Commonly used CNF nutrient ids
+    public static final int PROTEIN = 203;
+    public static final int FAT = 204;
+    public static final int CARBOHYDRATE = 205;
+    public static final int ENERGY_KCAL = 208;
+    public static final int ENERGY_KJ = 268;
+    public static final int SUGARS = 269;
+    public static final int FIBER = 291;
+    public static final int SODIUM = 307;
+    public static final int CHOLESTEROL = 601;
+    public static final int TRANS_FAT = 605;
+    public static final int SATURATED_FAT = 606;
+
+    private final int[] nutrientIds;
+    private final String[] symbols;
+    private final String[] units;
+    private final String[] names;
+    private final short[] indexById;
+
+    public NutrientCatalog(int[] nutrientIds, String[] symbols, String[] units, String[] names) {
+        this.nutrientIds = nutrientIds;
+        this.symbols = symbols;
+        this.units = units;
+        this.names = names;
+
+        int maxId = 0;
+        for (int id : nutrientIds) {
+            maxId = Math.max(maxId, id);
+        }
+        this.indexById = new short[maxId + 1];
+        Arrays.fill(indexById, (short) -1);
+        for (int index = 0; index < nutrientIds.length; index++) {
+            indexById[nutrientIds[index]] = (short) index;
+        }
+    }
+
+    public int size() {
+        return nutrientIds.length;
+    }
+
+    /**
+     * Position of a CNF nutrient id, or -1 if it is not in the catalog
+     */
+    public int indexOf(int nutrientId) {
+        return nutrientId >= 0 && nutrientId < indexById.length ? indexById[nutrientId] : -1;
+    }
+
+    public int getNutrientId(int index) {
+        return nutrientIds[index];
+    }
+
+    public String getSymbol(int index) {
+        return symbols[index];
+    }
+
+    public String getUnit(int index) {
+        return units[index];
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Catalogs are equal when they hold the same nutrient ids at the same
+     * positions, so vectors and totals built from either line up
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NutrientCatalog)) return false;
+        return Arrays.equals(nutrientIds, ((NutrientCatalog) o).nutrientIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(nutrientIds);
+    }
+
+    @Override
+    public String toString() {
+        return "NutrientCatalog{" + size() + " nutrients}";
+    }
+}
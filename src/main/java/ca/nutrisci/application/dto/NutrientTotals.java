@@ -0,0 +1,80 @@
+package ca.nutrisci.application.dto;
+
+import java.util.Arrays;
+
+/**
+ * NutrientTotals - Running totals of every nutrient in a NutrientCatalog
+ * Used for meal, daily and weekly rollups beyond the five NutrientInfo values.
+ * Adding vectors or other totals only touches the primitive array, so one
+ * instance can be reused (see clear) to aggregate any number of meals
+ * without allocating.
+ */
+public final class NutrientTotals {
+
+    private final NutrientCatalog catalog;
+    private final double[] amounts;
+
+    public NutrientTotals(NutrientCatalog catalog) {
+        this.catalog = catalog;
+        this.amounts = new double[catalog.size()];
+    }
+
+    public NutrientCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Add a food's per-100g profile for the given amount in grams
+     * @throws IllegalArgumentException if the vector is over another catalog
+     */
+    public NutrientTotals add(NutrientVector vector, double grams) {
+        checkCatalog(vector.getCatalog());
+        vector.addTo(amounts, grams / 100.0);
+        return this;
+    }
+
+    /**
+     * Add another set of totals over the same catalog
+     * @throws IllegalArgumentException if the totals are over another catalog
+     */
+    public NutrientTotals add(NutrientTotals other) {
+        checkCatalog(other.catalog);
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] += other.amounts[i];
+        }
+        return this;
+    }
+
+    /**
+     * Total of a CNF nutrient id, or 0 if the nutrient is unknown
+     */
+    public double get(int nutrientId) {
+        int index = catalog.indexOf(nutrientId);
+        return index >= 0 ? amounts[index] : 0.0;
+    }
+
+    /**
+     * Total at a catalog position
+     */
+    public double getAt(int index) {
+        return amounts[index];
+    }
+
+    // Positions only line up between the same nutrients; anything else would silently mix them
+    private void checkCatalog(NutrientCatalog other) {
+        if (!catalog.equals(other)) {
+            throw new IllegalArgumentException("Nutrient catalog mismatch: " + other + " added to totals over " + catalog);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(amounts, 0.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NutrientTotals{calories=%.1f, sodium=%.1fmg, sugars=%.1fg, saturatedFat=%.1fg}",
+                get(NutrientCatalog.ENERGY_KCAL), get(NutrientCatalog.SODIUM),
+                get(NutrientCatalog.SUGARS), get(NutrientCatalog.SATURATED_FAT));
+    }
+}
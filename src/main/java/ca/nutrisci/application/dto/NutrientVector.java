@@ -0,0 +1,75 @@
+package ca.nutrisci.application.dto;
+
+/**
+ * NutrientVector - Full nutrient profile of one food, per 100 g
+ * A read-only view into the nutrition database's shared store: nothing is
+ * copied when a vector is looked up, and values change only if the store does.
+ * Amounts are in each nutrient's CNF unit (see NutrientCatalog.getUnit).
+ */
+public final class NutrientVector {
+
+    private final NutrientCatalog catalog;
+    private final float[] store;
+    private final int offset;
+
+    /**
+     * @param store backing array holding catalog.size() amounts starting at offset
+     */
+    public NutrientVector(NutrientCatalog catalog, float[] store, int offset) {
+        this.catalog = catalog;
+        this.store = store;
+        this.offset = offset;
+    }
+
+    public NutrientCatalog getCatalog() {
+        return catalog;
+    }
+
+    public int size() {
+        return catalog.size();
+    }
+
+    /**
+     * Amount per 100 g of a CNF nutrient id, or 0 if the nutrient is unknown
+     */
+    public double get(int nutrientId) {
+        int index = catalog.indexOf(nutrientId);
+        return index >= 0 ? store[offset + index] : 0.0;
+    }
+
+    /**
+     * Amount per 100 g at a catalog position
+     */
+    public double getAt(int index) {
+        return store[offset + index];
+    }
+
+    /**
+     * Add this profile scaled by factor into totals (indexed like the catalog)
+     */
+    public void addTo(double[] totals, double factor) {
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] += store[offset + i] * factor;
+        }
+    }
+
+    /**
+     * The five headline values, computing energy from macros when the CNF has none
+     */
+    public NutrientInfo toNutrientInfo() {
+        double calories = get(NutrientCatalog.ENERGY_KCAL);
+        double protein = get(NutrientCatalog.PROTEIN);
+        double carbs = get(NutrientCatalog.CARBOHYDRATE);
+        double fat = get(NutrientCatalog.FAT);
+        if (calories == 0.0) {
+            calories = (protein * 4.0) + (carbs * 4.0) + (fat * 9.0);
+        }
+        return new NutrientInfo(calories, protein, carbs, fat, get(NutrientCatalog.FIBER));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NutrientVector{%d nutrients, calories=%.1f, sodium=%.1fmg}",
+                size(), get(NutrientCatalog.ENERGY_KCAL), get(NutrientCatalog.SODIUM));
+    }
+}
@@ -10,6 +10,8 @@ public class SwapDTO {
     
     private String originalFood;
     private String replacementFood;
+    private int originalFoodId;    // CNF FoodIDs, FoodRef.UNRESOLVED_ID if not resolved
+    private int replacementFoodId;
     private String swapReason;
     private String goalType;
     private double impactScore;
@@ -56,6 +58,16 @@ public class SwapDTO {
         this.replacementFood = replacementFood; 
     }
     
+    public int getOriginalFoodId() { return originalFoodId; }
+    public void setOriginalFoodId(int originalFoodId) { 
+        this.originalFoodId = originalFoodId; 
+    }
+    
+    public int getReplacementFoodId() { return replacementFoodId; }
+    public void setReplacementFoodId(int replacementFoodId) { 
+        this.replacementFoodId = replacementFoodId; 
+    }
+    
     public String getSwapReason() { return swapReason; }
     public void setSwapReason(String swapReason) { 
         this.swapReason = swapReason; 
@@ -2,6 +2,7 @@ package ca.nutrisci.application.facades;
 
 import ca.nutrisci.application.dto.MealDTO;
 import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.application.dto.NutrientTotals;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -100,6 +101,20 @@ public interface IMealLogFacade {
      */
     NutrientInfo getDailyTotals(UUID profileId, LocalDate date);
     
+    /**
+     * Calculate totals of every CNF nutrient (sodium, sugars, saturated fat, ...)
+     * over a date range, e.g. one day or one week
+     * @return The totals, or null if the nutrition gateway has no nutrient data
+     */
+    NutrientTotals getNutrientTotals(UUID profileId, LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * Recalculate and save the nutrients of every logged meal of every profile,
+     * e.g. after the CNF conversion data changed
+     * @return The number of meals recalculated
+     */
+    int recomputeMealNutrients();
+    
     /**
      * Get meal recommendations
      */
@@ -1,7 +1,9 @@
 package ca.nutrisci.application.facades;
 
 import ca.nutrisci.application.dto.MealDTO;
+import ca.nutrisci.application.dto.NutrientCatalog;
 import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.application.dto.NutrientTotals;
 import ca.nutrisci.application.services.MealLogService;
 import ca.nutrisci.infrastructure.data.repositories.IRepositoryFactory;
 import ca.nutrisci.infrastructure.data.repositories.MealLogRepo;
@@ -248,6 +250,33 @@ public class MealLogging implements IMealLogFacade {
         return mealLogService.calculateDailyTotals(mealsForDay);
     }
     
+    @Override
+    public NutrientTotals getNutrientTotals(UUID profileId, LocalDate startDate, LocalDate endDate) {
+        NutrientCatalog catalog = nutritionGateway.getNutrientCatalog();
+        if (catalog == null) {
+            return null;
+        }
+        
+        List<MealDTO> meals = mealLogRepo.getMealsByTimeInterval(profileId, startDate, endDate);
+        return mealLogService.addNutrientTotals(meals, nutritionGateway, new NutrientTotals(catalog));
+    }
+    
+    @Override
+    public int recomputeMealNutrients() {
+        int recomputed = 0;
+        for (ca.nutrisci.domain.entities.Profile profile : profileRepo.findAll()) {
+            // One batch per profile: names resolved and units converted together
+            List<MealDTO> meals = mealLogRepo.getMealLogHistory(profile.getId());
+            mealLogService.calculateNutrients(meals, nutritionGateway);
+            for (MealDTO meal : meals) {
+                mealLogRepo.editMeal(meal.getId(), meal);
+            }
+            recomputed += meals.size();
+        }
+        System.out.println("🔄 Recomputed nutrients of " + recomputed + " meals");
+        return recomputed;
+    }
+    
     @Override
     public boolean validateMeal(MealDTO mealDTO) {
         return mealLogService.validateMeal(mealDTO);
@@ -260,10 +289,9 @@ public class MealLogging implements IMealLogFacade {
     
     @Override
     public NutrientInfo enrichIngredients(List<String> ingredients) {
-        // Simple implementation - directly use nutrition gateway
+        // One batch lookup for all ingredients
         NutrientInfo totalNutrients = new NutrientInfo();
-        for (String ingredient : ingredients) {
-            NutrientInfo ingredientNutrients = nutritionGateway.lookupIngredient(ingredient);
+        for (NutrientInfo ingredientNutrients : nutritionGateway.lookupMultipleIngredients(ingredients)) {
             if (ingredientNutrients != null) {
                 totalNutrients = totalNutrients.add(ingredientNutrients);
             }
@@ -220,31 +220,56 @@ public class SwapEngine implements ISwapFacade {
     }
     
     private MealDTO applySwapToMeal(MealDTO originalMeal, SwapDTO swap) {
-        // Create a copy of the meal
-        List<String> newIngredients = new ArrayList<>(originalMeal.getIngredientNames());
-        List<Double> newQuantities = new ArrayList<>(originalMeal.getQuantities());
-        
-        // Find and replace the ingredient
+        // Create a copy of the meal, keeping units, food ids and how ingredients were weighed
+        List<IngredientDTO> newIngredients = new ArrayList<>();
+        if (originalMeal.getIngredients() != null) {
+            for (IngredientDTO ingredient : originalMeal.getIngredients()) {
+                IngredientDTO copy = new IngredientDTO(ingredient.getName(), ingredient.getQuantity(),
+                                                       ingredient.getUnit(), ingredient.getFoodId());
+                copy.setAsPurchased(ingredient.isAsPurchased());
+                newIngredients.add(copy);
+            }
+        }
+
+        // Find and replace the ingredient: by food id when both sides are resolved, else by name
         String originalFood = swap.getOriginalFood();
         String replacementFood = swap.getReplacementFood();
-        
-        for (int i = 0; i < newIngredients.size(); i++) {
-            if (newIngredients.get(i).toLowerCase().contains(originalFood.toLowerCase())) {
-                newIngredients.set(i, replacementFood);
-                break; // Replace only the first match
+        int originalFoodId = swap.getOriginalFoodId();
+
+        int index = -1;
+        if (originalFoodId != FoodRef.UNRESOLVED_ID) {
+            for (int i = 0; i < newIngredients.size(); i++) {
+                if (newIngredients.get(i).getFoodId() == originalFoodId) {
+                    index = i;
+                    break;
+                }
             }
         }
-        
+        if (index < 0) {
+            for (int i = 0; i < newIngredients.size(); i++) {
+                if (newIngredients.get(i).getName().toLowerCase().contains(originalFood.toLowerCase())) {
+                    index = i;
+                    break; // Replace only the first match
+                }
+            }
+        }
+        if (index >= 0) {
+            IngredientDTO replaced = newIngredients.get(index);
+            IngredientDTO replacement = new IngredientDTO(replacementFood, replaced.getQuantity(),
+                                                          replaced.getUnit(), swap.getReplacementFoodId());
+            replacement.setAsPurchased(replaced.isAsPurchased()); // Same amount, weighed the same way
+            newIngredients.set(index, replacement);
+        }
+
         // Recalculate nutrition for the updated meal
         NutrientInfo updatedNutrition = calculateUpdatedNutrition(originalMeal.getNutrients(), swap);
-        
+
         return new MealDTO(
             originalMeal.getId(),
             originalMeal.getProfileId(),
             originalMeal.getDate(),
             originalMeal.getMealType(),
             newIngredients,
-            newQuantities,
             updatedNutrition
         );
     }
@@ -1,9 +1,16 @@
 package ca.nutrisci.application.services;
 
+import ca.nutrisci.application.dto.FoodRef;
+import ca.nutrisci.application.dto.IngredientDTO;
 import ca.nutrisci.application.dto.MealDTO;
+import ca.nutrisci.application.dto.NutrientCatalog;
 import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.application.dto.NutrientTotals;
+import ca.nutrisci.application.dto.NutrientVector;
 import ca.nutrisci.infrastructure.external.adapters.INutritionGateway;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -15,6 +22,19 @@ public class MealLogService {
     // Valid meal types (DRY - centralized)
     private static final String[] VALID_MEAL_TYPES = {"breakfast", "lunch", "dinner", "snack"};
     
+    // Same minimal default as lookupIngredient for unknown foods
+    private static final NutrientInfo UNKNOWN_FOOD_NUTRIENTS = new NutrientInfo(50, 2.0, 5.0, 1.0, 0.5);
+    
+    private final UnitConversionService unitConversionService;
+    
+    public MealLogService() {
+        this(UnitConversionService.getInstance());
+    }
+    
+    public MealLogService(UnitConversionService unitConversionService) {
+        this.unitConversionService = unitConversionService;
+    }
+    
     /**
      * Validate a meal DTO - centralized validation (DRY)
      */
@@ -64,29 +84,193 @@ public class MealLogService {
     }
     
     /**
-     * Calculate nutrients for a meal (simplified)
+     * Calculate nutrients for a meal, with each ingredient's quantity in its own unit.
+     * Ingredients flagged as purchased are adjusted for refuse and cooking yield.
      */
     public MealDTO calculateNutrients(MealDTO mealDTO, INutritionGateway nutritionGateway) {
         if (mealDTO == null || nutritionGateway == null) {
             return mealDTO;
         }
         
-        NutrientInfo totalNutrients = new NutrientInfo();
+        calculateNutrients(Collections.singletonList(mealDTO), nutritionGateway);
+        return mealDTO;
+    }
+    
+    /**
+     * Calculate nutrients for many meals at once (e.g. recomputing the whole meal
+     * history after the conversion data changed). The ingredients of all meals
+     * are resolved to food ids in one gateway call and converted to grams in one
+     * pass, then summed meal by meal.
+     */
+    public void calculateNutrients(List<MealDTO> meals, INutritionGateway nutritionGateway) {
+        if (meals == null || nutritionGateway == null) {
+            return;
+        }
+        
+        List<IngredientDTO> allIngredients = new ArrayList<>();
+        for (MealDTO meal : meals) {
+            if (meal.getIngredients() != null) {
+                allIngredients.addAll(meal.getIngredients());
+            }
+        }
+        resolveFoodIds(allIngredients, nutritionGateway);
+        double[] grams = unitConversionService.convertToGrams(allIngredients);
+        
+        // Every CNF nutrient (sodium, sugars, saturated fat, ...) when the gateway has them
+        NutrientCatalog catalog = nutritionGateway.getNutrientCatalog();
+        int offset = 0;
+        for (MealDTO meal : meals) {
+            List<IngredientDTO> ingredients = meal.getIngredients() != null
+                ? meal.getIngredients() : Collections.emptyList();
+            NutrientTotals nutrientTotals = catalog != null ? new NutrientTotals(catalog) : null;
+            meal.setNutrients(sumNutrients(ingredients, grams, offset, nutritionGateway, nutrientTotals));
+            meal.setNutrientTotals(nutrientTotals);
+            offset += ingredients.size();
+        }
+    }
+    
+    /**
+     * Nutrients of a list of ingredients, with quantities in their own units:
+     * food ids are resolved in one gateway call and grams converted in one pass.
+     * 
+     * @param nutrientTotals Receives the totals of every CNF nutrient, or null
+     * @return Calories, protein, carbs, fat and fiber of all the ingredients
+     */
+    public NutrientInfo computeMealNutrients(List<IngredientDTO> ingredients, INutritionGateway nutritionGateway,
+                                             NutrientTotals nutrientTotals) {
+        resolveFoodIds(ingredients, nutritionGateway);
+        double[] grams = unitConversionService.convertToGrams(ingredients);
+        return sumNutrients(ingredients, grams, 0, nutritionGateway, nutrientTotals);
+    }
+    
+    /**
+     * Sum resolved ingredients weighing grams[offset + i] each, five running
+     * primitives for the main nutrients and nutrientTotals for the rest
+     */
+    private NutrientInfo sumNutrients(List<IngredientDTO> ingredients, double[] grams, int offset,
+                                      INutritionGateway nutritionGateway, NutrientTotals nutrientTotals) {
+        double calories = 0;
+        double protein = 0;
+        double carbs = 0;
+        double fat = 0;
+        double fiber = 0;
         
-        for (int i = 0; i < mealDTO.getIngredientNames().size(); i++) {
-            String ingredient = mealDTO.getIngredientNames().get(i);
-            double quantity = mealDTO.getQuantities().get(i);
+        for (int i = 0; i < ingredients.size(); i++) {
+            IngredientDTO ingredient = ingredients.get(i);
+            double ingredientGrams = grams[offset + i];
             
-            NutrientInfo ingredientNutrients = nutritionGateway.lookupIngredient(ingredient);
+            NutrientInfo ingredientNutrients = nutrientInfo(ingredient, nutritionGateway);
+            if (ingredientNutrients == null && ingredient.getName() != null && !ingredient.getName().trim().isEmpty()) {
+                ingredientNutrients = UNKNOWN_FOOD_NUTRIENTS;
+            }
             if (ingredientNutrients != null) {
-                // Scale by quantity (per 100g)
-                NutrientInfo scaledNutrients = ingredientNutrients.multiply(quantity / 100.0);
-                totalNutrients = totalNutrients.add(scaledNutrients);
+                // Scale by weight (per 100g)
+                double scale = ingredientGrams / 100.0;
+                calories += ingredientNutrients.getCalories() * scale;
+                protein += ingredientNutrients.getProtein() * scale;
+                carbs += ingredientNutrients.getCarbs() * scale;
+                fat += ingredientNutrients.getFat() * scale;
+                fiber += ingredientNutrients.getFiber() * scale;
+            }
+            
+            if (nutrientTotals != null) {
+                NutrientVector vector = nutrientVector(ingredient, nutritionGateway);
+                if (vector != null) {
+                    nutrientTotals.add(vector, ingredientGrams);
+                }
             }
         }
         
-        mealDTO.setNutrients(totalNutrients);
-        return mealDTO;
+        return new NutrientInfo(calories, protein, carbs, fat, fiber);
+    }
+    
+    /**
+     * Per-100g nutrition info of a resolved ingredient, as purchased when it was
+     * weighed that way (the gateway precomputes both, so this is a plain lookup)
+     */
+    private NutrientInfo nutrientInfo(IngredientDTO ingredient, INutritionGateway nutritionGateway) {
+        if (!ingredient.hasFoodId()) {
+            return null;
+        }
+        return ingredient.isAsPurchased()
+            ? nutritionGateway.lookupAsPurchasedNutrientInfo(ingredient.getFoodId())
+            : nutritionGateway.lookupNutrientInfo(ingredient.getFoodId());
+    }
+    
+    /**
+     * Per-100g nutrient profile of a resolved ingredient, adjusted like nutrientInfo
+     */
+    private NutrientVector nutrientVector(IngredientDTO ingredient, INutritionGateway nutritionGateway) {
+        if (!ingredient.hasFoodId()) {
+            return null;
+        }
+        return ingredient.isAsPurchased()
+            ? nutritionGateway.lookupAsPurchasedNutrientVector(ingredient.getFoodId())
+            : nutritionGateway.lookupNutrientVector(ingredient.getFoodId());
+    }
+    
+    /**
+     * Give every ingredient without a food id the id of the food its name
+     * resolves to, in one gateway call. Ingredients that already carry an id
+     * (e.g. stored meals) are left alone, so names are only matched once.
+     */
+    public void resolveFoodIds(List<IngredientDTO> ingredients, INutritionGateway nutritionGateway) {
+        List<IngredientDTO> unresolved = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (IngredientDTO ingredient : ingredients) {
+            if (!ingredient.hasFoodId()) {
+                unresolved.add(ingredient);
+                names.add(ingredient.getName());
+            }
+        }
+        if (unresolved.isEmpty()) {
+            return;
+        }
+        
+        List<FoodRef> refs = nutritionGateway.resolveFoods(names);
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < unresolved.size(); i++) {
+            if (refs.get(i) != null) {
+                unresolved.get(i).setFoodId(refs.get(i).getFoodId());
+            } else {
+                missing.add(names.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            System.out.println("Warning: No nutrition data found for ingredients: " + missing);
+        }
+    }
+    
+    /**
+     * Add the full nutrient totals of several meals into an accumulator.
+     * Meals without computed totals (e.g. loaded from storage) are summed from
+     * their ingredients' vectors. Nothing is copied, so one accumulator can be
+     * cleared and reused for any number of daily or weekly rollups.
+     */
+    public NutrientTotals addNutrientTotals(List<MealDTO> meals, INutritionGateway nutritionGateway,
+                                            NutrientTotals totals) {
+        if (meals == null || totals == null) {
+            return totals;
+        }
+        
+        for (int m = 0; m < meals.size(); m++) {
+            MealDTO meal = meals.get(m);
+            if (meal.getNutrientTotals() != null && meal.getNutrientTotals().getCatalog() == totals.getCatalog()) {
+                totals.add(meal.getNutrientTotals());
+            } else if (meal.getIngredients() != null && nutritionGateway != null) {
+                List<IngredientDTO> ingredients = meal.getIngredients();
+                resolveFoodIds(ingredients, nutritionGateway);
+                double[] grams = unitConversionService.convertToGrams(ingredients);
+                for (int i = 0; i < ingredients.size(); i++) {
+                    NutrientVector vector = nutrientVector(ingredients.get(i), nutritionGateway);
+                    if (vector != null) {
+                        totals.add(vector, grams[i]);
+                    }
+                }
+            }
+        }
+        
+        return totals;
     }
     
     /**
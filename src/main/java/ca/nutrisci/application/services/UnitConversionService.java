@@ -1,22 +1,35 @@
 package ca.nutrisci.application.services;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import ca.nutrisci.application.dto.IngredientDTO;
+import ca.nutrisci.infrastructure.external.adapters.JdbcNutritionGateway;
+import ca.nutrisci.infrastructure.external.cnf.CnfDataset;
+import ca.nutrisci.infrastructure.external.cnf.CnfSnapshot;
+import ca.nutrisci.infrastructure.external.cnf.ConversionFactorTable;
+import ca.nutrisci.infrastructure.external.cnf.MeasureDictionary;
+
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * UnitConversionService - Handles unit conversions for food measurements
  * 
  * PURPOSE:
- * - Loads conversion factors from Canada Nutrient File (CNF) CSV data
+ * - Loads conversion factors from Canada Nutrient File (CNF) CSV data, or from
+ *   the database import of it (see useDatabase)
  * - Provides unit conversion between different measurement types (g, ml, cup, slice, etc.)
  * - Converts all measurements to grams for consistent nutrition calculations
+ * - Resolves unit names through a MeasureDictionary parsed at load time, so a
+ *   conversion is a few hash and binary-search lookups rather than a scan of
+ *   every measure name
+ * - Keeps conversion factors in a ConversionFactorTable (sorted primitive arrays
+ *   per food), so converting and listing units allocate nothing once warm
  * 
  * DATA SOURCES:
  * - CONVERSION FACTOR.csv: Contains conversion factors for each food-measure combination
@@ -28,11 +41,19 @@ import java.util.Map;
  */
 public class UnitConversionService {
 
+    // A CNF ConversionFactorValue is the measure's weight relative to 100 g of the food
+    private static final double GRAMS_PER_FACTOR = 100.0;
+
+    // Units shown for a food without conversion factors
+    private static final List<String> NO_FACTOR_UNITS = withDefaults(new ArrayList<>());
+
     private static UnitConversionService instance;
     private final String cnfDataPath;
-    private final Map<Integer, String> measureIdToName = new HashMap<>();
-    private final Map<Integer, Map<Integer, Double>> foodIdToMeasureFactors = new HashMap<>();
-    private boolean isInitialized = false;
+    private volatile MeasureDictionary measureDictionary = new MeasureDictionary(new int[0], new String[0]);
+    private volatile ConversionFactorTable conversionFactors = new ConversionFactorTable(new int[0], new int[0], new double[0]);
+    private volatile AtomicReferenceArray<List<String>> availableUnits = new AtomicReferenceArray<>(0); // Per food ordinal, built on first use
+    private volatile boolean isInitialized = false;
+    private JdbcNutritionGateway database; // Source of the conversion data instead of the CNF files, if set
 
     private UnitConversionService(String cnfDataPath) {
         this.cnfDataPath = cnfDataPath;
@@ -53,9 +74,21 @@ public class UnitConversionService {
     }
 
     /**
-     * Initialize the service by loading CSV data
+     * Read measures and conversion factors from the database through the gateway
+     * (nutrition.gateway=jdbc) instead of from the CNF files, which then need not
+     * be present. Takes effect on the next initialize or reload.
+     * 
+     * @param gateway Gateway whose import holds the conversion data
+     */
+    public synchronized void useDatabase(JdbcNutritionGateway gateway) {
+        this.database = gateway;
+    }
+
+    /**
+     * Initialize the service from the CNF snapshot (or CSV data), or from the
+     * database if useDatabase was called
      * 
-     * @throws IOException if CSV files cannot be read
+     * @throws IOException if the CNF data cannot be read
      */
     public synchronized void initialize() throws IOException {
         if (isInitialized) {
@@ -64,89 +97,77 @@ public class UnitConversionService {
 
         System.out.println("🔄 Initializing UnitConversionService...");
         
-        loadMeasureNames();
-        loadConversionFactors();
+        if (database != null) {
+            try {
+                loadMeasureNames(database.loadMeasureDictionary());
+                loadConversionFactors(database.loadConversionFactorTable());
+            } catch (SQLException e) {
+                throw new IOException("Could not read conversion data from the database: " + e.getMessage(), e);
+            }
+        } else {
+            CnfDataset dataset = CnfSnapshot.loadOrCompile(Paths.get(cnfDataPath));
+            loadMeasureNames(new MeasureDictionary(dataset.getMeasureIds(), dataset.getMeasureNames()));
+            loadConversionFactors(new ConversionFactorTable(
+                dataset.getConversionFoodIds(), dataset.getConversionMeasureIds(), dataset.getConversionFactors()));
+        }
         
         isInitialized = true;
-        System.out.println("✅ UnitConversionService initialized with " + measureIdToName.size() + 
-                          " measures and " + foodIdToMeasureFactors.size() + " food conversion factors");
+        System.out.println("✅ UnitConversionService initialized with " + measureDictionary.size() + 
+                          " measures and " + conversionFactors.foodCount() + " food conversion factors");
     }
 
     /**
-     * Load measure names from MEASURE NAME.csv
+     * Load the conversion data again, e.g. after the CNF files were replaced.
+     * Meals logged before keep their nutrients until they are recomputed
+     * (see IMealLogFacade.recomputeMealNutrients).
+     * 
+     * @throws IOException if the CNF data cannot be read
      */
-    private void loadMeasureNames() throws IOException {
-        String measureFilePath = cnfDataPath + "MEASURE NAME.csv";
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(measureFilePath))) {
-            String line;
-            boolean isFirstLine = true;
-            
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header
-                }
-                
-                String[] parts = line.split(",");
-                if (parts.length >= 2) {
-                    try {
-                        int measureId = Integer.parseInt(parts[0].trim());
-                        String measureName = parts[1].trim().replace("\"", "");
-                        measureIdToName.put(measureId, measureName);
-                    } catch (NumberFormatException e) {
-                        System.err.println("Error parsing measure ID in line: " + line);
-                    }
-                }
+    public synchronized void reload() throws IOException {
+        isInitialized = false;
+        initialize();
+    }
+
+    /**
+     * Initialize the service on a background thread, e.g. during application startup
+     * 
+     * @return Future completed once the conversion data is loaded
+     */
+    public CompletableFuture<Void> initializeAsync() {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                initialize();
+            } catch (IOException e) {
+                System.err.println("Failed to initialize UnitConversionService: " + e.getMessage());
+                throw new UncheckedIOException(e);
             }
-        }
-        
-        System.out.println("📋 Loaded " + measureIdToName.size() + " measure definitions");
+        });
     }
 
     /**
-     * Load conversion factors from CONVERSION FACTOR.csv
+     * Use measure names (MEASURE NAME.csv), parsed into quantity, unit and descriptor
      */
-    private void loadConversionFactors() throws IOException {
-        String conversionFilePath = cnfDataPath + "CONVERSION FACTOR.csv";
+    private void loadMeasureNames(MeasureDictionary dictionary) {
+        measureDictionary = dictionary;
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(conversionFilePath))) {
-            String line;
-            boolean isFirstLine = true;
-            
-            while ((line = reader.readLine()) != null) {
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue; // Skip header
-                }
-                
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
-                    try {
-                        int foodId = Integer.parseInt(parts[0].trim());
-                        int measureId = Integer.parseInt(parts[1].trim());
-                        double conversionFactor = Double.parseDouble(parts[2].trim());
-                        
-                        // Store conversion factor: foodId -> (measureId -> factor)
-                        foodIdToMeasureFactors
-                            .computeIfAbsent(foodId, k -> new HashMap<>())
-                            .put(measureId, conversionFactor);
-                            
-                    } catch (NumberFormatException e) {
-                        System.err.println("Error parsing conversion factor in line: " + line);
-                    }
-                }
-            }
-        }
+        System.out.println("📋 Loaded " + measureDictionary.size() + " measure definitions (" + measureDictionary + ")");
+    }
+
+    /**
+     * Use conversion factors (CONVERSION FACTOR.csv)
+     */
+    private void loadConversionFactors(ConversionFactorTable table) {
+        availableUnits = new AtomicReferenceArray<>(table.foodCount());
+        conversionFactors = table;
         
-        System.out.println("🔢 Loaded " + foodIdToMeasureFactors.size() + " food conversion factors");
+        System.out.println("🔢 Loaded " + table.foodCount() + " food conversion factors (" + table + ")");
     }
 
     /**
      * Get available measurement units for a specific food
      * 
      * @param foodId Food ID from the CNF database
-     * @return List of available measurement unit names
+     * @return List of available measurement unit names (unmodifiable)
      */
     public List<String> getAvailableUnitsForFood(int foodId) {
         if (!isInitialized) {
@@ -158,18 +179,35 @@ public class UnitConversionService {
             }
         }
 
+        ConversionFactorTable table = conversionFactors;
+        AtomicReferenceArray<List<String>> cache = availableUnits;
+        int food = table.foodOrdinal(foodId);
+        if (food < 0 || food >= cache.length()) {
+            return NO_FACTOR_UNITS;
+        }
+        List<String> units = cache.get(food);
+        if (units == null) {
+            units = buildAvailableUnits(table, food);
+            cache.set(food, units);
+        }
+        return units;
+    }
+
+    /**
+     * Measure names of one food, with grams first and defaults if it has almost none
+     */
+    private List<String> buildAvailableUnits(ConversionFactorTable table, int food) {
         List<String> units = new ArrayList<>();
-        Map<Integer, Double> measureFactors = foodIdToMeasureFactors.get(foodId);
-        
-        if (measureFactors != null) {
-            for (Integer measureId : measureFactors.keySet()) {
-                String measureName = measureIdToName.get(measureId);
-                if (measureName != null) {
-                    units.add(measureName);
-                }
+        for (int position = table.start(food); position < table.end(food); position++) {
+            String measureName = measureDictionary.name(table.measureId(position));
+            if (measureName != null) {
+                units.add(measureName);
             }
         }
-        
+        return withDefaults(units);
+    }
+
+    private static List<String> withDefaults(List<String> units) {
         // Always include grams as a default option
         if (!units.contains("1 g") && !units.contains("grams")) {
             units.add(0, "1 g");
@@ -180,7 +218,7 @@ public class UnitConversionService {
             units.addAll(getDefaultUnits());
         }
         
-        return units;
+        return Collections.unmodifiableList(units);
     }
 
     /**
@@ -206,89 +244,118 @@ public class UnitConversionService {
             return quantity;
         }
 
-        // Find the measure ID for the source unit
-        Integer measureId = findMeasureIdByName(sourceUnit);
-        if (measureId == null) {
+        // Check the unit names some CNF measure at all
+        MeasureDictionary measures = measureDictionary;
+        if (measures.find(sourceUnit) < 0) {
             System.err.println("Unknown unit: " + sourceUnit + " for food ID " + foodId + ", assuming grams");
             return quantity;
         }
 
-        // Get conversion factor for this food and measure
-        Map<Integer, Double> measureFactors = foodIdToMeasureFactors.get(foodId);
-        if (measureFactors == null) {
+        // Get conversion factor for this food and the best matching measure it has
+        ConversionFactorTable table = conversionFactors;
+        int food = table.foodOrdinal(foodId);
+        if (food < 0) {
             System.err.println("No conversion factors found for food ID " + foodId + ", assuming grams");
             return quantity;
         }
 
-        Double conversionFactor = measureFactors.get(measureId);
-        if (conversionFactor == null) {
+        int measureId = measures.find(sourceUnit, table.measureIds(), table.start(food), table.end(food));
+        if (measureId < 0) {
             System.err.println("No conversion factor found for food ID " + foodId + 
                              " and measure " + sourceUnit + ", assuming grams");
             return quantity;
         }
+        double conversionFactor = table.factor(foodId, measureId);
 
-        // Convert: quantity * conversionFactor = grams
-        double gramsResult = quantity * conversionFactor;
-        System.out.println("🔄 Converted " + quantity + " " + sourceUnit + " to " + 
-                          String.format("%.2f", gramsResult) + "g for food ID " + foodId + 
-                          " (conversion factor: " + conversionFactor + ")");
-        
-        return gramsResult;
-    }
+        // A unit can name a different count of the measure: "2 slices" for "1 slice", "ml" for "100ml"
+        double measureCount = measures.quantityOf(sourceUnit) / measures.quantity(measureId);
 
-    /**
-     * Check if a unit represents grams
-     */
-    private boolean isGramUnit(String unit) {
-        String lowerUnit = unit.toLowerCase().trim();
-        return lowerUnit.equals("g") || lowerUnit.equals("grams") || 
-               lowerUnit.equals("1 g") || lowerUnit.equals("gram");
+        // Convert: quantity * measures per unit * conversionFactor * 100 g = grams
+        return quantity * measureCount * conversionFactor * GRAMS_PER_FACTOR;
     }
 
     /**
-     * Find measure ID by unit name
+     * Convert many ingredients to grams in one pass, e.g. a meal or the whole
+     * meal history. Food ids must already be resolved. As in convertToGrams,
+     * quantities are taken as grams when the unit is grams, the food is
+     * unresolved or has no factor for the unit; those are reported once per batch.
+     * 
+     * @param ingredients Ingredients with quantities in their own units
+     * @return Grams of each ingredient, in order
      */
-    private Integer findMeasureIdByName(String unitName) {
-        String cleanUnitName = unitName.trim();
-        
-        // First try exact match
-        for (Map.Entry<Integer, String> entry : measureIdToName.entrySet()) {
-            if (entry.getValue().equalsIgnoreCase(cleanUnitName)) {
-                System.out.println("🎯 Exact unit match found: '" + cleanUnitName + "' -> measure ID " + entry.getKey());
-                return entry.getKey();
-            }
+    public double[] convertToGrams(List<IngredientDTO> ingredients) {
+        double[] grams = new double[ingredients.size()];
+        boolean needsFactors = false;
+        for (int i = 0; i < grams.length; i++) {
+            IngredientDTO ingredient = ingredients.get(i);
+            grams[i] = ingredient.getQuantity();
+            needsFactors |= ingredient.getUnit() != null && !isGramUnit(ingredient.getUnit());
         }
-        
-        // If no exact match, try partial matching for common cases
-        // Handle cases like "package" matching "1 package"
-        for (Map.Entry<Integer, String> entry : measureIdToName.entrySet()) {
-            String measureName = entry.getValue().toLowerCase();
-            String searchUnit = cleanUnitName.toLowerCase();
-            
-            // Check if the unit name contains the search term or vice versa
-            if (measureName.contains(searchUnit) || searchUnit.contains(measureName.replace("1 ", ""))) {
-                System.out.println("🎯 Partial unit match found: '" + cleanUnitName + "' matched with '" + entry.getValue() + "' -> measure ID " + entry.getKey());
-                return entry.getKey();
+        if (!needsFactors) {
+            return grams;
+        }
+        if (!isInitialized) {
+            try {
+                initialize();
+            } catch (IOException e) {
+                System.err.println("Failed to initialize UnitConversionService: " + e.getMessage());
+                return grams; // Assume already in grams
             }
         }
-        
-        System.err.println("❌ No unit match found for: '" + cleanUnitName + "'");
-        System.err.println("Available units for debugging:");
-        for (Map.Entry<Integer, String> entry : measureIdToName.entrySet()) {
-            if (entry.getValue().toLowerCase().contains("package") || 
-                entry.getValue().toLowerCase().contains("slice") ||
-                entry.getValue().toLowerCase().contains("cup")) {
-                System.err.println("  - " + entry.getKey() + ": '" + entry.getValue() + "'");
+
+        MeasureDictionary measures = measureDictionary;
+        ConversionFactorTable table = conversionFactors;
+        List<String> unconverted = new ArrayList<>();
+        for (int i = 0; i < grams.length; i++) {
+            IngredientDTO ingredient = ingredients.get(i);
+            String unit = ingredient.getUnit();
+            if (unit == null || isGramUnit(unit)) {
+                continue;
+            }
+            double gramsPerUnit = ingredient.hasFoodId()
+                ? gramsPerUnit(measures, table, ingredient.getFoodId(), unit) : Double.NaN;
+            if (Double.isNaN(gramsPerUnit)) {
+                unconverted.add(ingredient.getQuantity() + " " + unit + " of " + ingredient.getName());
+            } else {
+                grams[i] = ingredient.getQuantity() * gramsPerUnit;
             }
         }
-        
-        return null;
+        if (!unconverted.isEmpty()) {
+            System.err.println("No conversion factors for " + unconverted + ", assuming grams");
+        }
+        return grams;
+    }
+
+    /**
+     * Grams in one of a unit for a food, or NaN if the food has no factor for it
+     */
+    private static double gramsPerUnit(MeasureDictionary measures, ConversionFactorTable table, int foodId,
+                                       String unit) {
+        int food = table.foodOrdinal(foodId);
+        if (food < 0) {
+            return Double.NaN;
+        }
+        int measureId = measures.find(unit, table.measureIds(), table.start(food), table.end(food));
+        if (measureId < 0) {
+            return Double.NaN;
+        }
+        return measures.quantityOf(unit) / measures.quantity(measureId) * table.factor(foodId, measureId)
+            * GRAMS_PER_FACTOR;
+    }
+
+    /**
+     * Check if a unit represents grams
+     */
+    private static boolean isGramUnit(String unit) {
+        String trimmedUnit = unit.trim();
+        return trimmedUnit.equalsIgnoreCase("g") || trimmedUnit.equalsIgnoreCase("grams") || 
+               trimmedUnit.equalsIgnoreCase("1 g") || trimmedUnit.equalsIgnoreCase("gram");
     }
 
     /**
      * Get default units when specific units are not available
      */
-    private List<String> getDefaultUnits() {
+    private static List<String> getDefaultUnits() {
         List<String> defaults = new ArrayList<>();
         defaults.add("1 g");
         defaults.add("1 ml");
@@ -306,7 +373,7 @@ public class UnitConversionService {
      */
     public String getStatus() {
         return String.format("UnitConversionService: initialized=%s, measures=%d, foods=%d", 
-                           isInitialized, measureIdToName.size(), foodIdToMeasureFactors.size());
+                           isInitialized, measureDictionary.size(), conversionFactors.foodCount());
     }
 
     /**
@@ -13,6 +13,8 @@ public class SwapHistory {
     private UUID profileId;
     private String originalFood;
     private String replacementFood;
+    private int originalFoodId;    // CNF FoodIDs, 0 if not resolved
+    private int replacementFoodId;
     private String swapReason;
     private String goalType;
     private double impactScore;
@@ -69,6 +71,12 @@ public class SwapHistory {
     public String getReplacementFood() { return replacementFood; }
     public void setReplacementFood(String replacementFood) { this.replacementFood = replacementFood; }
     
+    public int getOriginalFoodId() { return originalFoodId; }
+    public void setOriginalFoodId(int originalFoodId) { this.originalFoodId = originalFoodId; }
+    
+    public int getReplacementFoodId() { return replacementFoodId; }
+    public void setReplacementFoodId(int replacementFoodId) { this.replacementFoodId = replacementFoodId; }
+    
     public String getSwapReason() { return swapReason; }
     public void setSwapReason(String swapReason) { this.swapReason = swapReason; }
     
@@ -24,22 +24,23 @@ public class DecreaseCaloriesStrategy implements SwapStrategy {
         
         List<SwapDTO> swaps = new ArrayList<>();
         
-        // Get nutrition info for current food
-        NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(currentFood);
-        
         // Find lower-calorie alternatives
         List<String> candidates = findSimilarIngredients(currentFood);
         
+        // Nutrition info for the current food and every candidate in one lookup
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, currentFood, candidates);
+        NutrientInfo originalNutrition = nutrition.get(currentFood);
+        
         for (String candidate : candidates) {
             if (candidate.equals(currentFood)) continue;
             
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually lower in calories
             if (candidateNutrition.getCalories() < originalNutrition.getCalories()) {
                 SwapDTO swap = createSwap(currentFood, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                swaps.add(swap);
+                swaps.add(nutrition.identify(swap));
             }
         }
         
@@ -80,15 +81,24 @@ public class DecreaseCaloriesStrategy implements SwapStrategy {
         List<String> ingredients = meal.getIngredientNames();
         List<Double> quantities = meal.getQuantities();
         
+        // Candidates for every ingredient, then nutrition info for all of them in one lookup
+        Map<String, List<String>> candidates = findSimilarIngredients(ingredients);
+        List<String> foods = new ArrayList<>(ingredients);
+        for (String ingredient : ingredients) {
+            foods.addAll(candidates.get(ingredient));
+        }
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, foods);
+        
         for (int i = 0; i < ingredients.size(); i++) {
             String ingredient = ingredients.get(i);
             double quantity = quantities.get(i);
             
             // Get nutrition info for current ingredient
-            NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(ingredient);
+            NutrientInfo originalNutrition = nutrition.get(ingredient);
             
             // Find lower-calorie alternatives
-            List<SwapDTO> ingredientSwaps = findLowerCalorieAlternatives(ingredient, quantity, originalNutrition, goal);
+            List<SwapDTO> ingredientSwaps = findLowerCalorieAlternatives(ingredient, quantity, originalNutrition, goal, nutrition,
+                    candidates.get(ingredient));
             swaps.addAll(ingredientSwaps);
         }
         
@@ -124,20 +134,18 @@ public class DecreaseCaloriesStrategy implements SwapStrategy {
     }
     
     private List<SwapDTO> findLowerCalorieAlternatives(String originalIngredient, double quantity, 
-                                                      NutrientInfo originalNutrition, SwapGoalDTO goal) {
+                                                      NutrientInfo originalNutrition, SwapGoalDTO goal,
+                                                      NutritionBatch nutrition, List<String> candidates) {
         List<SwapDTO> alternatives = new ArrayList<>();
         
-        // Get similar ingredients
-        List<String> candidates = findSimilarIngredients(originalIngredient);
-        
         for (String candidate : candidates) {
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually lower in calories
             if (candidateNutrition.getCalories() < originalNutrition.getCalories()) {
                 SwapDTO swap = createSwap(originalIngredient, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                alternatives.add(swap);
+                alternatives.add(nutrition.identify(swap));
             }
         }
         
@@ -145,21 +153,12 @@ public class DecreaseCaloriesStrategy implements SwapStrategy {
     }
     
     private List<String> findSimilarIngredients(String ingredient) {
-        // Simple ingredient categorization for swaps
-        String lower = ingredient.toLowerCase();
-        
-        if (lower.contains("bread") || lower.contains("pasta")) {
-            return Arrays.asList("whole wheat bread", "brown rice", "quinoa", "oats");
-        } else if (lower.contains("beef") || lower.contains("pork")) {
-            return Arrays.asList("chicken breast", "turkey", "fish", "tofu");
-        } else if (lower.contains("milk") || lower.contains("cheese")) {
-            return Arrays.asList("skim milk", "almond milk", "low-fat cheese", "yogurt");
-        } else if (lower.contains("oil") || lower.contains("butter")) {
-            return Arrays.asList("olive oil", "cooking spray", "avocado");
-        } else {
-            // Generic alternatives
-            return Arrays.asList("vegetables", "fruits", "lean protein", "whole grains");
-        }
+        // Nearest foods of the same food group with fewer calories
+        return SwapCandidates.find(nutritionGateway, ingredient, "calories", true);
+    }
+    
+    private Map<String, List<String>> findSimilarIngredients(List<String> ingredients) {
+        return SwapCandidates.find(nutritionGateway, ingredients, "calories", true);
     }
     
     private SwapDTO createSwap(String original, String suggested, 
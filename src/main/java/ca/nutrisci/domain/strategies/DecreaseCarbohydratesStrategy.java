@@ -24,22 +24,23 @@ public class DecreaseCarbohydratesStrategy implements SwapStrategy {
         
         List<SwapDTO> swaps = new ArrayList<>();
         
-        // Get nutrition info for current food
-        NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(currentFood);
-        
         // Find lower-carbohydrate alternatives
         List<String> candidates = findSimilarIngredients(currentFood);
         
+        // Nutrition info for the current food and every candidate in one lookup
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, currentFood, candidates);
+        NutrientInfo originalNutrition = nutrition.get(currentFood);
+        
         for (String candidate : candidates) {
             if (candidate.equals(currentFood)) continue;
             
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually lower in carbohydrates
             if (candidateNutrition.getCarbs() < originalNutrition.getCarbs()) {
                 SwapDTO swap = createSwap(currentFood, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                swaps.add(swap);
+                swaps.add(nutrition.identify(swap));
             }
         }
         
@@ -80,15 +81,24 @@ public class DecreaseCarbohydratesStrategy implements SwapStrategy {
         List<String> ingredients = meal.getIngredientNames();
         List<Double> quantities = meal.getQuantities();
         
+        // Candidates for every ingredient, then nutrition info for all of them in one lookup
+        Map<String, List<String>> candidates = findSimilarIngredients(ingredients);
+        List<String> foods = new ArrayList<>(ingredients);
+        for (String ingredient : ingredients) {
+            foods.addAll(candidates.get(ingredient));
+        }
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, foods);
+        
         for (int i = 0; i < ingredients.size(); i++) {
             String ingredient = ingredients.get(i);
             double quantity = quantities.get(i);
             
             // Get nutrition info for current ingredient
-            NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(ingredient);
+            NutrientInfo originalNutrition = nutrition.get(ingredient);
             
             // Find lower-carbohydrate alternatives
-            List<SwapDTO> ingredientSwaps = findLowerCarbohydrateAlternatives(ingredient, quantity, originalNutrition, goal);
+            List<SwapDTO> ingredientSwaps = findLowerCarbohydrateAlternatives(ingredient, quantity, originalNutrition, goal, nutrition,
+                    candidates.get(ingredient));
             swaps.addAll(ingredientSwaps);
         }
         
@@ -124,20 +134,18 @@ public class DecreaseCarbohydratesStrategy implements SwapStrategy {
     }
     
     private List<SwapDTO> findLowerCarbohydrateAlternatives(String originalIngredient, double quantity, 
-                                                      NutrientInfo originalNutrition, SwapGoalDTO goal) {
+                                                      NutrientInfo originalNutrition, SwapGoalDTO goal,
+                                                      NutritionBatch nutrition, List<String> candidates) {
         List<SwapDTO> alternatives = new ArrayList<>();
         
-        // Get similar ingredients
-        List<String> candidates = findSimilarIngredients(originalIngredient);
-        
         for (String candidate : candidates) {
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually lower in carbohydrates
             if (candidateNutrition.getCarbs() < originalNutrition.getCarbs()) {
                 SwapDTO swap = createSwap(originalIngredient, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                alternatives.add(swap);
+                alternatives.add(nutrition.identify(swap));
             }
         }
         
@@ -145,25 +153,12 @@ public class DecreaseCarbohydratesStrategy implements SwapStrategy {
     }
     
     private List<String> findSimilarIngredients(String ingredient) {
-        // Simple ingredient categorization for low-carb swaps
-        String lower = ingredient.toLowerCase();
-        
-        if (lower.contains("bread") || lower.contains("toast")) {
-            return Arrays.asList("lettuce wraps", "cauliflower bread", "protein bread", "eggs");
-        } else if (lower.contains("pasta") || lower.contains("noodles")) {
-            return Arrays.asList("zucchini noodles", "shirataki noodles", "spaghetti squash", "cauliflower rice");
-        } else if (lower.contains("rice")) {
-            return Arrays.asList("cauliflower rice", "broccoli rice", "shirataki rice", "quinoa");
-        } else if (lower.contains("potato")) {
-            return Arrays.asList("cauliflower mash", "turnip", "radish", "broccoli");
-        } else if (lower.contains("fruit") || lower.contains("apple") || lower.contains("banana")) {
-            return Arrays.asList("berries", "avocado", "nuts", "vegetables");
-        } else if (lower.contains("cereal") || lower.contains("oats")) {
-            return Arrays.asList("nuts", "seeds", "eggs", "protein powder");
-        } else {
-            // Generic low-carb alternatives
-            return Arrays.asList("vegetables", "protein", "nuts", "seeds");
-        }
+        // Nearest foods of the same food group with less carbohydrates
+        return SwapCandidates.find(nutritionGateway, ingredient, "carbs", true);
+    }
+    
+    private Map<String, List<String>> findSimilarIngredients(List<String> ingredients) {
+        return SwapCandidates.find(nutritionGateway, ingredients, "carbs", true);
     }
     
     private SwapDTO createSwap(String original, String suggested, 
@@ -24,22 +24,23 @@ public class DecreaseFatStrategy implements SwapStrategy {
         
         List<SwapDTO> swaps = new ArrayList<>();
         
-        // Get nutrition info for current food
-        NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(currentFood);
-        
         // Find lower-fat alternatives
         List<String> candidates = findSimilarIngredients(currentFood);
         
+        // Nutrition info for the current food and every candidate in one lookup
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, currentFood, candidates);
+        NutrientInfo originalNutrition = nutrition.get(currentFood);
+        
         for (String candidate : candidates) {
             if (candidate.equals(currentFood)) continue;
             
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually lower in fat
             if (candidateNutrition.getFat() < originalNutrition.getFat()) {
                 SwapDTO swap = createSwap(currentFood, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                swaps.add(swap);
+                swaps.add(nutrition.identify(swap));
             }
         }
         
@@ -80,15 +81,24 @@ public class DecreaseFatStrategy implements SwapStrategy {
         List<String> ingredients = meal.getIngredientNames();
         List<Double> quantities = meal.getQuantities();
         
+        // Candidates for every ingredient, then nutrition info for all of them in one lookup
+        Map<String, List<String>> candidates = findSimilarIngredients(ingredients);
+        List<String> foods = new ArrayList<>(ingredients);
+        for (String ingredient : ingredients) {
+            foods.addAll(candidates.get(ingredient));
+        }
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, foods);
+        
         for (int i = 0; i < ingredients.size(); i++) {
             String ingredient = ingredients.get(i);
             double quantity = quantities.get(i);
             
             // Get nutrition info for current ingredient
-            NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(ingredient);
+            NutrientInfo originalNutrition = nutrition.get(ingredient);
             
             // Find lower-fat alternatives
-            List<SwapDTO> ingredientSwaps = findLowerFatAlternatives(ingredient, quantity, originalNutrition, goal);
+            List<SwapDTO> ingredientSwaps = findLowerFatAlternatives(ingredient, quantity, originalNutrition, goal, nutrition,
+                    candidates.get(ingredient));
             swaps.addAll(ingredientSwaps);
         }
         
@@ -124,20 +134,18 @@ public class DecreaseFatStrategy implements SwapStrategy {
     }
     
     private List<SwapDTO> findLowerFatAlternatives(String originalIngredient, double quantity, 
-                                                      NutrientInfo originalNutrition, SwapGoalDTO goal) {
+                                                      NutrientInfo originalNutrition, SwapGoalDTO goal,
+                                                      NutritionBatch nutrition, List<String> candidates) {
         List<SwapDTO> alternatives = new ArrayList<>();
         
-        // Get similar ingredients
-        List<String> candidates = findSimilarIngredients(originalIngredient);
-        
         for (String candidate : candidates) {
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually lower in fat
             if (candidateNutrition.getFat() < originalNutrition.getFat()) {
                 SwapDTO swap = createSwap(originalIngredient, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                alternatives.add(swap);
+                alternatives.add(nutrition.identify(swap));
             }
         }
         
@@ -145,27 +153,12 @@ public class DecreaseFatStrategy implements SwapStrategy {
     }
     
     private List<String> findSimilarIngredients(String ingredient) {
-        // Simple ingredient categorization for low-fat swaps
-        String lower = ingredient.toLowerCase();
-        
-        if (lower.contains("beef") || lower.contains("pork") || lower.contains("lamb")) {
-            return Arrays.asList("chicken breast", "turkey breast", "fish", "tofu", "egg whites");
-        } else if (lower.contains("chicken thigh") || lower.contains("dark meat")) {
-            return Arrays.asList("chicken breast", "turkey breast", "fish", "egg whites");
-        } else if (lower.contains("cheese") || lower.contains("cream")) {
-            return Arrays.asList("low-fat cheese", "cottage cheese", "skim milk", "greek yogurt");
-        } else if (lower.contains("milk") || lower.contains("yogurt")) {
-            return Arrays.asList("skim milk", "almond milk", "low-fat yogurt", "greek yogurt");
-        } else if (lower.contains("nuts") || lower.contains("seeds") || lower.contains("avocado")) {
-            return Arrays.asList("fruits", "vegetables", "rice", "pasta");
-        } else if (lower.contains("oil") || lower.contains("butter")) {
-            return Arrays.asList("cooking spray", "broth", "water", "lemon juice");
-        } else if (lower.contains("fried") || lower.contains("crispy")) {
-            return Arrays.asList("grilled", "baked", "steamed", "boiled");
-        } else {
-            // Generic low-fat alternatives
-            return Arrays.asList("lean protein", "vegetables", "fruits", "whole grains");
-        }
+        // Nearest foods of the same food group with less fat
+        return SwapCandidates.find(nutritionGateway, ingredient, "fat", true);
+    }
+    
+    private Map<String, List<String>> findSimilarIngredients(List<String> ingredients) {
+        return SwapCandidates.find(nutritionGateway, ingredients, "fat", true);
     }
     
     private SwapDTO createSwap(String original, String suggested, 
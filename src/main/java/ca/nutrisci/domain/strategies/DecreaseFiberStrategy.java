@@ -24,22 +24,23 @@ public class DecreaseFiberStrategy implements SwapStrategy {
         
         List<SwapDTO> swaps = new ArrayList<>();
         
-        // Get nutrition info for current food
-        NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(currentFood);
-        
         // Find lower-fiber alternatives
         List<String> candidates = findSimilarIngredients(currentFood);
         
+        // Nutrition info for the current food and every candidate in one lookup
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, currentFood, candidates);
+        NutrientInfo originalNutrition = nutrition.get(currentFood);
+        
         for (String candidate : candidates) {
             if (candidate.equals(currentFood)) continue;
             
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually lower in fiber
             if (candidateNutrition.getFiber() < originalNutrition.getFiber()) {
                 SwapDTO swap = createSwap(currentFood, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                swaps.add(swap);
+                swaps.add(nutrition.identify(swap));
             }
         }
         
@@ -80,15 +81,24 @@ public class DecreaseFiberStrategy implements SwapStrategy {
         List<String> ingredients = meal.getIngredientNames();
         List<Double> quantities = meal.getQuantities();
         
+        // Candidates for every ingredient, then nutrition info for all of them in one lookup
+        Map<String, List<String>> candidates = findSimilarIngredients(ingredients);
+        List<String> foods = new ArrayList<>(ingredients);
+        for (String ingredient : ingredients) {
+            foods.addAll(candidates.get(ingredient));
+        }
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, foods);
+        
         for (int i = 0; i < ingredients.size(); i++) {
             String ingredient = ingredients.get(i);
             double quantity = quantities.get(i);
             
             // Get nutrition info for current ingredient
-            NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(ingredient);
+            NutrientInfo originalNutrition = nutrition.get(ingredient);
             
             // Find lower-fiber alternatives
-            List<SwapDTO> ingredientSwaps = findLowerFiberAlternatives(ingredient, quantity, originalNutrition, goal);
+            List<SwapDTO> ingredientSwaps = findLowerFiberAlternatives(ingredient, quantity, originalNutrition, goal, nutrition,
+                    candidates.get(ingredient));
             swaps.addAll(ingredientSwaps);
         }
         
@@ -124,20 +134,18 @@ public class DecreaseFiberStrategy implements SwapStrategy {
     }
     
     private List<SwapDTO> findLowerFiberAlternatives(String originalIngredient, double quantity, 
-                                                      NutrientInfo originalNutrition, SwapGoalDTO goal) {
+                                                      NutrientInfo originalNutrition, SwapGoalDTO goal,
+                                                      NutritionBatch nutrition, List<String> candidates) {
         List<SwapDTO> alternatives = new ArrayList<>();
         
-        // Get similar ingredients
-        List<String> candidates = findSimilarIngredients(originalIngredient);
-        
         for (String candidate : candidates) {
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually lower in fiber
             if (candidateNutrition.getFiber() < originalNutrition.getFiber()) {
                 SwapDTO swap = createSwap(originalIngredient, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                alternatives.add(swap);
+                alternatives.add(nutrition.identify(swap));
             }
         }
         
@@ -145,29 +153,12 @@ public class DecreaseFiberStrategy implements SwapStrategy {
     }
     
     private List<String> findSimilarIngredients(String ingredient) {
-        // Simple ingredient categorization for low-fiber swaps
-        String lower = ingredient.toLowerCase();
-        
-        if (lower.contains("whole wheat") || lower.contains("whole grain")) {
-            return Arrays.asList("white bread", "white rice", "refined pasta", "crackers");
-        } else if (lower.contains("brown rice") || lower.contains("wild rice")) {
-            return Arrays.asList("white rice", "pasta", "refined grains");
-        } else if (lower.contains("oats") || lower.contains("bran")) {
-            return Arrays.asList("corn flakes", "rice cereal", "refined cereal");
-        } else if (lower.contains("beans") || lower.contains("lentils")) {
-            return Arrays.asList("rice", "pasta", "potatoes", "meat");
-        } else if (lower.contains("apple") || lower.contains("pear")) {
-            return Arrays.asList("peeled apple", "apple juice", "melon", "grapes");
-        } else if (lower.contains("berries") || lower.contains("raspberries")) {
-            return Arrays.asList("grapes", "melon", "peaches", "banana");
-        } else if (lower.contains("broccoli") || lower.contains("brussels sprouts")) {
-            return Arrays.asList("lettuce", "cucumber", "zucchini", "carrots");
-        } else if (lower.contains("nuts") || lower.contains("seeds")) {
-            return Arrays.asList("meat", "cheese", "refined snacks");
-        } else {
-            // Generic low-fiber alternatives
-            return Arrays.asList("white rice", "refined pasta", "peeled fruits", "lean protein");
-        }
+        // Nearest foods of the same food group with less fiber
+        return SwapCandidates.find(nutritionGateway, ingredient, "fiber", true);
+    }
+    
+    private Map<String, List<String>> findSimilarIngredients(List<String> ingredients) {
+        return SwapCandidates.find(nutritionGateway, ingredients, "fiber", true);
     }
     
     private SwapDTO createSwap(String original, String suggested, 
@@ -24,22 +24,23 @@ public class DecreaseProteinStrategy implements SwapStrategy {
         
         List<SwapDTO> swaps = new ArrayList<>();
         
-        // Get nutrition info for current food
-        NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(currentFood);
-        
         // Find lower-protein alternatives
         List<String> candidates = findSimilarIngredients(currentFood);
         
+        // Nutrition info for the current food and every candidate in one lookup
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, currentFood, candidates);
+        NutrientInfo originalNutrition = nutrition.get(currentFood);
+        
         for (String candidate : candidates) {
             if (candidate.equals(currentFood)) continue;
             
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually lower in protein
             if (candidateNutrition.getProtein() < originalNutrition.getProtein()) {
                 SwapDTO swap = createSwap(currentFood, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                swaps.add(swap);
+                swaps.add(nutrition.identify(swap));
             }
         }
         
@@ -80,15 +81,24 @@ public class DecreaseProteinStrategy implements SwapStrategy {
         List<String> ingredients = meal.getIngredientNames();
         List<Double> quantities = meal.getQuantities();
         
+        // Candidates for every ingredient, then nutrition info for all of them in one lookup
+        Map<String, List<String>> candidates = findSimilarIngredients(ingredients);
+        List<String> foods = new ArrayList<>(ingredients);
+        for (String ingredient : ingredients) {
+            foods.addAll(candidates.get(ingredient));
+        }
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, foods);
+        
         for (int i = 0; i < ingredients.size(); i++) {
             String ingredient = ingredients.get(i);
             double quantity = quantities.get(i);
             
             // Get nutrition info for current ingredient
-            NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(ingredient);
+            NutrientInfo originalNutrition = nutrition.get(ingredient);
             
             // Find lower-protein alternatives
-            List<SwapDTO> ingredientSwaps = findLowerProteinAlternatives(ingredient, quantity, originalNutrition, goal);
+            List<SwapDTO> ingredientSwaps = findLowerProteinAlternatives(ingredient, quantity, originalNutrition, goal, nutrition,
+                    candidates.get(ingredient));
             swaps.addAll(ingredientSwaps);
         }
         
@@ -124,20 +134,18 @@ public class DecreaseProteinStrategy implements SwapStrategy {
     }
     
     private List<SwapDTO> findLowerProteinAlternatives(String originalIngredient, double quantity, 
-                                                      NutrientInfo originalNutrition, SwapGoalDTO goal) {
+                                                      NutrientInfo originalNutrition, SwapGoalDTO goal,
+                                                      NutritionBatch nutrition, List<String> candidates) {
         List<SwapDTO> alternatives = new ArrayList<>();
         
-        // Get similar ingredients
-        List<String> candidates = findSimilarIngredients(originalIngredient);
-        
         for (String candidate : candidates) {
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually lower in protein
             if (candidateNutrition.getProtein() < originalNutrition.getProtein()) {
                 SwapDTO swap = createSwap(originalIngredient, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                alternatives.add(swap);
+                alternatives.add(nutrition.identify(swap));
             }
         }
         
@@ -145,25 +153,12 @@ public class DecreaseProteinStrategy implements SwapStrategy {
     }
     
     private List<String> findSimilarIngredients(String ingredient) {
-        // Simple ingredient categorization for lower-protein swaps
-        String lower = ingredient.toLowerCase();
-        
-        if (lower.contains("beef") || lower.contains("chicken") || lower.contains("pork")) {
-            return Arrays.asList("vegetables", "rice", "pasta", "potatoes");
-        } else if (lower.contains("fish") || lower.contains("seafood")) {
-            return Arrays.asList("vegetables", "rice", "pasta", "fruits");
-        } else if (lower.contains("eggs")) {
-            return Arrays.asList("vegetables", "fruits", "rice", "oats");
-        } else if (lower.contains("beans") || lower.contains("lentils")) {
-            return Arrays.asList("vegetables", "fruits", "rice", "pasta");
-        } else if (lower.contains("cheese") || lower.contains("yogurt")) {
-            return Arrays.asList("fruits", "vegetables", "rice", "pasta");
-        } else if (lower.contains("nuts") || lower.contains("seeds")) {
-            return Arrays.asList("fruits", "vegetables", "rice", "crackers");
-        } else {
-            // Generic lower-protein alternatives
-            return Arrays.asList("fruits", "vegetables", "rice", "pasta");
-        }
+        // Nearest foods of the same food group with less protein
+        return SwapCandidates.find(nutritionGateway, ingredient, "protein", true);
+    }
+    
+    private Map<String, List<String>> findSimilarIngredients(List<String> ingredients) {
+        return SwapCandidates.find(nutritionGateway, ingredients, "protein", true);
     }
     
     private SwapDTO createSwap(String original, String suggested, 
@@ -24,22 +24,23 @@ public class IncreaseCarbohydratesStrategy implements SwapStrategy {
         
         List<SwapDTO> swaps = new ArrayList<>();
         
-        // Get nutrition info for current food
-        NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(currentFood);
-        
         // Find higher-carbohydrate alternatives
         List<String> candidates = findSimilarIngredients(currentFood);
         
+        // Nutrition info for the current food and every candidate in one lookup
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, currentFood, candidates);
+        NutrientInfo originalNutrition = nutrition.get(currentFood);
+        
         for (String candidate : candidates) {
             if (candidate.equals(currentFood)) continue;
             
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually higher in carbohydrates
             if (candidateNutrition.getCarbs() > originalNutrition.getCarbs()) {
                 SwapDTO swap = createSwap(currentFood, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                swaps.add(swap);
+                swaps.add(nutrition.identify(swap));
             }
         }
         
@@ -80,15 +81,24 @@ public class IncreaseCarbohydratesStrategy implements SwapStrategy {
         List<String> ingredients = meal.getIngredientNames();
         List<Double> quantities = meal.getQuantities();
         
+        // Candidates for every ingredient, then nutrition info for all of them in one lookup
+        Map<String, List<String>> candidates = findSimilarIngredients(ingredients);
+        List<String> foods = new ArrayList<>(ingredients);
+        for (String ingredient : ingredients) {
+            foods.addAll(candidates.get(ingredient));
+        }
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, foods);
+        
         for (int i = 0; i < ingredients.size(); i++) {
             String ingredient = ingredients.get(i);
             double quantity = quantities.get(i);
             
             // Get nutrition info for current ingredient
-            NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(ingredient);
+            NutrientInfo originalNutrition = nutrition.get(ingredient);
             
             // Find higher-carbohydrate alternatives
-            List<SwapDTO> ingredientSwaps = findHigherCarbohydrateAlternatives(ingredient, quantity, originalNutrition, goal);
+            List<SwapDTO> ingredientSwaps = findHigherCarbohydrateAlternatives(ingredient, quantity, originalNutrition, goal, nutrition,
+                    candidates.get(ingredient));
             swaps.addAll(ingredientSwaps);
         }
         
@@ -124,20 +134,18 @@ public class IncreaseCarbohydratesStrategy implements SwapStrategy {
     }
     
     private List<SwapDTO> findHigherCarbohydrateAlternatives(String originalIngredient, double quantity, 
-                                                      NutrientInfo originalNutrition, SwapGoalDTO goal) {
+                                                      NutrientInfo originalNutrition, SwapGoalDTO goal,
+                                                      NutritionBatch nutrition, List<String> candidates) {
         List<SwapDTO> alternatives = new ArrayList<>();
         
-        // Get similar ingredients
-        List<String> candidates = findSimilarIngredients(originalIngredient);
-        
         for (String candidate : candidates) {
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually higher in carbohydrates
             if (candidateNutrition.getCarbs() > originalNutrition.getCarbs()) {
                 SwapDTO swap = createSwap(originalIngredient, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                alternatives.add(swap);
+                alternatives.add(nutrition.identify(swap));
             }
         }
         
@@ -145,23 +153,12 @@ public class IncreaseCarbohydratesStrategy implements SwapStrategy {
     }
     
     private List<String> findSimilarIngredients(String ingredient) {
-        // Simple ingredient categorization for high-carb swaps
-        String lower = ingredient.toLowerCase();
-        
-        if (lower.contains("protein") || lower.contains("chicken") || lower.contains("meat")) {
-            return Arrays.asList("rice", "pasta", "bread", "potatoes", "quinoa");
-        } else if (lower.contains("vegetable") || lower.contains("salad")) {
-            return Arrays.asList("sweet potatoes", "corn", "peas", "carrots", "beets");
-        } else if (lower.contains("fat") || lower.contains("oil") || lower.contains("nuts")) {
-            return Arrays.asList("rice", "pasta", "bread", "oats", "bananas");
-        } else if (lower.contains("cheese") || lower.contains("dairy")) {
-            return Arrays.asList("rice", "pasta", "bread", "crackers", "fruit");
-        } else if (lower.contains("egg")) {
-            return Arrays.asList("toast", "oatmeal", "fruit", "rice", "pasta");
-        } else {
-            // Generic high-carb alternatives
-            return Arrays.asList("rice", "pasta", "bread", "potatoes", "oats", "bananas");
-        }
+        // Nearest foods of the same food group with more carbohydrates
+        return SwapCandidates.find(nutritionGateway, ingredient, "carbs", false);
+    }
+    
+    private Map<String, List<String>> findSimilarIngredients(List<String> ingredients) {
+        return SwapCandidates.find(nutritionGateway, ingredients, "carbs", false);
     }
     
     private SwapDTO createSwap(String original, String suggested, 
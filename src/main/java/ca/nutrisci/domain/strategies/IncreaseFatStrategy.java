@@ -24,22 +24,23 @@ public class IncreaseFatStrategy implements SwapStrategy {
         
         List<SwapDTO> swaps = new ArrayList<>();
         
-        // Get nutrition info for current food
-        NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(currentFood);
-        
         // Find higher-fat alternatives
         List<String> candidates = findSimilarIngredients(currentFood);
         
+        // Nutrition info for the current food and every candidate in one lookup
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, currentFood, candidates);
+        NutrientInfo originalNutrition = nutrition.get(currentFood);
+        
         for (String candidate : candidates) {
             if (candidate.equals(currentFood)) continue;
             
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually higher in fat
             if (candidateNutrition.getFat() > originalNutrition.getFat()) {
                 SwapDTO swap = createSwap(currentFood, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                swaps.add(swap);
+                swaps.add(nutrition.identify(swap));
             }
         }
         
@@ -80,15 +81,24 @@ public class IncreaseFatStrategy implements SwapStrategy {
         List<String> ingredients = meal.getIngredientNames();
         List<Double> quantities = meal.getQuantities();
         
+        // Candidates for every ingredient, then nutrition info for all of them in one lookup
+        Map<String, List<String>> candidates = findSimilarIngredients(ingredients);
+        List<String> foods = new ArrayList<>(ingredients);
+        for (String ingredient : ingredients) {
+            foods.addAll(candidates.get(ingredient));
+        }
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, foods);
+        
         for (int i = 0; i < ingredients.size(); i++) {
             String ingredient = ingredients.get(i);
             double quantity = quantities.get(i);
             
             // Get nutrition info for current ingredient
-            NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(ingredient);
+            NutrientInfo originalNutrition = nutrition.get(ingredient);
             
             // Find higher-fat alternatives
-            List<SwapDTO> ingredientSwaps = findHigherFatAlternatives(ingredient, quantity, originalNutrition, goal);
+            List<SwapDTO> ingredientSwaps = findHigherFatAlternatives(ingredient, quantity, originalNutrition, goal, nutrition,
+                    candidates.get(ingredient));
             swaps.addAll(ingredientSwaps);
         }
         
@@ -124,20 +134,18 @@ public class IncreaseFatStrategy implements SwapStrategy {
     }
     
     private List<SwapDTO> findHigherFatAlternatives(String originalIngredient, double quantity, 
-                                                      NutrientInfo originalNutrition, SwapGoalDTO goal) {
+                                                      NutrientInfo originalNutrition, SwapGoalDTO goal,
+                                                      NutritionBatch nutrition, List<String> candidates) {
         List<SwapDTO> alternatives = new ArrayList<>();
         
-        // Get similar ingredients
-        List<String> candidates = findSimilarIngredients(originalIngredient);
-        
         for (String candidate : candidates) {
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually higher in fat
             if (candidateNutrition.getFat() > originalNutrition.getFat()) {
                 SwapDTO swap = createSwap(originalIngredient, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                alternatives.add(swap);
+                alternatives.add(nutrition.identify(swap));
             }
         }
         
@@ -145,27 +153,12 @@ public class IncreaseFatStrategy implements SwapStrategy {
     }
     
     private List<String> findSimilarIngredients(String ingredient) {
-        // Simple ingredient categorization for high-fat swaps
-        String lower = ingredient.toLowerCase();
-        
-        if (lower.contains("chicken breast") || lower.contains("turkey breast")) {
-            return Arrays.asList("chicken thigh", "salmon", "beef", "pork", "duck");
-        } else if (lower.contains("lean") || lower.contains("white fish")) {
-            return Arrays.asList("salmon", "tuna", "mackerel", "sardines", "beef");
-        } else if (lower.contains("skim milk") || lower.contains("low-fat")) {
-            return Arrays.asList("whole milk", "cream", "full-fat yogurt", "cheese");
-        } else if (lower.contains("vegetable") || lower.contains("salad")) {
-            return Arrays.asList("avocado", "nuts", "seeds", "olive oil dressing");
-        } else if (lower.contains("rice") || lower.contains("pasta") || lower.contains("bread")) {
-            return Arrays.asList("buttered rice", "cream pasta", "buttered bread", "nuts");
-        } else if (lower.contains("fruit")) {
-            return Arrays.asList("avocado", "coconut", "nuts", "nut butter");
-        } else if (lower.contains("cooking spray") || lower.contains("water")) {
-            return Arrays.asList("olive oil", "butter", "coconut oil", "avocado oil");
-        } else {
-            // Generic high-fat alternatives
-            return Arrays.asList("nuts", "seeds", "avocado", "olive oil", "cheese", "fatty fish");
-        }
+        // Nearest foods of the same food group with more fat
+        return SwapCandidates.find(nutritionGateway, ingredient, "fat", false);
+    }
+    
+    private Map<String, List<String>> findSimilarIngredients(List<String> ingredients) {
+        return SwapCandidates.find(nutritionGateway, ingredients, "fat", false);
     }
     
     private SwapDTO createSwap(String original, String suggested, 
@@ -24,22 +24,23 @@ public class IncreaseFiberStrategy implements SwapStrategy {
         
         List<SwapDTO> swaps = new ArrayList<>();
         
-        // Get nutrition info for current food
-        NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(currentFood);
-        
         // Find higher-fiber alternatives
         List<String> candidates = findSimilarIngredients(currentFood);
         
+        // Nutrition info for the current food and every candidate in one lookup
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, currentFood, candidates);
+        NutrientInfo originalNutrition = nutrition.get(currentFood);
+        
         for (String candidate : candidates) {
             if (candidate.equals(currentFood)) continue;
             
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually higher in fiber
             if (candidateNutrition.getFiber() > originalNutrition.getFiber()) {
                 SwapDTO swap = createSwap(currentFood, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                swaps.add(swap);
+                swaps.add(nutrition.identify(swap));
             }
         }
         
@@ -80,15 +81,24 @@ public class IncreaseFiberStrategy implements SwapStrategy {
         List<String> ingredients = meal.getIngredientNames();
         List<Double> quantities = meal.getQuantities();
         
+        // Candidates for every ingredient, then nutrition info for all of them in one lookup
+        Map<String, List<String>> candidates = findSimilarIngredients(ingredients);
+        List<String> foods = new ArrayList<>(ingredients);
+        for (String ingredient : ingredients) {
+            foods.addAll(candidates.get(ingredient));
+        }
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, foods);
+        
         for (int i = 0; i < ingredients.size(); i++) {
             String ingredient = ingredients.get(i);
             double quantity = quantities.get(i);
             
             // Get nutrition info for current ingredient
-            NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(ingredient);
+            NutrientInfo originalNutrition = nutrition.get(ingredient);
             
             // Find higher-fiber alternatives
-            List<SwapDTO> ingredientSwaps = findHigherFiberAlternatives(ingredient, quantity, originalNutrition, goal);
+            List<SwapDTO> ingredientSwaps = findHigherFiberAlternatives(ingredient, quantity, originalNutrition, goal, nutrition,
+                    candidates.get(ingredient));
             swaps.addAll(ingredientSwaps);
         }
         
@@ -124,20 +134,18 @@ public class IncreaseFiberStrategy implements SwapStrategy {
     }
     
     private List<SwapDTO> findHigherFiberAlternatives(String originalIngredient, double quantity, 
-                                                     NutrientInfo originalNutrition, SwapGoalDTO goal) {
+                                                     NutrientInfo originalNutrition, SwapGoalDTO goal,
+                                                     NutritionBatch nutrition, List<String> candidates) {
         List<SwapDTO> alternatives = new ArrayList<>();
         
-        // Get similar ingredients
-        List<String> candidates = findSimilarIngredients(originalIngredient);
-        
         for (String candidate : candidates) {
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually higher in fiber
             if (candidateNutrition.getFiber() > originalNutrition.getFiber()) {
                 SwapDTO swap = createSwap(originalIngredient, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                alternatives.add(swap);
+                alternatives.add(nutrition.identify(swap));
             }
         }
         
@@ -145,23 +153,12 @@ public class IncreaseFiberStrategy implements SwapStrategy {
     }
     
     private List<String> findSimilarIngredients(String ingredient) {
-        // Simple ingredient categorization for high-fiber swaps
-        String lower = ingredient.toLowerCase();
-        
-        if (lower.contains("bread") || lower.contains("pasta")) {
-            return Arrays.asList("whole wheat bread", "oat bran", "quinoa", "brown rice", "whole grain pasta");
-        } else if (lower.contains("rice") || lower.contains("grain")) {
-            return Arrays.asList("brown rice", "wild rice", "oats", "barley", "quinoa");
-        } else if (lower.contains("cereal")) {
-            return Arrays.asList("oat bran", "bran flakes", "whole grain cereal", "oats");
-        } else if (lower.contains("fruit")) {
-            return Arrays.asList("apples with skin", "pears", "berries", "oranges");
-        } else if (lower.contains("vegetable")) {
-            return Arrays.asList("broccoli", "brussels sprouts", "artichokes", "beans", "lentils");
-        } else {
-            // Generic high-fiber alternatives
-            return Arrays.asList("beans", "lentils", "vegetables", "whole grains", "fruits");
-        }
+        // Nearest foods of the same food group with more fiber
+        return SwapCandidates.find(nutritionGateway, ingredient, "fiber", false);
+    }
+    
+    private Map<String, List<String>> findSimilarIngredients(List<String> ingredients) {
+        return SwapCandidates.find(nutritionGateway, ingredients, "fiber", false);
     }
     
     private SwapDTO createSwap(String original, String suggested, 
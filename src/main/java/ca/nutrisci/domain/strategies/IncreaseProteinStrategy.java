@@ -24,22 +24,23 @@ public class IncreaseProteinStrategy implements SwapStrategy {
         
         List<SwapDTO> swaps = new ArrayList<>();
         
-        // Get nutrition info for current food
-        NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(currentFood);
-        
         // Find higher-protein alternatives
         List<String> candidates = findSimilarIngredients(currentFood);
         
+        // Nutrition info for the current food and every candidate in one lookup
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, currentFood, candidates);
+        NutrientInfo originalNutrition = nutrition.get(currentFood);
+        
         for (String candidate : candidates) {
             if (candidate.equals(currentFood)) continue;
             
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually higher in protein
             if (candidateNutrition.getProtein() > originalNutrition.getProtein()) {
                 SwapDTO swap = createSwap(currentFood, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                swaps.add(swap);
+                swaps.add(nutrition.identify(swap));
             }
         }
         
@@ -80,15 +81,24 @@ public class IncreaseProteinStrategy implements SwapStrategy {
         List<String> ingredients = meal.getIngredientNames();
         List<Double> quantities = meal.getQuantities();
         
+        // Candidates for every ingredient, then nutrition info for all of them in one lookup
+        Map<String, List<String>> candidates = findSimilarIngredients(ingredients);
+        List<String> foods = new ArrayList<>(ingredients);
+        for (String ingredient : ingredients) {
+            foods.addAll(candidates.get(ingredient));
+        }
+        NutritionBatch nutrition = NutritionBatch.lookup(nutritionGateway, foods);
+        
         for (int i = 0; i < ingredients.size(); i++) {
             String ingredient = ingredients.get(i);
             double quantity = quantities.get(i);
             
             // Get nutrition info for current ingredient
-            NutrientInfo originalNutrition = nutritionGateway.lookupIngredient(ingredient);
+            NutrientInfo originalNutrition = nutrition.get(ingredient);
             
             // Find higher-protein alternatives
-            List<SwapDTO> ingredientSwaps = findHigherProteinAlternatives(ingredient, quantity, originalNutrition, goal);
+            List<SwapDTO> ingredientSwaps = findHigherProteinAlternatives(ingredient, quantity, originalNutrition, goal, nutrition,
+                    candidates.get(ingredient));
             swaps.addAll(ingredientSwaps);
         }
         
@@ -124,20 +134,18 @@ public class IncreaseProteinStrategy implements SwapStrategy {
     }
     
     private List<SwapDTO> findHigherProteinAlternatives(String originalIngredient, double quantity, 
-                                                      NutrientInfo originalNutrition, SwapGoalDTO goal) {
+                                                      NutrientInfo originalNutrition, SwapGoalDTO goal,
+                                                      NutritionBatch nutrition, List<String> candidates) {
         List<SwapDTO> alternatives = new ArrayList<>();
         
-        // Get similar ingredients
-        List<String> candidates = findSimilarIngredients(originalIngredient);
-        
         for (String candidate : candidates) {
-            NutrientInfo candidateNutrition = nutritionGateway.lookupIngredient(candidate);
+            NutrientInfo candidateNutrition = nutrition.get(candidate);
             
             // Check if it's actually higher in protein
             if (candidateNutrition.getProtein() > originalNutrition.getProtein()) {
                 SwapDTO swap = createSwap(originalIngredient, candidate, 
                                         originalNutrition, candidateNutrition, goal);
-                alternatives.add(swap);
+                alternatives.add(nutrition.identify(swap));
             }
         }
         
@@ -145,25 +153,12 @@ public class IncreaseProteinStrategy implements SwapStrategy {
     }
     
     private List<String> findSimilarIngredients(String ingredient) {
-        // Simple ingredient categorization for high-protein swaps
-        String lower = ingredient.toLowerCase();
-        
-        if (lower.contains("rice") || lower.contains("pasta") || lower.contains("bread")) {
-            return Arrays.asList("chicken breast", "fish", "tofu", "eggs", "protein pasta");
-        } else if (lower.contains("vegetable") || lower.contains("salad")) {
-            return Arrays.asList("chicken breast", "fish", "tofu", "beans", "lentils");
-        } else if (lower.contains("fruit")) {
-            return Arrays.asList("greek yogurt", "protein smoothie", "nuts", "seeds");
-        } else if (lower.contains("snack") || lower.contains("chip")) {
-            return Arrays.asList("nuts", "seeds", "protein bar", "hard-boiled eggs");
-        } else if (lower.contains("cheese")) {
-            return Arrays.asList("cottage cheese", "greek yogurt", "protein cheese");
-        } else if (lower.contains("milk")) {
-            return Arrays.asList("protein shake", "greek yogurt", "protein milk");
-        } else {
-            // Generic high-protein alternatives
-            return Arrays.asList("chicken breast", "fish", "eggs", "tofu", "beans", "lentils", "greek yogurt");
-        }
+        // Nearest foods of the same food group with more protein
+        return SwapCandidates.find(nutritionGateway, ingredient, "protein", false);
+    }
+    
+    private Map<String, List<String>> findSimilarIngredients(List<String> ingredients) {
+        return SwapCandidates.find(nutritionGateway, ingredients, "protein", false);
     }
     
     private SwapDTO createSwap(String original, String suggested, 
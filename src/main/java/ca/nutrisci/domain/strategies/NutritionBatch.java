@@ -0,0 +1,77 @@
+package ca.nutrisci.domain.strategies;
+
+import ca.nutrisci.application.dto.FoodRef;
+import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.application.dto.SwapDTO;
+import ca.nutrisci.infrastructure.external.adapters.INutritionGateway;
+import java.util.*;
+
+/**
+ * NutritionBatch - Nutrition info for a set of foods, resolved in one gateway call
+ * Part of the Domain Layer
+ *
+ * Strategies collect every food they are about to compare (the meal's
+ * ingredients and all candidate swaps) and resolve the names together; the
+ * nutrition info is then read by food id, and swaps are tagged with the ids
+ * of both foods.
+ */
+final class NutritionBatch {
+
+    private final Map<String, FoodRef> refByFood;
+    private final Map<String, NutrientInfo> nutritionByFood;
+
+    private NutritionBatch(Map<String, FoodRef> refByFood, Map<String, NutrientInfo> nutritionByFood) {
+        this.refByFood = refByFood;
+        this.nutritionByFood = nutritionByFood;
+    }
+
+    static NutritionBatch lookup(INutritionGateway nutritionGateway, List<String> foods) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(foods));
+        List<FoodRef> refs = nutritionGateway.resolveFoods(distinct);
+
+        Map<String, FoodRef> refByFood = new HashMap<>();
+        Map<String, NutrientInfo> nutritionByFood = new HashMap<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            FoodRef ref = refs.get(i);
+            NutrientInfo nutrition = ref != null ? nutritionGateway.lookupNutrientInfo(ref.getFoodId()) : null;
+            if (nutrition == null) {
+                // Same minimal default as lookupIngredient for unknown foods
+                nutrition = new NutrientInfo(50, 2.0, 5.0, 1.0, 0.5);
+            }
+            refByFood.put(distinct.get(i), ref);
+            nutritionByFood.put(distinct.get(i), nutrition);
+        }
+        return new NutritionBatch(refByFood, nutritionByFood);
+    }
+
+    static NutritionBatch lookup(INutritionGateway nutritionGateway, String food, List<String> candidates) {
+        List<String> foods = new ArrayList<>(candidates.size() + 1);
+        foods.add(food);
+        foods.addAll(candidates);
+        return lookup(nutritionGateway, foods);
+    }
+
+    /**
+     * Nutrition info of a food passed to lookup
+     */
+    NutrientInfo get(String food) {
+        return nutritionByFood.get(food);
+    }
+
+    /**
+     * CNF FoodID a food passed to lookup resolved to, or FoodRef.UNRESOLVED_ID
+     */
+    int foodId(String food) {
+        FoodRef ref = refByFood.get(food);
+        return ref != null ? ref.getFoodId() : FoodRef.UNRESOLVED_ID;
+    }
+
+    /**
+     * Tag a swap between two looked-up foods with their food ids
+     */
+    SwapDTO identify(SwapDTO swap) {
+        swap.setOriginalFoodId(foodId(swap.getOriginalFood()));
+        swap.setReplacementFoodId(foodId(swap.getReplacementFood()));
+        return swap;
+    }
+}
@@ -0,0 +1,52 @@
+package ca.nutrisci.domain.strategies;
+
+import ca.nutrisci.application.dto.FoodRef;
+import ca.nutrisci.infrastructure.external.adapters.INutritionGateway;
+import java.util.*;
+
+/**
+ * SwapCandidates - Foods a strategy considers swapping ingredients for
+ * Part of the Domain Layer
+ *
+ * The ingredients are resolved to CNF foods in one gateway call, then each
+ * food's candidates come from the gateway's nutrient-space index: the foods
+ * of the same food group closest to it by macronutrient profile that have
+ * less (or more) of the strategy's nutrient. Ingredients the CNF does not
+ * know get no candidates.
+ */
+final class SwapCandidates {
+
+    // Candidates per ingredient; SwapEngine keeps at most 5 swaps per goal
+    static final int CANDIDATE_COUNT = 8;
+
+    private SwapCandidates() {}
+
+    /**
+     * Candidate names for each distinct ingredient, closest first
+     * @param nutrient The goal target: "calories", "protein", "carbs", "fat" or "fiber"
+     * @param lower true to decrease the nutrient, false to increase it
+     */
+    static Map<String, List<String>> find(INutritionGateway nutritionGateway, List<String> ingredients,
+                                          String nutrient, boolean lower) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ingredients));
+        List<FoodRef> refs = nutritionGateway.resolveFoods(distinct);
+
+        Map<String, List<String>> candidates = new HashMap<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            List<String> names = new ArrayList<>();
+            FoodRef ref = refs.get(i);
+            if (ref != null) {
+                for (FoodRef similar : nutritionGateway.findSimilarFoods(ref.getFoodId(), nutrient, lower,
+                                                                         CANDIDATE_COUNT)) {
+                    names.add(similar.getName());
+                }
+            }
+            candidates.put(distinct.get(i), names);
+        }
+        return candidates;
+    }
+
+    static List<String> find(INutritionGateway nutritionGateway, String ingredient, String nutrient, boolean lower) {
+        return find(nutritionGateway, Collections.singletonList(ingredient), nutrient, lower).get(ingredient);
+    }
+}
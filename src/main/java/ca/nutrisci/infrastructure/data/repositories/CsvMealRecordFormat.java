@@ -0,0 +1,227 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import ca.nutrisci.application.dto.IngredientDTO;
+import ca.nutrisci.application.dto.MealDTO;
+import ca.nutrisci.application.dto.NutrientInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * CsvMealRecordFormat - The meals.csv record format
+ * Part of the Infrastructure Layer
+ *
+ * One line per record: a meal's fields with ingredients, quantities and the
+ * other per-ingredient columns packed with "|" delimiters, or a tombstone
+ * ("id,DELETED"). Files written before the log format are read as-is (one
+ * record per meal).
+ */
+final class CsvMealRecordFormat implements MealRecordFormat {
+
+    private static final String HEADER = "id,profileId,date,mealType,ingredients,quantities,nutrients,foodIds,asPurchased,units";
+    private static final String TOMBSTONE = "DELETED";
+
+    private final DateTimeFormatter dateFormatter = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    @Override
+    public byte[] header() {
+        return line(HEADER);
+    }
+
+    @Override
+    public boolean isHeader(byte[] frame, int offset, int length) {
+        return text(frame, offset, length).startsWith("id,");
+    }
+
+    @Override
+    public int frameLength(byte[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == '\n') {
+                return i - from + 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public byte[] frameTerminator() {
+        return new byte[] {'\n'};
+    }
+
+    @Override
+    public MealKey readKey(byte[] frame, int offset, int length) {
+        String record = text(frame, offset, length);
+        if (record.trim().isEmpty()) {
+            return null; // Blank line, e.g. left by a hand edit
+        }
+        String[] fields = record.split(",", 5);
+        if (fields[0].equals("id")) {
+            return null; // Header
+        }
+        UUID id = UUID.fromString(fields[0].trim());
+        if (fields.length == 2 && fields[1].trim().equals(TOMBSTONE)) {
+            return MealKey.tombstone(id);
+        }
+        return new MealKey(id, UUID.fromString(fields[1]), LocalDate.parse(fields[2], dateFormatter), fields[3]);
+    }
+
+    @Override
+    public MealDTO readMeal(byte[] frame, int offset, int length) {
+        return parseMealFromCSV(text(frame, offset, length));
+    }
+
+    @Override
+    public List<byte[]> writeMeal(MealDTO meal) {
+        return Collections.singletonList(line(formatMealToCSV(meal)));
+    }
+
+    @Override
+    public byte[] writeTombstone(UUID mealId) {
+        return line(mealId + "," + TOMBSTONE);
+    }
+
+    @Override
+    public List<byte[]> preamble() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void reset() {
+        // Nothing learned from the log
+    }
+
+    private static byte[] line(String record) {
+        return (record + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // The line without its break; files written by the old PrintWriter code on Windows end lines with \r\n
+    private static String text(byte[] frame, int offset, int length) {
+        int end = offset + length - 1;
+        if (end > offset && frame[end - 1] == '\r') {
+            end--;
+        }
+        return new String(frame, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private MealDTO parseMealFromCSV(String line) {
+        try {
+            // Simple CSV parsing with quoted fields
+            String[] parts = parseCSVLine(line);
+            // foodIds, asPurchased and units were added later; older files have 7 to 9 columns
+            if (parts.length < 7 || parts.length > 10) {
+                System.err.println("Invalid CSV line format: " + line);
+                return null;
+            }
+
+            UUID id = UUID.fromString(parts[0]);
+            UUID profileId = UUID.fromString(parts[1]);
+            LocalDate date = LocalDate.parse(parts[2], dateFormatter);
+            String mealType = parts[3];
+
+            // Parse ingredients and quantities using pipe delimiter
+            List<String> ingredients = Arrays.asList(parts[4].split("\\|"));
+            List<Double> quantities = Arrays.stream(parts[5].split("\\|"))
+                .map(Double::parseDouble)
+                .collect(Collectors.toList());
+
+            // Parse nutrition info
+            String[] nutritionParts = parts[6].split(",");
+            NutrientInfo nutrients = new NutrientInfo(
+                Double.parseDouble(nutritionParts[0]), // calories
+                Double.parseDouble(nutritionParts[1]), // protein
+                Double.parseDouble(nutritionParts[2]), // carbs
+                Double.parseDouble(nutritionParts[3]), // fat
+                Double.parseDouble(nutritionParts[4])  // fiber
+            );
+
+            MealDTO meal = new MealDTO(id, profileId, date, mealType, ingredients, quantities, nutrients);
+            List<IngredientDTO> mealIngredients = meal.getIngredients();
+            if (parts.length >= 8 && !parts[7].isEmpty()) {
+                String[] foodIds = parts[7].split("\\|");
+                for (int i = 0; i < foodIds.length && i < mealIngredients.size(); i++) {
+                    mealIngredients.get(i).setFoodId(Integer.parseInt(foodIds[i]));
+                }
+            }
+            if (parts.length >= 9 && !parts[8].isEmpty()) {
+                String[] asPurchased = parts[8].split("\\|");
+                for (int i = 0; i < asPurchased.length && i < mealIngredients.size(); i++) {
+                    mealIngredients.get(i).setAsPurchased("1".equals(asPurchased[i]));
+                }
+            }
+            // Quantities are in these units; without the column they are grams
+            if (parts.length == 10 && !parts[9].isEmpty()) {
+                String[] units = parts[9].split("\\|");
+                for (int i = 0; i < units.length && i < mealIngredients.size(); i++) {
+                    mealIngredients.get(i).setUnit(units[i]);
+                }
+            }
+            return meal;
+
+        } catch (Exception e) {
+            System.err.println("Error parsing meal from CSV: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Simple CSV parsing helper
+    private String[] parseCSVLine(String line) {
+        List<String> result = new ArrayList<>();
+        boolean inQuotes = false;
+        StringBuilder current = new StringBuilder();
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == ',' && !inQuotes) {
+                result.add(current.toString());
+                current = new StringBuilder();
+            } else {
+                current.append(c);
+            }
+        }
+        result.add(current.toString());
+
+        return result.toArray(new String[0]);
+    }
+
+    private String formatMealToCSV(MealDTO meal) {
+        // Simplified CSV format - use pipe delimiters for lists (KISS principle)
+        String ingredientsStr = String.join("|", meal.getIngredientNames());
+        String quantitiesStr = meal.getQuantities().stream()
+            .map(String::valueOf)
+            .collect(Collectors.joining("|"));
+
+        // Simple nutrition format
+        NutrientInfo nutrients = meal.getNutrients();
+        String nutrientsStr = String.format("%.1f,%.1f,%.1f,%.1f,%.1f",
+            nutrients.getCalories(), nutrients.getProtein(), nutrients.getCarbs(),
+            nutrients.getFat(), nutrients.getFiber());
+
+        // CNF food ids, FoodRef.UNRESOLVED_ID (0) where an ingredient was never resolved
+        String foodIdsStr = Arrays.stream(meal.getFoodIds())
+            .mapToObj(String::valueOf)
+            .collect(Collectors.joining("|"));
+        String asPurchasedStr = meal.getIngredients().stream()
+            .map(ingredient -> ingredient.isAsPurchased() ? "1" : "0")
+            .collect(Collectors.joining("|"));
+        String unitsStr = meal.getIngredients().stream()
+            .map(ingredient -> ingredient.getUnit() != null ? ingredient.getUnit() : "g")
+            .collect(Collectors.joining("|"));
+
+        return String.format("%s,%s,%s,%s,\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\"",
+            meal.getId().toString(),
+            meal.getProfileId().toString(),
+            meal.getDate().format(dateFormatter),
+            meal.getMealType(),
+            ingredientsStr,
+            quantitiesStr,
+            nutrientsStr,
+            foodIdsStr,
+            asPurchasedStr,
+            unitsStr);
+    }
+}
@@ -1,56 +1,227 @@
 package ca.nutrisci.infrastructure.data.repositories;
 
 import ca.nutrisci.application.dto.MealDTO;
-import ca.nutrisci.application.dto.NutrientInfo;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * FileMealLogRepo - File-based implementation of MealLogRepo
- * Stores meal data in CSV files with JSON serialization for complex fields
+ * Part of the Infrastructure Layer
+ * This repository persists meals to an append-only record log: CSV lines
+ * (meals.csv) or MealRecordCodec's binary records (meals.bin), see
+ * MealStorageFormat.
+ *
+ * Adding or editing a meal appends its full record and deleting one appends
+ * a tombstone; the latest record of an id wins. Opening the repo scans the
+ * log once into an in-memory index of where each live meal's record is,
+ * with each profile's meal ids by date in a TreeMap, so a query reads only
+ * the records it returns. A file changed outside the app is indexed again.
+ * Once dead records outnumber live ones, the log is compacted on a
+ * background thread into a file of only the live records, which atomically
+ * replaces it.
+ *
+ * Appends are written behind (see WriteBehind), each group with one write
+ * and one fsync, and are readable from memory until then. A crash can only
+ * tear the last group. Nothing unreadable is thrown away: a torn last
+ * record is moved to a side file next to the log (e.g. meals.csv.unreadable)
+ * when the log is opened, and records that cannot be read are copied there
+ * when compaction drops them. Binary records carry a checksum, so a corrupt
+ * one in the middle of the log is skipped rather than taken for the end of
+ * it. A last CSV line missing only its line break is kept.
  */
 public class FileMealLogRepo implements MealLogRepo {
     
+    // Compact once at least this many records are dead and they outnumber the live ones
+    private static final int COMPACTION_MIN_DEAD_RECORDS = 1000;
+    
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "meal-log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
     private final String filePath;
-    private final DateTimeFormatter dateFormatter;
+    private final Path path;
+    private final Path unreadablePath;
+    private final MealRecordFormat format; // Guarded by this, like the index
+    
+    // Guarded by this
+    private FileChannel channel;
+    private long end; // Where the next record is appended
+    private long written; // The file holds the records before this; the rest are in pending
+    private final RecordBuffer pending = new RecordBuffer();
+    private boolean unforced; // Written since the last fsync
+    private FileTime lastModified; // Of the file as this repo last wrote or read it
+    private MealIndex index = new MealIndex();
+    private boolean compacting;
+    
+    private final WriteBehind writeBehind;
     
     public FileMealLogRepo(String filePath) {
+        this(filePath, MealStorageFormat.CSV);
+    }
+    
+    public FileMealLogRepo(String filePath, MealStorageFormat storageFormat) {
         this.filePath = filePath;
-        this.dateFormatter = DateTimeFormatter.ISO_LOCAL_DATE;
+        this.path = Paths.get(filePath);
+        this.unreadablePath = Paths.get(filePath + ".unreadable");
+        this.format = storageFormat.newRecordFormat();
+        this.writeBehind = new WriteBehind(filePath, this::flushPending);
         ensureFileExists();
+        openLog();
+    }
+    
+    /**
+     * Where a live meal's latest record is, with the fields queries filter on
+     */
+    private static final class MealEntry {
+        final long offset;
+        final int length; // Bytes of the whole frame (line break or length prefix included)
+        final UUID profileId;
+        final LocalDate date;
+        final String mealType;
+        
+        MealEntry(long offset, int length, UUID profileId, LocalDate date, String mealType) {
+            this.offset = offset;
+            this.length = length;
+            this.profileId = profileId;
+            this.date = date;
+            this.mealType = mealType;
+        }
+        
+        MealEntry movedTo(long newOffset) {
+            return new MealEntry(newOffset, length, profileId, date, mealType);
+        }
+    }
+    
+    /**
+     * Records appended but not yet written, readable in place
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+        
+        ByteBuffer contents() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+    
+    /**
+     * Live meals in first-added order, the same meals by profile and date, how
+     * many records in the log are dead, and where the unreadable ones are
+     */
+    private static final class MealIndex {
+        final Map<UUID, MealEntry> meals = new LinkedHashMap<>();
+        final Map<UUID, TreeMap<LocalDate, List<UUID>>> byProfileAndDate = new HashMap<>();
+        final List<long[]> unreadable = new ArrayList<>(); // [start, end) byte ranges
+        long deadRecords;
+        
+        /**
+         * Add or replace a meal's entry; returns the one it replaced, if any
+         */
+        MealEntry put(UUID id, MealEntry entry) {
+            MealEntry previous = meals.put(id, entry);
+            if (previous != null && previous.profileId.equals(entry.profileId) && previous.date.equals(entry.date)) {
+                return previous; // Same day, so it keeps its place in it
+            }
+            if (previous != null) {
+                unlink(id, previous);
+            }
+            byProfileAndDate.computeIfAbsent(entry.profileId, k -> new TreeMap<>())
+                .computeIfAbsent(entry.date, k -> new ArrayList<>(4))
+                .add(id);
+            return previous;
+        }
+        
+        MealEntry remove(UUID id) {
+            MealEntry entry = meals.remove(id);
+            if (entry != null) {
+                unlink(id, entry);
+            }
+            return entry;
+        }
+        
+        /**
+         * A profile's meal ids by date (empty if it has none); must not be modified
+         */
+        NavigableMap<LocalDate, List<UUID>> days(UUID profileId) {
+            TreeMap<LocalDate, List<UUID>> days = byProfileAndDate.get(profileId);
+            return days != null ? days : Collections.emptyNavigableMap();
+        }
+        
+        private void unlink(UUID id, MealEntry entry) {
+            TreeMap<LocalDate, List<UUID>> days = byProfileAndDate.get(entry.profileId);
+            List<UUID> ids = days.get(entry.date);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                days.remove(entry.date);
+                if (days.isEmpty()) {
+                    byProfileAndDate.remove(entry.profileId);
+                }
+            }
+        }
     }
     
     /**
      * Clear all meal data - useful for testing or recovering from corrupted files
      */
-    public void clearAllData() {
+    public synchronized void clearAllData() {
         try {
+            awaitCompaction();
+            closeLog();
             File file = new File(filePath);
             if (file.exists()) {
                 file.delete();
             }
             ensureFileExists();
+            openLog();
             System.out.println("✅ Cleared all meal data from " + filePath);
         } catch (Exception e) {
             System.err.println("❌ Error clearing meal data: " + e.getMessage());
         }
     }
     
+    /**
+     * Write pending records and release the log file; the repo must not be used afterwards
+     */
+    public void close() {
+        writeBehind.close(); // Not under the lock: the writer thread takes it inside its flush
+        synchronized (this) {
+            awaitCompaction();
+            closeLog();
+        }
+    }
+    
+    /**
+     * Write the records added so far to disk and fsync them; they are otherwise
+     * written shortly after they are added
+     */
+    public void flush() {
+        writeBehind.flush();
+    }
+    
     private void ensureFileExists() {
         File file = new File(filePath);
         if (!file.exists()) {
-            file.getParentFile().mkdirs();
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
             try {
-                file.createNewFile();
-                // Write header
-                try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
-                    writer.println("id,profileId,date,mealType,ingredients,quantities,nutrients");
-                }
+                Files.write(path, format.header());
             } catch (IOException e) {
                 System.err.println("Error creating meal log file: " + e.getMessage());
             }
@@ -58,222 +229,612 @@ public class FileMealLogRepo implements MealLogRepo {
     }
     
     @Override
-    public List<MealDTO> getMealLogHistory(UUID profileId) {
-        List<MealDTO> allMeals = loadAllMeals();
-        return allMeals.stream()
-            .filter(meal -> meal.getProfileId().equals(profileId))
-            .sorted(Comparator.comparing(MealDTO::getDate).reversed())
-            .collect(Collectors.toList());
+    public synchronized List<MealDTO> getMealLogHistory(UUID profileId) {
+        reindexIfChanged();
+        return readMeals(index.days(profileId).descendingMap().values(), null); // Newest first
     }
     
     @Override
-    public List<MealDTO> getMealsByTimeInterval(UUID profileId, LocalDate startDate, LocalDate endDate) {
-        List<MealDTO> allMeals = loadAllMeals();
-        return allMeals.stream()
-            .filter(meal -> meal.getProfileId().equals(profileId))
-            .filter(meal -> !meal.getDate().isBefore(startDate) && !meal.getDate().isAfter(endDate))
-            .sorted(Comparator.comparing(MealDTO::getDate))
-            .collect(Collectors.toList());
+    public synchronized List<MealDTO> getMealsByTimeInterval(UUID profileId, LocalDate startDate, LocalDate endDate) {
+        reindexIfChanged();
+        if (startDate.isAfter(endDate)) {
+            return new ArrayList<>();
+        }
+        return readMeals(index.days(profileId).subMap(startDate, true, endDate, true).values(), null);
     }
     
     @Override
-    public List<MealDTO> getMealsByDate(UUID profileId, LocalDate date) {
-        List<MealDTO> allMeals = loadAllMeals();
-        return allMeals.stream()
-            .filter(meal -> meal.getProfileId().equals(profileId))
-            .filter(meal -> meal.getDate().equals(date))
-            .collect(Collectors.toList());
+    public synchronized List<MealDTO> getMealsByDate(UUID profileId, LocalDate date) {
+        reindexIfChanged();
+        return readMeals(index.days(profileId).subMap(date, true, date, true).values(), null);
     }
     
     @Override
-    public MealDTO getSingleMealById(UUID mealId) {
-        List<MealDTO> allMeals = loadAllMeals();
-        return allMeals.stream()
-            .filter(meal -> meal.getId().equals(mealId))
-            .findFirst()
-            .orElse(null);
+    public synchronized MealDTO getSingleMealById(UUID mealId) {
+        reindexIfChanged();
+        MealEntry entry = index.meals.get(mealId);
+        return entry != null ? readMeal(entry) : null;
     }
     
     @Override
-    public MealDTO addMeal(MealDTO meal) {
+    public synchronized MealDTO addMeal(MealDTO meal) {
+        reindexIfChanged();
         if (meal.getId() == null) {
             meal.setId(UUID.randomUUID());
         }
         
-        List<MealDTO> allMeals = loadAllMeals();
-        allMeals.add(meal);
-        saveMeals(allMeals);
-        
+        appendMeal(meal);
         return meal;
     }
     
     @Override
-    public MealDTO editMeal(UUID mealId, MealDTO updatedMeal) {
-        List<MealDTO> allMeals = loadAllMeals();
-        
-        for (int i = 0; i < allMeals.size(); i++) {
-            if (allMeals.get(i).getId().equals(mealId)) {
-                updatedMeal.setId(mealId);
-                allMeals.set(i, updatedMeal);
-                saveMeals(allMeals);
-                return updatedMeal;
-            }
+    public synchronized MealDTO editMeal(UUID mealId, MealDTO updatedMeal) {
+        reindexIfChanged();
+        if (!index.meals.containsKey(mealId)) {
+            throw new IllegalArgumentException("Meal not found: " + mealId);
         }
         
-        throw new IllegalArgumentException("Meal not found: " + mealId);
+        updatedMeal.setId(mealId);
+        appendMeal(updatedMeal);
+        return updatedMeal;
     }
     
     @Override
-    public void deleteMeal(UUID mealId) {
-        List<MealDTO> allMeals = loadAllMeals();
-        boolean removed = allMeals.removeIf(meal -> meal.getId().equals(mealId));
-        
-        if (removed) {
-            saveMeals(allMeals);
-        } else {
+    public synchronized void deleteMeal(UUID mealId) {
+        reindexIfChanged();
+        if (!index.meals.containsKey(mealId)) {
             throw new IllegalArgumentException("Meal not found: " + mealId);
         }
+        
+        appendFrames(Collections.singletonList(format.writeTombstone(mealId)));
     }
     
     @Override
-    public boolean mealExists(UUID mealId) {
-        List<MealDTO> allMeals = loadAllMeals();
-        return allMeals.stream()
-            .anyMatch(meal -> meal.getId().equals(mealId));
+    public synchronized boolean mealExists(UUID mealId) {
+        reindexIfChanged();
+        return index.meals.containsKey(mealId);
     }
     
     @Override
-    public List<MealDTO> getMealsByTypeAndDate(UUID profileId, LocalDate date, String mealType) {
-        List<MealDTO> allMeals = loadAllMeals();
-        return allMeals.stream()
-            .filter(meal -> meal.getProfileId().equals(profileId))
-            .filter(meal -> meal.getDate().equals(date))
-            .filter(meal -> meal.getMealType().equalsIgnoreCase(mealType))
-            .collect(Collectors.toList());
+    public synchronized List<MealDTO> getMealsByTypeAndDate(UUID profileId, LocalDate date, String mealType) {
+        reindexIfChanged();
+        return readMeals(index.days(profileId).subMap(date, true, date, true).values(), mealType);
     }
     
-    private List<MealDTO> loadAllMeals() {
-        List<MealDTO> meals = new ArrayList<>();
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            boolean firstLine = true;
-            
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) {
-                    firstLine = false;
-                    continue; // Skip header
-                }
-                
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-                
-                MealDTO meal = parseMealFromCSV(line);
-                if (meal != null) {
-                    meals.add(meal);
+    /**
+     * Rewrite the log with only its live records, now (compaction otherwise
+     * happens on its own in the background)
+     */
+    public void compact() {
+        synchronized (this) {
+            awaitCompaction();
+            compacting = true;
+        }
+        runCompaction();
+    }
+    
+    /**
+     * Number of live meals and of dead records in the log, for monitoring
+     */
+    public synchronized String getLogStats() {
+        return index.meals.size() + " meals, " + index.deadRecords + " dead records, " + end + " bytes";
+    }
+    
+    /**
+     * Copy the live meals of a log into a new log in another format, in the
+     * order they were first added and with their ids kept
+     * @return Number of meals copied
+     * @throws IllegalArgumentException if the target file already exists
+     */
+    public static int convert(String sourcePath, MealStorageFormat sourceFormat,
+                              String targetPath, MealStorageFormat targetFormat) {
+        if (Files.exists(Paths.get(targetPath))) {
+            throw new IllegalArgumentException("Meal log already exists: " + targetPath);
+        }
+        FileMealLogRepo source = new FileMealLogRepo(sourcePath, sourceFormat);
+        FileMealLogRepo target = new FileMealLogRepo(targetPath, targetFormat);
+        try {
+            int copied = 0;
+            synchronized (source) {
+                for (MealEntry entry : source.index.meals.values()) {
+                    MealDTO meal = source.readMeal(entry);
+                    if (meal != null) {
+                        target.addMeal(meal);
+                        copied++;
+                    }
                 }
             }
+            return copied;
+        } finally {
+            source.close();
+            target.close();
+        }
+    }
+    
+    // Log storage
+    
+    private void openLog() {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = new MealIndex();
+            format.reset();
+            long size = channel.size();
+            end = scan(channel, 0, size, 0, index);
+            if (end < size) {
+                end = recoverTail(end, size);
+            }
+            if (end == 0) {
+                end = writeFully(channel, ByteBuffer.wrap(format.header()), 0); // Even the header was cut short
+            }
+            written = end;
+            lastModified = Files.getLastModifiedTime(path);
         } catch (IOException e) {
+            // Not appended to: writing over a file this repo cannot read would lose it
             System.err.println("Error reading meal log file: " + e.getMessage());
+            closeLog();
+        }
+    }
+    
+    /**
+     * Deal with the bytes after the last complete record. A last record missing
+     * only its terminator (a hand-edited CSV without a final line break) is
+     * completed and kept; anything else, such as a record torn by a crash, is
+     * moved to the side file.
+     * @return The new end of the log
+     * @throws IOException if the file is not a log in this format at all
+     */
+    private long recoverTail(long from, long size) throws IOException {
+        int length = (int) Math.min(size - from, Integer.MAX_VALUE - 8);
+        byte[] terminator = format.frameTerminator();
+        if (terminator != null) {
+            byte[] frame = Arrays.copyOf(readFrame(channel, from, length), length + terminator.length);
+            System.arraycopy(terminator, 0, frame, length, terminator.length);
+            if (length == size - from && isReadable(frame, from)) {
+                writeFully(channel, ByteBuffer.wrap(terminator), size);
+                applyFrame(index, frame, 0, frame.length, from);
+                System.out.println("✏️ Completed the last record of " + filePath + ", which had no line break");
+                return size + terminator.length;
+            }
+        }
+        if (from == 0 && !isHeaderPrefix(readFrame(channel, 0, (int) Math.min(size, format.header().length)), size)) {
+            throw new IOException(filePath + " is not a meal log in this format");
         }
         
+        saveUnreadable(channel, from, size);
+        channel.truncate(from);
+        System.err.println("⚠️ Moved " + (size - from) + " bytes of an incomplete record at the end of " + filePath
+            + " to " + unreadablePath);
+        return from;
+    }
+    
+    // Whether a frame is a complete record this format can read (at the start of the log, its header)
+    private boolean isReadable(byte[] frame, long position) {
+        if (format.frameLength(frame, 0, frame.length) != frame.length) {
+            return false;
+        }
+        if (position == 0) {
+            return format.isHeader(frame, 0, frame.length);
+        }
+        try {
+            MealRecordFormat.MealKey key = format.readKey(frame, 0, frame.length);
+            return key == null || key.isTombstone() || format.readMeal(frame, 0, frame.length) != null;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+    
+    // A file holding only the start of this format's header (created just before a crash)
+    private boolean isHeaderPrefix(byte[] start, long size) {
+        byte[] header = format.header();
+        return size < header.length && Arrays.equals(start, Arrays.copyOf(header, start.length));
+    }
+    
+    /**
+     * Append [from, to) of a log to the side file and force it, before the
+     * log loses those bytes
+     */
+    private void saveUnreadable(FileChannel log, long from, long to) throws IOException {
+        try (FileChannel side = FileChannel.open(unreadablePath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long transferred = 0;
+            while (transferred < to - from) {
+                transferred += log.transferTo(from + transferred, to - from - transferred, side);
+            }
+            side.force(true);
+        }
+    }
+    
+    private void closeLog() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing meal log file: " + e.getMessage());
+        }
+        channel = null;
+        index = new MealIndex();
+        end = 0;
+        written = 0;
+        pending.reset();
+        unforced = false;
+    }
+    
+    /**
+     * Read the meals of some days, in order, optionally only those of one meal type
+     */
+    private List<MealDTO> readMeals(Collection<List<UUID>> days, String mealType) {
+        List<MealDTO> meals = new ArrayList<>();
+        for (List<UUID> ids : days) {
+            for (UUID id : ids) {
+                MealEntry entry = index.meals.get(id);
+                if (mealType == null || mealType.equalsIgnoreCase(entry.mealType)) { // Binary meals may have no type
+                    MealDTO meal = readMeal(entry);
+                    if (meal != null) {
+                        meals.add(meal);
+                    }
+                }
+            }
+        }
         return meals;
     }
     
-    private void saveMeals(List<MealDTO> meals) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            writer.println("id,profileId,date,mealType,ingredients,quantities,nutrients");
-            
-            for (MealDTO meal : meals) {
-                writer.println(formatMealToCSV(meal));
+    /**
+     * Index the file again if it is not the size and age this repo left it at,
+     * i.e. it was edited, replaced or deleted outside the app
+     */
+    private void reindexIfChanged() {
+        try {
+            if (channel != null && Files.size(path) == written && Files.getLastModifiedTime(path).equals(lastModified)) {
+                return;
             }
         } catch (IOException e) {
-            System.err.println("Error writing meal log file: " + e.getMessage());
+            // Deleted: start over with an empty file
+        }
+        System.out.println("🔄 " + filePath + " changed outside the app, indexing it again");
+        awaitCompaction();
+        List<Map.Entry<UUID, MealDTO>> unwritten = unwrittenRecords();
+        closeLog();
+        ensureFileExists();
+        openLog();
+        if (channel == null) {
+            return;
+        }
+        // Records added since the last write still apply on top of the file as it is now. They
+        // are encoded again: what the format learned from the old file (interned names) is gone.
+        for (Map.Entry<UUID, MealDTO> record : unwritten) {
+            if (record.getValue() != null) {
+                appendMeal(record.getValue());
+            } else if (index.meals.containsKey(record.getKey())) {
+                appendFrames(Collections.singletonList(format.writeTombstone(record.getKey())));
+            }
         }
     }
     
-    private MealDTO parseMealFromCSV(String line) {
+    /**
+     * The meals (or, with a null meal, tombstones) buffered but not written, in order
+     */
+    private List<Map.Entry<UUID, MealDTO>> unwrittenRecords() {
+        List<Map.Entry<UUID, MealDTO>> records = new ArrayList<>();
+        byte[] bytes = pending.array();
+        int position = 0;
+        int length;
+        while (position < pending.size() && (length = format.frameLength(bytes, position, pending.size())) > 0) {
+            MealRecordFormat.MealKey key = format.readKey(bytes, position, length);
+            if (key != null) {
+                MealDTO meal = key.isTombstone() ? null : format.readMeal(bytes, position, length);
+                records.add(new AbstractMap.SimpleEntry<>(key.id, meal));
+            }
+            position += length;
+        }
+        return records;
+    }
+    
+    private MealDTO readMeal(MealEntry entry) {
         try {
-            // Simple CSV parsing with quoted fields
-            String[] parts = parseCSVLine(line);
-            if (parts.length != 7) {
-                System.err.println("Invalid CSV line format: " + line);
-                return null;
+            if (entry.offset >= written) {
+                return format.readMeal(pending.array(), (int) (entry.offset - written), entry.length);
             }
-            
-            UUID id = UUID.fromString(parts[0]);
-            UUID profileId = UUID.fromString(parts[1]);
-            LocalDate date = LocalDate.parse(parts[2], dateFormatter);
-            String mealType = parts[3];
-            
-            // Parse ingredients and quantities using pipe delimiter
-            List<String> ingredients = Arrays.asList(parts[4].split("\\|"));
-            List<Double> quantities = Arrays.stream(parts[5].split("\\|"))
-                .map(Double::parseDouble)
-                .collect(Collectors.toList());
-            
-            // Parse nutrition info
-            String[] nutritionParts = parts[6].split(",");
-            NutrientInfo nutrients = new NutrientInfo(
-                Double.parseDouble(nutritionParts[0]), // calories
-                Double.parseDouble(nutritionParts[1]), // protein
-                Double.parseDouble(nutritionParts[2]), // carbs
-                Double.parseDouble(nutritionParts[3]), // fat
-                Double.parseDouble(nutritionParts[4])  // fiber
-            );
-            
-            return new MealDTO(id, profileId, date, mealType, ingredients, quantities, nutrients);
-            
-        } catch (Exception e) {
-            System.err.println("Error parsing meal from CSV: " + e.getMessage());
+            return format.readMeal(readFrame(channel, entry.offset, entry.length), 0, entry.length);
+        } catch (IOException e) {
+            System.err.println("Error reading meal log file: " + e.getMessage());
             return null;
+        } catch (IllegalArgumentException e) {
+            // The record was read when it was indexed, so the file changed under the index
+            throw new IllegalStateException("Meal record at byte " + entry.offset + " of " + filePath
+                + " cannot be decoded: " + e.getMessage(), e);
         }
     }
     
-    // Simple CSV parsing helper
-    private String[] parseCSVLine(String line) {
-        List<String> result = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder current = new StringBuilder();
-        
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                result.add(current.toString());
-                current = new StringBuilder();
-            } else {
-                current.append(c);
-            }
-        }
-        result.add(current.toString());
-        
-        return result.toArray(new String[0]);
+    private void appendMeal(MealDTO meal) {
+        appendFrames(format.writeMeal(meal));
     }
     
-    private String formatMealToCSV(MealDTO meal) {
-        // Simplified CSV format - use pipe delimiters for lists (KISS principle)
-                    String ingredientsStr = String.join("|", meal.getIngredientNames());
-        String quantitiesStr = meal.getQuantities().stream()
-            .map(String::valueOf)
-            .collect(Collectors.joining("|"));
+    private void appendFrames(List<byte[]> frames) {
+        for (byte[] frame : frames) {
+            pending.write(frame, 0, frame.length);
+            applyFrame(index, frame, 0, frame.length, end);
+            end += frame.length;
+        }
+        writeBehind.changed();
         
-        // Simple nutrition format
-        NutrientInfo nutrients = meal.getNutrients();
-        String nutrientsStr = String.format("%.1f,%.1f,%.1f,%.1f,%.1f",
-            nutrients.getCalories(), nutrients.getProtein(), nutrients.getCarbs(),
-            nutrients.getFat(), nutrients.getFiber());
+        if (!compacting && index.deadRecords >= COMPACTION_MIN_DEAD_RECORDS
+                && index.deadRecords > index.meals.size()) {
+            compacting = true;
+            COMPACTOR.execute(this::runCompaction);
+        }
+    }
+    
+    /**
+     * Write the buffered records at the end of the file, without fsync.
+     * Called with the lock held.
+     */
+    private void writePending() throws IOException {
+        if (pending.size() == 0 || channel == null) {
+            return;
+        }
+        writeFully(channel, pending.contents(), written);
+        written = end;
+        pending.reset();
+        unforced = true;
+        lastModified = Files.getLastModifiedTime(path);
+    }
+    
+    /**
+     * One group commit: write what is buffered under the lock, then fsync outside
+     * it so adds can go on meanwhile
+     */
+    private void flushPending() throws IOException {
+        FileChannel log;
+        synchronized (this) {
+            writePending();
+            if (!unforced) {
+                return;
+            }
+            unforced = false;
+            log = channel;
+        }
+        try {
+            log.force(false);
+        } catch (ClosedChannelException e) {
+            // Closed or compacted meanwhile; a compacted file is forced before it replaces this one
+        } catch (IOException e) {
+            synchronized (this) {
+                unforced = true; // Forced again when WriteBehind retries
+            }
+            throw e;
+        }
+    }
+    
+    private void runCompaction() {
+        try {
+            compactLog();
+        } catch (IOException e) {
+            System.err.println("Error compacting meal log file: " + e);
+        } finally {
+            synchronized (this) {
+                compacting = false;
+                notifyAll();
+            }
+        }
+    }
+    
+    // Called with the lock held; wait() releases it so the compaction can finish
+    private void awaitCompaction() {
+        boolean interrupted = false;
+        while (compacting) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Copy the live records to a new file without holding the lock, then, under
+     * the lock, copy over whatever was appended meanwhile and swap the files
+     */
+    private void compactLog() throws IOException {
+        FileChannel source;
+        List<Map.Entry<UUID, MealEntry>> live;
+        List<byte[]> preamble;
+        List<long[]> unreadable;
+        long copiedUpTo;
+        synchronized (this) {
+            writePending();
+            source = channel;
+            preamble = format.preamble();
+            unreadable = new ArrayList<>(index.unreadable);
+            live = new ArrayList<>(index.meals.size());
+            for (Map.Entry<UUID, MealEntry> meal : index.meals.entrySet()) {
+                live.add(Map.entry(meal.getKey(), meal.getValue())); // The map's own entries change with later edits
+            }
+            copiedUpTo = end;
+        }
+        if (source == null) {
+            return;
+        }
         
-        return String.format("%s,%s,%s,%s,\"%s\",\"%s\",\"%s\"",
-            meal.getId().toString(),
-            meal.getProfileId().toString(),
-            meal.getDate().format(dateFormatter),
-            meal.getMealType(),
-            ingredientsStr,
-            quantitiesStr,
-            nutrientsStr);
+        Path compactedPath = Paths.get(filePath + ".compact");
+        MealIndex compacted = new MealIndex();
+        try (FileChannel target = FileChannel.open(compactedPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = writeFully(target, ByteBuffer.wrap(format.header()), 0);
+            for (byte[] frame : preamble) {
+                position = writeFully(target, ByteBuffer.wrap(frame), position);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (Map.Entry<UUID, MealEntry> meal : live) {
+                MealEntry entry = meal.getValue();
+                buffer = copyRecord(source, entry, target, position, buffer);
+                compacted.put(meal.getKey(), entry.movedTo(position));
+                position += entry.length;
+            }
+            for (long[] range : unreadable) {
+                saveUnreadable(source, range[0], range[1]); // Dropped from the log by the move below
+            }
+            if (!unreadable.isEmpty()) {
+                System.err.println("⚠️ Copied " + unreadable.size() + " unreadable records of " + filePath + " to "
+                    + unreadablePath);
+            }
+            
+            synchronized (this) {
+                if (channel != source) {
+                    return; // Cleared meanwhile
+                }
+                writePending();
+                long appended = end - copiedUpTo;
+                long transferred = 0;
+                while (transferred < appended) {
+                    transferred += source.transferTo(copiedUpTo + transferred, appended - transferred,
+                        target.position(position + transferred));
+                }
+                long compactedEnd = scan(target, position, position + appended, position, compacted);
+                target.force(true);
+                
+                source.close();
+                JournaledCsvFile.moveAtomically(compactedPath, path);
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                System.out.println("🧹 Compacted " + filePath + ": " + (end - compactedEnd) + " bytes of "
+                    + (index.deadRecords - compacted.deadRecords) + " dead records dropped");
+                index = compacted;
+                end = compactedEnd;
+                written = end;
+                unforced = false;
+                lastModified = Files.getLastModifiedTime(path);
+            }
+        } finally {
+            Files.deleteIfExists(compactedPath);
+        }
+    }
+    
+    private static ByteBuffer copyRecord(FileChannel source, MealEntry entry, FileChannel target, long position,
+                                         ByteBuffer buffer) throws IOException {
+        int length = entry.length;
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+        }
+        buffer.clear().limit(length);
+        readFully(source, buffer, entry.offset);
+        buffer.flip();
+        writeFully(target, buffer, position);
+        return buffer;
+    }
+    
+    /**
+     * Index the complete records in [from, to) of a log into an index.
+     * Records are indexed at their position minus from plus base. A log read
+     * from the start must begin with the format's header.
+     * @return Position after the last complete record
+     * @throws IOException if the log cannot be read, or is not in this repo's format
+     */
+    private long scan(FileChannel log, long from, long to, long base, MealIndex into) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long frameStart = from; // File position of buffer[0]
+        int frameOffset = 0;
+        long corruptFrom = -1; // Start of the bytes skipped looking for the next frame
+        while (frameStart + frameOffset < to) {
+            if (!buffer.hasRemaining()) {
+                // Move the incomplete frame to the front, or make room for one larger than the buffer
+                byte[] rest = Arrays.copyOfRange(buffer.array(), frameOffset, buffer.position());
+                if (frameOffset == 0) {
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                } else {
+                    buffer.clear();
+                }
+                buffer.put(rest);
+                frameStart += frameOffset;
+                frameOffset = 0;
+            }
+            long readFrom = frameStart + buffer.position();
+            buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + (to - readFrom)));
+            if (!buffer.hasRemaining() || log.read(buffer, readFrom) <= 0) {
+                break;
+            }
+            buffer.limit(buffer.capacity());
+            
+            byte[] bytes = buffer.array();
+            int length;
+            while ((length = format.frameLength(bytes, frameOffset, buffer.position())) != 0) {
+                long position = frameStart + frameOffset;
+                if (position == 0 && (length < 0 || !format.isHeader(bytes, frameOffset, length))) {
+                    throw new IOException(filePath + " is not a meal log in this format");
+                }
+                if (length < 0) {
+                    // Corrupt (e.g. a bad length or checksum): look for the next frame that checks out
+                    if (corruptFrom < 0) {
+                        corruptFrom = position;
+                    }
+                    frameOffset++;
+                    continue;
+                }
+                if (corruptFrom >= 0) {
+                    skipCorrupt(into, corruptFrom - from + base, position - from + base);
+                    corruptFrom = -1;
+                }
+                applyFrame(into, bytes, frameOffset, length, position - from + base);
+                frameOffset += length;
+            }
+        }
+        // Corrupt bytes up to the end are left to the caller with the torn tail
+        return corruptFrom >= 0 ? corruptFrom : frameStart + frameOffset;
+    }
+    
+    private void skipCorrupt(MealIndex into, long start, long end) {
+        System.err.println("Skipping " + (end - start) + " corrupt bytes at byte " + start + " of " + filePath);
+        into.unreadable.add(new long[] {start, end});
+        into.deadRecords++;
+    }
+    
+    /**
+     * Apply one frame to an index: a meal replaces its previous record, a
+     * tombstone removes it. Unreadable records only count as dead.
+     */
+    private void applyFrame(MealIndex into, byte[] frame, int offset, int length, long position) {
+        try {
+            MealRecordFormat.MealKey key = format.readKey(frame, offset, length);
+            if (key == null) {
+                return; // Header or other non-meal frame
+            }
+            if (key.isTombstone()) {
+                into.deadRecords += into.remove(key.id) != null ? 2 : 1;
+                return;
+            }
+            if (into.put(key.id, new MealEntry(position, length, key.profileId, key.date, key.mealType)) != null) {
+                into.deadRecords++;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Skipping invalid meal log record at byte " + position + " of " + filePath + ": " + e.getMessage());
+            into.unreadable.add(new long[] {position, position + length});
+            into.deadRecords++;
+        }
+    }
+    
+    private static byte[] readFrame(FileChannel log, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(log, buffer, offset);
+        return buffer.array();
+    }
+    
+    private static void readFully(FileChannel log, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = log.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Meal log record past the end of the file");
+            }
+            position += read;
+        }
+    }
+    
+    private static long writeFully(FileChannel log, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += log.write(buffer, position);
+        }
+        return position;
     }
     
     /**
@@ -1,13 +1,8 @@
 package ca.nutrisci.infrastructure.data.repositories;
 
 import ca.nutrisci.domain.entities.Profile;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVWriter;
 import com.opencsv.exceptions.CsvException;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -17,34 +12,29 @@ import java.util.stream.Collectors;
  * FileProfileRepo - File-based implementation for ProfileRepo
  * Part of the Infrastructure Layer
  * This repository persists profile data to a CSV file.
+ *
+ * Changes are applied to the in-memory profiles right away and written
+ * behind (see JournaledRowStore). Each group of changes is appended to the
+ * file's journal with one fsync, and the file itself is only replaced
+ * atomically (see JournaledCsvFile), so a crash mid-write cannot lose the
+ * profiles.
  */
 public class FileProfileRepo implements ProfileRepo {
     
     private final String filePath;
     private final Map<UUID, Profile> profiles = new LinkedHashMap<>();
     private static final String[] HEADERS = {"id", "name", "age", "sex", "weight", "height", "isActive", "units", "createdAt"};
+    private final JournaledRowStore<Profile> store;
 
     public FileProfileRepo(String filePath) {
         this.filePath = filePath;
+        this.store = new JournaledRowStore<>(filePath, HEADERS, this, profiles, FileProfileRepo::toRow);
         load();
     }
 
     private void load() {
-        File file = new File(filePath);
-        if (!file.exists()) {
-            // If the file doesn't exist, create it with headers
-            try {
-                file.getParentFile().mkdirs();
-                file.createNewFile();
-                saveAll(); // This will write the headers
-            } catch (IOException e) {
-                e.printStackTrace(); // Simple error handling for student project
-            }
-            return;
-        }
-
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
-            List<String[]> records = reader.readAll();
+        try {
+            List<String[]> records = store.load();
             // Skip header row
             for (int i = 1; i < records.size(); i++) {
                 String[] row = records.get(i);
@@ -61,34 +51,55 @@ public class FileProfileRepo implements ProfileRepo {
                 );
                 profiles.put(profile.getId(), profile);
             }
-        } catch (IOException | CsvException | IllegalArgumentException e) {
-            e.printStackTrace();
+        } catch (IOException | CsvException | RuntimeException e) {
+            // Going on with none would write the next checkpoint over everything in the file
+            store.close();
+            throw new IllegalStateException("Cannot load profiles from " + filePath + ": " + e.getMessage(), e);
         }
     }
 
-    private synchronized void saveAll() {
-        try (CSVWriter writer = new CSVWriter(new FileWriter(filePath))) {
-            writer.writeNext(HEADERS);
-            for (Profile profile : profiles.values()) {
-                writer.writeNext(new String[]{
-                    profile.getId().toString(),
-                    profile.getName(),
-                    String.valueOf(profile.getAge()),
-                    profile.getSex(),
-                    String.valueOf(profile.getWeight()),
-                    String.valueOf(profile.getHeight()),
-                    String.valueOf(profile.isActive()),
-                    profile.getUnits(),
-                    profile.getCreatedAt().toString()
-                });
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    private synchronized void markChanged(UUID profileId) {
+        store.markChanged(profileId);
+    }
+
+    /**
+     * Write pending changes to disk now; they are otherwise written shortly after they are made
+     */
+    public void flush() {
+        store.flush();
+    }
+
+    /**
+     * Rewrite the file from memory and empty its journal, now (this otherwise
+     * happens once the journal outgrows the file)
+     */
+    public void checkpoint() {
+        store.checkpoint();
+    }
+
+    /**
+     * Write pending changes and stop the background writes for this file
+     */
+    public void close() {
+        store.close();
+    }
+
+    private static String[] toRow(Profile profile) {
+        return new String[]{
+            profile.getId().toString(),
+            profile.getName(),
+            String.valueOf(profile.getAge()),
+            profile.getSex(),
+            String.valueOf(profile.getWeight()),
+            String.valueOf(profile.getHeight()),
+            String.valueOf(profile.isActive()),
+            profile.getUnits(),
+            profile.getCreatedAt().toString()
+        };
     }
 
     @Override
-    public Profile save(Profile profile) {
+    public synchronized Profile save(Profile profile) {
         if (profile.getId() == null) {
             profile.setId(UUID.randomUUID());
         }
@@ -96,33 +107,33 @@ public class FileProfileRepo implements ProfileRepo {
             profile.setCreatedAt(LocalDateTime.now());
         }
         profiles.put(profile.getId(), profile);
-        saveAll();
+        markChanged(profile.getId());
         return profile;
     }
 
     @Override
-    public Profile findById(UUID profileId) {
+    public synchronized Profile findById(UUID profileId) {
         return profiles.get(profileId);
     }
 
     @Override
-    public void delete(UUID profileId) {
+    public synchronized void delete(UUID profileId) {
         profiles.remove(profileId);
-        saveAll();
+        markChanged(profileId);
     }
 
     @Override
-    public List<Profile> findAll() {
+    public synchronized List<Profile> findAll() {
         return new ArrayList<>(profiles.values());
     }
 
     @Override
-    public Profile update(Profile profile) {
+    public synchronized Profile update(Profile profile) {
         if (profile.getId() == null || !profiles.containsKey(profile.getId())) {
             throw new IllegalArgumentException("Profile not found for update");
         }
         profiles.put(profile.getId(), profile);
-        saveAll();
+        markChanged(profile.getId());
         return profile;
     }
 
@@ -142,7 +153,7 @@ public class FileProfileRepo implements ProfileRepo {
     }
 
     @Override
-    public Profile findActiveProfile() {
+    public synchronized Profile findActiveProfile() {
         return profiles.values().stream()
                 .filter(Profile::isActive)
                 .findFirst()
@@ -150,19 +161,19 @@ public class FileProfileRepo implements ProfileRepo {
     }
 
     @Override
-    public List<Profile> findByName(String name) {
+    public synchronized List<Profile> findByName(String name) {
         return profiles.values().stream()
                 .filter(p -> p.getName().equalsIgnoreCase(name))
                 .collect(Collectors.toList());
     }
 
     @Override
-    public boolean existsById(UUID profileId) {
+    public synchronized boolean existsById(UUID profileId) {
         return profiles.containsKey(profileId);
     }
 
     @Override
-    public void updateProfileSettings(UUID profileId, String units) {
+    public synchronized void updateProfileSettings(UUID profileId, String units) {
         Profile profile = findById(profileId);
         if (profile != null) {
             profile.setUnits(units);
@@ -171,7 +182,7 @@ public class FileProfileRepo implements ProfileRepo {
     }
 
     @Override
-    public void activateProfile(UUID profileId) {
+    public synchronized void activateProfile(UUID profileId) {
         Profile profile = findById(profileId);
         if (profile != null) {
             profile.setActive(true);
@@ -180,8 +191,8 @@ public class FileProfileRepo implements ProfileRepo {
     }
 
     @Override
-    public void deactivateAllProfiles() {
+    public synchronized void deactivateAllProfiles() {
         profiles.values().forEach(p -> p.setActive(false));
-        saveAll();
+        profiles.keySet().forEach(this::markChanged);
     }
 } 
\ No newline at end of file
@@ -1,13 +1,21 @@
 package ca.nutrisci.infrastructure.data.repositories;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 /**
  * FileRepoFactory - Concrete factory for creating file-based repositories
  * Part of the Infrastructure Layer - Abstract Factory Pattern
  * This implementation provides repositories that persist data to CSV files.
+ * Meals can instead be stored in the binary format (see MealStorageFormat).
  */
 public class FileRepoFactory implements IRepositoryFactory {
     
     private final String dataPath;
+    private final MealStorageFormat mealFormat;
     private ProfileRepo profileRepo;
     private MealLogRepo mealLogRepo;
     private SwapHistoryRepo swapHistoryRepo;
@@ -17,7 +25,19 @@ public class FileRepoFactory implements IRepositoryFactory {
      * @param dataPath The base directory path where data files are stored.
      */
     public FileRepoFactory(String dataPath) {
+        this(dataPath, MealStorageFormat.CSV);
+    }
+
+    /**
+     * Constructor for FileRepoFactory with a choice of meal storage format.
+     * With BINARY, an existing meals.csv is converted to meals.bin on first use
+     * (and left in place).
+     * @param dataPath The base directory path where data files are stored.
+     * @param mealFormat The format meals are stored in.
+     */
+    public FileRepoFactory(String dataPath, MealStorageFormat mealFormat) {
         this.dataPath = dataPath;
+        this.mealFormat = mealFormat;
     }
 
     /**
@@ -39,11 +59,29 @@ public class FileRepoFactory implements IRepositoryFactory {
     @Override
     public MealLogRepo getMealLogRepository() {
         if (mealLogRepo == null) {
-            mealLogRepo = new FileMealLogRepo(dataPath + "/meals.csv");
+            String mealPath = dataPath + "/" + mealFormat.fileName();
+            String csvPath = dataPath + "/" + MealStorageFormat.CSV.fileName();
+            if (mealFormat != MealStorageFormat.CSV && !new File(mealPath).exists() && new File(csvPath).exists()) {
+                convertMeals(csvPath, mealPath);
+            }
+            mealLogRepo = new FileMealLogRepo(mealPath, mealFormat);
         }
         return mealLogRepo;
     }
 
+    // Converted next to the target and then moved into place, so a crash midway is converted again
+    private void convertMeals(String csvPath, String mealPath) {
+        Path tempPath = Paths.get(mealPath + ".tmp");
+        try {
+            Files.deleteIfExists(tempPath);
+            int converted = FileMealLogRepo.convert(csvPath, MealStorageFormat.CSV, tempPath.toString(), mealFormat);
+            JournaledCsvFile.moveAtomically(tempPath, Paths.get(mealPath));
+            System.out.println("🔄 Converted " + converted + " meals from " + csvPath + " to " + mealPath);
+        } catch (IOException e) {
+            System.err.println("❌ Error converting " + csvPath + ": " + e.getMessage());
+        }
+    }
+
     /**
      * Lazily initializes and returns a singleton instance of FileSwapHistoryRepo.
      * @return A SwapHistoryRepo implementation that works with files.
@@ -1,13 +1,8 @@
 package ca.nutrisci.infrastructure.data.repositories;
 
 import ca.nutrisci.domain.entities.SwapHistory;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVWriter;
 import com.opencsv.exceptions.CsvException;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -17,33 +12,27 @@ import java.util.stream.Collectors;
  * FileSwapHistoryRepo - File-based implementation for SwapHistoryRepo
  * Part of the Infrastructure Layer
  * This repository persists swap history data to a CSV file.
+ *
+ * Like FileProfileRepo, changes are applied in memory and written behind,
+ * one journal append per group of changes, with atomic checkpoints of the file.
  */
 public class FileSwapHistoryRepo implements SwapHistoryRepo {
     
     private final String filePath;
     private final Map<UUID, SwapHistory> swaps = new LinkedHashMap<>();
-    private static final String[] HEADERS = {"id", "profileId", "originalFood", "replacementFood", "swapReason", "goalType", "impactScore", "createdAt"};
+    private static final String[] HEADERS = {"id", "profileId", "originalFood", "replacementFood", "swapReason", "goalType", "impactScore", "createdAt",
+            "originalFoodId", "replacementFoodId"};
+    private final JournaledRowStore<SwapHistory> store;
 
     public FileSwapHistoryRepo(String filePath) {
         this.filePath = filePath;
+        this.store = new JournaledRowStore<>(filePath, HEADERS, this, swaps, FileSwapHistoryRepo::toRow);
         load();
     }
 
     private void load() {
-        File file = new File(filePath);
-        if (!file.exists()) {
-            try {
-                file.getParentFile().mkdirs();
-                file.createNewFile();
-                saveAll();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            return;
-        }
-
-        try (CSVReader reader = new CSVReader(new FileReader(filePath))) {
-            List<String[]> records = reader.readAll();
+        try {
+            List<String[]> records = store.load();
             for (int i = 1; i < records.size(); i++) {
                 String[] row = records.get(i);
                 SwapHistory swap = new SwapHistory(
@@ -56,35 +45,62 @@ public class FileSwapHistoryRepo implements SwapHistoryRepo {
                     Double.parseDouble(row[6]),
                     LocalDateTime.parse(row[7])
                 );
+                if (row.length > 9) { // Food id columns are absent from older files
+                    swap.setOriginalFoodId(Integer.parseInt(row[8]));
+                    swap.setReplacementFoodId(Integer.parseInt(row[9]));
+                }
                 swaps.put(swap.getId(), swap);
             }
-        } catch (IOException | CsvException | IllegalArgumentException e) {
-            e.printStackTrace();
+        } catch (IOException | CsvException | RuntimeException e) {
+            // Going on with none would write the next checkpoint over everything in the file
+            store.close();
+            throw new IllegalStateException("Cannot load swap history from " + filePath + ": " + e.getMessage(), e);
         }
     }
 
-    private synchronized void saveAll() {
-        try (CSVWriter writer = new CSVWriter(new FileWriter(filePath))) {
-            writer.writeNext(HEADERS);
-            for (SwapHistory swap : swaps.values()) {
-                writer.writeNext(new String[]{
-                    swap.getId().toString(),
-                    swap.getProfileId().toString(),
-                    swap.getOriginalFood(),
-                    swap.getReplacementFood(),
-                    swap.getSwapReason(),
-                    swap.getGoalType(),
-                    String.valueOf(swap.getImpactScore()),
-                    swap.getCreatedAt().toString()
-                });
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    private synchronized void markChanged(UUID swapId) {
+        store.markChanged(swapId);
+    }
+
+    /**
+     * Write pending changes to disk now; they are otherwise written shortly after they are made
+     */
+    public void flush() {
+        store.flush();
+    }
+
+    /**
+     * Rewrite the file from memory and empty its journal, now (this otherwise
+     * happens once the journal outgrows the file)
+     */
+    public void checkpoint() {
+        store.checkpoint();
+    }
+
+    /**
+     * Write pending changes and stop the background writes for this file
+     */
+    public void close() {
+        store.close();
+    }
+
+    private static String[] toRow(SwapHistory swap) {
+        return new String[]{
+            swap.getId().toString(),
+            swap.getProfileId().toString(),
+            swap.getOriginalFood(),
+            swap.getReplacementFood(),
+            swap.getSwapReason(),
+            swap.getGoalType(),
+            String.valueOf(swap.getImpactScore()),
+            swap.getCreatedAt().toString(),
+            String.valueOf(swap.getOriginalFoodId()),
+            String.valueOf(swap.getReplacementFoodId())
+        };
     }
 
     @Override
-    public SwapHistory save(SwapHistory swapHistory) {
+    public synchronized SwapHistory save(SwapHistory swapHistory) {
         if (swapHistory.getId() == null) {
             swapHistory.setId(UUID.randomUUID());
         }
@@ -92,33 +108,33 @@ public class FileSwapHistoryRepo implements SwapHistoryRepo {
             swapHistory.setCreatedAt(LocalDateTime.now());
         }
         swaps.put(swapHistory.getId(), swapHistory);
-        saveAll();
+        markChanged(swapHistory.getId());
         return swapHistory;
     }
 
     @Override
-    public SwapHistory findById(UUID swapHistoryId) {
+    public synchronized SwapHistory findById(UUID swapHistoryId) {
         return swaps.get(swapHistoryId);
     }
 
     @Override
-    public void delete(UUID swapHistoryId) {
+    public synchronized void delete(UUID swapHistoryId) {
         swaps.remove(swapHistoryId);
-        saveAll();
+        markChanged(swapHistoryId);
     }
 
     @Override
-    public List<SwapHistory> findAll() {
+    public synchronized List<SwapHistory> findAll() {
         return new ArrayList<>(swaps.values());
     }
 
     @Override
-    public SwapHistory update(SwapHistory swapHistory) {
+    public synchronized SwapHistory update(SwapHistory swapHistory) {
         if (swapHistory.getId() == null || !swaps.containsKey(swapHistory.getId())) {
             throw new IllegalArgumentException("Swap history not found for update");
         }
         swaps.put(swapHistory.getId(), swapHistory);
-        saveAll();
+        markChanged(swapHistory.getId());
         return swapHistory;
     }
 
@@ -138,35 +154,35 @@ public class FileSwapHistoryRepo implements SwapHistoryRepo {
     }
 
     @Override
-    public List<SwapHistory> findByProfileId(UUID profileId) {
+    public synchronized List<SwapHistory> findByProfileId(UUID profileId) {
         return swaps.values().stream()
                 .filter(s -> s.getProfileId().equals(profileId))
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<SwapHistory> findByProfileIdAndGoalType(UUID profileId, String goalType) {
+    public synchronized List<SwapHistory> findByProfileIdAndGoalType(UUID profileId, String goalType) {
         return swaps.values().stream()
                 .filter(s -> s.getProfileId().equals(profileId) && s.getGoalType().equalsIgnoreCase(goalType))
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<SwapHistory> findByGoalType(String goalType) {
+    public synchronized List<SwapHistory> findByGoalType(String goalType) {
         return swaps.values().stream()
                 .filter(s -> s.getGoalType().equalsIgnoreCase(goalType))
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<SwapHistory> findByOriginalFood(String originalFood) {
+    public synchronized List<SwapHistory> findByOriginalFood(String originalFood) {
         return swaps.values().stream()
                 .filter(s -> s.getOriginalFood().equalsIgnoreCase(originalFood))
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<SwapHistory> findByReplacementFood(String replacementFood) {
+    public synchronized List<SwapHistory> findByReplacementFood(String replacementFood) {
         return swaps.values().stream()
                 .filter(s -> s.getReplacementFood().equalsIgnoreCase(replacementFood))
                 .collect(Collectors.toList());
@@ -183,7 +199,7 @@ public class FileSwapHistoryRepo implements SwapHistoryRepo {
     }
 
     @Override
-    public boolean existsByProfileIdAndGoalType(UUID profileId, String goalType) {
+    public synchronized boolean existsByProfileIdAndGoalType(UUID profileId, String goalType) {
         return swaps.values().stream()
                 .anyMatch(s -> s.getProfileId().equals(profileId) && s.getGoalType().equalsIgnoreCase(goalType));
     }
@@ -197,7 +213,7 @@ public class FileSwapHistoryRepo implements SwapHistoryRepo {
     }
 
     @Override
-    public List<SwapHistory> findTopSwapsByImpactScore(int limit) {
+    public synchronized List<SwapHistory> findTopSwapsByImpactScore(int limit) {
         return swaps.values().stream()
                 .sorted(Comparator.comparingDouble(SwapHistory::getImpactScore).reversed())
                 .limit(limit)
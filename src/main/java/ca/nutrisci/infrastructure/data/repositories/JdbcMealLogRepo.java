@@ -49,7 +49,7 @@ public class JdbcMealLogRepo implements MealLogRepo {
             stmt.setDate(3, Date.valueOf(meal.getDate()));
             stmt.setString(4, meal.getMealType());
             
-            // Store full IngredientDTO list as JSON (with units)
+            // Store full IngredientDTO list as JSON (with units and CNF food ids)
             stmt.setString(5, gson.toJson(meal.getIngredients()));
             
             // Store backward compatibility data
@@ -96,7 +96,7 @@ public class JdbcMealLogRepo implements MealLogRepo {
             
             stmt.setString(1, updatedMeal.getMealType());
             
-            // Store full IngredientDTO list as JSON (with units)
+            // Store full IngredientDTO list as JSON (with units and CNF food ids)
             stmt.setString(2, gson.toJson(updatedMeal.getIngredients()));
             
             // Store backward compatibility data
@@ -0,0 +1,305 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import com.opencsv.exceptions.CsvException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * JournaledCsvFile - Crash-safe storage for a CSV file of rows keyed by their first column
+ * Part of the Infrastructure Layer
+ *
+ * The CSV file itself is only ever replaced whole: the new contents go to a
+ * temp file, which is forced to disk and then atomically moved over the old
+ * one, so a crash leaves either the old file or the new one. Between those
+ * checkpoints, changed rows are appended to a redo journal next to it
+ * (file.csv.journal) as PUT / DEL records and forced once per append. Each
+ * record is a CSV line prefixed with its length and CRC32, which are checked
+ * before the line is parsed: opening replays the journal over the file up to
+ * the first record torn by a crash (or otherwise damaged), drops that record
+ * and anything after it, and checkpoints the result so the journal starts
+ * empty again. The file and
+ * the journal are both UTF-8, whatever the platform charset. A file written
+ * before that, in the platform charset (Windows-1252 on most Windows
+ * installs), is not valid UTF-8: it is read in the legacy charset once and
+ * checkpointed as UTF-8. Checkpoints on opening always write the
+ * repository's current header, which also replaces the header of a file
+ * from an older version.
+ *
+ * Not thread-safe: the owning repository writes from one thread at a time.
+ */
+final class JournaledCsvFile {
+
+    private static final String PUT = "PUT";
+    private static final String DELETE = "DEL";
+
+    // Checkpoint once the journal holds this many records and more than the file has rows
+    private static final int CHECKPOINT_MIN_RECORDS = 1000;
+
+    // Charset of files written before they were UTF-8
+    static final Charset LEGACY_CHARSET = legacyCharset();
+
+    private final Path path;
+    private final Path journalPath;
+    private final Path tempPath;
+    private int journalRecords;
+
+    JournaledCsvFile(String filePath) {
+        this.path = Paths.get(filePath);
+        this.journalPath = Paths.get(filePath + ".journal");
+        this.tempPath = Paths.get(filePath + ".tmp");
+    }
+
+    /**
+     * Rows of the file with the journal replayed, header first; creates the file
+     * with just the header if there is none
+     */
+    List<String[]> load(String[] header) throws IOException, CsvException {
+        Files.deleteIfExists(tempPath); // Left by a crash before its move; the old file still stands
+        if (!Files.exists(path)) {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            replace(Collections.singletonList(header));
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        String text;
+        boolean legacy = false;
+        try {
+            text = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+        } catch (CharacterCodingException e) {
+            text = new String(bytes, LEGACY_CHARSET);
+            legacy = true;
+        }
+
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        boolean outdatedHeader = false;
+        try (CSVReader reader = new CSVReader(new StringReader(text))) {
+            List<String[]> records = reader.readAll();
+            outdatedHeader = !records.isEmpty() && !Arrays.equals(records.get(0), header);
+            for (int i = 1; i < records.size(); i++) {
+                rows.put(records.get(i)[0], records.get(i));
+            }
+        }
+
+        boolean replay = Files.exists(journalPath) && Files.size(journalPath) > 0;
+        int replayed = replay ? replayJournal(rows) : 0;
+        List<String[]> result = toList(header, rows);
+        if (replay || legacy || outdatedHeader) {
+            replace(result); // Also drops a torn tail, which would hide the records appended after it
+        }
+        if (legacy) {
+            System.out.println("🔄 Converted " + path + " from " + LEGACY_CHARSET + " to UTF-8");
+        }
+        if (replay) {
+            System.out.println("🔁 Replayed " + replayed + " journal records into " + path);
+        }
+        return result;
+    }
+
+    /**
+     * Whether the next write should be a checkpoint rather than a journal append
+     */
+    boolean shouldCheckpoint(int changes, int rows) {
+        int records = journalRecords + changes;
+        return records >= CHECKPOINT_MIN_RECORDS && records > rows;
+    }
+
+    /**
+     * Append changed rows to the journal and force it: one fsync for the whole group
+     * @param changed Changed rows by key; a null row records a deletion
+     */
+    void append(Map<String, String[]> changed) throws IOException {
+        if (changed.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (Map.Entry<String, String[]> change : changed.entrySet()) {
+            records.write(journalRecord(change.getKey(), change.getValue()));
+        }
+        try (FileOutputStream out = new FileOutputStream(journalPath.toFile(), true)) {
+            records.writeTo(out);
+            out.getChannel().force(false);
+        }
+        journalRecords += changed.size();
+    }
+
+    /**
+     * Journal a group of changes, then replace the file with all rows (header first).
+     * The group goes to the journal too: if a crash comes between the move and
+     * emptying the journal, replaying it over the new file ends on these values
+     * rather than older ones.
+     */
+    void checkpoint(Map<String, String[]> changed, List<String[]> rows) throws IOException {
+        append(changed);
+        replace(rows);
+    }
+
+    /**
+     * Replace the file with these rows (header first) and empty the journal
+     */
+    private void replace(List<String[]> rows) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(tempPath.toFile());
+             CSVWriter writer = new CSVWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.writeAll(rows);
+            writer.flush();
+            out.getChannel().force(true);
+        }
+        moveAtomically(tempPath, path);
+        // A crash before this replays the journal over the new file, which is then unchanged
+        try (FileChannel journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            journal.truncate(0);
+            journal.force(true);
+        }
+        journalRecords = 0;
+    }
+
+    /**
+     * Atomically replace target with source, then force the directory so the
+     * rename itself survives a crash
+     */
+    static void moveAtomically(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Path directory = target.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened or forced on every platform (e.g. Windows)
+        }
+    }
+
+    // The platform charset older versions wrote with, unless it is UTF-8 or plain ASCII
+    private static Charset legacyCharset() {
+        String nativeEncoding = System.getProperty("native.encoding");
+        try {
+            Charset platform = nativeEncoding != null ? Charset.forName(nativeEncoding) : null;
+            if (platform != null && !platform.equals(StandardCharsets.UTF_8) && !platform.equals(StandardCharsets.US_ASCII)) {
+                return platform;
+            }
+        } catch (IllegalArgumentException e) {
+            // Unknown or unsupported charset name
+        }
+        return Charset.forName("windows-1252");
+    }
+
+    private static List<String[]> toList(String[] header, Map<String, String[]> rows) {
+        List<String[]> list = new ArrayList<>(rows.size() + 1);
+        list.add(header);
+        list.addAll(rows.values());
+        return list;
+    }
+
+    private int replayJournal(Map<String, String[]> rows) throws IOException, CsvException {
+        byte[] journal = Files.readAllBytes(journalPath);
+        int position = 0;
+        int replayed = 0;
+        while (position < journal.length) {
+            int[] line = intactLine(journal, position);
+            String[] record = line != null ? parseRecord(journal, line[0], line[1]) : null;
+            if (record == null) {
+                System.err.println("⚠️ Dropping " + (journal.length - position)
+                    + " bytes of torn journal records at the end of " + journalPath);
+                break;
+            }
+            if (record[0].equals(DELETE)) {
+                rows.remove(record[1]);
+            } else {
+                rows.put(record[1], Arrays.copyOfRange(record, 1, record.length));
+            }
+            replayed++;
+            position = line[1];
+        }
+        return replayed;
+    }
+
+    // <length>:<crc32 hex>:<CSV line of PUT,row... or DEL,key>, the length and CRC32 being of the line's UTF-8 bytes
+    private static byte[] journalRecord(String key, String[] row) throws IOException {
+        String[] fields;
+        if (row == null) {
+            fields = new String[] {DELETE, key};
+        } else {
+            fields = new String[row.length + 1];
+            fields[0] = PUT;
+            for (int i = 0; i < row.length; i++) {
+                fields[i + 1] = row[i] != null ? row[i] : ""; // Read back as empty
+            }
+        }
+        StringWriter line = new StringWriter();
+        try (CSVWriter writer = new CSVWriter(line)) {
+            writer.writeNext(fields);
+        }
+        byte[] csv = line.toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(csv);
+        byte[] prefix = (csv.length + ":" + Long.toHexString(crc.getValue()) + ":").getBytes(StandardCharsets.US_ASCII);
+        byte[] record = Arrays.copyOf(prefix, prefix.length + csv.length);
+        System.arraycopy(csv, 0, record, prefix.length, csv.length);
+        return record;
+    }
+
+    /**
+     * Start and end of the CSV line of the record at position, or null unless
+     * the record is whole and the line's CRC32 matches
+     */
+    private static int[] intactLine(byte[] journal, int position) {
+        int lengthEnd = indexOf(journal, position, ':');
+        int crcEnd = lengthEnd < 0 ? -1 : indexOf(journal, lengthEnd + 1, ':');
+        if (crcEnd < 0) {
+            return null;
+        }
+        try {
+            int length = Integer.parseInt(new String(journal, position, lengthEnd - position, StandardCharsets.US_ASCII));
+            long expected = Long.parseLong(new String(journal, lengthEnd + 1, crcEnd - lengthEnd - 1,
+                                                      StandardCharsets.US_ASCII), 16);
+            int start = crcEnd + 1;
+            if (length < 0 || length > journal.length - start) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(journal, start, length);
+            return crc.getValue() == expected ? new int[] {start, start + length} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // The fields of an intact record, or null if they are not a PUT or DEL record
+    private static String[] parseRecord(byte[] journal, int start, int end) throws IOException, CsvException {
+        String line = new String(journal, start, end - start, StandardCharsets.UTF_8);
+        String[] record;
+        try (CSVReader reader = new CSVReader(new StringReader(line))) {
+            record = reader.readNext();
+        }
+        boolean valid = record != null && record.length >= 2 && (record[0].equals(DELETE) || record[0].equals(PUT));
+        return valid ? record : null;
+    }
+
+    // Index of a separator among the first 20 bytes from position (a length or a CRC32 in hex is shorter), or -1
+    private static int indexOf(byte[] bytes, int position, char separator) {
+        for (int i = position; i < bytes.length && i < position + 20; i++) {
+            if (bytes[i] == separator) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
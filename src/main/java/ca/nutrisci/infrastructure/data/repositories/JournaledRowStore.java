@@ -0,0 +1,113 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import com.opencsv.exceptions.CsvException;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * JournaledRowStore - Writes a repository's in-memory rows behind to a JournaledCsvFile
+ * Part of the Infrastructure Layer
+ *
+ * The repository keeps its entities in a map by id, guarded by its own
+ * lock, and calls markChanged(id) for every save or delete while holding it.
+ * The ids are collected and WriteBehind writes them as a group: the changed
+ * rows are mapped to CSV under the lock, then appended to the journal (or
+ * written as a checkpoint once the journal outgrows the file) and forced
+ * outside it. A failed write keeps its ids until WriteBehind retries it.
+ */
+final class JournaledRowStore<T> {
+
+    private final String[] header;
+    private final Object lock;
+    private final Map<UUID, T> values;
+    private final Function<T, String[]> toRow;
+    private final JournaledCsvFile file;
+    private final WriteBehind writeBehind;
+
+    // Guarded by lock
+    private final Set<UUID> changed = new LinkedHashSet<>();
+    private boolean checkpointRequested;
+
+    /**
+     * @param lock What the repository synchronizes on to use values
+     * @param values The repository's entities by id
+     * @param toRow Maps an entity to its CSV row, id first
+     */
+    JournaledRowStore(String filePath, String[] header, Object lock, Map<UUID, T> values, Function<T, String[]> toRow) {
+        this.header = header;
+        this.lock = lock;
+        this.values = values;
+        this.toRow = toRow;
+        this.file = new JournaledCsvFile(filePath);
+        this.writeBehind = new WriteBehind(filePath, this::writeAll);
+    }
+
+    /**
+     * Rows of the file with its journal replayed, header first (see JournaledCsvFile.load)
+     */
+    List<String[]> load() throws IOException, CsvException {
+        return file.load(header);
+    }
+
+    /**
+     * Record that an entity was saved or deleted; the caller holds the lock
+     */
+    void markChanged(UUID id) {
+        changed.add(id);
+        writeBehind.changed();
+    }
+
+    void flush() {
+        writeBehind.flush();
+    }
+
+    void checkpoint() {
+        synchronized (lock) {
+            checkpointRequested = true;
+        }
+        writeBehind.flush();
+    }
+
+    void close() {
+        writeBehind.close();
+    }
+
+    // Runs on the writer thread (or in flush()): snapshot under the lock, write and fsync outside it
+    private void writeAll() throws IOException {
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        List<String[]> all = null;
+        synchronized (lock) {
+            if (changed.isEmpty() && !checkpointRequested) {
+                return;
+            }
+            for (UUID id : changed) {
+                T value = values.get(id);
+                rows.put(id.toString(), value != null ? toRow.apply(value) : null); // null: deleted
+            }
+            if (checkpointRequested || file.shouldCheckpoint(rows.size(), values.size())) {
+                all = new ArrayList<>(values.size() + 1);
+                all.add(header);
+                for (T value : values.values()) {
+                    all.add(toRow.apply(value));
+                }
+            }
+            changed.clear();
+            checkpointRequested = false;
+        }
+        try {
+            if (all != null) {
+                file.checkpoint(rows, all);
+            } else {
+                file.append(rows);
+            }
+        } catch (IOException e) {
+            synchronized (lock) {
+                rows.keySet().forEach(id -> changed.add(UUID.fromString(id))); // Retried by WriteBehind
+                checkpointRequested |= all != null;
+            }
+            throw e;
+        }
+    }
+}
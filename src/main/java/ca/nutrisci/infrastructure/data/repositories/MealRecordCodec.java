@@ -0,0 +1,347 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import ca.nutrisci.application.dto.IngredientDTO;
+import ca.nutrisci.application.dto.MealDTO;
+import ca.nutrisci.application.dto.NutrientInfo;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * MealRecordCodec - Compact binary meal log records
+ * Part of the Infrastructure Layer
+ *
+ * Each frame is an int length, its complement, and the CRC32 of the body,
+ * followed by the body (that many bytes): a kind byte and its fields,
+ * big-endian. A frame whose length or CRC does not check out is unreadable
+ * rather than taken for a torn one, and the frames after it can still be
+ * found: see frameLength.
+ * <pre>
+ * HEADER     magic "NSML", version short
+ * MEAL       id (2 longs), profileId (2 longs), date (epoch-day int),
+ *            meal type byte (or CUSTOM_TYPE and a name id), nutrients (5 doubles),
+ *            ingredient count (short), then per ingredient: name id, unit id,
+ *            quantity (double), CNF food id (int), as-purchased byte
+ * TOMBSTONE  id (2 longs)
+ * NAME       name id (int), UTF-8 bytes
+ * </pre>
+ * Ingredient names, units and unusual meal types are interned: the first
+ * meal to use a string is preceded by a NAME frame defining its id, and ids
+ * count up from 0 in the order they are defined, so reading the log in order
+ * rebuilds the table. A name whose definition was lost is left undefined,
+ * and only the meals using it are unreadable. Nothing is parsed from text on
+ * read, and nutrients keep their full precision (the CSV rounds them to one
+ * decimal).
+ */
+final class MealRecordCodec implements MealRecordFormat {
+
+    private static final byte HEADER = 0;
+    private static final byte MEAL = 1;
+    private static final byte TOMBSTONE = 2;
+    private static final byte NAME = 3;
+
+    private static final byte[] MAGIC = {'N', 'S', 'M', 'L'};
+    private static final short VERSION = 2; // 1 had no frame checks
+    private static final int FRAME_HEADER = 12; // Length, its complement, CRC32
+    private static final int MAX_FRAME = 1 << 24; // Above the largest meal (0xFFFF ingredients)
+    private static final int NO_NAME = -1; // A null ingredient name
+
+    // Meal types by byte; any other type is stored as CUSTOM_TYPE and an interned name
+    private static final String[] MEAL_TYPES = {"breakfast", "lunch", "dinner", "snack"};
+    private static final byte CUSTOM_TYPE = -1;
+
+    private final List<String> names = new ArrayList<>(); // null where a definition was lost
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    @Override
+    public byte[] header() {
+        ByteBuffer frame = frame(HEADER, MAGIC.length + 2);
+        frame.put(MAGIC).putShort(VERSION);
+        return sealed(frame);
+    }
+
+    @Override
+    public boolean isHeader(byte[] frame, int offset, int length) {
+        int body = offset + FRAME_HEADER;
+        return length == FRAME_HEADER + 1 + MAGIC.length + 2 && frame[body] == HEADER
+            && Arrays.equals(frame, body + 1, body + 1 + MAGIC.length, MAGIC, 0, MAGIC.length)
+            && ByteBuffer.wrap(frame, body + 1 + MAGIC.length, 2).getShort() == VERSION;
+    }
+
+    @Override
+    public int frameLength(byte[] buffer, int from, int to) {
+        if (to - from < FRAME_HEADER) {
+            return 0;
+        }
+        ByteBuffer in = ByteBuffer.wrap(buffer, from, FRAME_HEADER);
+        int length = in.getInt();
+        if (in.getInt() != ~length || length < 1 || length > MAX_FRAME) {
+            return -1; // Not the start of a frame
+        }
+        if (to - from < FRAME_HEADER + length) {
+            return 0;
+        }
+        return in.getInt() == crc(buffer, from + FRAME_HEADER, length) ? FRAME_HEADER + length : -1;
+    }
+
+    @Override
+    public byte[] frameTerminator() {
+        return null; // A frame's length is written first: no frame is complete without its end
+    }
+
+    @Override
+    public MealKey readKey(byte[] frame, int offset, int length) {
+        ByteBuffer in = body(frame, offset, length);
+        try {
+            switch (in.get()) {
+                case HEADER:
+                    return null;
+                case MEAL:
+                    UUID id = new UUID(in.getLong(), in.getLong());
+                    UUID profileId = new UUID(in.getLong(), in.getLong());
+                    LocalDate date = readDate(in);
+                    MealKey key = new MealKey(id, profileId, date, readMealType(in));
+                    // Checked now, so that a meal that cannot be read is never indexed
+                    in.position(in.position() + 40);
+                    int count = in.getShort() & 0xFFFF;
+                    for (int i = 0; i < count; i++) {
+                        name(in.getInt());
+                        name(in.getInt());
+                        in.position(in.position() + 13);
+                    }
+                    requireEnd(in);
+                    return key;
+                case TOMBSTONE:
+                    UUID mealId = new UUID(in.getLong(), in.getLong());
+                    requireEnd(in);
+                    return MealKey.tombstone(mealId);
+                case NAME:
+                    learnName(in);
+                    return null;
+                default:
+                    throw new IllegalArgumentException("Unknown meal log record kind");
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unreadable meal record: " + describe(e), e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the frame is not a meal this codec can
+     * read; readKey checks that before a meal is indexed
+     */
+    @Override
+    public MealDTO readMeal(byte[] frame, int offset, int length) {
+        ByteBuffer in = body(frame, offset, length);
+        try {
+            if (in.get() != MEAL) {
+                throw new IllegalArgumentException("Not a meal record");
+            }
+            UUID id = new UUID(in.getLong(), in.getLong());
+            UUID profileId = new UUID(in.getLong(), in.getLong());
+            LocalDate date = readDate(in);
+            String mealType = readMealType(in);
+            NutrientInfo nutrients = new NutrientInfo(in.getDouble(), in.getDouble(), in.getDouble(),
+                                                      in.getDouble(), in.getDouble());
+            int count = in.getShort() & 0xFFFF;
+            List<IngredientDTO> ingredients = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = name(in.getInt());
+                String unit = name(in.getInt());
+                double quantity = in.getDouble();
+                IngredientDTO ingredient = new IngredientDTO(name, quantity, unit, in.getInt());
+                ingredient.setAsPurchased(in.get() != 0);
+                ingredients.add(ingredient);
+            }
+            requireEnd(in);
+            return new MealDTO(id, profileId, date, mealType, ingredients, nutrients);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unreadable meal record: " + describe(e), e);
+        }
+    }
+
+    @Override
+    public List<byte[]> writeMeal(MealDTO meal) {
+        // Checked before anything is interned: a name must not get an id without its frame being written
+        Objects.requireNonNull(meal.getId(), "meal id");
+        Objects.requireNonNull(meal.getProfileId(), "profile id");
+        Objects.requireNonNull(meal.getDate(), "meal date");
+        List<byte[]> frames = new ArrayList<>(2);
+        List<IngredientDTO> ingredients = meal.getIngredients() != null ? meal.getIngredients()
+                                                                        : Collections.emptyList();
+        if (ingredients.size() > 0xFFFF) {
+            throw new IllegalArgumentException("Too many ingredients in meal " + meal.getId());
+        }
+        int typeCode = mealTypeCode(meal.getMealType());
+        int customType = typeCode == CUSTOM_TYPE ? intern(meal.getMealType(), frames) : 0;
+        int[] nameIds = new int[ingredients.size()];
+        int[] unitIds = new int[ingredients.size()];
+        for (int i = 0; i < ingredients.size(); i++) {
+            IngredientDTO ingredient = ingredients.get(i);
+            nameIds[i] = intern(ingredient.getName(), frames);
+            // As in the CSV, a missing unit is grams
+            unitIds[i] = intern(ingredient.getUnit() != null ? ingredient.getUnit() : "g", frames);
+        }
+
+        ByteBuffer out = frame(MEAL, 32 + 4 + 1 + (typeCode == CUSTOM_TYPE ? 4 : 0) + 40 + 2 + 21 * ingredients.size());
+        out.putLong(meal.getId().getMostSignificantBits()).putLong(meal.getId().getLeastSignificantBits());
+        out.putLong(meal.getProfileId().getMostSignificantBits()).putLong(meal.getProfileId().getLeastSignificantBits());
+        out.putInt((int) meal.getDate().toEpochDay());
+        out.put((byte) typeCode);
+        if (typeCode == CUSTOM_TYPE) {
+            out.putInt(customType);
+        }
+        NutrientInfo nutrients = meal.getNutrients() != null ? meal.getNutrients() : new NutrientInfo();
+        out.putDouble(nutrients.getCalories()).putDouble(nutrients.getProtein()).putDouble(nutrients.getCarbs())
+           .putDouble(nutrients.getFat()).putDouble(nutrients.getFiber());
+        out.putShort((short) ingredients.size());
+        for (int i = 0; i < ingredients.size(); i++) {
+            IngredientDTO ingredient = ingredients.get(i);
+            out.putInt(nameIds[i]).putInt(unitIds[i]).putDouble(ingredient.getQuantity())
+               .putInt(ingredient.getFoodId()).put((byte) (ingredient.isAsPurchased() ? 1 : 0));
+        }
+        frames.add(sealed(out));
+        return frames;
+    }
+
+    @Override
+    public byte[] writeTombstone(UUID mealId) {
+        ByteBuffer frame = frame(TOMBSTONE, 16);
+        frame.putLong(mealId.getMostSignificantBits()).putLong(mealId.getLeastSignificantBits());
+        return sealed(frame);
+    }
+
+    @Override
+    public List<byte[]> preamble() {
+        List<byte[]> frames = new ArrayList<>(names.size());
+        for (int id = 0; id < names.size(); id++) {
+            if (names.get(id) != null) {
+                frames.add(nameFrame(id, names.get(id)));
+            }
+        }
+        return frames;
+    }
+
+    @Override
+    public void reset() {
+        names.clear();
+        nameIds.clear();
+    }
+
+    // A frame of the given kind with room for a body of the given size, positioned after the kind.
+    // Its CRC32 is filled in by sealed() once the body is written.
+    private static ByteBuffer frame(byte kind, int bodyLength) {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + 1 + bodyLength);
+        frame.putInt(1 + bodyLength).putInt(~(1 + bodyLength)).putInt(0).put(kind);
+        return frame;
+    }
+
+    private static byte[] sealed(ByteBuffer frame) {
+        byte[] bytes = frame.array();
+        frame.putInt(8, crc(bytes, FRAME_HEADER, bytes.length - FRAME_HEADER));
+        return bytes;
+    }
+
+    private static int crc(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer body(byte[] frame, int offset, int length) {
+        return ByteBuffer.wrap(frame, offset + FRAME_HEADER, length - FRAME_HEADER);
+    }
+
+    private static void requireEnd(ByteBuffer in) {
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException(in.remaining() + " bytes past the end of the record");
+        }
+    }
+
+    private static String describe(RuntimeException e) {
+        return e instanceof BufferUnderflowException ? "record cut short" : e.getMessage();
+    }
+
+    private static byte[] nameFrame(int id, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = frame(NAME, 4 + bytes.length);
+        frame.putInt(id).put(bytes);
+        return sealed(frame);
+    }
+
+    // The id of a string, defining it (a NAME frame) if it is new
+    private int intern(String name, List<byte[]> frames) {
+        if (name == null) {
+            return NO_NAME;
+        }
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIds.put(name, id);
+            frames.add(nameFrame(id, name));
+        }
+        return id;
+    }
+
+    // Definitions are read again when part of the log is scanned twice (compaction, the write buffer).
+    // Ids skipped by a lost definition stay undefined.
+    private void learnName(ByteBuffer in) {
+        int id = in.getInt();
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative name id " + id);
+        }
+        if (id < names.size() && names.get(id) != null) {
+            return;
+        }
+        String name = new String(in.array(), in.arrayOffset() + in.position(), in.remaining(), StandardCharsets.UTF_8);
+        while (names.size() <= id) {
+            names.add(null);
+        }
+        names.set(id, name);
+        nameIds.putIfAbsent(name, id);
+    }
+
+    private String name(int id) {
+        if (id == NO_NAME) {
+            return null;
+        }
+        String name = id >= 0 && id < names.size() ? names.get(id) : null;
+        if (name == null) {
+            throw new IllegalArgumentException("Name id " + id + " is not defined");
+        }
+        return name;
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        long epochDay = in.getInt();
+        if (epochDay < LocalDate.MIN.toEpochDay() || epochDay > LocalDate.MAX.toEpochDay()) {
+            throw new IllegalArgumentException("Date out of range: " + epochDay);
+        }
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static int mealTypeCode(String mealType) {
+        for (int i = 0; i < MEAL_TYPES.length; i++) {
+            if (MEAL_TYPES[i].equals(mealType)) {
+                return i;
+            }
+        }
+        return CUSTOM_TYPE;
+    }
+
+    private String readMealType(ByteBuffer in) {
+        byte code = in.get();
+        if (code == CUSTOM_TYPE) {
+            return name(in.getInt());
+        }
+        if (code < 0 || code >= MEAL_TYPES.length) {
+            throw new IllegalArgumentException("Unknown meal type " + code);
+        }
+        return MEAL_TYPES[code];
+    }
+}
@@ -0,0 +1,103 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import ca.nutrisci.application.dto.MealDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * MealRecordFormat - How FileMealLogRepo encodes the records of its log
+ * Part of the Infrastructure Layer
+ *
+ * A log is a header followed by framed records: a meal, a tombstone, or
+ * anything else the format needs (the binary codec's name definitions).
+ * FileMealLogRepo only frames, indexes, copies and replays records through
+ * this interface; CsvMealRecordFormat and MealRecordCodec do the encoding.
+ * A format may keep state learned from the log it reads (interned names),
+ * so each repo has its own instance, used under the repo's lock.
+ */
+interface MealRecordFormat {
+
+    /**
+     * What the index needs from a record: the meal it is about and, unless it
+     * is a tombstone, the fields queries filter on
+     */
+    final class MealKey {
+        final UUID id;
+        final UUID profileId; // null for a tombstone
+        final LocalDate date;
+        final String mealType;
+
+        MealKey(UUID id, UUID profileId, LocalDate date, String mealType) {
+            this.id = id;
+            this.profileId = profileId;
+            this.date = date;
+            this.mealType = mealType;
+        }
+
+        static MealKey tombstone(UUID id) {
+            return new MealKey(id, null, null, null);
+        }
+
+        boolean isTombstone() {
+            return profileId == null;
+        }
+    }
+
+    /**
+     * The header frame a new log starts with
+     */
+    byte[] header();
+
+    /**
+     * Whether a log's first frame is this format's header (i.e. the file is in this format)
+     */
+    boolean isHeader(byte[] frame, int offset, int length);
+
+    /**
+     * Length of the frame starting at buffer[from], line break or length prefix
+     * included: 0 if it does not end before to, -1 if no intact frame starts
+     * there (a scan then looks for the next one a byte further on)
+     */
+    int frameLength(byte[] buffer, int from, int to);
+
+    /**
+     * Bytes that complete a record whose only missing part is its terminator
+     * (a last CSV line without its line break), or null if the format has none
+     */
+    byte[] frameTerminator();
+
+    /**
+     * The meal a frame is about, or null for the header and other frames; also
+     * learns whatever state the format keeps from the log (e.g. interned names)
+     * @throws IllegalArgumentException for a frame that is not a valid record
+     */
+    MealKey readKey(byte[] frame, int offset, int length);
+
+    /**
+     * Decode a meal frame, or null (after reporting it) if it is unreadable
+     * @throws IllegalArgumentException instead of returning null, in formats
+     * whose readKey has already checked the whole frame
+     */
+    MealDTO readMeal(byte[] frame, int offset, int length);
+
+    /**
+     * The frames to append for a meal: the meal's own frame last, after any it
+     * depends on (e.g. definitions of names it is the first to use)
+     */
+    List<byte[]> writeMeal(MealDTO meal);
+
+    byte[] writeTombstone(UUID mealId);
+
+    /**
+     * Frames a compacted log needs right after its header for the records
+     * copied into it to read the same (e.g. every name defined so far, in order)
+     */
+    List<byte[]> preamble();
+
+    /**
+     * Forget what was learned from a log, before a log is read from the start again
+     */
+    void reset();
+}
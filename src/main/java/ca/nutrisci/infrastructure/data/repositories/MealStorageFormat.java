@@ -0,0 +1,31 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+/**
+ * MealStorageFormat - The record formats FileMealLogRepo can store meals in
+ * Part of the Infrastructure Layer
+ *
+ * CSV is the original meals.csv, readable and editable by hand. BINARY is
+ * MealRecordCodec's meals.bin: smaller, and read without parsing text.
+ * FileMealLogRepo.convert copies a log from one format to the other.
+ */
+public enum MealStorageFormat {
+    CSV("meals.csv"),
+    BINARY("meals.bin");
+
+    private final String fileName;
+
+    MealStorageFormat(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Name of the meal log file in a data directory
+     */
+    public String fileName() {
+        return fileName;
+    }
+
+    MealRecordFormat newRecordFormat() {
+        return this == BINARY ? new MealRecordCodec() : new CsvMealRecordFormat();
+    }
+}
@@ -0,0 +1,145 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WriteBehind - Coalesces a file repository's writes on a background thread
+ * Part of the Infrastructure Layer
+ *
+ * A repository applies each mutation to its in-memory state and calls
+ * changed() instead of writing. One writer thread, shared by all file
+ * repositories, then runs the repository's flush action (write whatever is
+ * pending, then fsync) once per group: flushIntervalMillis after the first
+ * change of the group, or as soon as maxPendingChanges are pending. A burst
+ * of edits or a bulk import costs one write and one fsync instead of one per
+ * change. flush() writes everything pending and returns once it is durable;
+ * a shutdown hook flushes every open repository when the JVM exits.
+ *
+ * A flush action that fails keeps its changes pending, and the flush is tried
+ * again after flushIntervalMillis, doubling the wait after every further
+ * failure up to MAX_RETRY_DELAY_MILLIS, so a full disk or a locked file does
+ * not leave changes unwritten until the next edit.
+ */
+final class WriteBehind {
+
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+    static final int DEFAULT_MAX_PENDING_CHANGES = 1000;
+    static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+
+    /**
+     * Writes a repository's pending changes and forces them to disk
+     */
+    interface FlushAction {
+        void flush() throws IOException;
+    }
+
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "file-repo-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Set<WriteBehind> OPEN = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> OPEN.forEach(WriteBehind::flush),
+                                                        "file-repo-shutdown-flush"));
+    }
+
+    private final String name;
+    private final FlushAction action;
+    private final long flushIntervalMillis;
+    private final int maxPendingChanges;
+    private final Object flushLock = new Object(); // One flush at a time
+
+    // Guarded by this
+    private int pendingChanges;
+    private boolean scheduled;
+    private long retryDelayMillis; // 0 unless the last flush failed
+
+    WriteBehind(String name, FlushAction action) {
+        this(name, action, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_PENDING_CHANGES);
+    }
+
+    /**
+     * @param name The repository's file, for error messages
+     * @param action Writes and forces the repository's pending changes
+     * @param flushIntervalMillis How long a change may wait for its group
+     * @param maxPendingChanges Flush without waiting once this many changes are pending
+     */
+    WriteBehind(String name, FlushAction action, long flushIntervalMillis, int maxPendingChanges) {
+        this.name = name;
+        this.action = action;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPendingChanges = maxPendingChanges;
+        OPEN.add(this);
+    }
+
+    /**
+     * Record that one change was applied in memory and still has to be written
+     */
+    void changed() {
+        synchronized (this) {
+            pendingChanges++;
+            if (pendingChanges >= maxPendingChanges) {
+                pendingChanges = 0;
+                WRITER.execute(this::runGroup);
+            } else if (!scheduled) {
+                scheduled = true;
+                WRITER.schedule(this::runGroup, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Write everything pending now and wait until it is on disk
+     */
+    void flush() {
+        synchronized (flushLock) {
+            try {
+                action.flush();
+                synchronized (this) {
+                    retryDelayMillis = 0;
+                }
+            } catch (IOException e) {
+                System.err.println("❌ Error writing " + name + ": " + e);
+                scheduleRetry();
+            }
+        }
+    }
+
+    /**
+     * Flush and stop flushing on exit; the repository writes nothing afterwards
+     */
+    void close() {
+        OPEN.remove(this);
+        flush();
+    }
+
+    // Called with flushLock held after a failed flush; a closed repository is not retried
+    private synchronized void scheduleRetry() {
+        retryDelayMillis = retryDelayMillis == 0 ? flushIntervalMillis
+                : Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+        if (!scheduled && OPEN.contains(this)) {
+            scheduled = true;
+            System.err.println("🔄 Retrying " + name + " in " + retryDelayMillis + " ms");
+            WRITER.schedule(this::runGroup, retryDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // A group may also pick up changes made after it was triggered; their own run then finds nothing to write
+    private void runGroup() {
+        synchronized (this) {
+            scheduled = false;
+            pendingChanges = 0;
+        }
+        if (OPEN.contains(this)) {
+            flush();
+        }
+    }
+}
@@ -2,8 +2,10 @@ package ca.nutrisci.infrastructure.database;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -214,6 +216,8 @@ public class DatabaseManager {
                 }
             }
             
+            createCnfTables(stmt);
+            
             System.out.println("✅ Manual table creation completed");
             
         } catch (SQLException e) {
@@ -221,6 +225,111 @@ public class DatabaseManager {
         }
     }
     
+    /**
+     * Create the tables the CNF importer fills and JdbcNutritionGateway reads
+     */
+    private void createCnfTables(Statement stmt) throws SQLException {
+        // One row per food with nutrition data, named as in the meal log
+        stmt.execute("CREATE TABLE IF NOT EXISTS cnf_foods (" +
+            "food_id INTEGER PRIMARY KEY, " +
+            "food_name VARCHAR(500) NOT NULL, " +
+            "food_name_fr VARCHAR(500), " +
+            "food_group_id INTEGER, " +
+            "food_group_name VARCHAR(100), " +
+            "calories DOUBLE DEFAULT 0, " +
+            "protein DOUBLE DEFAULT 0, " +
+            "carbs DOUBLE DEFAULT 0, " +
+            "fat DOUBLE DEFAULT 0, " +
+            "fiber DOUBLE DEFAULT 0, " +
+            "edible_portion DOUBLE DEFAULT 1, " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        
+        // Grams eaten per gram as purchased (CNF refuse and yield), added after the first release
+        try {
+            stmt.execute("ALTER TABLE cnf_foods ADD COLUMN edible_portion DOUBLE DEFAULT 1");
+            System.out.println("✅ Added edible_portion column to existing cnf_foods table");
+        } catch (SQLException e) {
+            // Column probably already exists, ignore
+            if (!e.getMessage().toLowerCase().contains("already exists") && 
+                !e.getMessage().toLowerCase().contains("duplicate column")) {
+                System.err.println("⚠️ Could not add edible_portion column: " + e.getMessage());
+            }
+        }
+        
+        // French name (CNF FoodDescriptionF) for French searches, added after the first release
+        try {
+            stmt.execute("ALTER TABLE cnf_foods ADD COLUMN food_name_fr VARCHAR(500)");
+            System.out.println("✅ Added food_name_fr column to existing cnf_foods table");
+        } catch (SQLException e) {
+            // Column probably already exists, ignore
+            if (!e.getMessage().toLowerCase().contains("already exists") && 
+                !e.getMessage().toLowerCase().contains("duplicate column")) {
+                System.err.println("⚠️ Could not add food_name_fr column: " + e.getMessage());
+            }
+        }
+        
+        stmt.execute("CREATE TABLE IF NOT EXISTS cnf_nutrients (" +
+            "nutrient_id INTEGER PRIMARY KEY, " +
+            "symbol VARCHAR(20), " +
+            "unit VARCHAR(10), " +
+            "nutrient_name VARCHAR(200))");
+        
+        // Per-100g amounts; zero amounts are not stored
+        stmt.execute("CREATE TABLE IF NOT EXISTS cnf_nutrient_amounts (" +
+            "food_id INTEGER NOT NULL, " +
+            "nutrient_id INTEGER NOT NULL, " +
+            "amount DOUBLE NOT NULL, " +
+            "PRIMARY KEY (food_id, nutrient_id))");
+        
+        // Food ids were VARCHAR(10) in the first release; CNF ids are all numeric
+        for (String table : new String[] {"cnf_foods", "cnf_nutrient_amounts"}) {
+            try (ResultSet column = stmt.getConnection().getMetaData()
+                     .getColumns(null, null, table.toUpperCase(), "FOOD_ID")) {
+                if (column.next() && column.getInt("DATA_TYPE") != Types.INTEGER) {
+                    stmt.execute("ALTER TABLE " + table + " ALTER COLUMN food_id INTEGER NOT NULL");
+                    System.out.println("✅ Changed " + table + ".food_id to INTEGER");
+                }
+            } catch (SQLException e) {
+                System.err.println("⚠️ Could not change " + table + ".food_id to INTEGER: " + e.getMessage());
+            }
+        }
+        
+        // Single row describing the imported CNF release
+        stmt.execute("CREATE TABLE IF NOT EXISTS cnf_import (" +
+            "id INTEGER PRIMARY KEY, " +
+            "source_stamp BIGINT NOT NULL, " +
+            "food_count INTEGER NOT NULL, " +
+            "imported_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        
+        // Measure names and per-food conversion factors, for unit conversion without the CSV files
+        stmt.execute("CREATE TABLE IF NOT EXISTS cnf_measures (" +
+            "measure_id INTEGER PRIMARY KEY, " +
+            "measure_name VARCHAR(200) NOT NULL)");
+        
+        stmt.execute("CREATE TABLE IF NOT EXISTS cnf_conversion_factors (" +
+            "food_id INTEGER NOT NULL, " +
+            "measure_id INTEGER NOT NULL, " +
+            "factor DOUBLE NOT NULL, " +
+            "PRIMARY KEY (food_id, measure_id))");
+        
+        try {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_cnf_foods_name ON cnf_foods (food_name)");
+        } catch (SQLException e) {
+            // Index probably already exists, ignore
+            if (!e.getMessage().toLowerCase().contains("already exists") &&
+                !e.getMessage().toLowerCase().contains("duplicate")) {
+                System.err.println("⚠️ Could not create cnf_foods name index: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Get a configuration value from database.properties
+     */
+    public String getProperty(String key, String defaultValue) {
+        return dbConfig.getProperty(key, defaultValue);
+    }
+    
     /**
      * Get a new database connection - simplified (no pooling)
      */
@@ -0,0 +1,434 @@
+package ca.nutrisci.infrastructure.external.adapters;
+
+import ca.nutrisci.application.dto.FoodRef;
+import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.application.dto.NutrientVector;
+import ca.nutrisci.infrastructure.external.cnf.CnfDataset;
+import ca.nutrisci.infrastructure.external.cnf.CnfSnapshot;
+import ca.nutrisci.infrastructure.external.cnf.EdiblePortion;
+import ca.nutrisci.infrastructure.external.cnf.FoodGroupIndex;
+import ca.nutrisci.infrastructure.external.cnf.FoodNameIndex;
+import ca.nutrisci.infrastructure.external.cnf.FuzzyNameMatcher;
+import ca.nutrisci.infrastructure.external.cnf.MacroIndex;
+import ca.nutrisci.infrastructure.external.cnf.NutrientMatrix;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * CnfData - Everything ExternalAdapter serves from one CNF release
+ * Part of the Infrastructure Layer
+ *
+ * An immutable, versioned snapshot: built off the EDT by a loader thread and
+ * only handed to readers once complete, so a lookup never sees half-filled
+ * maps, and a reload builds a new instance instead of changing this one.
+ * Only the lazily built fuzzy matcher is added after construction.
+ */
+final class CnfData {
+    
+    static final int LOAD_STEPS = 5;
+    
+    // List of food group prefixes to remove from CNF descriptions
+    private static final String[] FOOD_GROUP_PREFIXES = {
+        "babyfood", "baby food", "spices", "grains", "animal fat", "vegetable oil",
+        "salad dressing", "shortening", "fish oil", "poultry food products",
+        "chinese dish", "fast foods", "cereals", "baked products", "beverages",
+        "dairy", "egg", "fats and oils", "legumes", "nuts and seeds", "sweets",
+        "vegetables", "fruits", "meat", "poultry", "seafood"
+    };
+    
+    // Categories whose "Category, type" names are reversed to "type category"
+    private static final Pattern REVERSED_CATEGORIES =
+        Pattern.compile("cheese|milk|bread|rice|potato|meat|fish|chicken|beef|turkey|pork");
+    
+    /** No foods: served until a load finishes, or when it fails */
+    static final CnfData EMPTY = new CnfData();
+    
+    final long version;
+    final Map<String, NutrientInfo> nutritionCache;
+    final Map<Integer, String> foodGroups;
+    final Map<String, Integer> foodToGroupMap;
+    final NutrientMatrix nutrientMatrix;
+    final FoodNameIndex nameIndex;
+    final FoodGroupIndex groupIndex;
+    final MacroIndex macroIndex;
+    
+    // Symbol table: the FoodRef of each name ordinal, and the FoodRef and
+    // nutrition info (null without data) of each nutrient matrix row
+    final FoodRef[] foodRefs;
+    final FoodRef[] foodRefsByRow;
+    final NutrientInfo[] nutritionByRow;
+    
+    // Per-100g amounts as purchased (see EdiblePortion), precomputed per row
+    // so the adjustment costs nothing at lookup time. Rows without refuse or
+    // yield share the unadjusted info and matrix storage; only adjusted rows
+    // are copied and scaled.
+    final float[] ediblePortions;
+    final NutrientInfo[] asPurchasedNutritionByRow;
+    final NutrientVector[] asPurchasedVectorsByRow;
+    private FuzzyNameMatcher fuzzyMatcher; // Built on first use
+    
+    private CnfData() {
+        this(0, new HashMap<>(), new HashMap<>(), new String[0], new HashMap<>(), new HashMap<>(), new HashMap<>(),
+             null, null);
+    }
+    
+    private CnfData(long version, Map<String, NutrientInfo> nutritionCache, Map<String, Integer> foodIdsByName,
+                    String[] namesByRow, Map<String, String> frenchNames,
+                    Map<Integer, String> foodGroups, Map<String, Integer> foodToGroupMap,
+                    NutrientMatrix nutrientMatrix, float[] ediblePortions) {
+        this.version = version;
+        this.nutritionCache = Collections.unmodifiableMap(nutritionCache);
+        this.foodGroups = Collections.unmodifiableMap(foodGroups);
+        this.foodToGroupMap = Collections.unmodifiableMap(foodToGroupMap);
+        this.nutrientMatrix = nutrientMatrix;
+        this.nameIndex = new FoodNameIndex(nutritionCache.keySet(), frenchNames);
+        this.groupIndex = new FoodGroupIndex(foodGroups, nameIndex, foodToGroupMap);
+        this.macroIndex = new MacroIndex(groupIndex, macroAmounts(nameIndex, nutritionCache));
+        
+        this.foodRefs = new FoodRef[nameIndex.size()];
+        for (int ordinal = 0; ordinal < foodRefs.length; ordinal++) {
+            String name = nameIndex.name(ordinal);
+            foodRefs[ordinal] = new FoodRef(foodIdsByName.get(name), name);
+        }
+        
+        int rows = nutrientMatrix != null ? nutrientMatrix.foodCount() : 0;
+        this.foodRefsByRow = new FoodRef[rows];
+        this.nutritionByRow = new NutrientInfo[rows];
+        this.ediblePortions = ediblePortions != null ? ediblePortions : new float[0];
+        this.asPurchasedNutritionByRow = new NutrientInfo[rows];
+        this.asPurchasedVectorsByRow = new NutrientVector[rows];
+        int nutrients = nutrientMatrix != null ? nutrientMatrix.nutrientCount() : 0;
+        float[] scaled = new float[EdiblePortion.adjustedCount(this.ediblePortions) * nutrients];
+        int scaledOffset = 0;
+        for (int row = 0; row < rows; row++) {
+            int foodId = nutrientMatrix.foodId(row);
+            String name = namesByRow[row];
+            if (name != null) {
+                // Share the name ordinal's instance when this row is the food the name resolves to
+                int ordinal = nameIndex.ordinalOf(name);
+                foodRefsByRow[row] = ordinal >= 0 && foodRefs[ordinal].getFoodId() == foodId
+                    ? foodRefs[ordinal] : new FoodRef(foodId, name);
+            }
+            if (nutrientMatrix.hasData(row)) {
+                NutrientVector vector = nutrientMatrix.vector(row);
+                nutritionByRow[row] = vector.toNutrientInfo();
+                
+                float portion = this.ediblePortions[row];
+                if (portion == 1f) {
+                    asPurchasedVectorsByRow[row] = vector;
+                    asPurchasedNutritionByRow[row] = nutritionByRow[row];
+                } else {
+                    for (int i = 0; i < nutrients; i++) {
+                        scaled[scaledOffset + i] = (float) vector.getAt(i) * portion;
+                    }
+                    asPurchasedVectorsByRow[row] = new NutrientVector(nutrientMatrix.getCatalog(), scaled, scaledOffset);
+                    asPurchasedNutritionByRow[row] = asPurchasedVectorsByRow[row].toNutrientInfo();
+                    scaledOffset += nutrients;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Calories, protein, carbs, fat and fiber of every name ordinal, as MacroIndex takes them
+     */
+    static float[] macroAmounts(FoodNameIndex names, Map<String, NutrientInfo> nutrition) {
+        float[] amounts = new float[names.size() * MacroIndex.DIMENSIONS];
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            NutrientInfo info = nutrition.get(names.name(ordinal));
+            if (info != null) {
+                int offset = ordinal * MacroIndex.DIMENSIONS;
+                amounts[offset + MacroIndex.CALORIES] = (float) info.getCalories();
+                amounts[offset + MacroIndex.PROTEIN] = (float) info.getProtein();
+                amounts[offset + MacroIndex.CARBS] = (float) info.getCarbs();
+                amounts[offset + MacroIndex.FAT] = (float) info.getFat();
+                amounts[offset + MacroIndex.FIBER] = (float) info.getFiber();
+            }
+        }
+        return amounts;
+    }
+    
+    /**
+     * CNF food id of a cleaned food name, or -1
+     */
+    int foodId(String foodName) {
+        int ordinal = nameIndex.ordinalOf(foodName);
+        return ordinal >= 0 ? foodRefs[ordinal].getFoodId() : -1;
+    }
+    
+    /**
+     * Row of a food in the nutrient matrix, or -1
+     */
+    int row(int foodId) {
+        return nutrientMatrix != null ? nutrientMatrix.foodOrdinal(foodId) : -1;
+    }
+    
+    /**
+     * Load a CNF directory as the given version on the calling thread. The CSV
+     * parsing is already parallel (see CnfCsvLoader); the steps here derive
+     * names, nutrition info and the search index from each other in that order,
+     * and the food group map is too small to be worth another thread.
+     */
+    static CnfData load(Path cnfDirectory, long version, CnfLoadListener listener) throws IOException {
+        AtomicInteger completed = new AtomicInteger();
+        
+        CnfDataset dataset = CnfSnapshot.loadOrCompile(cnfDirectory);
+        progress(listener, "CNF dataset", completed);
+        
+        Map<Integer, String> foodGroups = new HashMap<>();
+        loadFoodGroups(dataset, foodGroups);
+        progress(listener, "food groups", completed);
+        
+        Map<String, Integer> foodIdsByName = new HashMap<>();
+        String[] namesByRow = new String[dataset.getNutrientMatrix().foodCount()];
+        Map<String, String> frenchNames = new HashMap<>();
+        Map<String, Integer> foodToGroupMap = new HashMap<>();
+        loadAllFoodNames(dataset, foodIdsByName, namesByRow, frenchNames, foodToGroupMap);
+        progress(listener, "food names", completed);
+        
+        Map<String, NutrientInfo> nutritionCache = new HashMap<>();
+        loadNutrientData(dataset.getNutrientMatrix(), namesByRow, nutritionCache);
+        float[] ediblePortions = EdiblePortion.factors(dataset);
+        System.out.println("Found refuse or yield adjustments for " + EdiblePortion.adjustedCount(ediblePortions)
+            + " foods");
+        progress(listener, "nutrition info", completed);
+        
+        // CNF-only mode: No default data loaded, only Canada Nutrient File data
+        // loadDefaultData(nutritionCache, foodIdsByName); // REMOVED: User requested CNF data only
+        CnfData data = new CnfData(version, nutritionCache, foodIdsByName, namesByRow, frenchNames,
+                foodGroups, foodToGroupMap, dataset.getNutrientMatrix(), ediblePortions);
+        progress(listener, "search index", completed);
+        return data;
+    }
+    
+    private static void progress(CnfLoadListener listener, String step, AtomicInteger completed) {
+        int done = completed.incrementAndGet();
+        if (listener != null) {
+            listener.onProgress(step, done, LOAD_STEPS);
+        }
+    }
+    
+    synchronized FuzzyNameMatcher getFuzzyMatcher() {
+        if (fuzzyMatcher == null) {
+            fuzzyMatcher = new FuzzyNameMatcher(nameIndex);
+        }
+        return fuzzyMatcher;
+    }
+    
+    /**
+     * Load food groups (FOOD GROUP.csv)
+     */
+    private static void loadFoodGroups(CnfDataset dataset, Map<Integer, String> foodGroups) {
+        int[] groupIds = dataset.getGroupIds();
+        String[] groupNames = dataset.getGroupNames();
+        for (int i = 0; i < groupIds.length; i++) {
+            foodGroups.put(groupIds[i], groupNames[i]);
+        }
+        
+        System.out.println("Loaded " + foodGroups.size() + " food groups");
+    }
+    
+    /**
+     * Load ALL food names (FOOD NAME.csv), with the French name of each cleaned English name.
+     * namesByRow gets the cleaned name of each nutrient matrix row.
+     */
+    private static void loadAllFoodNames(CnfDataset dataset, Map<String, Integer> foodIdsByName,
+                                         String[] namesByRow, Map<String, String> frenchNames,
+                                         Map<String, Integer> foodToGroupMap) {
+        int[] foodIds = dataset.getFoodIds();
+        int[] foodGroupIds = dataset.getFoodGroupIds();
+        String[] descriptions = dataset.getFoodDescriptions();
+        String[] descriptionsF = dataset.getFoodDescriptionsF();
+        
+        NutrientMatrix nutrientMatrix = dataset.getNutrientMatrix();
+        for (int i = 0; i < foodIds.length; i++) {
+            // Clean up the food name by removing food group prefix
+            String cleanFoodName = cleanFoodName(descriptions[i]).toLowerCase();
+            
+            // Store mappings
+            foodIdsByName.put(cleanFoodName, foodIds[i]);
+            int row = nutrientMatrix.foodOrdinal(foodIds[i]);
+            if (row >= 0) {
+                namesByRow[row] = cleanFoodName;
+            }
+            // Same food as foodIdsByName when several share a cleaned name
+            frenchNames.put(cleanFoodName, descriptionsF[i].trim().toLowerCase());
+            
+            // Store food group mapping (skip invalid group IDs)
+            if (foodGroupIds[i] >= 0) {
+                foodToGroupMap.put(cleanFoodName, foodGroupIds[i]);
+            }
+        }
+        
+        System.out.println("Loaded " + foodIds.length + " food names from CNF database");
+    }
+    
+    /**
+     * Clean up food name by removing food group prefix and extracting the main food name
+     */
+    private static String cleanFoodName(String rawFoodName) {
+        if (rawFoodName == null || rawFoodName.trim().isEmpty()) {
+            return rawFoodName;
+        }
+        
+        // Split by commas to separate the food group from the actual food name
+        String[] parts = rawFoodName.split(",");
+        
+        if (parts.length == 1) {
+            // No commas, return as-is
+            return rawFoodName.trim();
+        }
+        
+        // Check if the first part is a food group category that should be removed
+        String firstPart = parts[0].trim().toLowerCase();
+        
+        boolean shouldRemoveFirstPart = false;
+        for (String prefix : FOOD_GROUP_PREFIXES) {
+            if (firstPart.contains(prefix) || firstPart.startsWith(prefix)) {
+                shouldRemoveFirstPart = true;
+                break;
+            }
+        }
+        
+        if (shouldRemoveFirstPart && parts.length > 1) {
+            // Remove the first part and join the rest
+            StringBuilder result = new StringBuilder();
+            for (int i = 1; i < parts.length; i++) {
+                if (i > 1) result.append(", ");
+                result.append(parts[i].trim());
+            }
+            return result.toString();
+        } else {
+            // Keep the original name but reformat it nicely
+            // For names like "Cheese, blue" -> "blue cheese"
+            if (parts.length == 2) {
+                String category = parts[0].trim();
+                String type = parts[1].trim();
+                
+                // For simple category-type pairs, reverse the order
+                if (REVERSED_CATEGORIES.matcher(category.toLowerCase()).matches()) {
+                    return type + " " + category.toLowerCase();
+                }
+            }
+            
+            // For more complex names, just remove redundant parts and clean up
+            return rawFoodName.trim();
+        }
+    }
+    
+    /**
+     * Load nutrient data (NUTRIENT AMOUNT.csv)
+     */
+    private static void loadNutrientData(NutrientMatrix nutrientMatrix, String[] namesByRow,
+                                         Map<String, NutrientInfo> nutritionCache) {
+        System.out.println("Loaded " + nutrientMatrix + ", creating nutrition info objects...");
+        
+        // Foods in row order, so a name shared by several foods maps to the same food as getFoodId
+        int nutritionCount = 0;
+        for (int food = 0; food < nutrientMatrix.foodCount(); food++) {
+            if (!nutrientMatrix.hasData(food)) {
+                continue;
+            }
+            String foodName = namesByRow[food];
+            if (foodName != null) {
+                nutritionCache.put(foodName, nutrientMatrix.vector(food).toNutrientInfo());
+                nutritionCount++;
+            }
+        }
+        
+        System.out.println("Created nutrition info for " + nutritionCount + " foods");
+    }
+    
+    /**
+     * Load comprehensive default data for fallback
+     */
+    private static void loadDefaultData(Map<String, NutrientInfo> nutritionCache,
+                                        Map<String, Integer> foodIdsByName) {
+        System.out.println("Loading default nutrition data...");
+        
+        // Enhanced default nutrition database
+        Map<String, NutrientInfo> defaultNutrition = new HashMap<>();
+        
+        // Proteins
+        defaultNutrition.put("chicken breast", new NutrientInfo(165, 31.0, 0.0, 3.6, 0.0));
+        defaultNutrition.put("chicken", new NutrientInfo(165, 31.0, 0.0, 3.6, 0.0));
+        defaultNutrition.put("beef", new NutrientInfo(250, 26.0, 0.0, 15.0, 0.0));
+        defaultNutrition.put("pork", new NutrientInfo(242, 27.0, 0.0, 14.0, 0.0));
+        defaultNutrition.put("fish", new NutrientInfo(206, 22.0, 0.0, 12.0, 0.0));
+        defaultNutrition.put("salmon", new NutrientInfo(208, 20.0, 0.0, 13.0, 0.0));
+        defaultNutrition.put("tuna", new NutrientInfo(184, 30.0, 0.0, 6.0, 0.0));
+        defaultNutrition.put("egg", new NutrientInfo(155, 13.0, 1.1, 11.0, 0.0));
+        defaultNutrition.put("eggs", new NutrientInfo(155, 13.0, 1.1, 11.0, 0.0));
+        defaultNutrition.put("turkey", new NutrientInfo(135, 30.0, 0.0, 1.0, 0.0));
+        
+        // Dairy
+        defaultNutrition.put("milk", new NutrientInfo(42, 3.4, 5.0, 1.0, 0.0));
+        defaultNutrition.put("cheese", new NutrientInfo(113, 25.0, 1.0, 9.0, 0.0));
+        defaultNutrition.put("yogurt", new NutrientInfo(59, 10.0, 3.6, 0.4, 0.0));
+        defaultNutrition.put("butter", new NutrientInfo(717, 0.9, 0.1, 81.0, 0.0));
+        defaultNutrition.put("cream", new NutrientInfo(195, 2.8, 3.4, 20.0, 0.0));
+        
+        // Grains and starches
+        defaultNutrition.put("bread", new NutrientInfo(265, 9.0, 49.0, 3.2, 2.7));
+        defaultNutrition.put("rice", new NutrientInfo(130, 2.7, 28.0, 0.3, 0.4));
+        defaultNutrition.put("pasta", new NutrientInfo(131, 5.0, 25.0, 1.1, 1.8));
+        defaultNutrition.put("oats", new NutrientInfo(389, 16.9, 66.3, 6.9, 10.6));
+        defaultNutrition.put("cereal", new NutrientInfo(357, 7.5, 84.0, 2.8, 7.0));
+        defaultNutrition.put("quinoa", new NutrientInfo(368, 14.1, 64.2, 6.1, 7.0));
+        defaultNutrition.put("wheat", new NutrientInfo(327, 12.6, 71.2, 1.5, 12.2));
+        defaultNutrition.put("barley", new NutrientInfo(354, 12.5, 73.5, 2.3, 17.3));
+        
+        // Vegetables
+        defaultNutrition.put("tomato", new NutrientInfo(18, 0.9, 3.9, 0.2, 1.2));
+        defaultNutrition.put("tomatoes", new NutrientInfo(18, 0.9, 3.9, 0.2, 1.2));
+        defaultNutrition.put("lettuce", new NutrientInfo(15, 1.4, 2.9, 0.2, 1.3));
+        defaultNutrition.put("spinach", new NutrientInfo(23, 2.9, 3.6, 0.4, 2.2));
+        defaultNutrition.put("broccoli", new NutrientInfo(34, 2.8, 7.0, 0.4, 2.6));
+        defaultNutrition.put("carrots", new NutrientInfo(41, 0.9, 10.0, 0.2, 2.8));
+        defaultNutrition.put("onion", new NutrientInfo(40, 1.1, 9.3, 0.1, 1.7));
+        defaultNutrition.put("bell pepper", new NutrientInfo(31, 1.0, 7.0, 0.3, 2.5));
+        defaultNutrition.put("cucumber", new NutrientInfo(16, 0.7, 4.0, 0.1, 0.5));
+        defaultNutrition.put("potato", new NutrientInfo(77, 2.0, 17.0, 0.1, 2.2));
+        defaultNutrition.put("corn", new NutrientInfo(86, 3.3, 19.0, 1.4, 2.7));
+        
+        // Fruits
+        defaultNutrition.put("apple", new NutrientInfo(52, 0.3, 14.0, 0.2, 2.4));
+        defaultNutrition.put("apples", new NutrientInfo(52, 0.3, 14.0, 0.2, 2.4));
+        defaultNutrition.put("banana", new NutrientInfo(89, 1.1, 23.0, 0.3, 2.6));
+        defaultNutrition.put("bananas", new NutrientInfo(89, 1.1, 23.0, 0.3, 2.6));
+        defaultNutrition.put("orange", new NutrientInfo(47, 0.9, 12.0, 0.1, 2.4));
+        defaultNutrition.put("berries", new NutrientInfo(57, 0.7, 14.0, 0.3, 2.4));
+        defaultNutrition.put("strawberries", new NutrientInfo(32, 0.7, 7.7, 0.3, 2.0));
+        defaultNutrition.put("grapes", new NutrientInfo(62, 0.6, 16.0, 0.2, 0.9));
+        
+        // Nuts and seeds
+        defaultNutrition.put("almonds", new NutrientInfo(579, 21.0, 22.0, 50.0, 12.0));
+        defaultNutrition.put("walnuts", new NutrientInfo(654, 15.0, 14.0, 65.0, 6.7));
+        defaultNutrition.put("peanuts", new NutrientInfo(567, 26.0, 16.0, 49.0, 8.5));
+        defaultNutrition.put("sunflower seeds", new NutrientInfo(584, 20.8, 20.0, 51.5, 8.6));
+        
+        // Oils and fats
+        defaultNutrition.put("olive oil", new NutrientInfo(884, 0.0, 0.0, 100.0, 0.0));
+        defaultNutrition.put("oil", new NutrientInfo(884, 0.0, 0.0, 100.0, 0.0));
+        defaultNutrition.put("vegetable oil", new NutrientInfo(884, 0.0, 0.0, 100.0, 0.0));
+        
+        // Legumes
+        defaultNutrition.put("beans", new NutrientInfo(347, 22.0, 63.0, 1.2, 15.0));
+        defaultNutrition.put("lentils", new NutrientInfo(353, 25.0, 60.0, 1.1, 10.7));
+        defaultNutrition.put("chickpeas", new NutrientInfo(378, 20.0, 63.0, 6.0, 12.0));
+        defaultNutrition.put("black beans", new NutrientInfo(341, 21.6, 62.4, 1.4, 15.0));
+        
+        // Add all default data to the cache (only if not already present from CNF)
+        for (Map.Entry<String, NutrientInfo> entry : defaultNutrition.entrySet()) {
+            if (!nutritionCache.containsKey(entry.getKey())) {
+                nutritionCache.put(entry.getKey(), entry.getValue());
+                foodIdsByName.put(entry.getKey(), -1); // Not a CNF food
+            }
+        }
+        
+        System.out.println("Added " + defaultNutrition.size() + " default nutrition entries");
+    }
+}
@@ -0,0 +1,277 @@
+package ca.nutrisci.infrastructure.external.adapters;
+
+import ca.nutrisci.application.dto.NutrientCatalog;
+import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.infrastructure.database.DatabaseManager;
+import ca.nutrisci.infrastructure.external.cnf.CnfDataset;
+import ca.nutrisci.infrastructure.external.cnf.CnfSnapshot;
+import ca.nutrisci.infrastructure.external.cnf.ConversionFactorTable;
+import ca.nutrisci.infrastructure.external.cnf.NutrientMatrix;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * CnfDatabaseImporter - Copies the Canada Nutrient File into the database
+ * Part of the Infrastructure Layer
+ *
+ * Fills cnf_foods (one row per food with nutrition data, under the same
+ * cleaned name ExternalAdapter uses, with its French name and EdiblePortion factor),
+ * cnf_nutrients and cnf_nutrient_amounts (non-zero per-100g amounts) with
+ * JDBC batch inserts, replacing whatever was imported before in a single
+ * transaction. cnf_measures and cnf_conversion_factors hold the measure
+ * names and conversion factors, so units can be converted without the CSVs. cnf_import records the source stamp of the CSV files so
+ * JdbcNutritionGateway can tell when the database is out of date and use it
+ * as the data version.
+ */
+public final class CnfDatabaseImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final DatabaseManager dbManager;
+    private final int batchSize;
+
+    public CnfDatabaseImporter(DatabaseManager dbManager, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.dbManager = dbManager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Importer using the cnf.batch.size setting from database.properties
+     */
+    public CnfDatabaseImporter(DatabaseManager dbManager) {
+        this(dbManager, batchSizeSetting(dbManager));
+    }
+
+    private static int batchSizeSetting(DatabaseManager dbManager) {
+        String value = dbManager.getProperty("cnf.batch.size", String.valueOf(DEFAULT_BATCH_SIZE));
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Invalid cnf.batch.size '" + value + "', using " + DEFAULT_BATCH_SIZE);
+            return DEFAULT_BATCH_SIZE;
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Source stamp of the imported CNF files, or 0 if nothing has been imported
+     */
+    public long importedStamp() throws SQLException {
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT source_stamp FROM cnf_import WHERE id = 1")) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    /**
+     * True if the database holds no import of the CNF files in the directory as they are now
+     */
+    public boolean needsImport(Path cnfDirectory) throws IOException, SQLException {
+        return importedStamp() != CnfSnapshot.sourceStamp(cnfDirectory);
+    }
+
+    /**
+     * Import a CNF directory, replacing the previous import
+     * @return The number of foods imported
+     */
+    public int importDirectory(Path cnfDirectory) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long sourceStamp = CnfSnapshot.sourceStamp(cnfDirectory);
+        CnfData data = CnfData.load(cnfDirectory, sourceStamp, null);
+        CnfDataset dataset = CnfSnapshot.loadOrCompile(cnfDirectory); // The one CnfData was built from
+
+        int foods;
+        long amounts;
+        try (Connection conn = dbManager.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                clear(conn);
+                insertNutrients(conn, data.nutrientMatrix.getCatalog());
+                foods = insertFoods(conn, data);
+                amounts = insertAmounts(conn, data);
+                insertMeasures(conn, dataset);
+                insertConversionFactors(conn, dataset);
+                insertImport(conn, sourceStamp, foods);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+
+        System.out.printf("✅ Imported %d CNF foods and %d nutrient amounts in %d ms (batch size %d)%n",
+                foods, amounts, (System.nanoTime() - start) / 1_000_000, batchSize);
+        return foods;
+    }
+
+    private static void clear(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM cnf_conversion_factors");
+            stmt.executeUpdate("DELETE FROM cnf_measures");
+            stmt.executeUpdate("DELETE FROM cnf_nutrient_amounts");
+            stmt.executeUpdate("DELETE FROM cnf_foods");
+            stmt.executeUpdate("DELETE FROM cnf_nutrients");
+            stmt.executeUpdate("DELETE FROM cnf_import");
+        }
+    }
+
+    private void insertNutrients(Connection conn, NutrientCatalog catalog) throws SQLException {
+        String sql = "INSERT INTO cnf_nutrients (nutrient_id, symbol, unit, nutrient_name) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (int index = 0; index < catalog.size(); index++) {
+                stmt.setInt(1, catalog.getNutrientId(index));
+                stmt.setString(2, catalog.getSymbol(index));
+                stmt.setString(3, catalog.getUnit(index));
+                stmt.setString(4, catalog.getName(index));
+                pending = addBatch(stmt, pending);
+            }
+            flush(stmt, pending);
+        }
+    }
+
+    private int insertFoods(Connection conn, CnfData data) throws SQLException {
+        String sql = "INSERT INTO cnf_foods (food_id, food_name, food_group_id, food_group_name, " +
+                    "calories, protein, carbs, fat, fiber, edible_portion, food_name_fr) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int count = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (int ordinal = 0; ordinal < data.nameIndex.size(); ordinal++) {
+                String name = data.nameIndex.name(ordinal);
+                NutrientInfo info = data.nutritionCache.get(name);
+                Integer groupId = data.foodToGroupMap.get(name);
+                int foodId = data.foodRefs[ordinal].getFoodId();
+                int row = data.row(foodId);
+
+                stmt.setInt(1, foodId);
+                stmt.setString(2, name);
+                if (groupId != null) {
+                    stmt.setInt(3, groupId);
+                } else {
+                    stmt.setNull(3, Types.INTEGER);
+                }
+                stmt.setString(4, groupId != null ? data.foodGroups.get(groupId) : null);
+                stmt.setDouble(5, info.getCalories());
+                stmt.setDouble(6, info.getProtein());
+                stmt.setDouble(7, info.getCarbs());
+                stmt.setDouble(8, info.getFat());
+                stmt.setDouble(9, info.getFiber());
+                stmt.setDouble(10, row >= 0 ? data.ediblePortions[row] : 1.0);
+                stmt.setString(11, data.nameIndex.frenchName(ordinal));
+                pending = addBatch(stmt, pending);
+                count++;
+            }
+            flush(stmt, pending);
+        }
+        return count;
+    }
+
+    private long insertAmounts(Connection conn, CnfData data) throws SQLException {
+        NutrientMatrix matrix = data.nutrientMatrix;
+        String sql = "INSERT INTO cnf_nutrient_amounts (food_id, nutrient_id, amount) VALUES (?, ?, ?)";
+        long count = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (int ordinal = 0; ordinal < data.nameIndex.size(); ordinal++) {
+                int foodId = data.foodRefs[ordinal].getFoodId();
+                int food = matrix.foodOrdinal(foodId);
+                for (int nutrient = 0; nutrient < matrix.nutrientCount(); nutrient++) {
+                    float amount = matrix.get(food, nutrient);
+                    if (amount == 0f) {
+                        continue;
+                    }
+                    stmt.setInt(1, foodId);
+                    stmt.setInt(2, matrix.nutrientId(nutrient));
+                    stmt.setDouble(3, amount);
+                    pending = addBatch(stmt, pending);
+                    count++;
+                }
+            }
+            flush(stmt, pending);
+        }
+        return count;
+    }
+
+    private void insertMeasures(Connection conn, CnfDataset dataset) throws SQLException {
+        String sql = "INSERT INTO cnf_measures (measure_id, measure_name) VALUES (?, ?)";
+        int[] measureIds = dataset.getMeasureIds();
+        String[] measureNames = dataset.getMeasureNames();
+        Set<Integer> inserted = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (int i = 0; i < measureIds.length; i++) {
+                if (!inserted.add(measureIds[i])) {
+                    continue;
+                }
+                stmt.setInt(1, measureIds[i]);
+                stmt.setString(2, measureNames[i]);
+                pending = addBatch(stmt, pending);
+            }
+            flush(stmt, pending);
+        }
+    }
+
+    private void insertConversionFactors(Connection conn, CnfDataset dataset) throws SQLException {
+        // Through the table, which keeps one factor per (food, measure)
+        ConversionFactorTable table = new ConversionFactorTable(dataset.getConversionFoodIds(),
+                dataset.getConversionMeasureIds(), dataset.getConversionFactors());
+        String sql = "INSERT INTO cnf_conversion_factors (food_id, measure_id, factor) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (int food = 0; food < table.foodCount(); food++) {
+                for (int position = table.start(food); position < table.end(food); position++) {
+                    stmt.setInt(1, table.foodId(food));
+                    stmt.setInt(2, table.measureId(position));
+                    stmt.setDouble(3, table.factor(position));
+                    pending = addBatch(stmt, pending);
+                }
+            }
+            flush(stmt, pending);
+        }
+    }
+
+    private static void insertImport(Connection conn, long sourceStamp, int foods) throws SQLException {
+        String sql = "INSERT INTO cnf_import (id, source_stamp, food_count) VALUES (1, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, sourceStamp);
+            stmt.setInt(2, foods);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Queue the current row, sending the batch once it is full
+    private int addBatch(PreparedStatement stmt, int pending) throws SQLException {
+        stmt.addBatch();
+        if (++pending == batchSize) {
+            stmt.executeBatch();
+            return 0;
+        }
+        return pending;
+    }
+
+    private static void flush(PreparedStatement stmt, int pending) throws SQLException {
+        if (pending > 0) {
+            stmt.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ca.nutrisci.infrastructure.external.adapters;
+
+/**
+ * CnfLoadListener - Progress of a background CNF load (see ExternalAdapter.initializeAsync)
+ * Called on the loader threads; Swing code must hop to the EDT before touching components.
+ */
+@FunctionalInterface
+public interface CnfLoadListener {
+    
+    /**
+     * A loading step has finished
+     * @param step Short description of the finished step
+     * @param completedSteps Steps finished so far
+     * @param totalSteps Total number of steps
+     */
+    void onProgress(String step, int completedSteps, int totalSteps);
+}
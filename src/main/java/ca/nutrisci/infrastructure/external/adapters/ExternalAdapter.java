@@ -1,39 +1,74 @@
 package ca.nutrisci.infrastructure.external.adapters;
 
+import ca.nutrisci.application.dto.FoodMatch;
+import ca.nutrisci.application.dto.FoodRef;
+import ca.nutrisci.application.dto.NutrientCatalog;
 import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.application.dto.NutrientVector;
+import ca.nutrisci.infrastructure.external.cnf.CnfCsvLoader;
+import ca.nutrisci.infrastructure.external.cnf.FoodNameIndex;
+import ca.nutrisci.infrastructure.external.cnf.MacroIndex;
+import java.awt.EventQueue;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.io.*;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * ExternalAdapter - CSV-based adapter for Canadian Nutrient File data
+ * ExternalAdapter - Adapter for Canadian Nutrient File data (compiled snapshot or CSV)
  * Part of the Infrastructure Layer - Adapter Pattern
  * Singleton to prevent multiple loading of CNF data
+ *
+ * Data is loaded in the background (see initializeAsync) and published in one
+ * step once complete. Lookups made before then wait for it, except on the event
+ * dispatch thread, which is answered from empty data instead of freezing the UI.
+ *
+ * The loaded data is an immutable, versioned snapshot. reload() (or a change
+ * to the CNF files while startWatching is active) builds a new one in the
+ * background and swaps it in atomically; each lookup reads a single snapshot,
+ * so it never mixes two versions. getDataVersion() tells callers when to drop
+ * anything they cached from an older version.
  */
 public class ExternalAdapter implements INutritionGateway {
     
     private static ExternalAdapter instance;
-    private final String cnfDataPath;
-    private final Map<String, NutrientInfo> nutritionCache;
-    private final Map<String, String> foodNameToIdMap;
-    private final Map<String, String> foodIdToNameMap;
-    private final Map<Integer, String> foodGroups;
-    private final Map<String, Integer> foodToGroupMap;
-    private boolean initialized = false;
+    
+    // How long the CNF files must stay unchanged before a watched directory is reloaded
+    private static final long RELOAD_QUIET_MILLIS = 2000;
+    
+    // Daemon threads so a load still in progress never keeps the JVM alive
+    private static final ExecutorService LOADER = Executors.newCachedThreadPool(new LoaderThreadFactory());
+    
+    private volatile String cnfDataPath;
+    private final AtomicReference<CnfData> current = new AtomicReference<>(CnfData.EMPTY);
+    private final AtomicLong lastVersion = new AtomicLong();
+    private volatile boolean initialized = false;
+    private CompletableFuture<INutritionGateway> ready; // Guarded by this
+    private WatchService watcher; // Guarded by this
     
     private ExternalAdapter(String cnfDataPath) {
         this.cnfDataPath = cnfDataPath;
-        this.nutritionCache = new HashMap<>();
-        this.foodNameToIdMap = new HashMap<>();
-        this.foodIdToNameMap = new HashMap<>();
-        this.foodGroups = new HashMap<>();
-        this.foodToGroupMap = new HashMap<>();
-        initializeData();
     }
     
     /**
-     * Get singleton instance of ExternalAdapter
+     * Get singleton instance of ExternalAdapter (does not load any data yet)
      */
     public static synchronized ExternalAdapter getInstance(String cnfDataPath) {
         if (instance == null) {
@@ -49,469 +84,442 @@ public class ExternalAdapter implements INutritionGateway {
         return getInstance("Canada Nutrient File-20250622");
     }
     
+    @Override
+    public CompletableFuture<INutritionGateway> initializeAsync() {
+        return initializeAsync(null);
+    }
+    
     /**
-     * Initialize the nutrition data from CSV files
+     * Start loading in the background, reporting each finished step to the listener.
+     * Only the call that actually starts the load registers its listener.
      */
-    private void initializeData() {
-        if (initialized) return;
-        
+    public synchronized CompletableFuture<INutritionGateway> initializeAsync(CnfLoadListener listener) {
+        if (ready == null) {
+            ready = CompletableFuture.supplyAsync(() -> {
+                initializeData(listener);
+                return this;
+            }, LOADER);
+        }
+        return ready;
+    }
+    
+    /**
+     * Load the nutrition data from the CNF snapshot (or CSV files); runs on a loader thread
+     */
+    private void initializeData(CnfLoadListener listener) {
+        long start = System.nanoTime();
         try {
-            // Load food groups first
-            loadFoodGroups();
-            
             // Try to load CNF data
             if (cnfDataPath != null && Files.exists(Paths.get(cnfDataPath))) {
                 System.out.println("Loading CNF data from: " + cnfDataPath);
-                loadAllFoodNames();
-                loadNutrientData();
-                System.out.println("Successfully loaded " + nutritionCache.size() + " food items from CNF data");
-                System.out.println("Food groups: " + foodGroups.size());
+                CnfData loaded = CnfData.load(Paths.get(cnfDataPath), lastVersion.incrementAndGet(), listener);
+                publish(loaded);
+                System.out.println("Successfully loaded " + loaded.nutritionCache.size() + " food items from CNF data");
+                System.out.println("Food groups: " + loaded.foodGroups.size());
+            } else {
+                System.out.println("CNF data directory not found: " + cnfDataPath);
             }
         } catch (Exception e) {
             System.err.println("Error loading CNF data: " + e.getMessage());
             e.printStackTrace();
         }
         
-        // CNF-only mode: No default data loaded, only Canada Nutrient File data
-        // loadDefaultData(); // REMOVED: User requested CNF data only
         initialized = true;
-        
-        System.out.println("Total ingredients available: " + nutritionCache.size());
+        System.out.println(String.format("Total ingredients available: %d (loaded in %.1f ms)",
+                current.get().nutritionCache.size(), (System.nanoTime() - start) / 1_000_000.0));
     }
     
     /**
-     * Load food groups from FOOD GROUP.csv
+     * Reload the current CNF directory in the background and swap the result in
      */
-    private void loadFoodGroups() throws IOException {
-        String foodGroupFile = cnfDataPath + "/FOOD GROUP.csv";
-        if (!Files.exists(Paths.get(foodGroupFile))) {
-            System.out.println("CNF FOOD GROUP.csv not found: " + foodGroupFile);
-            return;
-        }
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(foodGroupFile))) {
-            String line;
-            boolean firstLine = true;
-            
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) {
-                    firstLine = false;
-                    continue; // Skip header
+    public CompletableFuture<INutritionGateway> reload() {
+        return reload(cnfDataPath);
+    }
+    
+    /**
+     * Load a CNF directory (e.g. a newer release) in the background and swap it in.
+     * Lookups keep answering from the current data until the swap, and lookups already
+     * running finish on the version they started with. If loading fails the current
+     * data stays in place and the future completes exceptionally.
+     */
+    public CompletableFuture<INutritionGateway> reload(String newCnfDataPath) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                CnfData loaded = CnfData.load(Paths.get(newCnfDataPath), lastVersion.incrementAndGet(), null);
+                if (publishFrom(loaded, newCnfDataPath)) {
+                    System.out.println(String.format("Reloaded CNF data from %s as version %d in %.1f ms (%d ingredients)",
+                            newCnfDataPath, loaded.version, (System.nanoTime() - start) / 1_000_000.0,
+                            loaded.nutritionCache.size()));
+                } else {
+                    System.out.println("Discarded CNF data from " + newCnfDataPath + ": a later load finished first");
                 }
-                
-                String[] parts = line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
-                if (parts.length >= 3) {
-                    int groupId = Integer.parseInt(parts[0].trim());
-                    String groupName = parts[2].trim().replaceAll("\"", "");
-                    foodGroups.put(groupId, groupName);
+            } catch (IOException e) {
+                System.err.println("Error reloading CNF data: " + e.getMessage());
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }, LOADER);
+    }
+    
+    // Swap in newly loaded data unless a later load already finished first; true if it was swapped in
+    private boolean publish(CnfData loaded) {
+        return current.accumulateAndGet(loaded,
+                (previous, next) -> next.version > previous.version ? next : previous) == loaded;
+    }
+    
+    /**
+     * Publish data loaded from a directory and, only if it was swapped in, make that
+     * the current directory (watched instead of the old one while watching is on)
+     */
+    private synchronized boolean publishFrom(CnfData loaded, String loadedPath) {
+        if (!publish(loaded)) {
+            return false;
+        }
+        if (!loadedPath.equals(cnfDataPath)) {
+            cnfDataPath = loadedPath;
+            if (watcher != null) {
+                stopWatching();
+                try {
+                    startWatching();
+                } catch (IOException e) {
+                    System.err.println("Could not watch CNF data directory " + loadedPath + ": " + e.getMessage());
                 }
             }
         }
-        
-        System.out.println("Loaded " + foodGroups.size() + " food groups");
+        return true;
     }
     
     /**
-     * Load ALL food names from FOOD NAME.csv
+     * Version of the data lookups are answered from; changes on every reload.
+     * 0 until the first load finishes (does not wait for it).
      */
-    private void loadAllFoodNames() throws IOException {
-        String foodNameFile = cnfDataPath + "/FOOD NAME.csv";
-        if (!Files.exists(Paths.get(foodNameFile))) {
-            System.out.println("CNF FOOD NAME.csv not found: " + foodNameFile);
-            return;
+    @Override
+    public long getDataVersion() {
+        return current.get().version;
+    }
+    
+    /**
+     * Reload automatically whenever the CNF CSV files in the current directory change
+     * (following the directory when reload switches to another one).
+     * Waits until the files have been quiet for RELOAD_QUIET_MILLIS so a release being
+     * copied in is only loaded once.
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watcher != null) return;
+        
+        Path directory = Paths.get(cnfDataPath);
+        WatchService service = directory.getFileSystem().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watcher = service;
+        
+        Thread thread = new Thread(() -> watch(service), "cnf-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Watching for CNF data changes in: " + directory);
+    }
+    
+    public synchronized void stopWatching() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            System.err.println("Error closing CNF watcher: " + e.getMessage());
         }
-
-        int foodCount = 0;
-        try (BufferedReader reader = new BufferedReader(new FileReader(foodNameFile))) {
-            String line;
-            boolean firstLine = true;
-            
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) {
-                    firstLine = false;
-                    continue; // Skip header
-                }
+        watcher = null;
+    }
+    
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = sourceFilesChanged(key);
+                key.reset();
+                if (!changed) continue;
                 
-                String[] parts = line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
-                if (parts.length >= 5) {
-                    String foodId = parts[0].trim();
-                    String foodGroupId = parts[2].trim();
-                    String rawFoodName = parts[4].trim().replaceAll("\"", "");
-                    
-                    // Clean up the food name by removing food group prefix
-                    String cleanFoodName = cleanFoodName(rawFoodName).toLowerCase();
-                    
-                    // Store mappings
-                    foodNameToIdMap.put(cleanFoodName, foodId);
-                    foodIdToNameMap.put(foodId, cleanFoodName);
-                    
-                    // Store food group mapping
-                    try {
-                        int groupId = Integer.parseInt(foodGroupId);
-                        foodToGroupMap.put(cleanFoodName, groupId);
-                    } catch (NumberFormatException e) {
-                        // Skip invalid group IDs
-                    }
-                    
-                    foodCount++;
+                // Let the copy finish before loading it
+                while ((key = service.poll(RELOAD_QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    key.pollEvents();
+                    key.reset();
                 }
+                reload();
             }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watching stopped
         }
-        
-        System.out.println("Loaded " + foodCount + " food names from CNF database");
+    }
+    
+    // Only the CSVs matter; the snapshot a reload writes must not trigger another reload
+    private static boolean sourceFilesChanged(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || Arrays.asList(CnfCsvLoader.SOURCE_FILES).contains(String.valueOf(event.context()))) {
+                changed = true;
+            }
+        }
+        return changed;
     }
     
     /**
-     * Clean up food name by removing food group prefix and extracting the main food name
+     * The loaded data, starting the load if needed. Other threads wait for the
+     * first load to finish; the event dispatch thread never does and is answered
+     * from whatever is loaded (nothing until then), so UI code checks isAvailable()
+     * or chains on initializeAsync() before looking anything up.
      */
-    private String cleanFoodName(String rawFoodName) {
-        if (rawFoodName == null || rawFoodName.trim().isEmpty()) {
-            return rawFoodName;
+    private CnfData data() {
+        if (!initialized) {
+            CompletableFuture<INutritionGateway> loading = initializeAsync();
+            if (!EventQueue.isDispatchThread()) {
+                try {
+                    loading.join();
+                } catch (CompletionException | CancellationException e) {
+                    System.err.println("Error loading CNF data: " + e.getCause());
+                }
+            }
         }
-        
-        // Split by commas to separate the food group from the actual food name
-        String[] parts = rawFoodName.split(",");
-        
-        if (parts.length == 1) {
-            // No commas, return as-is
-            return rawFoodName.trim();
+        return current.get();
+    }
+    
+    @Override
+    public NutrientInfo lookupIngredient(String ingredient) {
+        return lookupIngredient(data(), ingredient);
+    }
+    
+    private static NutrientInfo lookupIngredient(CnfData data, String ingredient) {
+        if (ingredient == null || ingredient.trim().isEmpty()) {
+            return new NutrientInfo(0, 0, 0, 0, 0);
         }
         
-        // Check if the first part is a food group category that should be removed
-        String firstPart = parts[0].trim().toLowerCase();
-        
-        // List of food group prefixes to remove
-        String[] foodGroupPrefixes = {
-            "babyfood", "baby food", "spices", "grains", "animal fat", "vegetable oil",
-            "salad dressing", "shortening", "fish oil", "poultry food products",
-            "chinese dish", "fast foods", "cereals", "baked products", "beverages",
-            "dairy", "egg", "fats and oils", "legumes", "nuts and seeds", "sweets",
-            "vegetables", "fruits", "meat", "poultry", "seafood"
-        };
-        
-        boolean shouldRemoveFirstPart = false;
-        for (String prefix : foodGroupPrefixes) {
-            if (firstPart.contains(prefix) || firstPart.startsWith(prefix)) {
-                shouldRemoveFirstPart = true;
-                break;
-            }
+        String matchedName = resolveFoodName(data, ingredient.toLowerCase().trim());
+        if (matchedName != null) {
+            return data.nutritionCache.get(matchedName);
         }
         
-        if (shouldRemoveFirstPart && parts.length > 1) {
-            // Remove the first part and join the rest
-            StringBuilder result = new StringBuilder();
-            for (int i = 1; i < parts.length; i++) {
-                if (i > 1) result.append(", ");
-                result.append(parts[i].trim());
-            }
-            return result.toString();
-        } else {
-            // Keep the original name but reformat it nicely
-            // For names like "Cheese, blue" -> "blue cheese"
-            if (parts.length == 2) {
-                String category = parts[0].trim();
-                String type = parts[1].trim();
-                
-                // For simple category-type pairs, reverse the order
-                if (category.toLowerCase().matches("cheese|milk|bread|rice|potato|meat|fish|chicken|beef|turkey|pork")) {
-                    return type + " " + category.toLowerCase();
-                }
-            }
-            
-            // For more complex names, just remove redundant parts and clean up
-            return rawFoodName.trim();
-        }
+        // Return minimal default if nothing found
+        System.out.println("Warning: No nutrition data found for ingredient: " + ingredient);
+        return new NutrientInfo(50, 2.0, 5.0, 1.0, 0.5);
     }
     
     /**
-     * Load nutrient data from NUTRIENT AMOUNT.csv
+     * Name of the food with nutrition data that an ingredient refers to:
+     * the exact name if known, otherwise the best partial match, or null
      */
-    private void loadNutrientData() throws IOException {
-        String nutrientFile = cnfDataPath + "/NUTRIENT AMOUNT.csv";
-        if (!Files.exists(Paths.get(nutrientFile))) {
-            System.out.println("CNF NUTRIENT AMOUNT.csv not found: " + nutrientFile);
-            return;
-        }
+    private static String resolveFoodName(CnfData data, String normalizedIngredient) {
+        return FoodNameResolver.resolve(normalizedIngredient, data.nameIndex, data::getFuzzyMatcher);
+    }
+    
+    @Override
+    public FoodRef resolveFood(String ingredient) {
+        CnfData data = data();
         
-        Map<String, Map<String, Double>> foodNutrients = new HashMap<>();
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(nutrientFile))) {
-            String line;
-            boolean firstLine = true;
-            int lineCount = 0;
-            
-            while ((line = reader.readLine()) != null) {
-                if (firstLine) {
-                    firstLine = false;
-                    continue; // Skip header
-                }
-                
-                lineCount++;
-                if (lineCount % 10000 == 0) {
-                    System.out.println("Processing nutrient data line: " + lineCount);
-                }
-                
-                String[] parts = line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
-                if (parts.length >= 4) {
-                    String foodId = parts[0].trim();
-                    String nutrientId = parts[1].trim();
-                    String nutrientValue = parts[2].trim();
-                    
-                    if (!nutrientValue.isEmpty() && !nutrientValue.equals("0")) {
-                        try {
-                            double value = Double.parseDouble(nutrientValue);
-                            foodNutrients.putIfAbsent(foodId, new HashMap<>());
-                            foodNutrients.get(foodId).put(nutrientId, value);
-                        } catch (NumberFormatException e) {
-                            // Skip invalid numbers
-                        }
-                    }
-                }
-            }
+        if (ingredient == null || ingredient.trim().isEmpty()) {
+            return null;
         }
         
-        System.out.println("Processed nutrient data, creating nutrition info objects...");
-        
-        // Convert to NutrientInfo objects
-        int nutritionCount = 0;
-        for (Map.Entry<String, String> entry : foodIdToNameMap.entrySet()) {
-            String foodId = entry.getKey();
-            String foodName = entry.getValue();
-            
-            Map<String, Double> nutrients = foodNutrients.get(foodId);
-            if (nutrients != null && !nutrients.isEmpty()) {
-                NutrientInfo nutrientInfo = createNutrientInfo(nutrients);
-                nutritionCache.put(foodName, nutrientInfo);
-                nutritionCount++;
-            }
+        String matchedName = resolveFoodName(data, ingredient.toLowerCase().trim());
+        return matchedName != null ? foodRef(data, matchedName) : null;
+    }
+    
+    @Override
+    public List<FoodRef> resolveFoods(List<String> ingredientNames) {
+        CnfData data = data();
+        
+        Map<String, String> resolved = FoodNameResolver.resolveAll(ingredientNames, data.nameIndex,
+            data::getFuzzyMatcher);
+        
+        List<FoodRef> refs = new ArrayList<>(ingredientNames.size());
+        for (String ingredient : ingredientNames) {
+            String matchedName = ingredient != null ? resolved.get(ingredient.toLowerCase().trim()) : null;
+            refs.add(matchedName != null ? foodRef(data, matchedName) : null);
         }
+        return refs;
+    }
+    
+    private static FoodRef foodRef(CnfData data, String foodName) {
+        int ordinal = data.nameIndex.ordinalOf(foodName);
+        return ordinal >= 0 ? data.foodRefs[ordinal] : null;
+    }
+    
+    @Override
+    public FoodRef getFoodRef(int foodId) {
+        CnfData data = data();
         
-        System.out.println("Created nutrition info for " + nutritionCount + " foods");
+        int row = data.row(foodId);
+        return row >= 0 ? data.foodRefsByRow[row] : null;
     }
     
     /**
-     * Create NutrientInfo from raw nutrient data
+     * Nutrition info by CNF food ID: an array read, no name handling
      */
-    private NutrientInfo createNutrientInfo(Map<String, Double> nutrients) {
-        // CNF nutrient IDs for key nutrients
-        double calories = nutrients.getOrDefault("208", 0.0);    // Energy (kcal)
-        double protein = nutrients.getOrDefault("203", 0.0);     // Protein (g)
-        double carbs = nutrients.getOrDefault("205", 0.0);       // Carbohydrates (g)
-        double fat = nutrients.getOrDefault("204", 0.0);         // Total fat (g)
-        double fiber = nutrients.getOrDefault("291", 0.0);       // Fiber (g)
-        
-        // If no energy data, try to calculate from macronutrients
-        if (calories == 0.0) {
-            calories = (protein * 4.0) + (carbs * 4.0) + (fat * 9.0);
-        }
+    @Override
+    public NutrientInfo lookupNutrientInfo(int foodId) {
+        CnfData data = data();
         
-        return new NutrientInfo(calories, protein, carbs, fat, fiber);
+        int row = data.row(foodId);
+        return row >= 0 ? data.nutritionByRow[row] : null;
     }
     
     /**
-     * Load comprehensive default data for fallback
+     * Full nutrient profile of a food by CNF food ID (a view, not a copy)
      */
-    private void loadDefaultData() {
-        System.out.println("Loading default nutrition data...");
-        
-        // Enhanced default nutrition database
-        Map<String, NutrientInfo> defaultNutrition = new HashMap<>();
-        
-        // Proteins
-        defaultNutrition.put("chicken breast", new NutrientInfo(165, 31.0, 0.0, 3.6, 0.0));
-        defaultNutrition.put("chicken", new NutrientInfo(165, 31.0, 0.0, 3.6, 0.0));
-        defaultNutrition.put("beef", new NutrientInfo(250, 26.0, 0.0, 15.0, 0.0));
-        defaultNutrition.put("pork", new NutrientInfo(242, 27.0, 0.0, 14.0, 0.0));
-        defaultNutrition.put("fish", new NutrientInfo(206, 22.0, 0.0, 12.0, 0.0));
-        defaultNutrition.put("salmon", new NutrientInfo(208, 20.0, 0.0, 13.0, 0.0));
-        defaultNutrition.put("tuna", new NutrientInfo(184, 30.0, 0.0, 6.0, 0.0));
-        defaultNutrition.put("egg", new NutrientInfo(155, 13.0, 1.1, 11.0, 0.0));
-        defaultNutrition.put("eggs", new NutrientInfo(155, 13.0, 1.1, 11.0, 0.0));
-        defaultNutrition.put("turkey", new NutrientInfo(135, 30.0, 0.0, 1.0, 0.0));
-        
-        // Dairy
-        defaultNutrition.put("milk", new NutrientInfo(42, 3.4, 5.0, 1.0, 0.0));
-        defaultNutrition.put("cheese", new NutrientInfo(113, 25.0, 1.0, 9.0, 0.0));
-        defaultNutrition.put("yogurt", new NutrientInfo(59, 10.0, 3.6, 0.4, 0.0));
-        defaultNutrition.put("butter", new NutrientInfo(717, 0.9, 0.1, 81.0, 0.0));
-        defaultNutrition.put("cream", new NutrientInfo(195, 2.8, 3.4, 20.0, 0.0));
-        
-        // Grains and starches
-        defaultNutrition.put("bread", new NutrientInfo(265, 9.0, 49.0, 3.2, 2.7));
-        defaultNutrition.put("rice", new NutrientInfo(130, 2.7, 28.0, 0.3, 0.4));
-        defaultNutrition.put("pasta", new NutrientInfo(131, 5.0, 25.0, 1.1, 1.8));
-        defaultNutrition.put("oats", new NutrientInfo(389, 16.9, 66.3, 6.9, 10.6));
-        defaultNutrition.put("cereal", new NutrientInfo(357, 7.5, 84.0, 2.8, 7.0));
-        defaultNutrition.put("quinoa", new NutrientInfo(368, 14.1, 64.2, 6.1, 7.0));
-        defaultNutrition.put("wheat", new NutrientInfo(327, 12.6, 71.2, 1.5, 12.2));
-        defaultNutrition.put("barley", new NutrientInfo(354, 12.5, 73.5, 2.3, 17.3));
-        
-        // Vegetables
-        defaultNutrition.put("tomato", new NutrientInfo(18, 0.9, 3.9, 0.2, 1.2));
-        defaultNutrition.put("tomatoes", new NutrientInfo(18, 0.9, 3.9, 0.2, 1.2));
-        defaultNutrition.put("lettuce", new NutrientInfo(15, 1.4, 2.9, 0.2, 1.3));
-        defaultNutrition.put("spinach", new NutrientInfo(23, 2.9, 3.6, 0.4, 2.2));
-        defaultNutrition.put("broccoli", new NutrientInfo(34, 2.8, 7.0, 0.4, 2.6));
-        defaultNutrition.put("carrots", new NutrientInfo(41, 0.9, 10.0, 0.2, 2.8));
-        defaultNutrition.put("onion", new NutrientInfo(40, 1.1, 9.3, 0.1, 1.7));
-        defaultNutrition.put("bell pepper", new NutrientInfo(31, 1.0, 7.0, 0.3, 2.5));
-        defaultNutrition.put("cucumber", new NutrientInfo(16, 0.7, 4.0, 0.1, 0.5));
-        defaultNutrition.put("potato", new NutrientInfo(77, 2.0, 17.0, 0.1, 2.2));
-        defaultNutrition.put("corn", new NutrientInfo(86, 3.3, 19.0, 1.4, 2.7));
-        
-        // Fruits
-        defaultNutrition.put("apple", new NutrientInfo(52, 0.3, 14.0, 0.2, 2.4));
-        defaultNutrition.put("apples", new NutrientInfo(52, 0.3, 14.0, 0.2, 2.4));
-        defaultNutrition.put("banana", new NutrientInfo(89, 1.1, 23.0, 0.3, 2.6));
-        defaultNutrition.put("bananas", new NutrientInfo(89, 1.1, 23.0, 0.3, 2.6));
-        defaultNutrition.put("orange", new NutrientInfo(47, 0.9, 12.0, 0.1, 2.4));
-        defaultNutrition.put("berries", new NutrientInfo(57, 0.7, 14.0, 0.3, 2.4));
-        defaultNutrition.put("strawberries", new NutrientInfo(32, 0.7, 7.7, 0.3, 2.0));
-        defaultNutrition.put("grapes", new NutrientInfo(62, 0.6, 16.0, 0.2, 0.9));
-        
-        // Nuts and seeds
-        defaultNutrition.put("almonds", new NutrientInfo(579, 21.0, 22.0, 50.0, 12.0));
-        defaultNutrition.put("walnuts", new NutrientInfo(654, 15.0, 14.0, 65.0, 6.7));
-        defaultNutrition.put("peanuts", new NutrientInfo(567, 26.0, 16.0, 49.0, 8.5));
-        defaultNutrition.put("sunflower seeds", new NutrientInfo(584, 20.8, 20.0, 51.5, 8.6));
-        
-        // Oils and fats
-        defaultNutrition.put("olive oil", new NutrientInfo(884, 0.0, 0.0, 100.0, 0.0));
-        defaultNutrition.put("oil", new NutrientInfo(884, 0.0, 0.0, 100.0, 0.0));
-        defaultNutrition.put("vegetable oil", new NutrientInfo(884, 0.0, 0.0, 100.0, 0.0));
-        
-        // Legumes
-        defaultNutrition.put("beans", new NutrientInfo(347, 22.0, 63.0, 1.2, 15.0));
-        defaultNutrition.put("lentils", new NutrientInfo(353, 25.0, 60.0, 1.1, 10.7));
-        defaultNutrition.put("chickpeas", new NutrientInfo(378, 20.0, 63.0, 6.0, 12.0));
-        defaultNutrition.put("black beans", new NutrientInfo(341, 21.6, 62.4, 1.4, 15.0));
-        
-        // Add all default data to the cache (only if not already present from CNF)
-        for (Map.Entry<String, NutrientInfo> entry : defaultNutrition.entrySet()) {
-            if (!nutritionCache.containsKey(entry.getKey())) {
-                nutritionCache.put(entry.getKey(), entry.getValue());
-                foodNameToIdMap.put(entry.getKey(), "default_" + entry.getKey().hashCode());
-            }
-        }
+    @Override
+    public NutrientVector lookupNutrientVector(int foodId) {
+        return lookupNutrientVector(data(), foodId);
+    }
+    
+    /**
+     * As-purchased nutrition info by CNF food ID, precomputed at load time
+     */
+    @Override
+    public NutrientInfo lookupAsPurchasedNutrientInfo(int foodId) {
+        CnfData data = data();
         
-        System.out.println("Added " + defaultNutrition.size() + " default nutrition entries");
+        int row = data.row(foodId);
+        return row >= 0 ? data.asPurchasedNutritionByRow[row] : null;
     }
     
+    /**
+     * As-purchased nutrient profile by CNF food ID, precomputed at load time
+     */
     @Override
-    public NutrientInfo lookupIngredient(String ingredient) {
-        if (!initialized) {
-            initializeData();
-        }
+    public NutrientVector lookupAsPurchasedNutrientVector(int foodId) {
+        CnfData data = data();
         
-        if (ingredient == null || ingredient.trim().isEmpty()) {
-            return new NutrientInfo(0, 0, 0, 0, 0);
+        int row = data.row(foodId);
+        return row >= 0 ? data.asPurchasedVectorsByRow[row] : null;
+    }
+    
+    private static NutrientVector lookupNutrientVector(CnfData data, int foodId) {
+        if (data.nutrientMatrix == null) {
+            return null;
         }
+        int food = data.nutrientMatrix.foodOrdinal(foodId);
+        return food >= 0 && data.nutrientMatrix.hasData(food) ? data.nutrientMatrix.vector(food) : null;
+    }
+    
+    /**
+     * Full nutrient profile of an ingredient, matched the same way as lookupIngredient
+     */
+    @Override
+    public NutrientVector lookupNutrientVector(String ingredient) {
+        CnfData data = data();
         
-        String normalizedIngredient = ingredient.toLowerCase().trim();
-        
-        // Try exact match first
-        NutrientInfo result = nutritionCache.get(normalizedIngredient);
-        if (result != null) {
-            return result;
+        if (ingredient == null || ingredient.trim().isEmpty()) {
+            return null;
         }
         
-        // Try partial matches
-        for (Map.Entry<String, NutrientInfo> entry : nutritionCache.entrySet()) {
-            if (entry.getKey().contains(normalizedIngredient) || 
-                normalizedIngredient.contains(entry.getKey())) {
-                return entry.getValue();
-            }
+        String matchedName = resolveFoodName(data, ingredient.toLowerCase().trim());
+        if (matchedName == null) {
+            return null;
         }
+        return lookupNutrientVector(data, getFoodId(data, matchedName));
+    }
+    
+    @Override
+    public NutrientCatalog getNutrientCatalog() {
+        CnfData data = data();
         
-        // Return minimal default if nothing found
-        System.out.println("Warning: No nutrition data found for ingredient: " + ingredient);
-        return new NutrientInfo(50, 2.0, 5.0, 1.0, 0.5);
+        return data.nutrientMatrix != null ? data.nutrientMatrix.getCatalog() : null;
     }
     
     @Override
     public boolean ingredientExists(String ingredient) {
-        if (!initialized) {
-            initializeData();
-        }
+        CnfData data = data();
         
-        return ingredient != null && nutritionCache.containsKey(ingredient.toLowerCase().trim());
+        return ingredient != null && data.nutritionCache.containsKey(ingredient.toLowerCase().trim());
     }
     
     @Override
     public List<String> searchIngredients(String partialName) {
-        if (!initialized) {
-            initializeData();
-        }
+        return searchIngredients(partialName, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Search by substring using the n-gram index, best matches first
+     */
+    @Override
+    public List<String> searchIngredients(String partialName, int limit) {
+        CnfData data = data();
         
-        List<String> results = new ArrayList<>();
         if (partialName == null || partialName.trim().isEmpty()) {
-            return results;
-        }
-        
-        String searchTerm = partialName.toLowerCase().trim();
-        
-        for (String ingredient : nutritionCache.keySet()) {
-            if (ingredient.contains(searchTerm)) {
-                results.add(ingredient);
-            }
+            return new ArrayList<>();
         }
         
-        // Sort results by relevance (exact matches first, then partial matches)
-        results.sort((a, b) -> {
-            boolean aExact = a.startsWith(searchTerm);
-            boolean bExact = b.startsWith(searchTerm);
-            if (aExact && !bExact) return -1;
-            if (!aExact && bExact) return 1;
-            return a.compareTo(b);
-        });
-        
-        return results;
+        return data.nameIndex.search(partialName.toLowerCase().trim(), limit);
     }
     
     @Override
     public List<String> getAllIngredients() {
-        if (!initialized) {
-            initializeData();
-        }
+        CnfData data = data();
         
-        List<String> ingredients = new ArrayList<>(nutritionCache.keySet());
+        List<String> ingredients = new ArrayList<>(data.nutritionCache.keySet());
         Collections.sort(ingredients);
         return ingredients;
     }
     
     /**
-     * Get ingredients by food group
+     * Get ingredients by food group: a read-only, alphabetical view of the group's
+     * precomputed name ordinals
      */
     @Override
     public List<String> getIngredientsByGroup(String groupName) {
-        if (!initialized) {
-            initializeData();
+        CnfData data = data();
+        
+        int group = data.groupIndex.find(groupName);
+        if (group < 0) {
+            return new ArrayList<>();
         }
+        return data.nameIndex.view(data.groupIndex.members(group));
+    }
+    
+    /**
+     * Search within one food group by intersecting the group's ordinals with the n-gram index
+     */
+    @Override
+    public List<String> searchIngredients(String partialName, String groupName, int limit) {
+        CnfData data = data();
         
-        List<String> results = new ArrayList<>();
+        if (partialName == null || partialName.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
         
-        // Find group ID by name
-        Integer targetGroupId = null;
-        for (Map.Entry<Integer, String> entry : foodGroups.entrySet()) {
-            if (entry.getValue().toLowerCase().contains(groupName.toLowerCase())) {
-                targetGroupId = entry.getKey();
-                break;
-            }
+        int group = data.groupIndex.find(groupName);
+        if (group < 0) {
+            return new ArrayList<>();
         }
+        return data.nameIndex.search(partialName.toLowerCase().trim(), data.groupIndex.members(group), limit);
+    }
+    
+    /**
+     * Search English and/or French names; both share the n-gram index's ordinals and postings
+     */
+    @Override
+    public List<String> searchIngredients(String partialName, Locale locale, int limit) {
+        CnfData data = data();
         
-        if (targetGroupId != null) {
-            for (Map.Entry<String, Integer> entry : foodToGroupMap.entrySet()) {
-                if (entry.getValue().equals(targetGroupId)) {
-                    String foodName = entry.getKey();
-                    if (nutritionCache.containsKey(foodName)) {
-                        results.add(foodName);
-                    }
-                }
-            }
+        if (partialName == null || partialName.trim().isEmpty()) {
+            return new ArrayList<>();
         }
         
-        Collections.sort(results);
-        return results;
+        return data.nameIndex.search(partialName.toLowerCase().trim(), FoodNameIndex.Language.of(locale), limit);
+    }
+    
+    @Override
+    public List<String> searchIngredients(String partialName, Locale locale, String groupName, int limit) {
+        CnfData data = data();
+        
+        if (partialName == null || partialName.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        int group = data.groupIndex.find(groupName);
+        if (group < 0) {
+            return new ArrayList<>();
+        }
+        return data.nameIndex.search(partialName.toLowerCase().trim(), FoodNameIndex.Language.of(locale),
+                data.groupIndex.members(group), limit);
     }
     
     /**
@@ -519,19 +527,21 @@ public class ExternalAdapter implements INutritionGateway {
      */
     @Override
     public int getFoodId(String foodName) {
-        if (!initialized) {
-            initializeData();
-        }
+        return getFoodId(data(), foodName);
+    }
+    
+    private static int getFoodId(CnfData data, String foodName) {
+        return data.foodId(foodName.toLowerCase().trim());
+    }
+    
+    /**
+     * Get any CNF nutrient for a food, read straight from the nutrient matrix
+     */
+    @Override
+    public double getNutrientAmount(int foodId, int nutrientId) {
+        CnfData data = data();
         
-        String foodId = foodNameToIdMap.get(foodName.toLowerCase().trim());
-        if (foodId != null) {
-            try {
-                return Integer.parseInt(foodId);
-            } catch (NumberFormatException e) {
-                return -1;
-            }
-        }
-        return -1;
+        return data.nutrientMatrix != null ? data.nutrientMatrix.amount(foodId, nutrientId) : 0.0;
     }
     
     /**
@@ -539,65 +549,128 @@ public class ExternalAdapter implements INutritionGateway {
      */
     @Override
     public List<String> getAllFoodGroups() {
-        if (!initialized) {
-            initializeData();
-        }
+        CnfData data = data();
         
-        List<String> groups = new ArrayList<>(foodGroups.values());
+        List<String> groups = new ArrayList<>(data.foodGroups.values());
         Collections.sort(groups);
         return groups;
     }
     
+    /**
+     * Batch lookup against one snapshot: each distinct name is resolved once,
+     * unmatched names share a single fuzzy search, and misses are reported
+     * in one warning
+     */
     @Override
     public List<NutrientInfo> lookupMultipleIngredients(List<String> ingredientNames) {
-        if (!initialized) {
-            initializeData();
-        }
+        CnfData data = data();
         
-        List<NutrientInfo> results = new ArrayList<>();
+        Map<String, String> resolved = FoodNameResolver.resolveAll(ingredientNames, data.nameIndex,
+            data::getFuzzyMatcher);
         
+        List<NutrientInfo> results = new ArrayList<>(ingredientNames.size());
+        List<String> missing = new ArrayList<>();
         for (String ingredient : ingredientNames) {
-            NutrientInfo nutrientInfo = lookupIngredient(ingredient);
-            results.add(nutrientInfo);
+            if (ingredient == null || ingredient.trim().isEmpty()) {
+                results.add(new NutrientInfo(0, 0, 0, 0, 0));
+                continue;
+            }
+            String matchedName = resolved.get(ingredient.toLowerCase().trim());
+            if (matchedName != null) {
+                results.add(data.nutritionCache.get(matchedName));
+            } else {
+                // Minimal default, as for lookupIngredient
+                results.add(new NutrientInfo(50, 2.0, 5.0, 1.0, 0.5));
+                missing.add(ingredient);
+            }
         }
         
+        if (!missing.isEmpty()) {
+            System.out.println("Warning: No nutrition data found for ingredients: " + missing);
+        }
         return results;
     }
     
     @Override
-    public String findClosestMatch(String ingredientName) {
-        if (!initialized) {
-            initializeData();
+    public List<NutrientVector> lookupMultipleNutrientVectors(List<String> ingredientNames) {
+        CnfData data = data();
+        
+        Map<String, String> resolved = FoodNameResolver.resolveAll(ingredientNames, data.nameIndex,
+            data::getFuzzyMatcher);
+        
+        List<NutrientVector> results = new ArrayList<>(ingredientNames.size());
+        for (String ingredient : ingredientNames) {
+            String matchedName = ingredient != null ? resolved.get(ingredient.toLowerCase().trim()) : null;
+            results.add(matchedName != null ? lookupNutrientVector(data, getFoodId(data, matchedName)) : null);
         }
+        return results;
+    }
+    
+    /**
+     * Nearest foods of the same group from the macro KD-tree built at load time
+     */
+    @Override
+    public List<FoodRef> findSimilarFoods(int foodId, String nutrient, boolean lower, int k) {
+        CnfData data = data();
         
-        if (ingredientName == null || ingredientName.trim().isEmpty()) {
-            return null;
+        int dimension = MacroIndex.dimension(nutrient);
+        int row = data.row(foodId);
+        FoodRef food = row >= 0 ? data.foodRefsByRow[row] : null;
+        int ordinal = food != null ? data.nameIndex.ordinalOf(food.getName()) : -1;
+        if (dimension < 0 || ordinal < 0) {
+            return new ArrayList<>();
         }
         
-        String searchTerm = ingredientName.toLowerCase().trim();
+        List<FoodRef> foods = new ArrayList<>(k);
+        for (int similar : data.macroIndex.nearest(ordinal, dimension, lower, k)) {
+            foods.add(data.foodRefs[similar]);
+        }
+        return foods;
+    }
+    
+    @Override
+    public String findClosestMatch(String ingredientName) {
+        CnfData data = data();
         
-        // First try exact match
-        if (nutritionCache.containsKey(searchTerm)) {
-            return searchTerm;
+        if (ingredientName == null || ingredientName.trim().isEmpty()) {
+            return null;
         }
         
-        // Then try partial matches
-        for (String ingredient : nutritionCache.keySet()) {
-            if (ingredient.contains(searchTerm) || searchTerm.contains(ingredient)) {
-                return ingredient;
-            }
+        return resolveFoodName(data, ingredientName.toLowerCase().trim());
+    }
+    
+    /**
+     * Ranked typo-tolerant matches, closest first
+     */
+    @Override
+    public List<FoodMatch> findClosestMatches(String ingredientName, int k, int maxDistance) {
+        CnfData data = data();
+        
+        if (ingredientName == null || ingredientName.trim().isEmpty()) {
+            return new ArrayList<>();
         }
         
-        return null;
+        return data.getFuzzyMatcher().closest(ingredientName.toLowerCase().trim(), k, maxDistance);
     }
     
     @Override
     public void initialize() {
-        initializeData();
+        initializeAsync().join();
     }
     
     @Override
     public boolean isAvailable() {
-        return initialized && !nutritionCache.isEmpty();
+        return initialized && !current.get().nutritionCache.isEmpty();
+    }
+    
+    private static final class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "cnf-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
-} 
\ No newline at end of file
+}
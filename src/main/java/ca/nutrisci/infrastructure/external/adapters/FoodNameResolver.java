@@ -0,0 +1,105 @@
+package ca.nutrisci.infrastructure.external.adapters;
+
+import ca.nutrisci.application.dto.FoodMatch;
+import ca.nutrisci.infrastructure.external.cnf.FoodNameIndex;
+import ca.nutrisci.infrastructure.external.cnf.FuzzyNameMatcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * FoodNameResolver - Which food an ingredient name refers to
+ * Part of the Infrastructure Layer
+ *
+ * Shared by the nutrition gateways so they resolve names identically: the
+ * exact name if known (in English, or in French as returned by a French
+ * search), otherwise the best partial match, otherwise the closest name within
+ * about one edit per four characters. The fuzzy matcher is only
+ * requested when something is left unresolved.
+ */
+final class FoodNameResolver {
+
+    private FoodNameResolver() {
+    }
+
+    /**
+     * Resolve one normalized (lower-case, trimmed) ingredient name, or null
+     */
+    static String resolve(String normalizedIngredient, FoodNameIndex names, Supplier<FuzzyNameMatcher> fuzzy) {
+        String match = exactName(normalizedIngredient, names);
+        if (match == null) {
+            match = names.bestMatch(normalizedIngredient);
+        }
+        if (match != null) {
+            return match;
+        }
+
+        List<FoodMatch> closest = fuzzy.get().closest(normalizedIngredient, 1, maxDistance(normalizedIngredient));
+        return closest.isEmpty() ? null : closest.get(0).getName();
+    }
+
+    /**
+     * Resolve many ingredient names at once. Names are normalized and
+     * de-duplicated, exact names are looked up first, then partial matches,
+     * and whatever is left goes through a single walk of the fuzzy matcher.
+     * @return Every distinct normalized name, in first-seen order, mapped to
+     *         its food name or null; null and blank names are left out
+     */
+    static Map<String, String> resolveAll(List<String> ingredients, FoodNameIndex names,
+                                          Supplier<FuzzyNameMatcher> fuzzy) {
+        Map<String, String> resolved = new LinkedHashMap<>();
+        for (String ingredient : ingredients) {
+            if (ingredient == null || ingredient.trim().isEmpty()) {
+                continue;
+            }
+            String normalized = ingredient.toLowerCase().trim();
+            if (!resolved.containsKey(normalized)) {
+                resolved.put(normalized, exactName(normalized, names));
+            }
+        }
+
+        List<String> misses = new ArrayList<>();
+        for (Map.Entry<String, String> entry : resolved.entrySet()) {
+            if (entry.getValue() == null) {
+                String match = names.bestMatch(entry.getKey());
+                if (match != null) {
+                    entry.setValue(match);
+                } else {
+                    misses.add(entry.getKey());
+                }
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            String[] terms = misses.toArray(new String[0]);
+            int[] maxDistances = new int[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                maxDistances[i] = maxDistance(terms[i]);
+            }
+            FoodMatch[] closest = fuzzy.get().closestEach(terms, maxDistances);
+            for (int i = 0; i < terms.length; i++) {
+                if (closest[i] != null) {
+                    resolved.put(terms[i], closest[i].getName());
+                }
+            }
+        }
+        return resolved;
+    }
+
+    // The English name of an exact English or French name, or null
+    private static String exactName(String normalizedIngredient, FoodNameIndex names) {
+        if (names.ordinalOf(normalizedIngredient) >= 0) {
+            return normalizedIngredient;
+        }
+        int french = names.ordinalOfFrench(normalizedIngredient);
+        return french >= 0 ? names.name(french) : null;
+    }
+
+    // Tolerate typos: about one edit per four characters
+    private static int maxDistance(String normalizedIngredient) {
+        return Math.max(1, normalizedIngredient.length() / 4);
+    }
+}
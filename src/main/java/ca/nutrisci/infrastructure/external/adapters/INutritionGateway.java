@@ -1,7 +1,13 @@
 package ca.nutrisci.infrastructure.external.adapters;
 
+import ca.nutrisci.application.dto.FoodMatch;
+import ca.nutrisci.application.dto.FoodRef;
+import ca.nutrisci.application.dto.NutrientCatalog;
 import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.application.dto.NutrientVector;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * INutritionGateway - Interface for accessing external nutrition data
@@ -17,6 +23,26 @@ public interface INutritionGateway {
      */
     NutrientInfo lookupIngredient(String ingredient);
     
+    /**
+     * Look up the full nutrient profile (every CNF nutrient) of a food
+     * @param foodId The CNF food ID (see getFoodId)
+     * @return Per-100g NutrientVector sharing the gateway's storage, or null if not found
+     */
+    NutrientVector lookupNutrientVector(int foodId);
+    
+    /**
+     * Look up the full nutrient profile of an ingredient, matched like lookupIngredient
+     * @param ingredient The name of the ingredient to look up
+     * @return Per-100g NutrientVector sharing the gateway's storage, or null if not found
+     */
+    NutrientVector lookupNutrientVector(String ingredient);
+    
+    /**
+     * Get the nutrients that NutrientVectors from this gateway cover
+     * @return The catalog, or null if no nutrient data is loaded
+     */
+    NutrientCatalog getNutrientCatalog();
+    
     /**
      * Check if the ingredient exists in the nutrition database
      * @param ingredient The name of the ingredient to check
@@ -31,6 +57,42 @@ public interface INutritionGateway {
      */
     java.util.List<String> searchIngredients(String partialName);
     
+    /**
+     * Search for ingredients by partial name match, keeping only the best matches
+     * @param partialName Partial ingredient name to search for
+     * @param limit Maximum number of names to return
+     * @return Matching ingredient names, most relevant first
+     */
+    List<String> searchIngredients(String partialName, int limit);
+    
+    /**
+     * Search for ingredients by partial name match within one food group
+     * @param partialName Partial ingredient name to search for
+     * @param groupName The name (or part of the name) of the food group
+     * @param limit Maximum number of names to return
+     * @return Matching ingredient names in the group, most relevant first
+     */
+    List<String> searchIngredients(String partialName, String groupName, int limit);
+    
+    /**
+     * Search for ingredients by partial name match in a language (CNF names are English and French)
+     * @param partialName Partial ingredient name to search for; accents are optional in French
+     * @param locale A French locale searches and returns French names, which lookups accept
+     *               like English ones; null searches both languages at once and returns the
+     *               English names; any other locale searches English names only
+     * @param limit Maximum number of names to return
+     * @return Matching ingredient names, most relevant first
+     */
+    List<String> searchIngredients(String partialName, Locale locale, int limit);
+    
+    /**
+     * Search for ingredients in a language within one food group
+     * (see searchIngredients(String, Locale, int))
+     * @param groupName The name (or part of the name) of the food group
+     * @return Matching ingredient names in the group, most relevant first
+     */
+    List<String> searchIngredients(String partialName, Locale locale, String groupName, int limit);
+    
     /**
      * Get all available ingredients
      * @return List of all ingredient names in the database
@@ -44,6 +106,14 @@ public interface INutritionGateway {
      */
     int getFoodId(String foodName);
     
+    /**
+     * Get the amount of any CNF nutrient in a food
+     * @param foodId The CNF food ID (see getFoodId)
+     * @param nutrientId The CNF nutrient ID (e.g. 307 for sodium)
+     * @return Amount per 100 g in the nutrient's CNF unit, or 0.0 if unknown
+     */
+    double getNutrientAmount(int foodId, int nutrientId);
+    
     /**
      * Get all food groups
      * @return List of all food group names
@@ -53,17 +123,110 @@ public interface INutritionGateway {
     /**
      * Get ingredients by food group
      * @param groupName The name of the food group
-     * @return List of ingredients in the specified group
+     * @return Read-only list of the ingredients in the specified group, sorted by name
      */
     List<String> getIngredientsByGroup(String groupName);
     
-    // Batch lookup for multiple ingredients
+    /**
+     * Resolve an ingredient name, matched like lookupIngredient, to the food it refers to.
+     * Meant to be called once, when the name is entered; later lookups can use the id.
+     * @param ingredient The ingredient name, in any case
+     * @return The food's id and canonical name, or null if nothing matches
+     */
+    FoodRef resolveFood(String ingredient);
+    
+    /**
+     * Resolve several ingredient names in one call
+     * @return One FoodRef per input name, in input order, null where nothing matches
+     */
+    List<FoodRef> resolveFoods(List<String> ingredientNames);
+    
+    /**
+     * The food with a CNF FoodID
+     * @return Its FoodRef, or null if the id is unknown
+     */
+    FoodRef getFoodRef(int foodId);
+    
+    /**
+     * Nutrition info of a food by CNF FoodID, without any name matching
+     * @return Per-100g NutrientInfo, or null if the food has no nutrient data
+     */
+    NutrientInfo lookupNutrientInfo(int foodId);
+
+    /**
+     * Nutrition info of a food by CNF FoodID, per 100 g weighed as purchased:
+     * before bones, peel or shell are removed (CNF refuse), or before cooking
+     * for foods the CNF gives a weight yield for. Same as lookupNutrientInfo
+     * for foods with neither.
+     * @return Per-100g-as-purchased NutrientInfo, or null if the food has no nutrient data
+     */
+    NutrientInfo lookupAsPurchasedNutrientInfo(int foodId);
+
+    /**
+     * Full nutrient profile of a food by CNF FoodID, per 100 g weighed as
+     * purchased (see lookupAsPurchasedNutrientInfo)
+     * @return Per-100g-as-purchased NutrientVector, or null if the food has no nutrient data
+     */
+    NutrientVector lookupAsPurchasedNutrientVector(int foodId);
+
+    /**
+     * Look up several ingredients in one call, each matched like lookupIngredient.
+     * Repeated names are resolved once.
+     * @param ingredientNames The ingredient names, in any case
+     * @return One NutrientInfo per input name, in input order
+     */
     List<NutrientInfo> lookupMultipleIngredients(List<String> ingredientNames);
     
+    /**
+     * Look up the nutrient profiles of several ingredients in one call,
+     * each matched like lookupNutrientVector(String)
+     * @param ingredientNames The ingredient names, in any case
+     * @return One NutrientVector per input name, in input order, null where not found
+     */
+    List<NutrientVector> lookupMultipleNutrientVectors(List<String> ingredientNames);
+    
+    /**
+     * Find foods to swap for a food: those of its CNF food group nearest to it by
+     * macronutrient profile (calories, protein, carbs, fat and fiber per 100 g)
+     * @param foodId The CNF food ID (see getFoodId)
+     * @param nutrient The nutrient to change: "calories", "protein", "carbs", "fat" or "fiber"
+     * @param lower true for foods with at least 10% less of it, false for at least 10% more
+     * @param k Maximum number of foods to return
+     * @return The foods, closest first; empty if the food or nutrient is unknown
+     */
+    List<FoodRef> findSimilarFoods(int foodId, String nutrient, boolean lower, int k);
+    
     // Ingredient validation
     String findClosestMatch(String ingredientName);
     
+    /**
+     * Find food names within a number of typing errors of an ingredient name
+     * @param ingredientName The (possibly misspelled) ingredient name
+     * @param k Maximum number of matches to return
+     * @param maxDistance Maximum edit distance (inserted, deleted or changed characters)
+     * @return Matches with their distances, closest first
+     */
+    List<FoodMatch> findClosestMatches(String ingredientName, int k, int maxDistance);
+    
     // Gateway management
     void initialize();
+    
+    /**
+     * Start loading the nutrition data in the background without blocking the caller.
+     * Repeated calls return the same future. Lookups made before it completes may have
+     * to wait for the data, so UI code checks isAvailable() or chains on this future
+     * (showing that data is loading) instead of looking anything up on the event
+     * dispatch thread before then.
+     * @return A future completed with this gateway once its data is loaded
+     */
+    CompletableFuture<INutritionGateway> initializeAsync();
+    
+    /**
+     * Identify the version of the data currently served. It changes whenever the data
+     * is reloaded, so callers can drop anything they derived from an older version.
+     * @return The version id, or 0 if no data has been loaded yet
+     */
+    long getDataVersion();
+    
     boolean isAvailable();
 } 
\ No newline at end of file
@@ -0,0 +1,847 @@
+package ca.nutrisci.infrastructure.external.adapters;
+
+import ca.nutrisci.application.dto.FoodMatch;
+import ca.nutrisci.application.dto.FoodRef;
+import ca.nutrisci.application.dto.NutrientCatalog;
+import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.application.dto.NutrientVector;
+import ca.nutrisci.infrastructure.database.DatabaseManager;
+import ca.nutrisci.infrastructure.external.cnf.ConversionFactorTable;
+import ca.nutrisci.infrastructure.external.cnf.FoodGroupIndex;
+import ca.nutrisci.infrastructure.external.cnf.FoodNameIndex;
+import ca.nutrisci.infrastructure.external.cnf.FuzzyNameMatcher;
+import ca.nutrisci.infrastructure.external.cnf.MacroIndex;
+import ca.nutrisci.infrastructure.external.cnf.MeasureDictionary;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * JdbcNutritionGateway - Nutrition data read from the cnf_* database tables
+ * Part of the Infrastructure Layer
+ *
+ * An alternative to ExternalAdapter for app instances sharing one database:
+ * the CNF CSV files are parsed only by CnfDatabaseImporter, when the tables
+ * are empty or older than the files (and database.init.load.cnf.data is on).
+ * Startup reads just the food names, ids, groups and macros (a few thousand
+ * short rows) to build the same FoodNameIndex, FoodGroupIndex, MacroIndex and
+ * typo-tolerant matching ExternalAdapter uses, so names resolve and swap
+ * candidates are found identically. Nutrition info
+ * and full nutrient profiles are queried per food through bounded LRU caches.
+ * The data version is the source stamp recorded by the importer.
+ */
+public class JdbcNutritionGateway implements INutritionGateway {
+
+    public static final int DEFAULT_CACHE_SIZE = 2048;
+
+    private final DatabaseManager dbManager;
+    private final String cnfDataPath;
+    private final BoundedCache<String, NutrientInfo> infoCache;
+    private final BoundedCache<Integer, NutrientVector> vectorCache;
+
+    // Set once by initialize()
+    private volatile boolean initialized = false;
+    private volatile long dataVersion = 0;
+    private volatile NutrientCatalog catalog;
+    private volatile FoodNameIndex nameIndex = new FoodNameIndex(new ArrayList<>());
+    private volatile FoodGroupIndex groupIndex = new FoodGroupIndex(new HashMap<>(), nameIndex, new HashMap<>());
+    private volatile MacroIndex macroIndex = new MacroIndex(groupIndex, new float[0]);
+    private volatile FoodRef[] foodRefs = new FoodRef[0];     // By name ordinal
+    private volatile long[] ordinalsByFoodId = new long[0];  // Sorted (food id << 32 | ordinal)
+    private volatile float[] ediblePortions = new float[0];  // By name ordinal, see EdiblePortion
+    private FuzzyNameMatcher fuzzyMatcher; // Built on first use
+    private CompletableFuture<INutritionGateway> ready; // Guarded by this
+
+    public JdbcNutritionGateway(DatabaseManager dbManager, String cnfDataPath, int cacheSize) {
+        this.dbManager = dbManager;
+        this.cnfDataPath = cnfDataPath;
+        this.infoCache = new BoundedCache<>(cacheSize);
+        this.vectorCache = new BoundedCache<>(cacheSize);
+    }
+
+    /**
+     * Gateway over the configured database, importing from cnf.data.path when needed
+     */
+    public JdbcNutritionGateway() {
+        this(DatabaseManager.getInstance(),
+             DatabaseManager.getInstance().getProperty("cnf.data.path", "Canada Nutrient File-20250622"),
+             DEFAULT_CACHE_SIZE);
+    }
+
+    @Override
+    public synchronized CompletableFuture<INutritionGateway> initializeAsync() {
+        if (ready == null) {
+            ready = CompletableFuture.supplyAsync(() -> {
+                initialize();
+                return this;
+            });
+        }
+        return ready;
+    }
+
+    @Override
+    public synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            importIfNeeded();
+            loadCatalog();
+            loadNames();
+            System.out.printf("✅ CNF data loaded from database: %d foods in %d ms%n",
+                nameIndex.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            System.err.println("❌ Failed to load CNF data from database: " + e.getMessage());
+        }
+        initialized = true;
+    }
+
+    private void importIfNeeded() throws Exception {
+        boolean autoImport = Boolean.parseBoolean(
+            dbManager.getProperty("database.init.load.cnf.data", "false").trim());
+        Path cnfDirectory = cnfDataPath != null ? Paths.get(cnfDataPath) : null;
+
+        CnfDatabaseImporter importer = new CnfDatabaseImporter(dbManager);
+        if (autoImport && cnfDirectory != null && Files.isDirectory(cnfDirectory)
+                && importer.needsImport(cnfDirectory)) {
+            System.out.println("🔄 Importing CNF data into the database from " + cnfDirectory + "...");
+            importer.importDirectory(cnfDirectory);
+        }
+        dataVersion = importer.importedStamp();
+    }
+
+    private void loadCatalog() throws SQLException {
+        String sql = "SELECT nutrient_id, symbol, unit, nutrient_name FROM cnf_nutrients ORDER BY nutrient_id";
+        List<Integer> ids = new ArrayList<>();
+        List<String> symbols = new ArrayList<>();
+        List<String> units = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                ids.add(rs.getInt("nutrient_id"));
+                symbols.add(rs.getString("symbol"));
+                units.add(rs.getString("unit"));
+                names.add(rs.getString("nutrient_name"));
+            }
+        }
+
+        if (ids.isEmpty()) {
+            catalog = null;
+            return;
+        }
+        int[] nutrientIds = new int[ids.size()];
+        for (int i = 0; i < nutrientIds.length; i++) {
+            nutrientIds[i] = ids.get(i);
+        }
+        catalog = new NutrientCatalog(nutrientIds, symbols.toArray(new String[0]),
+            units.toArray(new String[0]), names.toArray(new String[0]));
+    }
+
+    private void loadNames() throws SQLException {
+        String sql = "SELECT food_id, food_name, food_name_fr, food_group_id, food_group_name, edible_portion, "
+                + "calories, protein, carbs, fat, fiber FROM cnf_foods";
+        Map<String, Integer> foodIds = new HashMap<>();
+        Map<String, NutrientInfo> macros = new HashMap<>();
+        Map<String, String> frenchNames = new HashMap<>();
+        Map<String, Float> portions = new HashMap<>();
+        Map<String, Integer> foodToGroupMap = new HashMap<>();
+        Map<Integer, String> foodGroups = new HashMap<>();
+
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                String foodName = rs.getString("food_name");
+                foodIds.put(foodName, rs.getInt("food_id"));
+                String frenchName = rs.getString("food_name_fr");
+                if (frenchName != null) {
+                    frenchNames.put(foodName, frenchName);
+                }
+                double portion = rs.getDouble("edible_portion");
+                portions.put(foodName, rs.wasNull() ? 1f : (float) portion);
+                macros.put(foodName, new NutrientInfo(rs.getDouble("calories"), rs.getDouble("protein"),
+                    rs.getDouble("carbs"), rs.getDouble("fat"), rs.getDouble("fiber")));
+                int groupId = rs.getInt("food_group_id");
+                if (!rs.wasNull()) {
+                    foodToGroupMap.put(foodName, groupId);
+                    foodGroups.put(groupId, rs.getString("food_group_name"));
+                }
+            }
+        }
+
+        FoodNameIndex names = new FoodNameIndex(foodIds.keySet(), frenchNames);
+        FoodRef[] refs = new FoodRef[names.size()];
+        long[] byFoodId = new long[refs.length];
+        float[] portionsByOrdinal = new float[refs.length];
+        for (int ordinal = 0; ordinal < refs.length; ordinal++) {
+            refs[ordinal] = new FoodRef(foodIds.get(names.name(ordinal)), names.name(ordinal));
+            byFoodId[ordinal] = ((long) refs[ordinal].getFoodId() << 32) | ordinal;
+            portionsByOrdinal[ordinal] = portions.get(names.name(ordinal));
+        }
+        Arrays.sort(byFoodId);
+        FoodGroupIndex groups = new FoodGroupIndex(foodGroups, names, foodToGroupMap);
+        macroIndex = new MacroIndex(groups, CnfData.macroAmounts(names, macros));
+        groupIndex = groups;
+        foodRefs = refs;
+        ordinalsByFoodId = byFoodId;
+        ediblePortions = portionsByOrdinal;
+        nameIndex = names;
+    }
+
+    /**
+     * Measure names imported with the foods, for UnitConversionService when the
+     * CNF files are not available locally
+     */
+    public MeasureDictionary loadMeasureDictionary() throws SQLException {
+        ensureInitialized();
+        List<Integer> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT measure_id, measure_name FROM cnf_measures")) {
+            while (rs.next()) {
+                ids.add(rs.getInt("measure_id"));
+                names.add(rs.getString("measure_name"));
+            }
+        }
+
+        int[] measureIds = new int[ids.size()];
+        for (int i = 0; i < measureIds.length; i++) {
+            measureIds[i] = ids.get(i);
+        }
+        return new MeasureDictionary(measureIds, names.toArray(new String[0]));
+    }
+
+    /**
+     * Conversion factors imported with the foods, for UnitConversionService when the
+     * CNF files are not available locally
+     */
+    public ConversionFactorTable loadConversionFactorTable() throws SQLException {
+        ensureInitialized();
+        String sql = "SELECT food_id, measure_id, factor FROM cnf_conversion_factors ORDER BY food_id, measure_id";
+        int[] foodIds = new int[1024];
+        int[] measureIds = new int[1024];
+        double[] factors = new double[1024];
+        int count = 0;
+        try (Connection conn = dbManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                if (count == foodIds.length) {
+                    foodIds = Arrays.copyOf(foodIds, count * 2);
+                    measureIds = Arrays.copyOf(measureIds, count * 2);
+                    factors = Arrays.copyOf(factors, count * 2);
+                }
+                foodIds[count] = rs.getInt("food_id");
+                measureIds[count] = rs.getInt("measure_id");
+                factors[count] = rs.getDouble("factor");
+                count++;
+            }
+        }
+        return new ConversionFactorTable(Arrays.copyOf(foodIds, count), Arrays.copyOf(measureIds, count),
+            Arrays.copyOf(factors, count));
+    }
+
+    private void ensureInitialized() {
+        if (!initialized) {
+            initialize();
+        }
+    }
+
+    private synchronized FuzzyNameMatcher getFuzzyMatcher() {
+        if (fuzzyMatcher == null) {
+            fuzzyMatcher = new FuzzyNameMatcher(nameIndex);
+        }
+        return fuzzyMatcher;
+    }
+
+    @Override
+    public NutrientInfo lookupIngredient(String ingredient) {
+        ensureInitialized();
+
+        if (ingredient == null || ingredient.trim().isEmpty()) {
+            return new NutrientInfo(0, 0, 0, 0, 0);
+        }
+
+        String matchedName = resolveFoodName(ingredient.toLowerCase().trim());
+        NutrientInfo info = matchedName != null ? cachedNutrientInfo(matchedName) : null;
+        if (info != null) {
+            return info;
+        }
+
+        // Return minimal default if nothing found
+        System.out.println("Warning: No nutrition data found for ingredient: " + ingredient);
+        return new NutrientInfo(50, 2.0, 5.0, 1.0, 0.5);
+    }
+
+    private NutrientInfo cachedNutrientInfo(String foodName) {
+        NutrientInfo info = infoCache.get(foodName);
+        if (info == null) {
+            info = queryNutrientInfo(foodName);
+            if (info != null) {
+                infoCache.put(foodName, info);
+            }
+        }
+        return info;
+    }
+
+    private NutrientInfo queryNutrientInfo(String foodName) {
+        String sql = "SELECT calories, protein, carbs, fat, fiber FROM cnf_foods WHERE food_name = ?";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, foodName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new NutrientInfo(rs.getDouble("calories"), rs.getDouble("protein"),
+                        rs.getDouble("carbs"), rs.getDouble("fat"), rs.getDouble("fiber"));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Error looking up nutrition info for " + foodName + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    @Override
+    public FoodRef resolveFood(String ingredient) {
+        ensureInitialized();
+
+        if (ingredient == null || ingredient.trim().isEmpty()) {
+            return null;
+        }
+
+        String matchedName = resolveFoodName(ingredient.toLowerCase().trim());
+        return matchedName != null ? foodRef(matchedName) : null;
+    }
+
+    @Override
+    public List<FoodRef> resolveFoods(List<String> ingredientNames) {
+        ensureInitialized();
+
+        Map<String, String> resolved = FoodNameResolver.resolveAll(ingredientNames, nameIndex,
+            this::getFuzzyMatcher);
+
+        List<FoodRef> refs = new ArrayList<>(ingredientNames.size());
+        for (String ingredient : ingredientNames) {
+            String matchedName = ingredient != null ? resolved.get(ingredient.toLowerCase().trim()) : null;
+            refs.add(matchedName != null ? foodRef(matchedName) : null);
+        }
+        return refs;
+    }
+
+    private FoodRef foodRef(String foodName) {
+        int ordinal = nameIndex.ordinalOf(foodName);
+        return ordinal >= 0 ? foodRefs[ordinal] : null;
+    }
+
+    @Override
+    public FoodRef getFoodRef(int foodId) {
+        ensureInitialized();
+
+        int ordinal = ordinalOf(foodId);
+        return ordinal >= 0 ? foodRefs[ordinal] : null;
+    }
+
+    // Name ordinal of a CNF food ID, or -1
+    private int ordinalOf(int foodId) {
+        long[] byFoodId = ordinalsByFoodId;
+        int index = Arrays.binarySearch(byFoodId, (long) foodId << 32);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index < byFoodId.length && (int) (byFoodId[index] >>> 32) == foodId) {
+            return (int) byFoodId[index];
+        }
+        return -1;
+    }
+
+    /**
+     * Nutrition info by CNF food ID, through the same cache as name lookups
+     */
+    @Override
+    public NutrientInfo lookupNutrientInfo(int foodId) {
+        FoodRef ref = getFoodRef(foodId);
+        return ref != null ? cachedNutrientInfo(ref.getName()) : null;
+    }
+
+    /**
+     * As-purchased nutrition info by CNF food ID. The imported edible portion
+     * is applied to the cached per-100g info; the database read dominates.
+     */
+    @Override
+    public NutrientInfo lookupAsPurchasedNutrientInfo(int foodId) {
+        NutrientInfo info = lookupNutrientInfo(foodId);
+        float portion = ediblePortion(foodId);
+        return info == null || portion == 1f ? info : info.multiply(portion);
+    }
+
+    /**
+     * As-purchased nutrient profile by CNF food ID (a scaled copy of the cached vector)
+     */
+    @Override
+    public NutrientVector lookupAsPurchasedNutrientVector(int foodId) {
+        NutrientVector vector = lookupNutrientVector(foodId);
+        float portion = ediblePortion(foodId);
+        if (vector == null || portion == 1f) {
+            return vector;
+        }
+        float[] amounts = new float[vector.size()];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = (float) vector.getAt(i) * portion;
+        }
+        return new NutrientVector(vector.getCatalog(), amounts, 0);
+    }
+
+    private float ediblePortion(int foodId) {
+        int ordinal = ordinalOf(foodId);
+        return ordinal >= 0 ? ediblePortions[ordinal] : 1f;
+    }
+
+    /**
+     * Name of the food an ingredient refers to, resolved exactly as ExternalAdapter does
+     */
+    private String resolveFoodName(String normalizedIngredient) {
+        return FoodNameResolver.resolve(normalizedIngredient, nameIndex, this::getFuzzyMatcher);
+    }
+
+    /**
+     * Full nutrient profile of a food by CNF food ID, or null if it has no data
+     */
+    @Override
+    public NutrientVector lookupNutrientVector(int foodId) {
+        ensureInitialized();
+
+        NutrientCatalog nutrients = catalog;
+        if (nutrients == null) {
+            return null;
+        }
+        NutrientVector vector = vectorCache.get(foodId);
+        if (vector == null) {
+            vector = queryNutrientVector(nutrients, foodId);
+            if (vector != null) {
+                vectorCache.put(foodId, vector);
+            }
+        }
+        return vector;
+    }
+
+    private NutrientVector queryNutrientVector(NutrientCatalog nutrients, int foodId) {
+        String sql = "SELECT nutrient_id, amount FROM cnf_nutrient_amounts WHERE food_id = ?";
+        float[] amounts = new float[nutrients.size()];
+        boolean found = false;
+
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, foodId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int index = nutrients.indexOf(rs.getInt("nutrient_id"));
+                    if (index >= 0) {
+                        amounts[index] = (float) rs.getDouble("amount");
+                        found = true;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Error looking up nutrients for food " + foodId + ": " + e.getMessage());
+            return null;
+        }
+        return found ? new NutrientVector(nutrients, amounts, 0) : null;
+    }
+
+    /**
+     * Full nutrient profile of an ingredient, matched the same way as lookupIngredient
+     */
+    @Override
+    public NutrientVector lookupNutrientVector(String ingredient) {
+        ensureInitialized();
+
+        if (ingredient == null || ingredient.trim().isEmpty()) {
+            return null;
+        }
+
+        String matchedName = resolveFoodName(ingredient.toLowerCase().trim());
+        if (matchedName == null) {
+            return null;
+        }
+        return lookupNutrientVector(getFoodId(matchedName));
+    }
+
+    @Override
+    public NutrientCatalog getNutrientCatalog() {
+        ensureInitialized();
+
+        return catalog;
+    }
+
+    @Override
+    public double getNutrientAmount(int foodId, int nutrientId) {
+        NutrientVector vector = lookupNutrientVector(foodId);
+        return vector != null ? vector.get(nutrientId) : 0.0;
+    }
+
+    @Override
+    public boolean ingredientExists(String ingredient) {
+        ensureInitialized();
+
+        return ingredient != null && nameIndex.ordinalOf(ingredient.toLowerCase().trim()) >= 0;
+    }
+
+    @Override
+    public List<String> searchIngredients(String partialName) {
+        return searchIngredients(partialName, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<String> searchIngredients(String partialName, int limit) {
+        ensureInitialized();
+
+        if (partialName == null || partialName.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return nameIndex.search(partialName.toLowerCase().trim(), limit);
+    }
+
+    @Override
+    public List<String> searchIngredients(String partialName, String groupName, int limit) {
+        ensureInitialized();
+
+        if (partialName == null || partialName.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        FoodGroupIndex groups = groupIndex;
+        int group = groups.find(groupName);
+        if (group < 0) {
+            return new ArrayList<>();
+        }
+        return nameIndex.search(partialName.toLowerCase().trim(), groups.members(group), limit);
+    }
+
+    @Override
+    public List<String> searchIngredients(String partialName, Locale locale, int limit) {
+        ensureInitialized();
+
+        if (partialName == null || partialName.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return nameIndex.search(partialName.toLowerCase().trim(), FoodNameIndex.Language.of(locale), limit);
+    }
+
+    @Override
+    public List<String> searchIngredients(String partialName, Locale locale, String groupName, int limit) {
+        ensureInitialized();
+
+        if (partialName == null || partialName.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        FoodGroupIndex groups = groupIndex;
+        int group = groups.find(groupName);
+        if (group < 0) {
+            return new ArrayList<>();
+        }
+        return nameIndex.search(partialName.toLowerCase().trim(), FoodNameIndex.Language.of(locale),
+                groups.members(group), limit);
+    }
+
+    @Override
+    public List<String> getAllIngredients() {
+        ensureInitialized();
+
+        FoodNameIndex names = nameIndex;
+        List<String> ingredients = new ArrayList<>(names.size());
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            ingredients.add(names.name(ordinal));
+        }
+        return ingredients;
+    }
+
+    @Override
+    public int getFoodId(String foodName) {
+        ensureInitialized();
+
+        FoodRef ref = foodRef(foodName.toLowerCase().trim());
+        return ref != null ? ref.getFoodId() : -1;
+    }
+
+    @Override
+    public List<String> getAllFoodGroups() {
+        ensureInitialized();
+
+        FoodGroupIndex groups = groupIndex;
+        List<String> names = new ArrayList<>(groups.size());
+        for (int group = 0; group < groups.size(); group++) {
+            names.add(groups.groupName(group));
+        }
+        names.sort(null);
+        return names;
+    }
+
+    @Override
+    public List<String> getIngredientsByGroup(String groupName) {
+        ensureInitialized();
+
+        FoodGroupIndex groups = groupIndex;
+        int group = groups.find(groupName);
+        if (group < 0) {
+            return new ArrayList<>();
+        }
+        return nameIndex.view(groups.members(group));
+    }
+
+    /**
+     * Batch lookup: names are resolved in memory, then every food not in the
+     * cache is fetched with a single query
+     */
+    @Override
+    public List<NutrientInfo> lookupMultipleIngredients(List<String> ingredientNames) {
+        ensureInitialized();
+
+        Map<String, String> resolved = FoodNameResolver.resolveAll(ingredientNames, nameIndex,
+            this::getFuzzyMatcher);
+
+        Map<String, NutrientInfo> infos = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for (String foodName : resolved.values()) {
+            if (foodName != null && !infos.containsKey(foodName)) {
+                NutrientInfo info = infoCache.get(foodName);
+                infos.put(foodName, info);
+                if (info == null) {
+                    uncached.add(foodName);
+                }
+            }
+        }
+        if (!uncached.isEmpty()) {
+            queryNutrientInfos(uncached, infos);
+        }
+
+        List<NutrientInfo> results = new ArrayList<>(ingredientNames.size());
+        List<String> missing = new ArrayList<>();
+        for (String ingredient : ingredientNames) {
+            if (ingredient == null || ingredient.trim().isEmpty()) {
+                results.add(new NutrientInfo(0, 0, 0, 0, 0));
+                continue;
+            }
+            String foodName = resolved.get(ingredient.toLowerCase().trim());
+            NutrientInfo info = foodName != null ? infos.get(foodName) : null;
+            if (info != null) {
+                results.add(info);
+            } else {
+                results.add(new NutrientInfo(50, 2.0, 5.0, 1.0, 0.5));
+                missing.add(ingredient);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            System.out.println("Warning: No nutrition data found for ingredients: " + missing);
+        }
+        return results;
+    }
+
+    private void queryNutrientInfos(List<String> foodNames, Map<String, NutrientInfo> infos) {
+        String sql = "SELECT food_name, calories, protein, carbs, fat, fiber FROM cnf_foods WHERE food_name IN ("
+            + placeholders(foodNames.size()) + ")";
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < foodNames.size(); i++) {
+                stmt.setString(i + 1, foodNames.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    NutrientInfo info = new NutrientInfo(rs.getDouble("calories"), rs.getDouble("protein"),
+                        rs.getDouble("carbs"), rs.getDouble("fat"), rs.getDouble("fiber"));
+                    String foodName = rs.getString("food_name");
+                    infos.put(foodName, info);
+                    infoCache.put(foodName, info);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Error looking up nutrition info for " + foodNames.size() + " foods: "
+                + e.getMessage());
+        }
+    }
+
+    /**
+     * Batch lookup of nutrient profiles: foods not in the cache are fetched with a single query
+     */
+    @Override
+    public List<NutrientVector> lookupMultipleNutrientVectors(List<String> ingredientNames) {
+        ensureInitialized();
+
+        NutrientCatalog nutrients = catalog;
+        List<NutrientVector> results = new ArrayList<>(ingredientNames.size());
+        if (nutrients == null) {
+            for (int i = 0; i < ingredientNames.size(); i++) {
+                results.add(null);
+            }
+            return results;
+        }
+
+        Map<String, String> resolved = FoodNameResolver.resolveAll(ingredientNames, nameIndex,
+            this::getFuzzyMatcher);
+
+        Map<Integer, NutrientVector> vectors = new HashMap<>();
+        List<Integer> uncached = new ArrayList<>();
+        for (String foodName : resolved.values()) {
+            int foodId = foodName != null ? getFoodId(foodName) : -1;
+            if (foodId >= 0 && !vectors.containsKey(foodId)) {
+                NutrientVector vector = vectorCache.get(foodId);
+                vectors.put(foodId, vector);
+                if (vector == null) {
+                    uncached.add(foodId);
+                }
+            }
+        }
+        if (!uncached.isEmpty()) {
+            queryNutrientVectors(nutrients, uncached, vectors);
+        }
+
+        for (String ingredient : ingredientNames) {
+            String foodName = ingredient != null ? resolved.get(ingredient.toLowerCase().trim()) : null;
+            results.add(foodName != null ? vectors.get(getFoodId(foodName)) : null);
+        }
+        return results;
+    }
+
+    private void queryNutrientVectors(NutrientCatalog nutrients, List<Integer> foodIds,
+                                      Map<Integer, NutrientVector> vectors) {
+        String sql = "SELECT food_id, nutrient_id, amount FROM cnf_nutrient_amounts WHERE food_id IN ("
+            + placeholders(foodIds.size()) + ")";
+        Map<Integer, float[]> amounts = new HashMap<>();
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < foodIds.size(); i++) {
+                stmt.setInt(i + 1, foodIds.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int index = nutrients.indexOf(rs.getInt("nutrient_id"));
+                    if (index >= 0) {
+                        int foodId = rs.getInt("food_id");
+                        amounts.computeIfAbsent(foodId, id -> new float[nutrients.size()])[index] =
+                            (float) rs.getDouble("amount");
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Error looking up nutrients for " + foodIds.size() + " foods: " + e.getMessage());
+            return;
+        }
+
+        for (Map.Entry<Integer, float[]> entry : amounts.entrySet()) {
+            NutrientVector vector = new NutrientVector(nutrients, entry.getValue(), 0);
+            vectors.put(entry.getKey(), vector);
+            vectorCache.put(entry.getKey(), vector);
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Nearest foods of the same group from the macro KD-tree built at startup, no queries
+     */
+    @Override
+    public List<FoodRef> findSimilarFoods(int foodId, String nutrient, boolean lower, int k) {
+        ensureInitialized();
+
+        int dimension = MacroIndex.dimension(nutrient);
+        int ordinal = ordinalOf(foodId);
+        if (dimension < 0 || ordinal < 0) {
+            return new ArrayList<>();
+        }
+
+        FoodRef[] refs = foodRefs;
+        List<FoodRef> foods = new ArrayList<>(k);
+        for (int similar : macroIndex.nearest(ordinal, dimension, lower, k)) {
+            foods.add(refs[similar]);
+        }
+        return foods;
+    }
+
+    @Override
+    public String findClosestMatch(String ingredientName) {
+        ensureInitialized();
+
+        if (ingredientName == null || ingredientName.trim().isEmpty()) {
+            return null;
+        }
+
+        return resolveFoodName(ingredientName.toLowerCase().trim());
+    }
+
+    @Override
+    public List<FoodMatch> findClosestMatches(String ingredientName, int k, int maxDistance) {
+        ensureInitialized();
+
+        if (ingredientName == null || ingredientName.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return getFuzzyMatcher().closest(ingredientName.toLowerCase().trim(), k, maxDistance);
+    }
+
+    /**
+     * Source stamp of the imported CNF files, or 0 if nothing has been imported
+     */
+    @Override
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return initialized && nameIndex.size() > 0;
+    }
+
+    /**
+     * Least-recently-used map with a fixed capacity, safe for concurrent use
+     */
+    private static final class BoundedCache<K, V> {
+        private final Map<K, V> entries;
+
+        BoundedCache(int capacity) {
+            this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized V get(K key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(K key, V value) {
+            entries.put(key, value);
+        }
+    }
+}
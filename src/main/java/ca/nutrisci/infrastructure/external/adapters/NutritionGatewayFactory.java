@@ -0,0 +1,47 @@
+package ca.nutrisci.infrastructure.external.adapters;
+
+import ca.nutrisci.infrastructure.database.DatabaseManager;
+
+/**
+ * NutritionGatewayFactory - Picks the nutrition data source from database.properties
+ * Part of the Infrastructure Layer - Factory Pattern
+ *
+ * nutrition.gateway=file (the default) serves the CNF snapshot or CSV files in
+ * cnf.data.path through ExternalAdapter; nutrition.gateway=jdbc serves the
+ * cnf_* tables through JdbcNutritionGateway, importing cnf.data.path into them
+ * when database.init.load.cnf.data is on. Everything that needs the gateway
+ * asks this factory, so all of the application uses the same one.
+ */
+public final class NutritionGatewayFactory {
+
+    public static final String GATEWAY_PROPERTY = "nutrition.gateway";
+    public static final String DEFAULT_CNF_DATA_PATH = "Canada Nutrient File-20250622";
+
+    private static INutritionGateway gateway;
+
+    private NutritionGatewayFactory() {}
+
+    /**
+     * The configured gateway, created on first use (does not load any data yet)
+     */
+    public static synchronized INutritionGateway getGateway() {
+        if (gateway == null) {
+            DatabaseManager dbManager = DatabaseManager.getInstance();
+            String cnfDataPath = dbManager.getProperty("cnf.data.path", DEFAULT_CNF_DATA_PATH).trim();
+            String type = dbManager.getProperty(GATEWAY_PROPERTY, "file").trim().toLowerCase();
+            switch (type) {
+                case "jdbc":
+                    gateway = new JdbcNutritionGateway(dbManager, cnfDataPath, JdbcNutritionGateway.DEFAULT_CACHE_SIZE);
+                    break;
+                case "file":
+                    gateway = ExternalAdapter.getInstance(cnfDataPath);
+                    break;
+                default:
+                    System.err.println("⚠️ Unknown " + GATEWAY_PROPERTY + " '" + type + "', using the CNF files");
+                    gateway = ExternalAdapter.getInstance(cnfDataPath);
+            }
+            System.out.println("🥗 Nutrition data source: " + gateway.getClass().getSimpleName());
+        }
+        return gateway;
+    }
+}
@@ -0,0 +1,249 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ByteCsvTokenizer - Byte-level CSV tokenizer for the Canada Nutrient File
+ * Part of the Infrastructure Layer
+ *
+ * Reads a file (or a byte range of one)
+ * through a FileChannel into a direct buffer and tokenizes the raw bytes, so
+ * nothing goes through a charset decoder while scanning. Numeric fields are
+ * parsed straight from the bytes; only fields read with fieldString(...) are
+ * decoded, with the charset given. This works for any charset in which the
+ * CSV punctuation (comma, quote, CR, LF) is single-byte ASCII, as in the
+ * Windows-1252 / Latin-1 files the CNF ships.
+ *
+ * Quoted fields, escaped quotes ("") and line breaks inside quotes are handled,
+ * and field values are trimmed.
+ */
+public final class ByteCsvTokenizer implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long channelPosition;
+    private final long channelEnd;
+    private int position;
+    private int limit;
+
+    // Current record (unquoted field bytes laid out back to back)
+    private byte[] record = new byte[256];
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private int fieldCount;
+    private long recordNumber;
+
+    /**
+     * Tokenize a whole file
+     */
+    public ByteCsvTokenizer(Path file, Charset charset) throws IOException {
+        this(file, 0, Long.MAX_VALUE, charset);
+    }
+
+    /**
+     * Tokenize the bytes [start, end) of a file; start should be the beginning of a line
+     */
+    public ByteCsvTokenizer(Path file, long start, long end, Charset charset) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.charset = charset;
+        this.channelPosition = start;
+        this.channelEnd = Math.min(end, channel.size());
+    }
+
+    /**
+     * Advance to the next record.
+     * @return false at end of input
+     */
+    public boolean next() throws IOException {
+        fieldCount = 0;
+        int length = 0;
+        int start = 0;
+        boolean inQuotes = false;
+        boolean sawAnything = false;
+
+        while (true) {
+            if (position >= limit && !fill()) {
+                if (!sawAnything) {
+                    return false;
+                }
+                addField(start, length);
+                recordNumber++;
+                return true;
+            }
+
+            byte b = buffer.get(position++);
+            sawAnything = true;
+
+            if (inQuotes) {
+                if (b == '"') {
+                    if (position >= limit && !fill()) {
+                        inQuotes = false;
+                        continue;
+                    }
+                    if (buffer.get(position) == '"') {
+                        position++;
+                        length = append(length, b);
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    length = append(length, b);
+                }
+            } else if (b == ',') {
+                addField(start, length);
+                start = length;
+            } else if (b == '\n') {
+                addField(start, length);
+                recordNumber++;
+                return true;
+            } else if (b == '"') {
+                inQuotes = true;
+            } else if (b != '\r') {
+                length = append(length, b);
+            }
+        }
+    }
+
+    /**
+     * Number of fields in the current record
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * 1-based number of the current record (the header is record 1)
+     */
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Field i decoded into a new String
+     */
+    public String fieldString(int i) {
+        checkIndex(i);
+        return new String(record, fieldStart[i], fieldEnd[i] - fieldStart[i], charset);
+    }
+
+    public boolean isEmpty(int i) {
+        return i >= fieldCount || fieldStart[i] == fieldEnd[i];
+    }
+
+    /**
+     * Check whether field i is exactly the given ASCII text (no allocation)
+     */
+    public boolean fieldEquals(int i, String text) {
+        checkIndex(i);
+        int length = fieldEnd[i] - fieldStart[i];
+        if (length != text.length()) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if ((record[fieldStart[i] + k] & 0xFF) != text.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse field i as an int without creating a String
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    public int fieldInt(int i) {
+        checkIndex(i);
+        if (fieldStart[i] == fieldEnd[i]) {
+            throw new NumberFormatException("Empty field " + i + " in record " + recordNumber);
+        }
+        try {
+            return CsvNumbers.parseInt(record, fieldStart[i], fieldEnd[i]);
+        } catch (NumberFormatException e) {
+            throw numberFormat(i);
+        }
+    }
+
+    /**
+     * Parse field i as a double. Plain decimals (the only form the CNF uses) are
+     * parsed from the bytes; anything else falls back to Double.parseDouble.
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    public double fieldDouble(int i) {
+        checkIndex(i);
+        if (fieldStart[i] == fieldEnd[i]) {
+            throw new NumberFormatException("Empty field " + i + " in record " + recordNumber);
+        }
+        try {
+            return CsvNumbers.parseDouble(record, fieldStart[i], fieldEnd[i]);
+        } catch (NumberFormatException e) {
+            throw numberFormat(i);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Private helper methods
+
+    private boolean fill() throws IOException {
+        long remaining = channelEnd - channelPosition;
+        if (remaining <= 0) {
+            position = limit = 0;
+            return false;
+        }
+        buffer.clear();
+        buffer.limit((int) Math.min(BUFFER_SIZE, remaining));
+        int read = channel.read(buffer, channelPosition);
+        if (read <= 0) {
+            position = limit = 0;
+            return false;
+        }
+        channelPosition += read;
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private int append(int length, byte b) {
+        if (length == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[length] = b;
+        return length + 1;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStart.length) {
+            fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+            fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+        }
+        // Trim surrounding whitespace (including line breaks kept inside quotes); bytes are unsigned here
+        while (start < end && (record[start] & 0xFF) <= ' ') start++;
+        while (end > start && (record[end - 1] & 0xFF) <= ' ') end--;
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + i + " of " + fieldCount + " in record " + recordNumber);
+        }
+    }
+
+    private NumberFormatException numberFormat(int i) {
+        return new NumberFormatException("Invalid number '" + fieldString(i) + "' in record " + recordNumber);
+    }
+}
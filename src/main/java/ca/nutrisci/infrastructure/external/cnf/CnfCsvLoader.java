@@ -0,0 +1,572 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import ca.nutrisci.application.dto.NutrientCatalog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * CnfCsvLoader - Parses the Canada Nutrient File CSVs into a CnfDataset
+ * Part of the Infrastructure Layer
+ *
+ * Missing files produce empty tables (with a warning) rather than failing the
+ * whole load, which matches how the adapters behaved before.
+ *
+ * The files do not depend on each other, so each is parsed as its own task.
+ * NUTRIENT AMOUNT.csv, by far the largest, is also split into line-aligned
+ * byte ranges that are parsed in parallel; only merging those rows into the
+ * nutrient matrix waits for the food and nutrient tables it is indexed by.
+ *
+ * Every file is read with ByteCsvTokenizer: numbers are parsed from the raw
+ * bytes, and only the text columns that are kept are decoded (Windows-1252).
+ */
+public final class CnfCsvLoader {
+
+    public static final String FOOD_GROUP_FILE = "FOOD GROUP.csv";
+    public static final String FOOD_NAME_FILE = "FOOD NAME.csv";
+    public static final String NUTRIENT_NAME_FILE = "NUTRIENT NAME.csv";
+    public static final String NUTRIENT_AMOUNT_FILE = "NUTRIENT AMOUNT.csv";
+    public static final String MEASURE_NAME_FILE = "MEASURE NAME.csv";
+    public static final String CONVERSION_FACTOR_FILE = "CONVERSION FACTOR.csv";
+    public static final String REFUSE_AMOUNT_FILE = "REFUSE AMOUNT.csv";
+    public static final String YIELD_AMOUNT_FILE = "YIELD AMOUNT.csv";
+    public static final String YIELD_NAME_FILE = "YIELD NAME.csv";
+
+    /**
+     * CSV files a dataset is built from (used for snapshot staleness checks)
+     */
+    public static final String[] SOURCE_FILES = {
+        FOOD_GROUP_FILE, FOOD_NAME_FILE, NUTRIENT_NAME_FILE, NUTRIENT_AMOUNT_FILE,
+        MEASURE_NAME_FILE, CONVERSION_FACTOR_FILE, REFUSE_AMOUNT_FILE, YIELD_AMOUNT_FILE, YIELD_NAME_FILE
+    };
+
+    // The CNF ships its CSVs in Windows-1252 (Latin-1 plus a few punctuation marks):
+    // accented French names, and "Pâté" in English ones
+    static final Charset CNF_CHARSET = Charset.forName("windows-1252");
+
+    // Smallest NUTRIENT AMOUNT.csv byte range worth parsing as a separate task
+    private static final long MIN_CHUNK_BYTES = 256 * 1024;
+
+    private CnfCsvLoader() {}
+
+    /**
+     * Parse every CNF file in the given directory on the common ForkJoinPool
+     */
+    public static CnfDataset load(Path cnfDirectory) throws IOException {
+        return load(cnfDirectory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parse every CNF file in the given directory, running the parse tasks on the given pool
+     */
+    public static CnfDataset load(Path cnfDirectory, ForkJoinPool pool) throws IOException {
+        IntList groupIds = new IntList(32);
+        List<String> groupNames = new ArrayList<>();
+        CompletableFuture<Void> groups = run(() ->
+                loadFoodGroups(cnfDirectory.resolve(FOOD_GROUP_FILE), groupIds, groupNames), pool);
+
+        IntList foodIds = new IntList(8192);
+        IntList foodGroupIds = new IntList(8192);
+        List<String> foodDescriptions = new ArrayList<>(8192);
+        List<String> foodDescriptionsF = new ArrayList<>(8192);
+        CompletableFuture<Void> foods = run(() -> loadFoodNames(cnfDirectory.resolve(FOOD_NAME_FILE),
+                foodIds, foodGroupIds, foodDescriptions, foodDescriptionsF), pool);
+
+        IntList nutrientIds = new IntList(256);
+        List<String> nutrientSymbols = new ArrayList<>(256);
+        List<String> nutrientUnits = new ArrayList<>(256);
+        List<String> nutrientNames = new ArrayList<>(256);
+        CompletableFuture<Void> nutrients = run(() -> loadNutrientNames(cnfDirectory.resolve(NUTRIENT_NAME_FILE),
+                nutrientIds, nutrientSymbols, nutrientUnits, nutrientNames), pool);
+
+        List<CompletableFuture<AmountChunk>> amounts =
+                parseNutrientAmounts(cnfDirectory.resolve(NUTRIENT_AMOUNT_FILE), pool);
+
+        IntList measureIds = new IntList(2048);
+        List<String> measureNames = new ArrayList<>(2048);
+        CompletableFuture<Void> measures = run(() ->
+                loadMeasureNames(cnfDirectory.resolve(MEASURE_NAME_FILE), measureIds, measureNames), pool);
+
+        IntList conversionFoodIds = new IntList(1 << 15);
+        IntList conversionMeasureIds = new IntList(1 << 15);
+        DoubleList conversionFactors = new DoubleList(1 << 15);
+        CompletableFuture<Void> conversions = run(() -> loadConversionFactors(
+                cnfDirectory.resolve(CONVERSION_FACTOR_FILE), conversionFoodIds, conversionMeasureIds,
+                conversionFactors), pool);
+
+        IntList refuseFoodIds = new IntList(8192);
+        DoubleList refuseAmounts = new DoubleList(8192);
+        CompletableFuture<Void> refuses = run(() -> loadRefuseAmounts(
+                cnfDirectory.resolve(REFUSE_AMOUNT_FILE), refuseFoodIds, refuseAmounts), pool);
+
+        IntList yieldFoodIds = new IntList(2048);
+        IntList yieldIds = new IntList(2048);
+        DoubleList yieldAmounts = new DoubleList(2048);
+        CompletableFuture<Void> yields = run(() -> loadYieldAmounts(
+                cnfDirectory.resolve(YIELD_AMOUNT_FILE), yieldFoodIds, yieldIds, yieldAmounts), pool);
+
+        IntList yieldNameIds = new IntList(128);
+        List<String> yieldDescriptions = new ArrayList<>(128);
+        CompletableFuture<Void> yieldNames = run(() -> loadYieldNames(
+                cnfDirectory.resolve(YIELD_NAME_FILE), yieldNameIds, yieldDescriptions), pool);
+
+        await(foods);
+        int[] sortedFoodIds = foodIds.toArray();
+        int[] sortedFoodGroupIds = foodGroupIds.toArray();
+        String[] sortedFoodDescriptions = foodDescriptions.toArray(new String[0]);
+        String[] sortedFoodDescriptionsF = foodDescriptionsF.toArray(new String[0]);
+        sortFoods(sortedFoodIds, sortedFoodGroupIds, sortedFoodDescriptions, sortedFoodDescriptionsF);
+
+        await(nutrients);
+        NutrientCatalog nutrientCatalog = new NutrientCatalog(nutrientIds.toArray(),
+                nutrientSymbols.toArray(new String[0]), nutrientUnits.toArray(new String[0]),
+                nutrientNames.toArray(new String[0]));
+        NutrientMatrix nutrientMatrix = new NutrientMatrix(sortedFoodIds, nutrientCatalog,
+                new float[sortedFoodIds.length * nutrientCatalog.size()]);
+        // In file order, so a repeated food/nutrient row still overrides earlier ones
+        for (CompletableFuture<AmountChunk> chunk : amounts) {
+            mergeNutrientAmounts(await(chunk), nutrientMatrix);
+        }
+
+        await(groups);
+        await(measures);
+        await(conversions);
+        await(refuses);
+        await(yields);
+        await(yieldNames);
+        return new CnfDataset(
+                groupIds.toArray(), groupNames.toArray(new String[0]),
+                sortedFoodIds, sortedFoodGroupIds, sortedFoodDescriptions, sortedFoodDescriptionsF,
+                nutrientMatrix,
+                measureIds.toArray(), measureNames.toArray(new String[0]),
+                conversionFoodIds.toArray(), conversionMeasureIds.toArray(), conversionFactors.toArray(),
+                refuseFoodIds.toArray(), refuseAmounts.toArray(),
+                yieldFoodIds.toArray(), yieldIds.toArray(), yieldAmounts.toArray(),
+                yieldNameIds.toArray(), yieldDescriptions.toArray(new String[0]));
+    }
+
+    /**
+     * Load food groups from FOOD GROUP.csv
+     */
+    private static void loadFoodGroups(Path file, IntList ids, List<String> names) throws IOException {
+        if (!exists(file)) return;
+
+        try (ByteCsvTokenizer csv = open(file)) {
+            csv.next(); // Skip header
+            while (csv.next()) {
+                if (csv.fieldCount() >= 3) {
+                    try {
+                        ids.add(csv.fieldInt(0));
+                        names.add(csv.fieldString(2));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error parsing food group ID in record " + csv.recordNumber());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Load food ids, groups and English and French descriptions from FOOD NAME.csv
+     */
+    private static void loadFoodNames(Path file, IntList ids, IntList groupIds, List<String> descriptions,
+                                      List<String> descriptionsF) throws IOException {
+        if (!exists(file)) return;
+
+        try (ByteCsvTokenizer csv = open(file)) {
+            csv.next(); // Skip header
+            while (csv.next()) {
+                if (csv.fieldCount() >= 5) {
+                    int id;
+                    try {
+                        id = csv.fieldInt(0);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error parsing food ID in record " + csv.recordNumber());
+                        continue;
+                    }
+                    int groupId;
+                    try {
+                        groupId = csv.fieldInt(2);
+                    } catch (NumberFormatException e) {
+                        groupId = -1; // Unknown group
+                    }
+                    ids.add(id);
+                    groupIds.add(groupId);
+                    // Escaped quotes are dropped so names match those already stored in meals
+                    descriptions.add(csv.fieldString(4).replace("\"", ""));
+                    descriptionsF.add(csv.fieldCount() >= 6 ? csv.fieldString(5).replace("\"", "") : "");
+                }
+            }
+        }
+    }
+
+    /**
+     * Order the food table by FoodID so food ordinals can be found by binary search.
+     * The CNF ships FOOD NAME.csv already sorted, so this is normally a single pass.
+     */
+    private static void sortFoods(int[] ids, int[] groupIds, String[] descriptions, String[] descriptionsF) {
+        boolean sorted = true;
+        for (int i = 1; i < ids.length && sorted; i++) {
+            sorted = ids[i - 1] < ids[i];
+        }
+        if (sorted) return;
+
+        Integer[] order = new Integer[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(ids[a], ids[b]));
+
+        int[] idsCopy = ids.clone();
+        int[] groupIdsCopy = groupIds.clone();
+        String[] descriptionsCopy = descriptions.clone();
+        String[] descriptionsFCopy = descriptionsF.clone();
+        for (int i = 0; i < order.length; i++) {
+            ids[i] = idsCopy[order[i]];
+            groupIds[i] = groupIdsCopy[order[i]];
+            descriptions[i] = descriptionsCopy[order[i]];
+            descriptionsF[i] = descriptionsFCopy[order[i]];
+        }
+    }
+
+    /**
+     * Load nutrient ids, symbols, units and English names from NUTRIENT NAME.csv
+     */
+    private static void loadNutrientNames(Path file, IntList ids, List<String> symbols, List<String> units,
+                                          List<String> names) throws IOException {
+        if (!exists(file)) return;
+
+        try (ByteCsvTokenizer csv = open(file)) {
+            csv.next(); // Skip header
+            while (csv.next()) {
+                if (csv.fieldCount() >= 5) {
+                    try {
+                        ids.add(csv.fieldInt(0));
+                        symbols.add(csv.fieldString(2));
+                        units.add(csv.fieldString(3));
+                        names.add(csv.fieldString(4));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error parsing nutrient ID in record " + csv.recordNumber());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Start parsing NUTRIENT AMOUNT.csv as line-aligned byte ranges, a few per pool thread
+     */
+    private static List<CompletableFuture<AmountChunk>> parseNutrientAmounts(Path file, ForkJoinPool pool)
+            throws IOException {
+        List<CompletableFuture<AmountChunk>> chunks = new ArrayList<>();
+        if (!exists(file)) return chunks;
+
+        long[] bounds;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            bounds = lineAlignedChunks(channel, pool.getParallelism() * 4);
+        }
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            long start = bounds[i];
+            long end = bounds[i + 1];
+            boolean header = i == 0;
+            chunks.add(supply(() -> parseAmountChunk(file, start, end, header), pool));
+        }
+        return chunks;
+    }
+
+    /**
+     * Split a file into at most maxChunks byte ranges that each start at the
+     * beginning of a line (NUTRIENT AMOUNT.csv has no quoted line breaks).
+     * @return the range boundaries: 0, the line starts in between, and the file size
+     */
+    static long[] lineAlignedChunks(FileChannel channel, int maxChunks) throws IOException {
+        long size = channel.size();
+        int chunks = (int) Math.max(1, Math.min(maxChunks, size / MIN_CHUNK_BYTES));
+        long[] bounds = new long[chunks + 1];
+        int count = 1; // bounds[0] = 0
+
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < chunks; i++) {
+            long lineStart = nextLineStart(channel, size * i / chunks, probe);
+            if (lineStart >= size) break;
+            if (lineStart > bounds[count - 1]) {
+                bounds[count++] = lineStart;
+            }
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Parse one byte range of NUTRIENT AMOUNT.csv into (food, nutrient, amount) rows
+     */
+    private static AmountChunk parseAmountChunk(Path file, long start, long end, boolean header)
+            throws IOException {
+        // Roughly 30 bytes per row
+        AmountChunk chunk = new AmountChunk((int) ((end - start) / 30));
+        try (ByteCsvTokenizer csv = new ByteCsvTokenizer(file, start, end, CNF_CHARSET)) {
+            if (header) {
+                csv.next(); // Skip header
+            }
+            while (csv.next()) {
+                if (csv.fieldCount() >= 4 && !csv.isEmpty(2) && !csv.fieldEquals(2, "0")) {
+                    try {
+                        int foodId = csv.fieldInt(0);
+                        int nutrientId = csv.fieldInt(1);
+                        double amount = csv.fieldDouble(2);
+                        chunk.foodIds.add(foodId);
+                        chunk.nutrientIds.add(nutrientId);
+                        chunk.amounts.add(amount);
+                    } catch (NumberFormatException e) {
+                        // Skip invalid numbers
+                    }
+                }
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Write parsed nutrient amounts into the matrix.
+     * Rows for foods or nutrients missing from the name tables are skipped.
+     */
+    private static void mergeNutrientAmounts(AmountChunk chunk, NutrientMatrix matrix) {
+        float[] values = matrix.values();
+        int nutrientCount = matrix.nutrientCount();
+        int lastFoodId = Integer.MIN_VALUE;
+        int foodOrdinal = -1;
+
+        for (int row = 0; row < chunk.foodIds.size(); row++) {
+            int foodId = chunk.foodIds.get(row);
+            // Amounts are grouped by food, so the row lookup rarely repeats
+            if (foodId != lastFoodId) {
+                foodOrdinal = matrix.foodOrdinal(foodId);
+                lastFoodId = foodId;
+            }
+            int nutrientOrdinal = matrix.nutrientOrdinal(chunk.nutrientIds.get(row));
+            if (foodOrdinal >= 0 && nutrientOrdinal >= 0) {
+                values[foodOrdinal * nutrientCount + nutrientOrdinal] = (float) chunk.amounts.get(row);
+            }
+        }
+    }
+
+    /**
+     * Load measure names from MEASURE NAME.csv
+     */
+    private static void loadMeasureNames(Path file, IntList ids, List<String> names) throws IOException {
+        if (!exists(file)) return;
+
+        try (ByteCsvTokenizer csv = open(file)) {
+            csv.next(); // Skip header
+            while (csv.next()) {
+                if (csv.fieldCount() >= 2) {
+                    try {
+                        int measureId = csv.fieldInt(0);
+                        ids.add(measureId);
+                        names.add(csv.fieldString(1));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error parsing measure ID in record " + csv.recordNumber());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Load conversion factors from CONVERSION FACTOR.csv
+     */
+    private static void loadConversionFactors(Path file, IntList foodIds, IntList measureIds, DoubleList factors)
+            throws IOException {
+        if (!exists(file)) return;
+
+        try (ByteCsvTokenizer csv = open(file)) {
+            csv.next(); // Skip header
+            while (csv.next()) {
+                if (csv.fieldCount() >= 3) {
+                    try {
+                        int foodId = csv.fieldInt(0);
+                        int measureId = csv.fieldInt(1);
+                        double factor = csv.fieldDouble(2);
+                        foodIds.add(foodId);
+                        measureIds.add(measureId);
+                        factors.add(factor);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error parsing conversion factor in record " + csv.recordNumber());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Load refuse percentages from REFUSE AMOUNT.csv
+     */
+    private static void loadRefuseAmounts(Path file, IntList foodIds, DoubleList amounts) throws IOException {
+        if (!exists(file)) return;
+
+        try (ByteCsvTokenizer csv = open(file)) {
+            csv.next(); // Skip header
+            while (csv.next()) {
+                if (csv.fieldCount() >= 3 && !csv.isEmpty(0) && !csv.isEmpty(2)) {
+                    try {
+                        int foodId = csv.fieldInt(0);
+                        double amount = csv.fieldDouble(2);
+                        foodIds.add(foodId);
+                        amounts.add(amount);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error parsing refuse amount in record " + csv.recordNumber());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Load yields from YIELD AMOUNT.csv
+     */
+    private static void loadYieldAmounts(Path file, IntList foodIds, IntList yieldIds, DoubleList amounts)
+            throws IOException {
+        if (!exists(file)) return;
+
+        try (ByteCsvTokenizer csv = open(file)) {
+            csv.next(); // Skip header
+            while (csv.next()) {
+                if (csv.fieldCount() >= 3 && !csv.isEmpty(0) && !csv.isEmpty(2)) {
+                    try {
+                        int foodId = csv.fieldInt(0);
+                        int yieldId = csv.fieldInt(1);
+                        double amount = csv.fieldDouble(2);
+                        foodIds.add(foodId);
+                        yieldIds.add(yieldId);
+                        amounts.add(amount);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error parsing yield amount in record " + csv.recordNumber());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Load yield descriptions from YIELD NAME.csv.
+     * The CNF pads this file with empty rows, which are skipped.
+     */
+    private static void loadYieldNames(Path file, IntList ids, List<String> descriptions) throws IOException {
+        if (!exists(file)) return;
+
+        try (ByteCsvTokenizer csv = open(file)) {
+            csv.next(); // Skip header
+            while (csv.next()) {
+                if (csv.fieldCount() >= 2 && !csv.isEmpty(0)) {
+                    try {
+                        int yieldId = csv.fieldInt(0);
+                        ids.add(yieldId);
+                        descriptions.add(csv.fieldString(1));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error parsing yield ID in record " + csv.recordNumber());
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean exists(Path file) {
+        if (!Files.exists(file)) {
+            System.out.println("CNF file not found: " + file);
+            return false;
+        }
+        return true;
+    }
+
+    private static ByteCsvTokenizer open(Path file) throws IOException {
+        return new ByteCsvTokenizer(file, CNF_CHARSET);
+    }
+
+    @FunctionalInterface
+    private interface ParseTask<T> {
+        T call() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ParseStep {
+        void run() throws IOException;
+    }
+
+    private static <T> CompletableFuture<T> supply(ParseTask<T> task, ForkJoinPool pool) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, pool);
+    }
+
+    private static CompletableFuture<Void> run(ParseStep step, ForkJoinPool pool) {
+        return supply(() -> {
+            step.run();
+            return null;
+        }, pool);
+    }
+
+    /**
+     * Wait for a parse task, rethrowing its IOException
+     */
+    private static <T> T await(CompletableFuture<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Nutrient amount rows parsed from one byte range of NUTRIENT AMOUNT.csv
+     */
+    private static final class AmountChunk {
+        final IntList foodIds;
+        final IntList nutrientIds;
+        final DoubleList amounts;
+
+        AmountChunk(int expectedRows) {
+            this.foodIds = new IntList(expectedRows);
+            this.nutrientIds = new IntList(expectedRows);
+            this.amounts = new DoubleList(expectedRows);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import ca.nutrisci.application.dto.NutrientCatalog;
+
+/**
+ * CnfDataset - Raw tables of one Canada Nutrient File release
+ * Part of the Infrastructure Layer
+ *
+ * Column-oriented: every table is a set of parallel arrays, one entry per CSV
+ * row, except nutrient amounts which are held in a dense NutrientMatrix whose
+ * rows follow the (sorted) food table and whose columns follow the nutrient table. This is the unit that is parsed from CSV (CnfCsvLoader), written to and
+ * read from the binary snapshot (CnfSnapshot), and consumed by the adapters.
+ * Arrays are shared, not copied - callers must not modify them.
+ */
+public class CnfDataset {
+
+    // FOOD GROUP.csv
+    private final int[] groupIds;
+    private final String[] groupNames;
+
+    // FOOD NAME.csv
+    private final int[] foodIds;
+    private final int[] foodGroupIds;
+    private final String[] foodDescriptions;
+    private final String[] foodDescriptionsF; // French, "" where the CNF has none
+
+    // NUTRIENT NAME.csv (catalog) and NUTRIENT AMOUNT.csv
+    private final NutrientMatrix nutrientMatrix;
+
+    // MEASURE NAME.csv
+    private final int[] measureIds;
+    private final String[] measureNames;
+
+    // CONVERSION FACTOR.csv
+    private final int[] conversionFoodIds;
+    private final int[] conversionMeasureIds;
+    private final double[] conversionFactors;
+
+    // REFUSE AMOUNT.csv: percent of the food as purchased that is not eaten
+    private final int[] refuseFoodIds;
+    private final double[] refuseAmounts;
+
+    // YIELD AMOUNT.csv: grams of the food obtained from the amount its yield describes
+    private final int[] yieldFoodIds;
+    private final int[] yieldIds;
+    private final double[] yieldAmounts;
+
+    // YIELD NAME.csv
+    private final int[] yieldNameIds;
+    private final String[] yieldDescriptions;
+
+    public CnfDataset(int[] groupIds, String[] groupNames,
+                      int[] foodIds, int[] foodGroupIds, String[] foodDescriptions,
+                      String[] foodDescriptionsF, NutrientMatrix nutrientMatrix,
+                      int[] measureIds, String[] measureNames,
+                      int[] conversionFoodIds, int[] conversionMeasureIds, double[] conversionFactors,
+                      int[] refuseFoodIds, double[] refuseAmounts,
+                      int[] yieldFoodIds, int[] yieldIds, double[] yieldAmounts,
+                      int[] yieldNameIds, String[] yieldDescriptions) {
+        this.groupIds = groupIds;
+        this.groupNames = groupNames;
+        this.foodIds = foodIds;
+        this.foodGroupIds = foodGroupIds;
+        this.foodDescriptions = foodDescriptions;
+        this.foodDescriptionsF = foodDescriptionsF;
+        this.nutrientMatrix = nutrientMatrix;
+        this.measureIds = measureIds;
+        this.measureNames = measureNames;
+        this.conversionFoodIds = conversionFoodIds;
+        this.conversionMeasureIds = conversionMeasureIds;
+        this.conversionFactors = conversionFactors;
+        this.refuseFoodIds = refuseFoodIds;
+        this.refuseAmounts = refuseAmounts;
+        this.yieldFoodIds = yieldFoodIds;
+        this.yieldIds = yieldIds;
+        this.yieldAmounts = yieldAmounts;
+        this.yieldNameIds = yieldNameIds;
+        this.yieldDescriptions = yieldDescriptions;
+    }
+
+    // Food groups
+    public int getGroupCount() { return groupIds.length; }
+    public int[] getGroupIds() { return groupIds; }
+    public String[] getGroupNames() { return groupNames; }
+
+    // Foods
+    public int getFoodCount() { return foodIds.length; }
+    public int[] getFoodIds() { return foodIds; }
+    public int[] getFoodGroupIds() { return foodGroupIds; }
+    public String[] getFoodDescriptions() { return foodDescriptions; }
+    public String[] getFoodDescriptionsF() { return foodDescriptionsF; }
+
+    // Nutrients and amounts
+    public int getNutrientCount() { return nutrientMatrix.nutrientCount(); }
+    public NutrientCatalog getNutrientCatalog() { return nutrientMatrix.getCatalog(); }
+    public NutrientMatrix getNutrientMatrix() { return nutrientMatrix; }
+
+    // Measures
+    public int getMeasureCount() { return measureIds.length; }
+    public int[] getMeasureIds() { return measureIds; }
+    public String[] getMeasureNames() { return measureNames; }
+
+    // Conversion factors
+    public int getConversionCount() { return conversionFoodIds.length; }
+    public int[] getConversionFoodIds() { return conversionFoodIds; }
+    public int[] getConversionMeasureIds() { return conversionMeasureIds; }
+    public double[] getConversionFactors() { return conversionFactors; }
+
+    // Refuse amounts
+    public int getRefuseCount() { return refuseFoodIds.length; }
+    public int[] getRefuseFoodIds() { return refuseFoodIds; }
+    public double[] getRefuseAmounts() { return refuseAmounts; }
+
+    // Yield amounts
+    public int getYieldCount() { return yieldFoodIds.length; }
+    public int[] getYieldFoodIds() { return yieldFoodIds; }
+    public int[] getYieldIds() { return yieldIds; }
+    public double[] getYieldAmounts() { return yieldAmounts; }
+
+    // Yield names
+    public int getYieldNameCount() { return yieldNameIds.length; }
+    public int[] getYieldNameIds() { return yieldNameIds; }
+    public String[] getYieldDescriptions() { return yieldDescriptions; }
+
+    @Override
+    public String toString() {
+        return String.format("CnfDataset{groups=%d, foods=%d, nutrients=%d, measures=%d, conversions=%d, "
+                        + "refuses=%d, yields=%d}",
+                getGroupCount(), getFoodCount(), getNutrientCount(), getMeasureCount(), getConversionCount(),
+                getRefuseCount(), getYieldCount());
+    }
+}
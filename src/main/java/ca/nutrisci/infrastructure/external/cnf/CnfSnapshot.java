@@ -0,0 +1,404 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import ca.nutrisci.application.dto.NutrientCatalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * CnfSnapshot - Precompiled binary image of a CNF release
+ * Part of the Infrastructure Layer
+ *
+ * The CSVs are parsed once and written to a single versioned file next to
+ * them. Later launches map that file with FileChannel.map and bulk-copy the
+ * tables out, which takes milliseconds instead of seconds. A snapshot built
+ * from a different set of CSVs (see sourceStamp) or by a different format
+ * version is ignored and rebuilt from CSV.
+ *
+ * Offline compile step:
+ * <pre>
+ * java -cp target/classes ca.nutrisci.infrastructure.external.cnf.CnfSnapshot "Canada Nutrient File-20250622"
+ * </pre>
+ *
+ * Layout (big-endian): magic, format version, source stamp, then the groups,
+ * foods (English and French descriptions), nutrients, nutrient matrix, measures, conversion factors, refuse
+ * amounts, yield amounts and yield names tables.
+ * Each table is a row count followed by its columns; strings are
+ * length-prefixed UTF-8. The matrix is stored as foods x nutrients floats in
+ * the same row-major order it has in memory.
+ */
+public final class CnfSnapshot {
+
+    public static final String SNAPSHOT_FILE = "cnf.snapshot";
+
+    private static final int MAGIC = 0x434E4653; // "CNFS"
+    private static final int FORMAT_VERSION = 4;
+
+    // Last dataset handed out, so every consumer of one directory shares a single read
+    private static Path cachedDirectory;
+    private static long cachedStamp;
+    private static CnfDataset cachedDataset;
+
+    private CnfSnapshot() {}
+
+    /**
+     * Load the dataset for a CNF directory, preferring an up-to-date snapshot.
+     * Falls back to parsing the CSVs and rebuilds the snapshot when it is
+     * missing, unreadable or was built from other CSVs. Callers asking for the same
+     * directory while its CSVs are unchanged get the dataset already loaded
+     * (it is never modified after loading).
+     */
+    public static synchronized CnfDataset loadOrCompile(Path cnfDirectory) throws IOException {
+        if (!Files.isDirectory(cnfDirectory)) {
+            throw new IOException("CNF directory not found: " + cnfDirectory);
+        }
+
+        Path directory = cnfDirectory.toAbsolutePath().normalize();
+        long sourceStamp = sourceStamp(cnfDirectory);
+        if (cachedDataset != null && directory.equals(cachedDirectory) && sourceStamp == cachedStamp) {
+            return cachedDataset;
+        }
+
+        CnfDataset dataset = loadOrCompile(cnfDirectory, sourceStamp);
+        cachedDirectory = directory;
+        cachedStamp = sourceStamp;
+        cachedDataset = dataset;
+        return dataset;
+    }
+
+    private static CnfDataset loadOrCompile(Path cnfDirectory, long sourceStamp) throws IOException {
+        Path snapshotFile = cnfDirectory.resolve(SNAPSHOT_FILE);
+
+        if (Files.exists(snapshotFile)) {
+            long start = System.nanoTime();
+            try {
+                CnfDataset dataset = read(snapshotFile, sourceStamp);
+                if (dataset != null) {
+                    System.out.println(String.format("Loaded CNF snapshot %s in %.1f ms",
+                            snapshotFile, (System.nanoTime() - start) / 1_000_000.0));
+                    return dataset;
+                }
+                System.out.println("CNF snapshot is out of date, rebuilding from CSV");
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not read CNF snapshot, rebuilding from CSV: " + e.getMessage());
+            }
+        }
+
+        CnfDataset dataset = CnfCsvLoader.load(cnfDirectory);
+        try {
+            write(dataset, sourceStamp, snapshotFile);
+            System.out.println("Wrote CNF snapshot: " + snapshotFile);
+        } catch (IOException e) {
+            // Read-only install: keep running from CSV
+            System.err.println("Could not write CNF snapshot: " + e.getMessage());
+        }
+        return dataset;
+    }
+
+    /**
+     * Parse the CSVs and (re)write the snapshot unconditionally
+     */
+    public static CnfDataset compile(Path cnfDirectory, Path snapshotFile) throws IOException {
+        synchronized (CnfSnapshot.class) {
+            cachedDataset = null;
+        }
+        CnfDataset dataset = CnfCsvLoader.load(cnfDirectory);
+        write(dataset, sourceStamp(cnfDirectory), snapshotFile);
+        return dataset;
+    }
+
+    /**
+     * Fingerprint of the source CSVs present in the directory: a hash of each
+     * file's name, size and modification time, so adding, removing or replacing
+     * any of them changes it (whatever the new file's timestamp). 0 if none exist
+     * (a directory shipped with only the snapshot is always considered current).
+     */
+    public static long sourceStamp(Path cnfDirectory) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        boolean any = false;
+        ByteBuffer entry = ByteBuffer.allocate(2 * Long.BYTES);
+        for (String file : CnfCsvLoader.SOURCE_FILES) {
+            Path path = cnfDirectory.resolve(file);
+            if (!Files.exists(path)) continue;
+
+            any = true;
+            digest.update(file.getBytes(StandardCharsets.UTF_8));
+            entry.clear();
+            entry.putLong(Files.size(path)).putLong(Files.getLastModifiedTime(path).toMillis());
+            digest.update(entry.array());
+        }
+        if (!any) return 0;
+
+        long stamp = ByteBuffer.wrap(digest.digest()).getLong();
+        return stamp == 0 ? 1 : stamp; // 0 means "accept any snapshot"
+    }
+
+    /**
+     * Map a snapshot file and read it back.
+     * @return the dataset, or null if the snapshot does not match expectedStamp
+     *         (pass 0 to accept any stamp) or was written by another format version
+     */
+    static CnfDataset read(Path snapshotFile, long expectedStamp) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a CNF snapshot: " + snapshotFile);
+            }
+            if (buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long stamp = buffer.getLong();
+            if (expectedStamp != 0 && stamp != expectedStamp) {
+                return null;
+            }
+
+            int groupCount = buffer.getInt();
+            int[] groupIds = readInts(buffer, groupCount);
+            String[] groupNames = readStrings(buffer, groupCount);
+
+            int foodCount = buffer.getInt();
+            int[] foodIds = readInts(buffer, foodCount);
+            int[] foodGroupIds = readInts(buffer, foodCount);
+            String[] foodDescriptions = readStrings(buffer, foodCount);
+            String[] foodDescriptionsF = readStrings(buffer, foodCount);
+
+            int nutrientCount = buffer.getInt();
+            int[] nutrientIds = readInts(buffer, nutrientCount);
+            String[] nutrientSymbols = readStrings(buffer, nutrientCount);
+            String[] nutrientUnits = readStrings(buffer, nutrientCount);
+            String[] nutrientNames = readStrings(buffer, nutrientCount);
+            float[] amounts = readFloats(buffer, foodCount * nutrientCount);
+
+            int measureCount = buffer.getInt();
+            int[] measureIds = readInts(buffer, measureCount);
+            String[] measureNames = readStrings(buffer, measureCount);
+
+            int conversionCount = buffer.getInt();
+            int[] conversionFoodIds = readInts(buffer, conversionCount);
+            int[] conversionMeasureIds = readInts(buffer, conversionCount);
+            double[] conversionFactors = readDoubles(buffer, conversionCount);
+
+            int refuseCount = buffer.getInt();
+            int[] refuseFoodIds = readInts(buffer, refuseCount);
+            double[] refuseAmounts = readDoubles(buffer, refuseCount);
+
+            int yieldCount = buffer.getInt();
+            int[] yieldFoodIds = readInts(buffer, yieldCount);
+            int[] yieldIds = readInts(buffer, yieldCount);
+            double[] yieldAmounts = readDoubles(buffer, yieldCount);
+
+            int yieldNameCount = buffer.getInt();
+            int[] yieldNameIds = readInts(buffer, yieldNameCount);
+            String[] yieldDescriptions = readStrings(buffer, yieldNameCount);
+
+            return new CnfDataset(groupIds, groupNames,
+                    foodIds, foodGroupIds, foodDescriptions, foodDescriptionsF,
+                    new NutrientMatrix(foodIds,
+                            new NutrientCatalog(nutrientIds, nutrientSymbols, nutrientUnits, nutrientNames),
+                            amounts),
+                    measureIds, measureNames,
+                    conversionFoodIds, conversionMeasureIds, conversionFactors,
+                    refuseFoodIds, refuseAmounts,
+                    yieldFoodIds, yieldIds, yieldAmounts,
+                    yieldNameIds, yieldDescriptions);
+        }
+    }
+
+    /**
+     * Write a snapshot atomically (temp file + move) so readers never see a partial file
+     */
+    static void write(CnfDataset dataset, long sourceStamp, Path snapshotFile) throws IOException {
+        byte[][] groupNames = encode(dataset.getGroupNames());
+        byte[][] foodDescriptions = encode(dataset.getFoodDescriptions());
+        byte[][] foodDescriptionsF = encode(dataset.getFoodDescriptionsF());
+        NutrientCatalog catalog = dataset.getNutrientCatalog();
+        int[] nutrientIds = new int[catalog.size()];
+        String[] symbols = new String[catalog.size()];
+        String[] units = new String[catalog.size()];
+        String[] names = new String[catalog.size()];
+        for (int i = 0; i < catalog.size(); i++) {
+            nutrientIds[i] = catalog.getNutrientId(i);
+            symbols[i] = catalog.getSymbol(i);
+            units[i] = catalog.getUnit(i);
+            names[i] = catalog.getName(i);
+        }
+        byte[][] nutrientSymbols = encode(symbols);
+        byte[][] nutrientUnits = encode(units);
+        byte[][] nutrientNames = encode(names);
+        byte[][] measureNames = encode(dataset.getMeasureNames());
+        byte[][] yieldDescriptions = encode(dataset.getYieldDescriptions());
+
+        long size = 4 + 4 + 8
+                + 4 + 4L * dataset.getGroupCount() + stringsSize(groupNames)
+                + 4 + 8L * dataset.getFoodCount() + stringsSize(foodDescriptions) + stringsSize(foodDescriptionsF)
+                + 4 + 4L * dataset.getNutrientCount()
+                + stringsSize(nutrientSymbols) + stringsSize(nutrientUnits) + stringsSize(nutrientNames)
+                + 4L * dataset.getFoodCount() * dataset.getNutrientCount()
+                + 4 + 4L * dataset.getMeasureCount() + stringsSize(measureNames)
+                + 4 + 16L * dataset.getConversionCount()
+                + 4 + 12L * dataset.getRefuseCount()
+                + 4 + 16L * dataset.getYieldCount()
+                + 4 + 4L * dataset.getYieldNameCount() + stringsSize(yieldDescriptions);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("CNF snapshot too large: " + size + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(sourceStamp);
+
+        buffer.putInt(dataset.getGroupCount());
+        writeInts(buffer, dataset.getGroupIds());
+        writeStrings(buffer, groupNames);
+
+        buffer.putInt(dataset.getFoodCount());
+        writeInts(buffer, dataset.getFoodIds());
+        writeInts(buffer, dataset.getFoodGroupIds());
+        writeStrings(buffer, foodDescriptions);
+        writeStrings(buffer, foodDescriptionsF);
+
+        buffer.putInt(dataset.getNutrientCount());
+        writeInts(buffer, nutrientIds);
+        writeStrings(buffer, nutrientSymbols);
+        writeStrings(buffer, nutrientUnits);
+        writeStrings(buffer, nutrientNames);
+        writeFloats(buffer, dataset.getNutrientMatrix().values());
+
+        buffer.putInt(dataset.getMeasureCount());
+        writeInts(buffer, dataset.getMeasureIds());
+        writeStrings(buffer, measureNames);
+
+        buffer.putInt(dataset.getConversionCount());
+        writeInts(buffer, dataset.getConversionFoodIds());
+        writeInts(buffer, dataset.getConversionMeasureIds());
+        writeDoubles(buffer, dataset.getConversionFactors());
+
+        buffer.putInt(dataset.getRefuseCount());
+        writeInts(buffer, dataset.getRefuseFoodIds());
+        writeDoubles(buffer, dataset.getRefuseAmounts());
+
+        buffer.putInt(dataset.getYieldCount());
+        writeInts(buffer, dataset.getYieldFoodIds());
+        writeInts(buffer, dataset.getYieldIds());
+        writeDoubles(buffer, dataset.getYieldAmounts());
+
+        buffer.putInt(dataset.getYieldNameCount());
+        writeInts(buffer, dataset.getYieldNameIds());
+        writeStrings(buffer, yieldDescriptions);
+        buffer.flip();
+
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Binary helpers
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    private static float[] readFloats(ByteBuffer buffer, int count) {
+        float[] values = new float[count];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + 8 * count);
+        return values;
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int count) {
+        String[] values = new String[count];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length > scratch.length) {
+                scratch = new byte[length];
+            }
+            buffer.get(scratch, 0, length);
+            values[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static void writeInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    private static void writeFloats(ByteBuffer buffer, float[] values) {
+        buffer.asFloatBuffer().put(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    private static void writeDoubles(ByteBuffer buffer, double[] values) {
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+
+    private static void writeStrings(ByteBuffer buffer, byte[][] values) {
+        for (byte[] value : values) {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static byte[][] encode(String[] values) {
+        byte[][] encoded = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static long stringsSize(byte[][] values) {
+        long size = 0;
+        for (byte[] value : values) {
+            size += 4 + value.length;
+        }
+        return size;
+    }
+
+    /**
+     * Offline compile step: build the snapshot for a CNF directory
+     */
+    public static void main(String[] args) throws IOException {
+        Path cnfDirectory = Paths.get(args.length > 0 ? args[0] : "Canada Nutrient File-20250622");
+        Path snapshotFile = args.length > 1 ? Paths.get(args[1]) : cnfDirectory.resolve(SNAPSHOT_FILE);
+
+        long start = System.nanoTime();
+        CnfDataset dataset = compile(cnfDirectory, snapshotFile);
+        System.out.println(String.format("Compiled %s into %s (%d bytes) in %.0f ms",
+                dataset, snapshotFile, Files.size(snapshotFile), (System.nanoTime() - start) / 1_000_000.0));
+    }
+}
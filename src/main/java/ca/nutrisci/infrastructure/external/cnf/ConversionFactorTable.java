@@ -0,0 +1,145 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import java.util.Arrays;
+
+/**
+ * ConversionFactorTable - CNF conversion factors per (food, measure)
+ * Part of the Infrastructure Layer
+ *
+ * CONVERSION FACTOR.csv in compressed-row form: the foods that have factors
+ * are a sorted int[] of FoodIDs, and the measures of food ordinal i are
+ * measureIds[offsets[i] .. offsets[i + 1]), sorted, with the matching
+ * factors at the same positions of a parallel double[]. A lookup is two
+ * binary searches and no hashing or boxing; the whole table is four arrays
+ * instead of one small HashMap per food.
+ */
+public final class ConversionFactorTable {
+
+    private final int[] foodIds;      // Sorted
+    private final int[] offsets;      // foodIds.length + 1 entries
+    private final int[] measureIds;   // Sorted within each food
+    private final double[] factors;
+
+    /**
+     * @param foodIds FoodID of each conversion factor row
+     * @param measureIds MeasureID of each row
+     * @param factors ConversionFactorValue of each row; for a repeated (food, measure) the last row wins
+     */
+    public ConversionFactorTable(int[] foodIds, int[] measureIds, double[] factors) {
+        int rows = foodIds.length;
+        Integer[] order = new Integer[rows];
+        for (int i = 0; i < rows; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> foodIds[a] != foodIds[b] ? Integer.compare(foodIds[a], foodIds[b])
+                : measureIds[a] != measureIds[b] ? Integer.compare(measureIds[a], measureIds[b])
+                : Integer.compare(a, b));
+
+        IntList foods = new IntList();
+        IntList starts = new IntList();
+        int[] sortedMeasures = new int[rows];
+        double[] sortedFactors = new double[rows];
+        int size = 0;
+        for (int row : order) {
+            boolean newFood = foods.size() == 0 || foods.get(foods.size() - 1) != foodIds[row];
+            if (newFood) {
+                foods.add(foodIds[row]);
+                starts.add(size);
+            } else if (sortedMeasures[size - 1] == measureIds[row]) {
+                sortedFactors[size - 1] = factors[row];
+                continue;
+            }
+            sortedMeasures[size] = measureIds[row];
+            sortedFactors[size] = factors[row];
+            size++;
+        }
+        starts.add(size);
+
+        this.foodIds = foods.toArray();
+        this.offsets = starts.toArray();
+        this.measureIds = Arrays.copyOf(sortedMeasures, size);
+        this.factors = Arrays.copyOf(sortedFactors, size);
+    }
+
+    /**
+     * Number of foods with at least one conversion factor
+     */
+    public int foodCount() {
+        return foodIds.length;
+    }
+
+    /**
+     * Number of (food, measure) factors
+     */
+    public int size() {
+        return measureIds.length;
+    }
+
+    /**
+     * Ordinal of a CNF FoodID, or -1 if the food has no conversion factors
+     */
+    public int foodOrdinal(int foodId) {
+        int ordinal = Arrays.binarySearch(foodIds, foodId);
+        return ordinal >= 0 ? ordinal : -1;
+    }
+
+    /**
+     * CNF FoodID at an ordinal
+     */
+    public int foodId(int foodOrdinal) {
+        return foodIds[foodOrdinal];
+    }
+
+    /**
+     * First position of a food's measures in measureIds()
+     */
+    public int start(int foodOrdinal) {
+        return offsets[foodOrdinal];
+    }
+
+    /**
+     * Position after a food's last measure in measureIds()
+     */
+    public int end(int foodOrdinal) {
+        return offsets[foodOrdinal + 1];
+    }
+
+    public int measureId(int position) {
+        return measureIds[position];
+    }
+
+    public double factor(int position) {
+        return factors[position];
+    }
+
+    /**
+     * Conversion factor of a food and measure, or NaN if the CNF has none
+     */
+    public double factor(int foodId, int measureId) {
+        int food = foodOrdinal(foodId);
+        if (food < 0) {
+            return Double.NaN;
+        }
+        int position = Arrays.binarySearch(measureIds, offsets[food], offsets[food + 1], measureId);
+        return position >= 0 ? factors[position] : Double.NaN;
+    }
+
+    /**
+     * Approximate heap footprint of the table
+     */
+    public long byteSize() {
+        return 4L * foodIds.length + 4L * offsets.length + 4L * measureIds.length + 8L * factors.length;
+    }
+
+    // Shared with MeasureDictionary lookups (food ranges are searched in place); callers must not modify
+
+    public int[] measureIds() {
+        return measureIds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConversionFactorTable{%d foods, %d factors, %.1f KB}",
+                foodIds.length, measureIds.length, byteSize() / 1024.0);
+    }
+}
@@ -0,0 +1,102 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CsvNumbers - Number parsing straight from CSV field bytes
+ * Part of the Infrastructure Layer
+ *
+ * Parses a byte range holding an ASCII number without creating a String, for
+ * ByteCsvTokenizer. Callers check for empty fields themselves so they can name
+ * the field in the error.
+ */
+final class CsvNumbers {
+
+    // Exact powers of ten used by the fast double path (all representable in a double)
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private CsvNumbers() {}
+
+    /**
+     * Parse bytes [pos, end) as an int
+     * @throws NumberFormatException if they are not a valid int
+     */
+    static int parseInt(byte[] bytes, int pos, int end) {
+        boolean negative = false;
+        if (pos < end && (bytes[pos] == '-' || bytes[pos] == '+')) {
+            negative = bytes[pos] == '-';
+            pos++;
+        }
+        if (pos == end || end - pos > 10) {
+            throw new NumberFormatException();
+        }
+
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = bytes[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException();
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException();
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parse bytes [pos, end) as a double. Plain decimals (the only form the CNF
+     * uses) are parsed in place; anything else falls back to Double.parseDouble.
+     * @throws NumberFormatException if they are not a valid number
+     */
+    static double parseDouble(byte[] bytes, int pos, int end) {
+        int start = pos;
+        boolean negative = false;
+        if (pos < end && (bytes[pos] == '-' || bytes[pos] == '+')) {
+            negative = bytes[pos] == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenDot = false;
+        boolean seenDigit = false;
+        for (; pos < end; pos++) {
+            byte b = bytes[pos];
+            if (b >= '0' && b <= '9') {
+                seenDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (seenDot) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                return slowParseDouble(bytes, start, end); // exponents, NaN, etc.
+            }
+        }
+        if (!seenDigit) {
+            throw new NumberFormatException();
+        }
+
+        // Exact as long as the mantissa fits in 53 bits and the scale is a known power of ten
+        if (digits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+            return slowParseDouble(bytes, start, end);
+        }
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static double slowParseDouble(byte[] bytes, int start, int end) {
+        return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+}
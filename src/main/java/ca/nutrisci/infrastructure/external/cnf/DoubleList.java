@@ -0,0 +1,39 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import java.util.Arrays;
+
+/**
+ * DoubleList - Growable double array used while building CNF tables
+ */
+final class DoubleList {
+
+    private double[] values;
+    private int size;
+
+    DoubleList() {
+        this(16);
+    }
+
+    DoubleList(int initialCapacity) {
+        this.values = new double[Math.max(1, initialCapacity)];
+    }
+
+    void add(double value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    double get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    double[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
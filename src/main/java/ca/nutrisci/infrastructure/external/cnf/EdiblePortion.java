@@ -0,0 +1,114 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * EdiblePortion - Grams of food eaten per gram weighed as purchased
+ * Part of the Infrastructure Layer
+ *
+ * CNF amounts are per 100 g of a food as it is eaten, but bone-in chicken or
+ * dry pasta is usually weighed before it is trimmed or cooked. One factor per
+ * food converts the weight as purchased into the weight the amounts apply to:
+ * <ul>
+ *   <li>foods with a weight yield (YIELD AMOUNT.csv, e.g. 100 g raw as
+ *       purchased yields 60 g roasted meat) use grams yielded per gram started
+ *       from, preferring yields from 100 g of the food itself over yields from
+ *       a whole bird or package, then "as purchased" yields;</li>
+ *   <li>other foods use 1 - refuse / 100 (REFUSE AMOUNT.csv: bones, peel,
+ *       shell). Where a food has several refuse rows the largest is used, as
+ *       newer rows split an older total (bone, skin) rather than add to it;</li>
+ *   <li>foods with neither keep 1.</li>
+ * </ul>
+ * Yields given by volume, by count or as the "amount to make" something have
+ * no starting weight and are ignored.
+ */
+public final class EdiblePortion {
+
+    // Starting weight in a yield description: "100g raw", "1 raw chicken (1358g)"
+    private static final Pattern STARTING_GRAMS = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s?g\\b");
+
+    private EdiblePortion() {}
+
+    /**
+     * Factor of every food, indexed like the rows of the dataset's nutrient matrix
+     */
+    public static float[] factors(CnfDataset dataset) {
+        NutrientMatrix matrix = dataset.getNutrientMatrix();
+        float[] factors = new float[matrix.foodCount()];
+
+        // Refuse first; a weight yield already accounts for it and replaces it below
+        double[] refuse = new double[factors.length];
+        int[] refuseFoodIds = dataset.getRefuseFoodIds();
+        double[] refuseAmounts = dataset.getRefuseAmounts();
+        for (int i = 0; i < refuseFoodIds.length; i++) {
+            int row = matrix.foodOrdinal(refuseFoodIds[i]);
+            if (row >= 0) {
+                refuse[row] = Math.max(refuse[row], refuseAmounts[i]);
+            }
+        }
+        for (int row = 0; row < factors.length; row++) {
+            factors[row] = (float) (1.0 - Math.min(100.0, Math.max(0.0, refuse[row])) / 100.0);
+        }
+
+        Map<Integer, Double> startingGrams = new HashMap<>();
+        Map<Integer, Integer> preference = new HashMap<>();
+        int[] yieldNameIds = dataset.getYieldNameIds();
+        String[] yieldDescriptions = dataset.getYieldDescriptions();
+        for (int i = 0; i < yieldNameIds.length; i++) {
+            double grams = startingGrams(yieldDescriptions[i]);
+            if (grams > 0) {
+                startingGrams.put(yieldNameIds[i], grams);
+                preference.put(yieldNameIds[i], (yieldDescriptions[i].startsWith("100g") ? 2 : 0)
+                        + (yieldDescriptions[i].toLowerCase().contains("as purchased") ? 1 : 0));
+            }
+        }
+
+        // Preference of the yield used so far, -1 while a food has none
+        int[] yieldRank = new int[factors.length];
+        Arrays.fill(yieldRank, -1);
+        int[] yieldFoodIds = dataset.getYieldFoodIds();
+        int[] yieldIds = dataset.getYieldIds();
+        double[] yieldAmounts = dataset.getYieldAmounts();
+        for (int i = 0; i < yieldFoodIds.length; i++) {
+            Double grams = startingGrams.get(yieldIds[i]);
+            int row = matrix.foodOrdinal(yieldFoodIds[i]);
+            if (grams == null || row < 0 || yieldAmounts[i] <= 0) {
+                continue;
+            }
+            int rank = preference.get(yieldIds[i]);
+            if (rank > yieldRank[row]) {
+                factors[row] = (float) (yieldAmounts[i] / grams);
+                yieldRank[row] = rank;
+            }
+        }
+        return factors;
+    }
+
+    /**
+     * Weight a yield starts from, or 0 if the description gives none
+     */
+    static double startingGrams(String description) {
+        if (description == null || description.toLowerCase().startsWith("amount to make")) {
+            return 0;
+        }
+        Matcher matcher = STARTING_GRAMS.matcher(description);
+        return matcher.find() ? Double.parseDouble(matcher.group(1)) : 0;
+    }
+
+    /**
+     * Number of foods whose factor is not 1
+     */
+    public static int adjustedCount(float[] factors) {
+        int count = 0;
+        for (float factor : factors) {
+            if (factor != 1f) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
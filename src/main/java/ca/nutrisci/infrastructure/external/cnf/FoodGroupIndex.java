@@ -0,0 +1,121 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * FoodGroupIndex - Foods of each CNF food group, precomputed
+ * Part of the Infrastructure Layer
+ *
+ * Every group gets a sorted int[] of the ordinals its foods have in a
+ * FoodNameIndex, so listing a group is a read of that array (ordinal order is
+ * alphabetical order) and filtering a search by group is a sorted-list
+ * intersection. Group names are matched case-insensitively: an exact name
+ * first, otherwise the first group, by group id, whose name contains the text.
+ */
+public final class FoodGroupIndex {
+
+    private final int[] groupIds;
+    private final String[] groupNames;
+    private final String[] normalizedNames;
+    private final Map<String, Integer> groupByName;
+    private final int[][] members;
+
+    /**
+     * @param groups Group names by CNF group id
+     * @param names The name index whose ordinals are stored
+     * @param groupOfFood CNF group id of each food name; names without a group are left out
+     */
+    public FoodGroupIndex(Map<Integer, String> groups, FoodNameIndex names, Map<String, Integer> groupOfFood) {
+        this.groupIds = new int[groups.size()];
+        int count = 0;
+        for (int groupId : groups.keySet()) {
+            groupIds[count++] = groupId;
+        }
+        Arrays.sort(groupIds);
+
+        this.groupNames = new String[groupIds.length];
+        this.normalizedNames = new String[groupIds.length];
+        this.groupByName = new HashMap<>(groupIds.length * 2);
+        Map<Integer, Integer> groupById = new HashMap<>(groupIds.length * 2);
+        for (int group = 0; group < groupIds.length; group++) {
+            groupNames[group] = groups.get(groupIds[group]);
+            normalizedNames[group] = normalize(groupNames[group]);
+            groupByName.putIfAbsent(normalizedNames[group], group);
+            groupById.put(groupIds[group], group);
+        }
+
+        // Group of every ordinal, then one exactly sized array per group
+        int[] groupOfOrdinal = new int[names.size()];
+        int[] sizes = new int[groupIds.length];
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            Integer groupId = groupOfFood.get(names.name(ordinal));
+            Integer group = groupId != null ? groupById.get(groupId) : null;
+            groupOfOrdinal[ordinal] = group != null ? group : -1;
+            if (group != null) {
+                sizes[group]++;
+            }
+        }
+        this.members = new int[groupIds.length][];
+        for (int group = 0; group < groupIds.length; group++) {
+            members[group] = new int[sizes[group]];
+            sizes[group] = 0;
+        }
+        for (int ordinal = 0; ordinal < groupOfOrdinal.length; ordinal++) {
+            int group = groupOfOrdinal[ordinal];
+            if (group >= 0) {
+                members[group][sizes[group]++] = ordinal;
+            }
+        }
+    }
+
+    public int size() {
+        return groupIds.length;
+    }
+
+    public int groupId(int group) {
+        return groupIds[group];
+    }
+
+    public String groupName(int group) {
+        return groupNames[group];
+    }
+
+    /**
+     * Position of the group a (partial) group name refers to, or -1
+     */
+    public int find(String groupName) {
+        if (groupName == null) {
+            return -1;
+        }
+        String key = normalize(groupName);
+        Integer exact = groupByName.get(key);
+        if (exact != null) {
+            return exact;
+        }
+        for (int group = 0; group < normalizedNames.length; group++) {
+            if (normalizedNames[group].contains(key)) {
+                return group;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sorted name ordinals of a group's foods (internal array - callers must not modify it)
+     */
+    public int[] members(int group) {
+        return members[group];
+    }
+
+    private static String normalize(String groupName) {
+        return groupName.toLowerCase(Locale.ROOT).trim();
+    }
+
+    @Override
+    public String toString() {
+        return "FoodGroupIndex{" + groupIds.length + " groups}";
+    }
+}
@@ -0,0 +1,823 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import java.text.Normalizer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * FoodNameIndex - Inverted n-gram index over cleaned food names
+ * Part of the Infrastructure Layer
+ *
+ * Every name is split into its distinct 1-, 2- and 3-character grams; each
+ * gram has a posting list of name ordinals stored as a sorted int[], or as a
+ * bitmap over all ordinals once that is smaller (grams such as "e" occur in
+ * most names). A substring query intersects the posting lists of its
+ * trigrams (shortest first) and verifies the few survivors, so the cost
+ * depends on the number of candidates, not on the number of foods. Names are
+ * kept in alphabetical order, which makes ordinal order the tie-breaker and
+ * results deterministic.
+ *
+ * French names can be indexed alongside the English ones. They take the
+ * ordinal of the English name of the same food and go into the same posting
+ * lists (accent-folded, so "pate" finds "pâté"), which leaves one gram table
+ * for both languages: a French name costs its strings plus the posting
+ * entries and grams English does not already have, and nothing in grams
+ * stored as bitmaps. Postings then hold candidates for either language, and
+ * every match is verified against the names of the language searched.
+ *
+ * Names and queries are expected to be lower-case and trimmed already.
+ */
+public final class FoodNameIndex {
+
+    /**
+     * Which names a search matches and returns
+     */
+    public enum Language {
+        ENGLISH,
+        FRENCH,
+        /** Either language; results are the English names of the foods */
+        ANY;
+
+        /**
+         * FRENCH for a French locale, ANY for none, otherwise ENGLISH
+         */
+        public static Language of(Locale locale) {
+            if (locale == null) {
+                return ANY;
+            }
+            return Locale.FRENCH.getLanguage().equals(locale.getLanguage()) ? FRENCH : ENGLISH;
+        }
+    }
+
+    // Relevance ranks below exact and prefix matches, best first
+    private static final int RANK_WORD_PREFIX = 0;
+    private static final int RANK_SUBSTRING = 1;
+    // Ranks when exact and prefix matches are not an ordinal range (French and either-language searches)
+    private static final int RANK_EXACT = -2;
+    private static final int RANK_PREFIX = -1;
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final String[] names;
+    private final Map<String, Integer> ordinals;
+    private final long[] gramKeys;
+    private final int[][] postings; // Sorted ordinals, or bitmap words for grams in more than bitmapWords names
+    private final int[] postingCounts;
+    private final int bitmapWords;
+
+    // French name of each ordinal (null where there is none), its accent-folded
+    // search form (the same instance when nothing folds), the ordinals in folded
+    // French order and each ordinal's position in that order (-1 without one)
+    private final String[] frenchNames;
+    private final String[] frenchFolded;
+    private final int[] frenchOrder;
+    private final int[] frenchPositions;
+
+    /**
+     * Build the index; names are copied, de-duplicated and sorted
+     */
+    public FoodNameIndex(Iterable<String> foodNames) {
+        this(foodNames, Collections.emptyMap());
+    }
+
+    /**
+     * Build a bilingual index
+     * @param frenchNames French name of the food each English name refers to;
+     *                    English names without an entry have no French name
+     */
+    public FoodNameIndex(Iterable<String> foodNames, Map<String, String> frenchNames) {
+        List<String> sorted = new ArrayList<>();
+        for (String name : foodNames) {
+            sorted.add(name);
+        }
+        Collections.sort(sorted);
+        for (int i = sorted.size() - 1; i > 0; i--) {
+            if (sorted.get(i).equals(sorted.get(i - 1))) {
+                sorted.remove(i);
+            }
+        }
+        this.names = sorted.toArray(new String[0]);
+
+        this.ordinals = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            ordinals.put(names[i], i);
+        }
+
+        this.frenchNames = new String[frenchNames.isEmpty() ? 0 : names.length];
+        this.frenchFolded = new String[this.frenchNames.length];
+        int frenchCount = 0;
+        for (int i = 0; i < this.frenchNames.length; i++) {
+            String french = frenchNames.get(names[i]);
+            if (french != null && !french.isEmpty()) {
+                this.frenchNames[i] = french;
+                this.frenchFolded[i] = fold(french);
+                frenchCount++;
+            }
+        }
+        Integer[] byFrench = new Integer[frenchCount];
+        for (int i = 0, next = 0; i < this.frenchNames.length; i++) {
+            if (this.frenchNames[i] != null) {
+                byFrench[next++] = i;
+            }
+        }
+        Arrays.sort(byFrench, (a, b) -> frenchFolded[a].compareTo(frenchFolded[b]));
+        this.frenchOrder = new int[frenchCount];
+        this.frenchPositions = new int[this.frenchNames.length];
+        Arrays.fill(frenchPositions, -1);
+        for (int position = 0; position < frenchCount; position++) {
+            frenchOrder[position] = byFrench[position];
+            frenchPositions[byFrench[position]] = position;
+        }
+
+        // Number every distinct gram and record each name's distinct grams in one flat list
+        GramTable table = new GramTable(1 << 13);
+        int[] counts = new int[1 << 12];
+        int[] lastOrdinal = new int[1 << 12];
+        Arrays.fill(lastOrdinal, -1);
+        IntList occurrences = new IntList(1 << 16);
+        int[] nameEnds = new int[names.length];
+        for (int ordinal = 0; ordinal < names.length; ordinal++) {
+            // English, then folded French grams; a gram both share is recorded once
+            for (int language = 0; language < 2; language++) {
+                String name = language == 0 ? names[ordinal]
+                        : ordinal < frenchFolded.length ? frenchFolded[ordinal] : null;
+                if (name == null) {
+                    continue;
+                }
+                for (int length = 1; length <= 3; length++) {
+                    for (int start = 0; start + length <= name.length(); start++) {
+                        int gram = table.idOf(gramKey(name, start, length));
+                        if (gram == counts.length) {
+                            counts = Arrays.copyOf(counts, counts.length * 2);
+                            lastOrdinal = Arrays.copyOf(lastOrdinal, counts.length);
+                            Arrays.fill(lastOrdinal, gram, counts.length, -1);
+                        }
+                        if (lastOrdinal[gram] != ordinal) {
+                            lastOrdinal[gram] = ordinal;
+                            counts[gram]++;
+                            occurrences.add(gram);
+                        }
+                    }
+                }
+            }
+            nameEnds[ordinal] = occurrences.size();
+        }
+
+        // Counting sort into exact-size posting lists; ordinals arrive in order, so lists come out sorted
+        int gramCount = table.size;
+        int[][] lists = new int[gramCount][];
+        for (int gram = 0; gram < gramCount; gram++) {
+            lists[gram] = new int[counts[gram]];
+        }
+        int[] filled = new int[gramCount];
+        int occurrence = 0;
+        for (int ordinal = 0; ordinal < names.length; ordinal++) {
+            for (; occurrence < nameEnds[ordinal]; occurrence++) {
+                int gram = occurrences.get(occurrence);
+                lists[gram][filled[gram]++] = ordinal;
+            }
+        }
+
+        // Lay the grams out sorted by key for binary search at query time, dense lists as bitmaps
+        this.bitmapWords = (names.length + 31) >>> 5;
+        long[] keys = table.keys(gramCount);
+        Integer[] order = new Integer[gramCount];
+        for (int gram = 0; gram < gramCount; gram++) {
+            order[gram] = gram;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        this.gramKeys = new long[gramCount];
+        this.postings = new int[gramCount][];
+        this.postingCounts = new int[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            int[] list = lists[order[i]];
+            gramKeys[i] = keys[order[i]];
+            postingCounts[i] = list.length;
+            if (isBitmap(i)) {
+                int[] bitmap = new int[bitmapWords];
+                for (int ordinal : list) {
+                    bitmap[ordinal >>> 5] |= 1 << ordinal;
+                }
+                postings[i] = bitmap;
+            } else {
+                postings[i] = list;
+            }
+        }
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String name(int ordinal) {
+        return names[ordinal];
+    }
+
+    /**
+     * French name of an ordinal, or null if it has none
+     */
+    public String frenchName(int ordinal) {
+        return ordinal < frenchNames.length ? frenchNames[ordinal] : null;
+    }
+
+    /**
+     * Number of names with a French name
+     */
+    public int frenchCount() {
+        return frenchOrder.length;
+    }
+
+    /**
+     * Ordinal of an exact name, or -1
+     */
+    public int ordinalOf(String name) {
+        Integer ordinal = ordinals.get(name);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Ordinal whose French name is the given name, accents aside, or -1
+     */
+    public int ordinalOfFrench(String name) {
+        String folded = fold(name);
+        int low = 0;
+        int high = frenchOrder.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = frenchFolded[frenchOrder[mid]].compareTo(folded);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return frenchOrder[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sorted ordinals of every name containing the term
+     * (may be an internal posting list - callers must not modify it)
+     */
+    public int[] containing(String term) {
+        return containing(term, Language.ENGLISH);
+    }
+
+    /**
+     * Sorted ordinals whose name in the given language contains the term
+     * (accents aside for French; may be an internal posting list - callers must not modify it)
+     */
+    public int[] containing(String term, Language language) {
+        if (language == Language.ANY) {
+            return union(containing(term, Language.ENGLISH), containing(term, Language.FRENCH));
+        }
+        if (language == Language.FRENCH) {
+            if (frenchOrder.length == 0) {
+                return NO_POSTINGS;
+            }
+            term = fold(term);
+        }
+        if (term.isEmpty()) {
+            return NO_POSTINGS;
+        }
+        if (term.length() <= 3) {
+            // The gram is the whole term: its postings are the exact answer, unless French shares them
+            int gram = gramIndex(gramKey(term, 0, term.length()));
+            if (language == Language.ENGLISH && frenchOrder.length == 0) {
+                return gram < 0 || isBitmap(gram) ? ordinals(gram) : postings[gram];
+            }
+            int[] candidates = ordinals(gram);
+            return verified(candidates, candidates.length, term, language);
+        }
+
+        // Intersect the trigram postings, shortest list first
+        int gramCount = term.length() - 2;
+        int[] grams = new int[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            grams[i] = gramIndex(gramKey(term, i, 3));
+            if (grams[i] < 0) {
+                return NO_POSTINGS;
+            }
+        }
+        for (int i = 1; i < gramCount; i++) {
+            for (int j = i; j > 0 && postingCounts[grams[j]] < postingCounts[grams[j - 1]]; j--) {
+                int shorter = grams[j];
+                grams[j] = grams[j - 1];
+                grams[j - 1] = shorter;
+            }
+        }
+
+        int[] candidates = ordinals(grams[0]);
+        int count = candidates.length;
+        for (int i = 1; i < gramCount && count > 0; i++) {
+            int gram = grams[i];
+            count = isBitmap(gram) ? retainSet(candidates, count, postings[gram])
+                    : intersect(candidates, count, postings[gram]);
+        }
+
+        // Trigrams can all occur without the term occurring; verify
+        return verified(candidates, count, term, language);
+    }
+
+    // Keep the candidates whose name in the language contains the term
+    private int[] verified(int[] candidates, int count, String term, Language language) {
+        String[] texts = language == Language.FRENCH ? frenchFolded : names;
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            String text = texts[candidates[i]];
+            if (text != null && text.contains(term)) {
+                candidates[matches++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(candidates, matches);
+    }
+
+    /**
+     * Names containing the term, best first: exact, prefix, word prefix, then
+     * any substring; alphabetical within a rank
+     * @param limit maximum number of results (top-k)
+     */
+    public List<String> search(String term, int limit) {
+        return names(topK(term, containing(term), limit));
+    }
+
+    /**
+     * Like search, but only among the given sorted ordinals (e.g. one food group)
+     */
+    public List<String> search(String term, int[] within, int limit) {
+        return search(term, Language.ENGLISH, within, limit);
+    }
+
+    /**
+     * Names in the given language containing the term, best first as in
+     * search(term, limit); FRENCH returns French names, ENGLISH and ANY English ones
+     */
+    public List<String> search(String term, Language language, int limit) {
+        return names(top(term, language, containing(term, language), limit), language);
+    }
+
+    /**
+     * Like search(term, language, limit), but only among the given sorted ordinals
+     */
+    public List<String> search(String term, Language language, int[] within, int limit) {
+        int[] matches = containing(term, language);
+        int[] shorter = matches.length <= within.length ? matches : within;
+        int[] longer = shorter == matches ? within : matches;
+        int[] filtered = shorter.clone();
+        int count = intersect(filtered, filtered.length, longer);
+        return names(top(term, language, Arrays.copyOf(filtered, count), limit), language);
+    }
+
+    private int[] top(String term, Language language, int[] matches, int limit) {
+        return language == Language.ENGLISH ? topK(term, matches, limit) : rankedTopK(term, language, matches, limit);
+    }
+
+    /**
+     * Read-only list of the names at the given ordinals, looked up as they are read
+     * (the list is backed by the array, which must not be modified)
+     */
+    public List<String> view(int[] ordinals) {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return names[ordinals[index]];
+            }
+
+            @Override
+            public int size() {
+                return ordinals.length;
+            }
+        };
+    }
+
+    private List<String> names(int[] ordinals) {
+        return names(ordinals, Language.ENGLISH);
+    }
+
+    private List<String> names(int[] ordinals, Language language) {
+        String[] source = language == Language.FRENCH ? frenchNames : names;
+        List<String> results = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            results.add(source[ordinal]);
+        }
+        return results;
+    }
+
+    /**
+     * The name an ingredient most likely refers to: the exact name, else the
+     * best-ranked name containing it, else the longest name it contains
+     * (e.g. "fresh apples" -> "apples"); null if none
+     */
+    public String bestMatch(String term) {
+        if (term.isEmpty()) {
+            return null;
+        }
+        if (ordinals.containsKey(term)) {
+            return term;
+        }
+
+        int[] top = topK(term, containing(term), 1);
+        if (top.length > 0) {
+            return names[top[0]];
+        }
+
+        // Longest food name inside the term; ties go to the leftmost occurrence
+        for (int length = term.length() - 1; length > 0; length--) {
+            for (int start = 0; start + length <= term.length(); start++) {
+                if (ordinals.containsKey(term.substring(start, start + length))) {
+                    return term.substring(start, start + length);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ordinals of the best `limit` matches, best first.
+     * Names starting with the term (exact match included) form one contiguous,
+     * already ordered ordinal range, found by binary search. Only the rest of
+     * the matches are ranked, through a bounded max-heap of (rank, ordinal).
+     */
+    private int[] topK(String term, int[] matches, int limit) {
+        int capacity = Math.min(limit, matches.length);
+        if (capacity <= 0) {
+            return NO_POSTINGS;
+        }
+
+        // Names starting with the term form one ordinal range; take its matches first
+        int prefixStart = lowerBound(term);
+        int prefixEnd = lowerBound(term + Character.MAX_VALUE);
+        int[] top = new int[capacity];
+        int taken = 0;
+        int first = Arrays.binarySearch(matches, prefixStart);
+        for (int i = first >= 0 ? first : -first - 1; i < matches.length && matches[i] < prefixEnd
+                && taken < capacity; i++) {
+            top[taken++] = matches[i];
+        }
+        if (taken == capacity) {
+            return top;
+        }
+
+        long[] heap = new long[capacity - taken];
+        int size = 0;
+        for (int ordinal : matches) {
+            if (ordinal >= prefixStart && ordinal < prefixEnd) {
+                continue;
+            }
+            long entry = ((long) rank(names[ordinal], term) << 32) | ordinal;
+            if (size < heap.length) {
+                heap[size] = entry;
+                siftUp(heap, size++);
+            } else if (entry < heap[0]) {
+                heap[0] = entry;
+                siftDown(heap, size);
+            }
+            // Ordinals only grow, so a heap of word-prefix hits can no longer improve
+            if (size == heap.length && (heap[0] >>> 32) == RANK_WORD_PREFIX) {
+                break;
+            }
+        }
+        Arrays.sort(heap, 0, size);
+        for (int i = 0; i < size; i++) {
+            top[taken++] = (int) heap[i];
+        }
+        return taken == top.length ? top : Arrays.copyOf(top, taken);
+    }
+
+    /**
+     * Ordinals of the best `limit` matches when names are not in ordinal
+     * order: every match is ranked by the best of its names in the language
+     * (exact, prefix, word prefix, substring) through a bounded max-heap, ties
+     * going to French alphabetical order for FRENCH and to ordinal order for ANY
+     */
+    private int[] rankedTopK(String term, Language language, int[] matches, int limit) {
+        int capacity = Math.min(limit, matches.length);
+        if (capacity <= 0) {
+            return NO_POSTINGS;
+        }
+
+        String folded = fold(term);
+        long[] heap = new long[capacity];
+        int size = 0;
+        for (int ordinal : matches) {
+            String french = frenchName(ordinal) != null ? frenchFolded[ordinal] : null;
+            int rank = RANK_SUBSTRING;
+            long key = ordinal;
+            if (language == Language.FRENCH) {
+                rank = fullRank(french, folded);
+                key = frenchPositions[ordinal];
+            } else {
+                if (names[ordinal].contains(term)) {
+                    rank = fullRank(names[ordinal], term);
+                }
+                if (french != null && french.contains(folded)) {
+                    rank = Math.min(rank, fullRank(french, folded));
+                }
+            }
+            long entry = ((long) (rank - RANK_EXACT) << 32) | key;
+            if (size < heap.length) {
+                heap[size] = entry;
+                siftUp(heap, size++);
+            } else if (entry < heap[0]) {
+                heap[0] = entry;
+                siftDown(heap, size);
+            }
+        }
+        Arrays.sort(heap, 0, size);
+        int[] top = new int[size];
+        for (int i = 0; i < size; i++) {
+            int key = (int) heap[i];
+            top[i] = language == Language.FRENCH ? frenchOrder[key] : key;
+        }
+        return top;
+    }
+
+    // First ordinal whose name is >= key
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Rank of a match that does not start with the term
+    private static int rank(String name, String term) {
+        for (int at = name.indexOf(term); at > 0; at = name.indexOf(term, at + 1)) {
+            if (!Character.isLetterOrDigit(name.charAt(at - 1))) {
+                return RANK_WORD_PREFIX;
+            }
+        }
+        return RANK_SUBSTRING;
+    }
+
+    // Rank of any match, including exact and prefix ones
+    private static int fullRank(String name, String term) {
+        if (name.startsWith(term)) {
+            return name.length() == term.length() ? RANK_EXACT : RANK_PREFIX;
+        }
+        return rank(name, term);
+    }
+
+    /**
+     * Fold a lower-case name for accent-insensitive matching: "pâté" -> "pate",
+     * "œuf" -> "oeuf". Returns the same instance when nothing folds.
+     */
+    public static String fold(String text) {
+        int first = 0;
+        while (first < text.length() && text.charAt(first) < 0x80) {
+            first++;
+        }
+        if (first == text.length()) {
+            return text;
+        }
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (c == '\u0153') {
+                folded.append("oe");
+            } else if (c == '\u00e6') {
+                folded.append("ae");
+            } else {
+                folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+
+    // Sorted distinct union of two sorted ordinal arrays
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+        int[] merged = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length || j < b.length) {
+            int next = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i] : b[j];
+            if (i < a.length && a[i] == next) i++;
+            if (j < b.length && b[j] == next) j++;
+            merged[count++] = next;
+        }
+        return Arrays.copyOf(merged, count);
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= heap[index]) break;
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] > heap[largest]) largest = left;
+            if (right < size && heap[right] > heap[largest]) largest = right;
+            if (largest == index) break;
+            swap(heap, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(long[] heap, int a, int b) {
+        long tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    /**
+     * Keep the first `count` entries of `into` that also occur in `other`; returns the new count
+     */
+    private static int intersect(int[] into, int count, int[] other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < other.length; i++) {
+            int value = into[i];
+            while (j < other.length && other[j] < value) j++;
+            if (j < other.length && other[j] == value) {
+                into[kept++] = value;
+            }
+        }
+        return kept;
+    }
+
+    // Index of a gram, or -1 if no name has it
+    private int gramIndex(long key) {
+        int index = Arrays.binarySearch(gramKeys, key);
+        return index >= 0 ? index : -1;
+    }
+
+    private boolean isBitmap(int gram) {
+        return postingCounts[gram] > bitmapWords;
+    }
+
+    // A gram's sorted ordinals in a new array (nothing for -1)
+    private int[] ordinals(int gram) {
+        if (gram < 0) {
+            return NO_POSTINGS;
+        }
+        int[] stored = postings[gram];
+        if (!isBitmap(gram)) {
+            return stored.clone();
+        }
+        int[] ordinals = new int[postingCounts[gram]];
+        int count = 0;
+        for (int word = 0; word < stored.length; word++) {
+            for (int bits = stored[word]; bits != 0; bits &= bits - 1) {
+                ordinals[count++] = (word << 5) + Integer.numberOfTrailingZeros(bits);
+            }
+        }
+        return ordinals;
+    }
+
+    /**
+     * Keep the first `count` entries of `into` whose bit is set; returns the new count
+     */
+    private static int retainSet(int[] into, int count, int[] bitmap) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int value = into[i];
+            if ((bitmap[value >>> 5] & (1 << value)) != 0) {
+                into[kept++] = value;
+            }
+        }
+        return kept;
+    }
+
+    // Up to three UTF-16 chars plus the length packed into one long
+    private static long gramKey(CharSequence text, int start, int length) {
+        long key = length;
+        for (int i = 0; i < length; i++) {
+            key = (key << 16) | text.charAt(start + i);
+        }
+        return key;
+    }
+
+    /**
+     * Open-addressing gram key -> dense gram id table used while building
+     */
+    private static final class GramTable {
+        private long[] slots;
+        private int[] ids;
+        private int size;
+
+        GramTable(int capacity) {
+            slots = new long[capacity];
+            ids = new int[capacity];
+        }
+
+        // Id of the key, assigning the next id if it is new (keys are never 0)
+        int idOf(long key) {
+            int mask = slots.length - 1;
+            int slot = slotOf(key, mask);
+            while (slots[slot] != 0) {
+                if (slots[slot] == key) {
+                    return ids[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = key;
+            ids[slot] = size++;
+            if (size * 2 > slots.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        long[] keys(int count) {
+            long[] keys = new long[count];
+            for (int slot = 0; slot < slots.length; slot++) {
+                if (slots[slot] != 0) {
+                    keys[ids[slot]] = slots[slot];
+                }
+            }
+            return keys;
+        }
+
+        private static int slotOf(long key, int mask) {
+            int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+        private void grow() {
+            long[] oldSlots = slots;
+            int[] oldIds = ids;
+            slots = new long[oldSlots.length * 2];
+            ids = new int[oldSlots.length * 2];
+            int mask = slots.length - 1;
+            for (int i = 0; i < oldSlots.length; i++) {
+                long key = oldSlots[i];
+                if (key != 0) {
+                    int slot = slotOf(key, mask);
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = key;
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Approximate heap footprint: names, the exact-name map, the gram table
+     * and posting lists, and the French names and orderings
+     */
+    public long byteSize() {
+        long bytes = 16L + 4L * names.length;
+        for (String name : names) {
+            bytes += stringBytes(name) + 48; // plus its HashMap entry and boxed ordinal
+        }
+        bytes += 16L + 8L * gramKeys.length + 16L + 4L * postings.length + 16L + 4L * postingCounts.length;
+        for (int[] list : postings) {
+            bytes += 16L + 4L * list.length;
+        }
+        if (frenchNames.length > 0) {
+            bytes += 3 * 16L + 8L * frenchNames.length + 16L + 4L * frenchOrder.length + 4L * frenchPositions.length;
+            for (int i = 0; i < frenchNames.length; i++) {
+                if (frenchNames[i] != null) {
+                    bytes += stringBytes(frenchNames[i]);
+                    if (frenchFolded[i] != frenchNames[i]) {
+                        bytes += stringBytes(frenchFolded[i]);
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    // A compact (Latin-1) String: object, array header and one byte per char, 8-byte aligned
+    private static long stringBytes(String text) {
+        return 24 + ((16L + text.length() + 7) & ~7L);
+    }
+
+    @Override
+    public String toString() {
+        return "FoodNameIndex{" + names.length + " names, " + frenchOrder.length + " French, "
+                + gramKeys.length + " grams}";
+    }
+}
@@ -0,0 +1,246 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import ca.nutrisci.application.dto.FoodMatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FuzzyNameMatcher - Typo-tolerant food name lookup
+ * Part of the Infrastructure Layer
+ *
+ * A BK-tree over Levenshtein distance on the names of a FoodNameIndex. Every
+ * child edge is labelled with its distance to the parent, so by the triangle
+ * inequality a query only has to descend into edges within maxDistance of
+ * its own distance to the parent; the bound tightens as the k best candidates
+ * fill up. Nodes are name ordinals and the tree is stored as flat int arrays
+ * (first child, next sibling, edge label). Ties are broken by ordinal, i.e.
+ * alphabetically, so results are deterministic.
+ */
+public final class FuzzyNameMatcher {
+
+    private final FoodNameIndex names;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] edgeDistance;
+    private final int maxNameLength;
+
+    public FuzzyNameMatcher(FoodNameIndex names) {
+        this.names = names;
+        int size = names.size();
+        this.firstChild = new int[size];
+        this.nextSibling = new int[size];
+        this.edgeDistance = new int[size];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+
+        int longest = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            longest = Math.max(longest, names.name(ordinal).length());
+        }
+        this.maxNameLength = longest;
+
+        int[] row = new int[maxNameLength + 1];
+        for (int ordinal = 1; ordinal < size; ordinal++) {
+            insert(ordinal, names.name(ordinal), row);
+        }
+    }
+
+    private void insert(int ordinal, String name, int[] row) {
+        int node = 0;
+        while (true) {
+            int distance = distance(name, names.name(node), row);
+            int child = firstChild[node];
+            while (child >= 0 && edgeDistance[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child < 0) {
+                edgeDistance[ordinal] = distance;
+                nextSibling[ordinal] = firstChild[node];
+                firstChild[node] = ordinal;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Up to k names within maxDistance edits of the term, closest first
+     */
+    public List<FoodMatch> closest(String term, int k, int maxDistance) {
+        List<FoodMatch> matches = new ArrayList<>();
+        if (names.size() == 0 || k <= 0 || maxDistance < 0) {
+            return matches;
+        }
+
+        // Bounded max-heap of (distance << 32 | ordinal)
+        long[] heap = new long[k];
+        int size = 0;
+        int bound = maxDistance;
+
+        int[] row = new int[maxNameLength + 1];
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int distance = distance(term, names.name(node), row);
+
+            if (distance <= bound) {
+                long entry = ((long) distance << 32) | node;
+                if (size < k) {
+                    heap[size] = entry;
+                    siftUp(heap, size++);
+                } else if (entry < heap[0]) {
+                    heap[0] = entry;
+                    siftDown(heap, size);
+                }
+                if (size == k) {
+                    bound = Math.min(bound, (int) (heap[0] >>> 32));
+                }
+            }
+
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                if (Math.abs(edgeDistance[child] - distance) <= bound) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = child;
+                }
+            }
+        }
+
+        Arrays.sort(heap, 0, size);
+        for (int i = 0; i < size; i++) {
+            matches.add(new FoodMatch(names.name((int) heap[i]), (int) (heap[i] >>> 32)));
+        }
+        return matches;
+    }
+
+    /**
+     * The closest name to each of several terms, in one walk of the tree.
+     * Each visited node is compared only with the terms whose bound still
+     * admits it; a term dropped at a node stays dropped for its whole subtree.
+     * Gives the same answer as closest(terms[i], 1, maxDistances[i]) for every
+     * term, or null where nothing is within range.
+     */
+    public FoodMatch[] closestEach(String[] terms, int[] maxDistances) {
+        int count = terms.length;
+        FoodMatch[] matches = new FoodMatch[count];
+        if (names.size() == 0 || count == 0) {
+            return matches;
+        }
+
+        // Best (distance << 32 | ordinal) per term, and its current bound
+        long[] best = new long[count];
+        int[] bound = maxDistances.clone();
+        Arrays.fill(best, Long.MAX_VALUE);
+
+        // Each stack entry is a node and its parent's distance row (-1: term dropped)
+        int[] row = new int[maxNameLength + 1];
+        int[] stack = new int[64];
+        int[][] parentRows = new int[64][];
+        int top = 0;
+        stack[top] = 0;
+        parentRows[top++] = null;
+        while (top > 0) {
+            int node = stack[--top];
+            int[] parentDistances = parentRows[top];
+            parentRows[top] = null;
+
+            int[] distances = new int[count];
+            boolean anyActive = false;
+            for (int t = 0; t < count; t++) {
+                if (parentDistances != null
+                        && (parentDistances[t] < 0 || Math.abs(edgeDistance[node] - parentDistances[t]) > bound[t])) {
+                    distances[t] = -1;
+                    continue;
+                }
+                int distance = distance(terms[t], names.name(node), row);
+                distances[t] = distance;
+                anyActive = true;
+                if (distance <= bound[t]) {
+                    long entry = ((long) distance << 32) | node;
+                    if (entry < best[t]) {
+                        best[t] = entry;
+                        bound[t] = distance;
+                    }
+                }
+            }
+            if (!anyActive) {
+                continue;
+            }
+
+            for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                    parentRows = Arrays.copyOf(parentRows, top * 2);
+                }
+                stack[top] = child;
+                parentRows[top++] = distances;
+            }
+        }
+
+        for (int t = 0; t < count; t++) {
+            if (best[t] != Long.MAX_VALUE) {
+                matches[t] = new FoodMatch(names.name((int) best[t]), (int) (best[t] >>> 32));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Levenshtein distance (insert, delete, substitute) between two strings
+     */
+    static int distance(String a, String b) {
+        return distance(a, b, new int[b.length() + 1]);
+    }
+
+    // Single-row dynamic programme; row must hold b.length() + 1 entries
+    private static int distance(String a, String b, int[] row) {
+        int columns = b.length();
+        for (int j = 0; j <= columns; j++) {
+            row[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            char ca = a.charAt(i - 1);
+            int diagonal = row[0];
+            row[0] = i;
+            for (int j = 1; j <= columns; j++) {
+                int above = row[j];
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                row[j] = Math.min(Math.min(row[j - 1], above) + 1, diagonal + cost);
+                diagonal = above;
+            }
+        }
+        return row[columns];
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= heap[index]) break;
+            long tmp = heap[parent];
+            heap[parent] = heap[index];
+            heap[index] = tmp;
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] > heap[largest]) largest = left;
+            if (right < size && heap[right] > heap[largest]) largest = right;
+            if (largest == index) break;
+            long tmp = heap[index];
+            heap[index] = heap[largest];
+            heap[largest] = tmp;
+            index = largest;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * MacroIndex - Nearest foods by macronutrient profile, per CNF food group
+ * Part of the Infrastructure Layer
+ *
+ * Every food is a point of its per-100g calories, protein, carbs, fat and
+ * fiber, each divided by its standard deviation across all foods so that no
+ * one unit (kcal against grams) dominates the distance. The foods of each
+ * food group form a KD-tree stored implicitly in one int[] of name ordinals:
+ * the middle of a range is a node, the two halves are its subtrees, and the
+ * split dimension cycles with depth. A k-nearest query descends towards the
+ * food first and only visits subtrees the current k-th distance can reach,
+ * so small queries touch about log(group size) nodes.
+ *
+ * Queries can ask for foods with less (or more) of one macronutrient, by at
+ * least MIN_CHANGE; subtrees split on that nutrient that cannot meet the
+ * bound are skipped as well.
+ */
+public final class MacroIndex {
+
+    public static final int CALORIES = 0;
+    public static final int PROTEIN = 1;
+    public static final int CARBS = 2;
+    public static final int FAT = 3;
+    public static final int FIBER = 4;
+    public static final int DIMENSIONS = 5;
+
+    /** Smallest relative change of the constrained nutrient, so candidates are worth swapping to */
+    public static final float MIN_CHANGE = 0.1f;
+
+    private final float[] points;        // Scaled amounts, DIMENSIONS per name ordinal
+    private final int[] groupOfOrdinal;  // Position in the FoodGroupIndex, or -1
+    private final int[][] trees;         // Per group: member ordinals in KD-tree order
+
+    /**
+     * @param groups The food groups of the name index the ordinals belong to
+     * @param amounts Per-100g calories, protein, carbs, fat and fiber of every name
+     *                ordinal, DIMENSIONS values per ordinal (see CALORIES etc.)
+     */
+    public MacroIndex(FoodGroupIndex groups, float[] amounts) {
+        int foods = amounts.length / DIMENSIONS;
+        this.points = new float[amounts.length];
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            double sum = 0;
+            double sumOfSquares = 0;
+            for (int food = 0; food < foods; food++) {
+                double amount = amounts[food * DIMENSIONS + dimension];
+                sum += amount;
+                sumOfSquares += amount * amount;
+            }
+            double mean = foods > 0 ? sum / foods : 0;
+            double deviation = foods > 0 ? Math.sqrt(Math.max(0, sumOfSquares / foods - mean * mean)) : 0;
+            float scale = deviation > 0 ? (float) (1.0 / deviation) : 1f;
+            for (int food = 0; food < foods; food++) {
+                points[food * DIMENSIONS + dimension] = amounts[food * DIMENSIONS + dimension] * scale;
+            }
+        }
+
+        this.groupOfOrdinal = new int[foods];
+        Arrays.fill(groupOfOrdinal, -1);
+        this.trees = new int[groups.size()][];
+        for (int group = 0; group < trees.length; group++) {
+            int[] tree = groups.members(group).clone();
+            for (int ordinal : tree) {
+                groupOfOrdinal[ordinal] = group;
+            }
+            build(tree, 0, tree.length, 0);
+            trees[group] = tree;
+        }
+    }
+
+    /**
+     * Dimension of a macronutrient name ("calories", "protein", "carbs" or
+     * "carbohydrates", "fat", "fiber"), or -1
+     */
+    public static int dimension(String nutrient) {
+        if (nutrient == null) {
+            return -1;
+        }
+        switch (nutrient.trim().toLowerCase(Locale.ROOT)) {
+            case "calories": return CALORIES;
+            case "protein": return PROTEIN;
+            case "carbs":
+            case "carbohydrates": return CARBS;
+            case "fat": return FAT;
+            case "fiber": return FIBER;
+            default: return -1;
+        }
+    }
+
+    /**
+     * Position of a food's group in the FoodGroupIndex, or -1 if it has none
+     */
+    public int groupOf(int ordinal) {
+        return groupOfOrdinal[ordinal];
+    }
+
+    /**
+     * Name ordinals of the k foods in the same group as a food that are nearest
+     * to it, closest first, leaving out the food itself.
+     * @param dimension The macronutrient that must change, or -1 for any food
+     * @param lower true for at least MIN_CHANGE less of it, false for at least MIN_CHANGE more
+     */
+    public int[] nearest(int ordinal, int dimension, boolean lower, int k) {
+        int group = groupOfOrdinal[ordinal];
+        if (group < 0 || k <= 0) {
+            return new int[0];
+        }
+        float bound = 0;
+        if (dimension >= 0) {
+            float value = points[ordinal * DIMENSIONS + dimension];
+            bound = lower ? value * (1 - MIN_CHANGE) : value * (1 + MIN_CHANGE);
+        }
+        Neighbours neighbours = new Neighbours(k);
+        search(trees[group], 0, trees[group].length, 0, ordinal, dimension, lower, bound, neighbours);
+        return neighbours.ordinals();
+    }
+
+    /**
+     * Approximate heap footprint of the index
+     */
+    public long byteSize() {
+        long bytes = 4L * points.length + 4L * groupOfOrdinal.length;
+        for (int[] tree : trees) {
+            bytes += 16 + 4L * tree.length;
+        }
+        return bytes;
+    }
+
+    // Private helper methods
+
+    /**
+     * Arrange tree[lo, hi) so every node is the median of its range on its split dimension
+     */
+    private void build(int[] tree, int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(tree, lo, hi - 1, mid, depth % DIMENSIONS);
+        build(tree, lo, mid, depth + 1);
+        build(tree, mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Quickselect: put the k-th smallest of tree[lo..hi] (on one dimension) at k,
+     * smaller or equal values before it and greater or equal after it
+     */
+    private void select(int[] tree, int lo, int hi, int k, int dimension) {
+        while (lo < hi) {
+            float pivot = value(tree[(lo + hi) >>> 1], dimension);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (value(tree[i], dimension) < pivot) i++;
+                while (value(tree[j], dimension) > pivot) j--;
+                if (i <= j) {
+                    int swap = tree[i];
+                    tree[i++] = tree[j];
+                    tree[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void search(int[] tree, int lo, int hi, int depth, int query, int dimension, boolean lower,
+                        float bound, Neighbours neighbours) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int node = tree[mid];
+        int axis = depth % DIMENSIONS;
+
+        if (node != query && (dimension < 0 || meetsBound(node, dimension, lower, bound))) {
+            neighbours.offer(node, distance(node, query));
+        }
+
+        // Values before mid are <= the node's on this axis, values after it >=
+        float nodeValue = value(node, axis);
+        boolean leftPossible = axis != dimension || lower || nodeValue > bound;
+        boolean rightPossible = axis != dimension || !lower || nodeValue < bound;
+
+        float difference = value(query, axis) - nodeValue;
+        boolean leftFirst = difference < 0;
+        if (leftFirst ? leftPossible : rightPossible) {
+            if (leftFirst) {
+                search(tree, lo, mid, depth + 1, query, dimension, lower, bound, neighbours);
+            } else {
+                search(tree, mid + 1, hi, depth + 1, query, dimension, lower, bound, neighbours);
+            }
+        }
+        if ((leftFirst ? rightPossible : leftPossible) && difference * difference <= neighbours.worst()) {
+            if (leftFirst) {
+                search(tree, mid + 1, hi, depth + 1, query, dimension, lower, bound, neighbours);
+            } else {
+                search(tree, lo, mid, depth + 1, query, dimension, lower, bound, neighbours);
+            }
+        }
+    }
+
+    private boolean meetsBound(int ordinal, int dimension, boolean lower, float bound) {
+        float value = value(ordinal, dimension);
+        return lower ? value < bound : value > bound;
+    }
+
+    private float value(int ordinal, int dimension) {
+        return points[ordinal * DIMENSIONS + dimension];
+    }
+
+    private float distance(int a, int b) {
+        float sum = 0;
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            float difference = points[a * DIMENSIONS + dimension] - points[b * DIMENSIONS + dimension];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    /**
+     * The k best candidates so far, kept sorted by (squared) distance, then ordinal
+     */
+    private static final class Neighbours {
+        private final int[] ordinals;
+        private final float[] distances;
+        private int size;
+
+        Neighbours(int k) {
+            this.ordinals = new int[k];
+            this.distances = new float[k];
+        }
+
+        float worst() {
+            return size < ordinals.length ? Float.POSITIVE_INFINITY : distances[size - 1];
+        }
+
+        void offer(int ordinal, float distance) {
+            int position = size;
+            while (position > 0 && (distances[position - 1] > distance
+                    || distances[position - 1] == distance && ordinals[position - 1] > ordinal)) {
+                position--;
+            }
+            if (position == ordinals.length) {
+                return;
+            }
+            int moved = Math.min(size, ordinals.length - 1) - position;
+            System.arraycopy(ordinals, position, ordinals, position + 1, moved);
+            System.arraycopy(distances, position, distances, position + 1, moved);
+            ordinals[position] = ordinal;
+            distances[position] = distance;
+            size = Math.min(size + 1, ordinals.length);
+        }
+
+        int[] ordinals() {
+            return Arrays.copyOf(ordinals, size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MacroIndex{%d foods in %d groups, %.1f KB}",
+                groupOfOrdinal.length, trees.length, byteSize() / 1024.0);
+    }
+}
@@ -0,0 +1,376 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MeasureDictionary - CNF measure names parsed and indexed for unit lookups
+ * Part of the Infrastructure Layer
+ *
+ * Every MEASURE NAME.csv description is split once, at load time, into a
+ * quantity, a unit and a descriptor: "1 fish (500 g)" is 1 / "fish" /
+ * "(500 g)", "250ml" is 250 / "ml" / "", "1/2 fruit (13cm dia)" is 0.5 /
+ * "fruit" / "(13cm dia)". Units are lower-cased and singular ("2 slices" has
+ * unit "slice"), with tbsp and tsp spelled out.
+ *
+ * A unit typed or picked by the user is resolved through hash lookups: the
+ * whole normalized name first, then every measure with the same unit, then
+ * (through a word index) every measure whose unit contains all its words.
+ * Within the last two, measures with the same descriptor and quantity come
+ * first, then plain ones ("1 slice" before "1 slice (0.6cm)"), then by id.
+ * The ranked candidates of each distinct unit string are cached, so repeated
+ * lookups are a single map read, and the first candidate a food has a
+ * conversion factor for can be picked without allocating.
+ */
+public final class MeasureDictionary {
+
+    // Quantity (integer, decimal or fraction), unit up to the first '(' or ',', then the descriptor
+    private static final Pattern MEASURE = Pattern.compile("(\\d+(?:\\.\\d+)?(?:/\\d+)?)?\\s*([^(,]*)(.*)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_CACHED_QUERIES = 4096;
+
+    private final int[] measureIds;      // Sorted
+    private final String[] names;
+    private final double[] quantities;
+    private final String[] units;
+    private final String[] descriptors;
+    private final int[] rank;            // Preference of each measure among equal matches
+
+    private final Map<String, Integer> byName = new HashMap<>();
+    private final Map<String, int[]> byUnit = new HashMap<>();
+    private final Map<String, int[]> byWord = new HashMap<>();
+    private final Map<String, Query> queries = new ConcurrentHashMap<>();
+
+    /**
+     * A resolved unit string: the quantity it gives and its candidate measures, best first
+     */
+    private static final class Query {
+        final double quantity;
+        final int[] candidates; // Measure ids
+
+        Query(double quantity, int[] candidates) {
+            this.quantity = quantity;
+            this.candidates = candidates;
+        }
+    }
+
+    /**
+     * @param measureIds CNF MeasureIDs
+     * @param measureNames The MeasureDescription of each id
+     */
+    public MeasureDictionary(int[] measureIds, String[] measureNames) {
+        int size = measureIds.length;
+        Integer[] byId = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            byId[i] = i;
+        }
+        Arrays.sort(byId, (a, b) -> Integer.compare(measureIds[a], measureIds[b]));
+
+        this.measureIds = new int[size];
+        this.names = new String[size];
+        this.quantities = new double[size];
+        this.units = new String[size];
+        this.descriptors = new String[size];
+        for (int index = 0; index < size; index++) {
+            this.measureIds[index] = measureIds[byId[index]];
+            this.names[index] = measureNames[byId[index]];
+            String normalized = normalize(names[index]);
+            Parsed parsed = parse(normalized);
+            quantities[index] = parsed.quantity;
+            units[index] = parsed.unit;
+            descriptors[index] = parsed.descriptor;
+            byName.putIfAbsent(normalized, index); // Lowest id wins
+        }
+
+        // Plain measures first: no descriptor, then a quantity of one, then the shortest unit, then by id
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int compare = Boolean.compare(!descriptors[a].isEmpty(), !descriptors[b].isEmpty());
+            if (compare == 0) compare = Boolean.compare(quantities[a] != 1, quantities[b] != 1);
+            if (compare == 0) compare = Integer.compare(units[a].length(), units[b].length());
+            return compare != 0 ? compare : Integer.compare(a, b);
+        });
+        this.rank = new int[size];
+        for (int position = 0; position < size; position++) {
+            rank[order[position]] = position;
+        }
+
+        Map<String, IntList> unitLists = new HashMap<>();
+        Map<String, IntList> wordLists = new HashMap<>();
+        for (int index : order) {
+            if (units[index].isEmpty()) {
+                continue;
+            }
+            unitLists.computeIfAbsent(units[index], k -> new IntList(4)).add(index);
+            String previous = null;
+            for (String word : sortedWords(units[index])) {
+                if (!word.equals(previous)) {
+                    wordLists.computeIfAbsent(word, k -> new IntList(4)).add(index);
+                }
+                previous = word;
+            }
+        }
+        unitLists.forEach((unit, list) -> byUnit.put(unit, list.toArray()));
+        wordLists.forEach((word, list) -> byWord.put(word, list.toArray()));
+    }
+
+    public int size() {
+        return measureIds.length;
+    }
+
+    /**
+     * Description of a measure as written in the CNF, or null if the id is unknown
+     */
+    public String name(int measureId) {
+        int index = indexOf(measureId);
+        return index >= 0 ? names[index] : null;
+    }
+
+    /**
+     * Quantity a measure stands for (2 for "2 slices", 250 for "250ml"), 1 if unknown
+     */
+    public double quantity(int measureId) {
+        int index = indexOf(measureId);
+        return index >= 0 ? quantities[index] : 1;
+    }
+
+    /**
+     * Normalized singular unit of a measure ("slice" for "2 slices"), or null if the id is unknown
+     */
+    public String unit(int measureId) {
+        int index = indexOf(measureId);
+        return index >= 0 ? units[index] : null;
+    }
+
+    /**
+     * Descriptor of a measure ("(500 g)" for "1 fish (500 g)"), or null if the id is unknown
+     */
+    public String descriptor(int measureId) {
+        int index = indexOf(measureId);
+        return index >= 0 ? descriptors[index] : null;
+    }
+
+    /**
+     * Best measure for a unit name, or -1 if nothing matches
+     */
+    public int find(String unitName) {
+        return find(unitName, null);
+    }
+
+    /**
+     * Best measure for a unit name among the given ones (e.g. those a food has
+     * conversion factors for), or -1 if none of them matches
+     * @param availableMeasureIds Sorted measure ids, or null for any measure
+     */
+    public int find(String unitName, int[] availableMeasureIds) {
+        if (unitName == null) {
+            return -1;
+        }
+        if (availableMeasureIds == null) {
+            int[] candidates = query(unitName).candidates;
+            return candidates.length > 0 ? candidates[0] : -1;
+        }
+        return find(unitName, availableMeasureIds, 0, availableMeasureIds.length);
+    }
+
+    /**
+     * Best measure for a unit name among measureIds[from, to), which must be sorted
+     * (e.g. one food's range of a ConversionFactorTable), or -1 if none of them matches
+     */
+    public int find(String unitName, int[] measureIds, int from, int to) {
+        if (unitName == null) {
+            return -1;
+        }
+        for (int measureId : query(unitName).candidates) {
+            if (Arrays.binarySearch(measureIds, from, to, measureId) >= 0) {
+                return measureId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Quantity written in a unit name: 2 for "2 slices", 0.5 for "1/2 cup", 1 if it has none
+     */
+    public double quantityOf(String unitName) {
+        return unitName != null ? query(unitName).quantity : 1;
+    }
+
+    /**
+     * Lower-case, single-spaced, with no spaces just inside parentheses
+     */
+    public static String normalize(String measureName) {
+        String normalized = WHITESPACE.matcher(measureName.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return normalized.replace("( ", "(").replace(" )", ")");
+    }
+
+    // Private helper methods
+
+    private int indexOf(int measureId) {
+        int index = Arrays.binarySearch(measureIds, measureId);
+        return index >= 0 ? index : -1;
+    }
+
+    private Query query(String unitName) {
+        Query query = queries.get(unitName);
+        if (query == null) {
+            query = resolve(unitName);
+            if (queries.size() < MAX_CACHED_QUERIES) {
+                queries.put(unitName, query);
+            }
+        }
+        return query;
+    }
+
+    private Query resolve(String unitName) {
+        String normalized = normalize(unitName);
+        Parsed parsed = parse(normalized);
+        IntList candidates = new IntList();
+        boolean[] added = new boolean[measureIds.length];
+
+        Integer exact = byName.get(normalized);
+        if (exact != null) {
+            candidates.add(measureIds[exact]);
+            added[exact] = true;
+        }
+        if (!parsed.unit.isEmpty()) {
+            addRanked(byUnit.get(parsed.unit), parsed, candidates, added);
+            addRanked(containingAllWords(parsed.unit), parsed, candidates, added);
+        }
+        return new Query(parsed.quantity, candidates.toArray());
+    }
+
+    /**
+     * Add matches not added yet: same descriptor and quantity first, then same descriptor,
+     * then same quantity, then the rest, each in rank order
+     */
+    private void addRanked(int[] matches, Parsed parsed, IntList candidates, boolean[] added) {
+        if (matches == null) {
+            return;
+        }
+        for (int tier = 0; tier < 4; tier++) {
+            for (int index : matches) {
+                int mismatch = (descriptors[index].equals(parsed.descriptor) ? 0 : 2)
+                        + (quantities[index] == parsed.quantity ? 0 : 1);
+                if (mismatch == tier && !added[index]) {
+                    candidates.add(measureIds[index]);
+                    added[index] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Measures whose unit has every word of the given unit, in rank order (sorted-list intersection)
+     */
+    private int[] containingAllWords(String unit) {
+        int[] result = null;
+        for (String word : sortedWords(unit)) {
+            int[] postings = byWord.get(word);
+            if (postings == null) {
+                return null;
+            }
+            result = result == null ? postings : intersect(result, postings);
+        }
+        return result;
+    }
+
+    private int[] intersect(int[] a, int[] b) {
+        IntList both = new IntList(Math.min(a.length, b.length));
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            int compare = Integer.compare(rank[a[i]], rank[b[j]]);
+            if (compare == 0) {
+                both.add(a[i]);
+                i++;
+                j++;
+            } else if (compare < 0) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return both.toArray();
+    }
+
+    private static List<String> sortedWords(String unit) {
+        List<String> words = new ArrayList<>(Arrays.asList(unit.split(" ")));
+        words.removeIf(String::isEmpty);
+        words.sort(null);
+        return words;
+    }
+
+    private static final class Parsed {
+        final double quantity;
+        final String unit;
+        final String descriptor;
+
+        Parsed(double quantity, String unit, String descriptor) {
+            this.quantity = quantity;
+            this.unit = unit;
+            this.descriptor = descriptor;
+        }
+    }
+
+    private static Parsed parse(String normalized) {
+        Matcher matcher = MEASURE.matcher(normalized);
+        if (!matcher.matches()) {
+            return new Parsed(1, normalized, "");
+        }
+        double quantity = matcher.group(1) != null ? parseQuantity(matcher.group(1)) : 1;
+        StringBuilder unit = new StringBuilder();
+        for (String word : matcher.group(2).trim().split(" ")) {
+            if (!word.isEmpty()) {
+                if (unit.length() > 0) {
+                    unit.append(' ');
+                }
+                unit.append(singular(word));
+            }
+        }
+        return new Parsed(quantity, unit.toString(), matcher.group(3).trim());
+    }
+
+    private static double parseQuantity(String text) {
+        int slash = text.indexOf('/');
+        double quantity = slash < 0 ? Double.parseDouble(text)
+                : Double.parseDouble(text.substring(0, slash)) / Double.parseDouble(text.substring(slash + 1));
+        return quantity > 0 && !Double.isInfinite(quantity) ? quantity : 1;
+    }
+
+    private static String singular(String word) {
+        switch (word) {
+            case "tbsp": return "tablespoon";
+            case "tsp": return "teaspoon";
+            default: break;
+        }
+        int length = word.length();
+        if (length > 4 && word.endsWith("ies")) {
+            return word.substring(0, length - 3) + "y";
+        }
+        if (length > 4 && (word.endsWith("ches") || word.endsWith("shes") || word.endsWith("sses")
+                || word.endsWith("xes"))) {
+            return word.substring(0, length - 2);
+        }
+        if (length > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, length - 1);
+        }
+        return word;
+    }
+
+    @Override
+    public String toString() {
+        return "MeasureDictionary{" + measureIds.length + " measures, " + byUnit.size() + " units, "
+                + byWord.size() + " unit words}";
+    }
+}
@@ -0,0 +1,134 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import ca.nutrisci.application.dto.NutrientCatalog;
+import ca.nutrisci.application.dto.NutrientVector;
+
+import java.util.Arrays;
+
+/**
+ * NutrientMatrix - Dense per-100g nutrient amounts for every CNF food
+ * Part of the Infrastructure Layer
+ *
+ * One float per (food ordinal, nutrient ordinal), stored row-major so a food's
+ * whole profile is contiguous. Food ordinals follow the sorted FoodID column of
+ * FOOD NAME.csv and nutrient ordinals are NutrientCatalog positions (NUTRIENT
+ * NAME.csv order). Lookups by CNF id go through a binary search (foods) and a
+ * direct table (nutrients), so no hashing or boxing is involved. Missing
+ * amounts are 0, as in the CNF itself.
+ */
+public final class NutrientMatrix {
+
+    private final int[] foodIds;
+    private final NutrientCatalog catalog;
+    private final int nutrientCount;
+    private final float[] values;
+
+    /**
+     * @param foodIds sorted CNF FoodIDs, one per row
+     * @param catalog the nutrients, one per column
+     * @param values row-major amounts, foodIds.length * catalog.size() entries
+     */
+    public NutrientMatrix(int[] foodIds, NutrientCatalog catalog, float[] values) {
+        if (values.length != foodIds.length * catalog.size()) {
+            throw new IllegalArgumentException("Matrix size " + values.length + " does not match "
+                    + foodIds.length + " foods x " + catalog.size() + " nutrients");
+        }
+        this.foodIds = foodIds;
+        this.catalog = catalog;
+        this.nutrientCount = catalog.size();
+        this.values = values;
+    }
+
+    public NutrientCatalog getCatalog() {
+        return catalog;
+    }
+
+    public int foodCount() {
+        return foodIds.length;
+    }
+
+    public int nutrientCount() {
+        return nutrientCount;
+    }
+
+    /**
+     * Row of a CNF FoodID, or -1 if the food is unknown
+     */
+    public int foodOrdinal(int foodId) {
+        int ordinal = Arrays.binarySearch(foodIds, foodId);
+        return ordinal >= 0 ? ordinal : -1;
+    }
+
+    /**
+     * Column of a CNF NutrientID, or -1 if the nutrient is unknown
+     */
+    public int nutrientOrdinal(int nutrientId) {
+        return catalog.indexOf(nutrientId);
+    }
+
+    public int foodId(int foodOrdinal) {
+        return foodIds[foodOrdinal];
+    }
+
+    public int nutrientId(int nutrientOrdinal) {
+        return catalog.getNutrientId(nutrientOrdinal);
+    }
+
+    /**
+     * Amount per 100 g by ordinals
+     */
+    public float get(int foodOrdinal, int nutrientOrdinal) {
+        return values[foodOrdinal * nutrientCount + nutrientOrdinal];
+    }
+
+    /**
+     * View of a food's row; shares the matrix storage
+     */
+    public NutrientVector vector(int foodOrdinal) {
+        return new NutrientVector(catalog, values, foodOrdinal * nutrientCount);
+    }
+
+    /**
+     * Amount per 100 g by CNF ids, or 0 if either id is unknown
+     */
+    public double amount(int foodId, int nutrientId) {
+        int food = foodOrdinal(foodId);
+        int nutrient = nutrientOrdinal(nutrientId);
+        return food < 0 || nutrient < 0 ? 0.0 : get(food, nutrient);
+    }
+
+    /**
+     * Whether the CNF has any non-zero amount for this food
+     */
+    public boolean hasData(int foodOrdinal) {
+        int start = foodOrdinal * nutrientCount;
+        for (int i = start; i < start + nutrientCount; i++) {
+            if (values[i] != 0f) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Approximate heap footprint of the matrix (the catalog is not counted)
+     */
+    public long byteSize() {
+        return 4L * values.length + 4L * foodIds.length;
+    }
+
+    // Shared with the loader and snapshot code; callers must not modify
+    int[] foodIds() {
+        return foodIds;
+    }
+
+    float[] values() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NutrientMatrix{%d foods x %d nutrients, %.1f MB}",
+                foodCount(), nutrientCount(), byteSize() / (1024.0 * 1024.0));
+    }
+}
@@ -13,9 +13,12 @@ import ca.nutrisci.presentation.mediator.NavigationMediator;
 import ca.nutrisci.application.facades.IMealLogFacade;
 import ca.nutrisci.application.facades.MealLogging;
 import ca.nutrisci.application.services.MealLogService;
+import ca.nutrisci.application.services.UnitConversionService;
 import ca.nutrisci.infrastructure.data.repositories.MealLogRepo;
 import ca.nutrisci.infrastructure.external.adapters.INutritionGateway;
 import ca.nutrisci.infrastructure.external.adapters.ExternalAdapter;
+import ca.nutrisci.infrastructure.external.adapters.JdbcNutritionGateway;
+import ca.nutrisci.infrastructure.external.adapters.NutritionGatewayFactory;
 import ca.nutrisci.presentation.controllers.MealLogController;
 import ca.nutrisci.presentation.ui.meallog.MealLogPanel;
 import ca.nutrisci.presentation.controllers.SwapController;
@@ -26,6 +29,7 @@ import ca.nutrisci.domain.strategies.SwapStrategyFactory;
 import ca.nutrisci.infrastructure.data.repositories.SwapHistoryRepo;
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * MainApplication - The main entry point for the NutriSci Swing GUI
@@ -57,6 +61,9 @@ import java.awt.*;
  */
 public class MainApplication {
 
+    // Launch time, cleared once the first window has been shown
+    private static long launchNanos;
+
     // Main application components
     private JFrame frame;
     private NavigationMediator mediator;
@@ -75,6 +82,32 @@ public class MainApplication {
      * Follows Single Responsibility - handles only application startup
      */
     public static void main(String[] args) {
+        long launchStart = System.nanoTime();
+        launchNanos = launchStart;
+        
+        // Load the CNF data in the background while the first window comes up
+        // (from the files or the database, see nutrition.gateway in database.properties)
+        INutritionGateway nutritionData = NutritionGatewayFactory.getGateway();
+        CompletableFuture<INutritionGateway> nutritionReady = nutritionData instanceof ExternalAdapter
+            ? ((ExternalAdapter) nutritionData).initializeAsync((step, done, total) ->
+                System.out.println("🔄 CNF loading: " + step + " (" + done + "/" + total + ")"))
+            : nutritionData.initializeAsync();
+        nutritionReady.thenRun(() -> System.out.println(String.format("✅ CNF data ready %.0f ms after launch",
+            (System.nanoTime() - launchStart) / 1_000_000.0)));
+        if (nutritionData instanceof JdbcNutritionGateway) {
+            UnitConversionService.getInstance().useDatabase((JdbcNutritionGateway) nutritionData);
+        }
+        UnitConversionService.getInstance().initializeAsync();
+        
+        // Optionally pick up a replaced CNF release without restarting (-Dnutrisci.cnf.watch=true)
+        if (Boolean.getBoolean("nutrisci.cnf.watch") && nutritionData instanceof ExternalAdapter) {
+            try {
+                ((ExternalAdapter) nutritionData).startWatching();
+            } catch (java.io.IOException e) {
+                System.err.println("Could not watch CNF data directory: " + e.getMessage());
+            }
+        }
+        
         // Ensure UI updates are done on the Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
             try {
@@ -122,7 +155,8 @@ public class MainApplication {
         profileFacade = new ProfileManagement(profileService, profileRepo);
         
         // Meal logging dependencies
-        INutritionGateway nutritionGateway = ExternalAdapter.getInstance("Canada Nutrient File-20250622");
+        // Still loading in the background (see main); lookups wait for it
+        INutritionGateway nutritionGateway = NutritionGatewayFactory.getGateway();
         mealLogFacade = new MealLogging(repoFactory, nutritionGateway);
         
         // Swap engine dependencies
@@ -141,6 +175,16 @@ public class MainApplication {
     private boolean showProfileSelection() {
         // Create and show profile selection dialog
         ProfileSelectionDialog selectionDialog = new ProfileSelectionDialog(null, profileFacade);
+        selectionDialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowOpened(java.awt.event.WindowEvent windowEvent) {
+                if (launchNanos != 0) {
+                    System.out.println(String.format("⏱️ First window shown %.0f ms after launch",
+                        (System.nanoTime() - launchNanos) / 1_000_000.0));
+                    launchNanos = 0;
+                }
+            }
+        });
         selectionDialog.setVisible(true);
         
         // Check if profile was selected
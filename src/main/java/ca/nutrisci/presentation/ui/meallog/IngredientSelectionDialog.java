@@ -1,5 +1,6 @@
 package ca.nutrisci.presentation.ui.meallog;
 
+import ca.nutrisci.application.dto.FoodMatch;
 import ca.nutrisci.application.dto.IngredientDTO;
 import ca.nutrisci.application.dto.MealDTO;
 import ca.nutrisci.application.services.UnitConversionService;
@@ -15,6 +16,7 @@ import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -478,8 +480,18 @@ public class IngredientSelectionDialog extends JDialog {
                 List<String> ingredients;
                 
                 if (!searchText.isEmpty()) {
-                    // Search functionality
-                    ingredients = nutritionGateway.searchIngredients(searchText);
+                    // Search English and French names at once, within the selected group if any
+                    ingredients = selectedGroup == null || "All Foods".equals(selectedGroup)
+                        ? nutritionGateway.searchIngredients(searchText, (Locale) null, 100)
+                        : nutritionGateway.searchIngredients(searchText, null, selectedGroup, 100);
+                    if (ingredients.isEmpty()) {
+                        // Nothing contains the text: suggest names within a few typos
+                        ingredients = new ArrayList<>();
+                        int maxDistance = Math.max(1, searchText.length() / 4);
+                        for (FoodMatch match : nutritionGateway.findClosestMatches(searchText, 10, maxDistance)) {
+                            ingredients.add(match.getName());
+                        }
+                    }
                 } else if (!"All Foods".equals(selectedGroup)) {
                     // Group filtering
                     ingredients = nutritionGateway.getIngredientsByGroup(selectedGroup);
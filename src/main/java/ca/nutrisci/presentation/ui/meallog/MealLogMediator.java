@@ -4,12 +4,14 @@ import ca.nutrisci.application.dto.MealDTO;
 import ca.nutrisci.application.dto.NutrientInfo;
 import ca.nutrisci.application.dto.ProfileDTO;
 import ca.nutrisci.application.facades.IMealLogFacade;
-import ca.nutrisci.infrastructure.external.adapters.ExternalAdapter;
+import ca.nutrisci.application.services.UnitConversionService;
 import ca.nutrisci.infrastructure.external.adapters.INutritionGateway;
+import ca.nutrisci.infrastructure.external.adapters.NutritionGatewayFactory;
 
 import javax.swing.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * MealLogMediator - Mediator for coordinating meal logging sub-components
@@ -72,7 +74,7 @@ public class MealLogMediator implements
         this.mealLogFacade = mealLogFacade;
         this.activeProfile = activeProfile;
         this.currentViewDate = LocalDate.now();
-        this.nutritionGateway = ExternalAdapter.getInstance("Canada Nutrient File-20250622");
+        this.nutritionGateway = NutritionGatewayFactory.getGateway();
     }
     
     /**
@@ -112,6 +114,11 @@ public class MealLogMediator implements
      */
     @Override
     public void onQuickAddRequested(String mealType, LocalDate selectedDate, MealDTO existingMeal) {
+        // Searching and nutrient lookups need the CNF data, which may still be loading
+        whenNutritionDataReady(() -> handleQuickAdd(mealType, selectedDate, existingMeal));
+    }
+    
+    private void handleQuickAdd(String mealType, LocalDate selectedDate, MealDTO existingMeal) {
         try {
             // Show ingredient selection dialog
             IngredientSelectionResult result = showIngredientSelectionDialog(mealType, existingMeal);
@@ -142,6 +149,45 @@ public class MealLogMediator implements
         }
     }
     
+    /**
+     * Run an action on the EDT once the nutrition and unit conversion data are loaded.
+     * Runs it right away if they already are; otherwise shows a loading dialog until
+     * the background load finishes, so the EDT never waits for it.
+     * 
+     * @param action Work that looks up nutrition data
+     */
+    private void whenNutritionDataReady(Runnable action) {
+        CompletableFuture<INutritionGateway> nutritionReady = nutritionGateway.initializeAsync();
+        UnitConversionService unitService = UnitConversionService.getInstance();
+        if (nutritionReady.isDone() && unitService.isInitialized()) {
+            action.run();
+            return;
+        }
+        
+        JDialog loadingDialog = new JDialog(quickAddPanel != null ? SwingUtilities.getWindowAncestor(quickAddPanel) : null,
+            "Loading", java.awt.Dialog.ModalityType.MODELESS);
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        JPanel content = new JPanel(new java.awt.BorderLayout(10, 10));
+        content.setBorder(BorderFactory.createEmptyBorder(15, 20, 15, 20));
+        content.add(new JLabel("Loading Canadian Nutrient File data..."), java.awt.BorderLayout.NORTH);
+        content.add(progressBar, java.awt.BorderLayout.CENTER);
+        loadingDialog.setContentPane(content);
+        loadingDialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        loadingDialog.pack();
+        loadingDialog.setLocationRelativeTo(loadingDialog.getOwner());
+        loadingDialog.setVisible(true);
+        
+        CompletableFuture<?> unitsReady = unitService.isInitialized()
+            ? CompletableFuture.completedFuture(null) : unitService.initializeAsync();
+        // A failed load is reported by the services; carry on with whatever is available
+        CompletableFuture.allOf(nutritionReady, unitsReady).whenComplete((ignored, error) ->
+            SwingUtilities.invokeLater(() -> {
+                loadingDialog.dispose();
+                action.run();
+            }));
+    }
+    
     /**
      * Handle date change from QuickAddPanel
      * 
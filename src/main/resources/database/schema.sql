@@ -36,18 +36,60 @@ CREATE TABLE IF NOT EXISTS meals (
 
 -- CNF (Canada Nutrient File) Foods Table
 CREATE TABLE IF NOT EXISTS cnf_foods (
-    food_id VARCHAR(10) PRIMARY KEY,
+    food_id INTEGER PRIMARY KEY,
     food_name VARCHAR(500) NOT NULL,
+    food_name_fr VARCHAR(500), -- CNF FoodDescriptionF, lower-case
     food_group_id INTEGER,
     food_group_name VARCHAR(100),
-    calories DECIMAL(8,2) DEFAULT 0,
-    protein DECIMAL(8,2) DEFAULT 0,
-    carbs DECIMAL(8,2) DEFAULT 0,
-    fat DECIMAL(8,2) DEFAULT 0,
-    fiber DECIMAL(8,2) DEFAULT 0,
+    calories DOUBLE DEFAULT 0,
+    protein DOUBLE DEFAULT 0,
+    carbs DOUBLE DEFAULT 0,
+    fat DOUBLE DEFAULT 0,
+    fiber DOUBLE DEFAULT 0,
+    edible_portion DOUBLE DEFAULT 1, -- grams eaten per gram as purchased (refuse, yield)
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+CREATE INDEX IF NOT EXISTS idx_cnf_foods_name ON cnf_foods (food_name);
+
+-- CNF nutrient definitions
+CREATE TABLE IF NOT EXISTS cnf_nutrients (
+    nutrient_id INTEGER PRIMARY KEY,
+    symbol VARCHAR(20),
+    unit VARCHAR(10),
+    nutrient_name VARCHAR(200)
+);
+
+-- CNF per-100g nutrient amounts (zero amounts are not stored)
+CREATE TABLE IF NOT EXISTS cnf_nutrient_amounts (
+    food_id INTEGER NOT NULL,
+    nutrient_id INTEGER NOT NULL,
+    amount DOUBLE NOT NULL,
+    PRIMARY KEY (food_id, nutrient_id)
+);
+
+-- CNF measure names (e.g. "250ml", "1 slice")
+CREATE TABLE IF NOT EXISTS cnf_measures (
+    measure_id INTEGER PRIMARY KEY,
+    measure_name VARCHAR(200) NOT NULL
+);
+
+-- CNF conversion factors: a measure's weight relative to 100 g of the food
+CREATE TABLE IF NOT EXISTS cnf_conversion_factors (
+    food_id INTEGER NOT NULL,
+    measure_id INTEGER NOT NULL,
+    factor DOUBLE NOT NULL,
+    PRIMARY KEY (food_id, measure_id)
+);
+
+-- The imported CNF release (single row)
+CREATE TABLE IF NOT EXISTS cnf_import (
+    id INTEGER PRIMARY KEY,
+    source_stamp BIGINT NOT NULL,
+    food_count INTEGER NOT NULL,
+    imported_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- User Preferences Table (for future features)
 CREATE TABLE IF NOT EXISTS user_preferences (
     id VARCHAR(36) PRIMARY KEY,
@@ -0,0 +1,49 @@
+package ca.nutrisci.application.dto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NutrientTotalsTest {
+
+    private static NutrientCatalog catalog(int... nutrientIds) {
+        String[] none = new String[nutrientIds.length];
+        return new NutrientCatalog(nutrientIds, none, none, none);
+    }
+
+    @Test
+    void testAddScalesPerHundredGrams() {
+        NutrientCatalog catalog = catalog(NutrientCatalog.PROTEIN, NutrientCatalog.SODIUM);
+        NutrientVector cheese = new NutrientVector(catalog, new float[] {0f, 0f, 25f, 600f}, 2);
+
+        NutrientTotals totals = new NutrientTotals(catalog).add(cheese, 50);
+        assertEquals(12.5, totals.get(NutrientCatalog.PROTEIN), 1e-9);
+        assertEquals(300.0, totals.get(NutrientCatalog.SODIUM), 1e-9);
+        assertEquals(0.0, totals.get(NutrientCatalog.FIBER), 0.0, "Unknown nutrient");
+
+        NutrientTotals week = new NutrientTotals(catalog).add(totals).add(totals);
+        assertEquals(600.0, week.get(NutrientCatalog.SODIUM), 1e-9);
+    }
+
+    @Test
+    void testEqualCatalogFromAnotherLoadIsAccepted() {
+        NutrientTotals totals = new NutrientTotals(catalog(NutrientCatalog.PROTEIN, NutrientCatalog.SODIUM));
+        NutrientCatalog reloaded = catalog(NutrientCatalog.PROTEIN, NutrientCatalog.SODIUM);
+
+        totals.add(new NutrientVector(reloaded, new float[] {10f, 100f}, 0), 100);
+        assertEquals(100.0, totals.get(NutrientCatalog.SODIUM), 1e-9);
+    }
+
+    @Test
+    void testOtherCatalogIsRejected() {
+        NutrientTotals totals = new NutrientTotals(catalog(NutrientCatalog.PROTEIN, NutrientCatalog.SODIUM));
+        NutrientCatalog swapped = catalog(NutrientCatalog.SODIUM, NutrientCatalog.PROTEIN);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> totals.add(new NutrientVector(swapped, new float[] {100f, 10f}, 0), 100));
+        assertThrows(IllegalArgumentException.class, () -> totals.add(new NutrientTotals(swapped)));
+        assertThrows(IllegalArgumentException.class,
+                () -> totals.add(new NutrientTotals(catalog(NutrientCatalog.PROTEIN))));
+        assertEquals(0.0, totals.get(NutrientCatalog.SODIUM), 0.0, "Nothing was added");
+    }
+}
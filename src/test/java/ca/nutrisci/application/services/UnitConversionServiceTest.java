@@ -0,0 +1,62 @@
+package ca.nutrisci.application.services;
+
+import ca.nutrisci.application.dto.IngredientDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conversions against the bundled Canada Nutrient File. Food 2 (cheese souffle)
+ * has factors 0.40152 (100ml), 0.50190 (125ml) and 1.00380 (250ml), each the
+ * measure's weight relative to 100 g.
+ */
+public class UnitConversionServiceTest {
+
+    private static final int CHEESE_SOUFFLE = 2;
+
+    private UnitConversionService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = UnitConversionService.getInstance();
+        service.initialize();
+    }
+
+    @Test
+    void testFactorIsRelativeToHundredGrams() {
+        assertEquals(200.76, service.convertToGrams(CHEESE_SOUFFLE, 2, "250ml"), 1e-9, "2 x 250ml");
+        assertEquals(40.152, service.convertToGrams(CHEESE_SOUFFLE, 1, "100ml"), 1e-9, "1 x 100ml");
+    }
+
+    @Test
+    void testUnitNamingAnotherCountOfTheMeasure() {
+        // "ml" is a hundredth of the 100ml measure
+        assertEquals(40.152, service.convertToGrams(CHEESE_SOUFFLE, 100, "ml"), 1e-9);
+    }
+
+    @Test
+    void testGramsAreNotConverted() {
+        assertEquals(150.0, service.convertToGrams(CHEESE_SOUFFLE, 150, "g"), 0.0);
+    }
+
+    @Test
+    void testBatchAgreesWithSingleConversion() {
+        List<IngredientDTO> ingredients = Arrays.asList(
+            new IngredientDTO("Cheese souffle", 2, "250ml", CHEESE_SOUFFLE),
+            new IngredientDTO("Cheese souffle", 3, "125ml", CHEESE_SOUFFLE),
+            new IngredientDTO("Cheese souffle", 80, "g", CHEESE_SOUFFLE),
+            new IngredientDTO("Unresolved", 40, "250ml"));
+
+        double[] grams = service.convertToGrams(ingredients);
+
+        assertEquals(service.convertToGrams(CHEESE_SOUFFLE, 2, "250ml"), grams[0], 1e-9);
+        assertEquals(service.convertToGrams(CHEESE_SOUFFLE, 3, "125ml"), grams[1], 1e-9);
+        assertEquals(150.57, grams[1], 1e-9);
+        assertEquals(80.0, grams[2], 0.0);
+        assertEquals(40.0, grams[3], 0.0, "Unresolved food is taken as grams");
+    }
+}
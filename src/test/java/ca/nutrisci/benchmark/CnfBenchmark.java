@@ -0,0 +1,1160 @@
+package ca.nutrisci.benchmark;
+
+import ca.nutrisci.application.dto.FoodRef;
+import ca.nutrisci.application.dto.IngredientDTO;
+import ca.nutrisci.application.dto.MealDTO;
+import ca.nutrisci.application.dto.NutrientCatalog;
+import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.application.dto.NutrientTotals;
+import ca.nutrisci.application.dto.NutrientVector;
+import ca.nutrisci.application.services.MealLogService;
+import ca.nutrisci.infrastructure.database.DatabaseManager;
+import ca.nutrisci.infrastructure.external.adapters.CnfDatabaseImporter;
+import ca.nutrisci.infrastructure.external.adapters.ExternalAdapter;
+import ca.nutrisci.infrastructure.external.adapters.INutritionGateway;
+import ca.nutrisci.infrastructure.external.adapters.JdbcNutritionGateway;
+import ca.nutrisci.infrastructure.external.cnf.ByteCsvTokenizer;
+import ca.nutrisci.infrastructure.external.cnf.CnfCsvLoader;
+import ca.nutrisci.infrastructure.external.cnf.CnfDataset;
+import ca.nutrisci.infrastructure.external.cnf.CnfSnapshot;
+import ca.nutrisci.infrastructure.external.cnf.ConversionFactorTable;
+import ca.nutrisci.infrastructure.external.cnf.CsvTokenizer;
+import ca.nutrisci.infrastructure.external.cnf.FoodGroupIndex;
+import ca.nutrisci.infrastructure.external.cnf.FoodNameIndex;
+import ca.nutrisci.infrastructure.external.cnf.FuzzyNameMatcher;
+import ca.nutrisci.infrastructure.external.cnf.MacroIndex;
+import ca.nutrisci.infrastructure.external.cnf.MeasureDictionary;
+import ca.nutrisci.infrastructure.external.cnf.NutrientMatrix;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * CnfBenchmark - Manual benchmarks for Canada Nutrient File loading and lookups
+ *
+ * Not a unit test (surefire only runs *Test classes). Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=ca.nutrisci.benchmark.CnfBenchmark \
+ *     -Dexec.args="'Canada Nutrient File-20250622' parse startup"
+ * </pre>
+ * Heap numbers are only meaningful with a fixed heap, e.g. MAVEN_OPTS="-Xms1g -Xmx1g".
+ * The first argument is the CNF directory, the rest select scenarios
+ * (all scenarios except jdbc and scoring run when none are given). The jdbc
+ * scenario needs the database configured in database.properties and its
+ * driver on the classpath, and replaces the CNF data imported there.
+ */
+public class CnfBenchmark {
+
+    private static final String[] CNF_FILES = {
+        "FOOD GROUP.csv", "FOOD NAME.csv", "NUTRIENT AMOUNT.csv", "MEASURE NAME.csv", "CONVERSION FACTOR.csv"
+    };
+
+    private static final String LEGACY_SPLIT = ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
+
+    public static void main(String[] args) throws Exception {
+        String cnfPath = args.length > 0 ? args[0] : "Canada Nutrient File-20250622";
+        String[] scenarios = args.length > 1
+            ? Arrays.copyOfRange(args, 1, args.length)
+            : new String[] {"parse", "pipeline", "snapshot", "heap", "rollup", "search", "french", "groups", "swaps", "units", "conversions", "fuzzy", "startup"};
+
+        for (String scenario : scenarios) {
+            switch (scenario) {
+                case "parse":
+                    benchmarkParse(cnfPath);
+                    break;
+                case "pipeline":
+                    benchmarkPipeline(cnfPath);
+                    break;
+                case "snapshot":
+                    benchmarkSnapshot(cnfPath);
+                    break;
+                case "heap":
+                    benchmarkHeap(cnfPath);
+                    break;
+                case "rollup":
+                    benchmarkRollup(cnfPath);
+                    break;
+                case "search":
+                    benchmarkSearch(cnfPath);
+                    break;
+                case "french":
+                    benchmarkFrench(cnfPath);
+                    break;
+                case "groups":
+                    benchmarkGroups(cnfPath);
+                    break;
+                case "swaps":
+                    benchmarkSwaps(cnfPath);
+                    break;
+                case "units":
+                    benchmarkUnits(cnfPath);
+                    break;
+                case "conversions":
+                    benchmarkConversions(cnfPath);
+                    break;
+                case "fuzzy":
+                    benchmarkFuzzy(cnfPath);
+                    break;
+                case "jdbc":
+                    // Uses the ExternalAdapter singleton, so don't combine with startup
+                    benchmarkJdbc(cnfPath);
+                    break;
+                case "scoring":
+                    // Uses the ExternalAdapter singleton, so don't combine with startup
+                    benchmarkScoring(cnfPath);
+                    break;
+                case "startup":
+                    // Must run last: ExternalAdapter is a per-JVM singleton
+                    benchmarkStartup(cnfPath);
+                    break;
+                default:
+                    System.err.println("Unknown scenario: " + scenario);
+            }
+        }
+    }
+
+    /**
+     * Tokenize every CNF file with the old regex split and with CsvTokenizer
+     */
+    private static void benchmarkParse(String cnfPath) throws IOException {
+        for (int warmup = 0; warmup < 3; warmup++) {
+            parseLegacy(cnfPath);
+            parseTokenizer(cnfPath);
+            parseBytes(cnfPath);
+        }
+
+        int rounds = 5;
+        long legacyNanos = 0;
+        long tokenizerNanos = 0;
+        long bytesNanos = 0;
+        long checksum = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            checksum += parseLegacy(cnfPath);
+            legacyNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long tokenizerFields = parseTokenizer(cnfPath);
+            checksum -= tokenizerFields;
+            tokenizerNanos += System.nanoTime() - start;
+
+            // Byte tokenizer must count exactly what CsvTokenizer does
+            start = System.nanoTime();
+            checksum += parseBytes(cnfPath) - tokenizerFields;
+            bytesNanos += System.nanoTime() - start;
+        }
+
+        report("parse/regex-split", legacyNanos / rounds);
+        report("parse/CsvTokenizer", tokenizerNanos / rounds);
+        report("parse/ByteCsvTokenizer", bytesNanos / rounds);
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    private static long parseLegacy(String cnfPath) throws IOException {
+        long fields = 0;
+        for (String file : CNF_FILES) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(cnfPath + "/" + file))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    fields += line.split(LEGACY_SPLIT).length;
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static long parseTokenizer(String cnfPath) throws IOException {
+        long fields = 0;
+        for (String file : CNF_FILES) {
+            try (CsvTokenizer csv = new CsvTokenizer(new FileReader(cnfPath + "/" + file))) {
+                while (csv.next()) {
+                    int count = csv.fieldCount();
+                    // String.split drops trailing empty fields; count the same way
+                    while (count > 1 && csv.isEmpty(count - 1)) count--;
+                    fields += count;
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static long parseBytes(String cnfPath) throws IOException {
+        long fields = 0;
+        for (String file : CNF_FILES) {
+            try (ByteCsvTokenizer csv = new ByteCsvTokenizer(Paths.get(cnfPath, file), StandardCharsets.ISO_8859_1)) {
+                while (csv.next()) {
+                    int count = csv.fieldCount();
+                    while (count > 1 && csv.isEmpty(count - 1)) count--;
+                    fields += count;
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Wall-clock time of the parallel CSV load on pools of 1, 2, 4 and 8 threads.
+     * Speedup is bounded by the cores actually available.
+     */
+    private static void benchmarkPipeline(String cnfPath) throws IOException {
+        Path cnfDirectory = Paths.get(cnfPath);
+        System.out.println("(" + Runtime.getRuntime().availableProcessors() + " cores available)");
+
+        long baseline = 0;
+        for (int threads : new int[] {1, 2, 4, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (int warmup = 0; warmup < 3; warmup++) {
+                    CnfCsvLoader.load(cnfDirectory, pool);
+                }
+                long best = Long.MAX_VALUE;
+                for (int round = 0; round < 5; round++) {
+                    long start = System.nanoTime();
+                    CnfCsvLoader.load(cnfDirectory, pool);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                if (threads == 1) {
+                    baseline = best;
+                }
+                report(String.format(Locale.ROOT, "pipeline/%d threads (speedup %.2fx)",
+                        threads, (double) baseline / best), best);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Full CSV parse versus reading the compiled snapshot
+     */
+    private static void benchmarkSnapshot(String cnfPath) throws IOException {
+        Path cnfDirectory = Paths.get(cnfPath);
+        Path snapshotFile = cnfDirectory.resolve(CnfSnapshot.SNAPSHOT_FILE);
+
+        long start = System.nanoTime();
+        CnfCsvLoader.load(cnfDirectory);
+        report("snapshot/csv load (cold)", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        CnfSnapshot.compile(cnfDirectory, snapshotFile);
+        report("snapshot/compile (csv load + write)", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        CnfSnapshot.loadOrCompile(cnfDirectory);
+        report("snapshot/mapped load (cold)", System.nanoTime() - start);
+
+        int rounds = 10;
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            CnfSnapshot.loadOrCompile(cnfDirectory);
+        }
+        report("snapshot/repeat load (shared dataset)", (System.nanoTime() - start) / rounds);
+    }
+
+    /**
+     * Retained heap and random-lookup cost of the old nested nutrient map versus NutrientMatrix
+     */
+    private static void benchmarkHeap(String cnfPath) throws IOException {
+        long before = usedHeap();
+        Map<String, Map<String, Double>> legacy = loadLegacyNutrients(cnfPath);
+        long legacyBytes = usedHeap() - before;
+
+        before = usedHeap();
+        NutrientMatrix matrix = CnfCsvLoader.load(Paths.get(cnfPath)).getNutrientMatrix();
+        long matrixBytes = usedHeap() - before;
+
+        System.out.println(String.format(Locale.ROOT, "%-55s %10.1f MB", "heap/nested HashMap<String,Map<String,Double>>",
+                legacyBytes / (1024.0 * 1024.0)));
+        System.out.println(String.format(Locale.ROOT, "%-55s %10.1f MB", "heap/NutrientMatrix (measured)",
+                matrixBytes / (1024.0 * 1024.0)));
+        System.out.println(String.format(Locale.ROOT, "%-55s %10.1f MB", "heap/NutrientMatrix (byteSize)",
+                matrix.byteSize() / (1024.0 * 1024.0)));
+
+        // Random (food, nutrient) lookups by CNF id
+        int lookups = 2_000_000;
+        int[] foodIds = new int[lookups];
+        int[] nutrientIds = new int[lookups];
+        Random random = new Random(42);
+        for (int i = 0; i < lookups; i++) {
+            foodIds[i] = matrix.foodId(random.nextInt(matrix.foodCount()));
+            nutrientIds[i] = matrix.nutrientId(random.nextInt(matrix.nutrientCount()));
+        }
+
+        double checksum = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                Map<String, Double> nutrients = legacy.get(String.valueOf(foodIds[i]));
+                Double value = nutrients != null ? nutrients.get(String.valueOf(nutrientIds[i])) : null;
+                checksum += value != null ? value : 0.0;
+            }
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                checksum -= matrix.amount(foodIds[i], nutrientIds[i]);
+            }
+            long matrixNanos = System.nanoTime() - start;
+
+            if (round == 2) {
+                report("lookup/nested map x" + lookups, legacyNanos);
+                report("lookup/NutrientMatrix x" + lookups, matrixNanos);
+            }
+        }
+        System.out.println("(checksum " + checksum + ", rows " + legacy.size() + ")");
+    }
+
+    /**
+     * The nutrient store ExternalAdapter used to keep: foodId -> (nutrientId -> value)
+     */
+    private static Map<String, Map<String, Double>> loadLegacyNutrients(String cnfPath) throws IOException {
+        Map<String, Map<String, Double>> foodNutrients = new HashMap<>();
+        try (CsvTokenizer csv = new CsvTokenizer(new FileReader(cnfPath + "/" + CnfCsvLoader.NUTRIENT_AMOUNT_FILE))) {
+            csv.next(); // Skip header
+            while (csv.next()) {
+                if (csv.fieldCount() >= 4 && !csv.isEmpty(2) && !csv.fieldEquals(2, "0")) {
+                    foodNutrients.computeIfAbsent(csv.fieldString(0), k -> new HashMap<>())
+                        .put(csv.fieldString(1), csv.fieldDouble(2));
+                }
+            }
+        }
+        return foodNutrients;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Weekly rollups of every nutrient over NutrientVectors: time and bytes allocated per rollup
+     */
+    private static void benchmarkRollup(String cnfPath) throws IOException {
+        NutrientMatrix matrix = CnfCsvLoader.load(Paths.get(cnfPath)).getNutrientMatrix();
+        NutrientCatalog catalog = matrix.getCatalog();
+
+        // A week of 4 meals x 6 ingredients, resolved up front like meals in memory
+        int ingredients = 7 * 4 * 6;
+        NutrientVector[] vectors = new NutrientVector[ingredients];
+        double[] grams = new double[ingredients];
+        Random random = new Random(7);
+        for (int i = 0; i < ingredients; i++) {
+            vectors[i] = matrix.vector(random.nextInt(matrix.foodCount()));
+            grams[i] = 25 + random.nextInt(200);
+        }
+
+        NutrientTotals totals = new NutrientTotals(catalog);
+        int rollups = 20_000;
+        double checksum = 0;
+        for (int round = 0; round < 3; round++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            for (int r = 0; r < rollups; r++) {
+                totals.clear();
+                for (int i = 0; i < ingredients; i++) {
+                    totals.add(vectors[i], grams[i]);
+                }
+                checksum += totals.get(NutrientCatalog.SODIUM);
+            }
+            long elapsed = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            if (round == 2) {
+                report("rollup/week of " + ingredients + " ingredients x" + rollups, elapsed);
+                System.out.println(String.format(Locale.ROOT, "%-55s %10.1f B", "rollup/allocated per rollup",
+                        allocated / (double) rollups));
+            }
+        }
+        System.out.println("(checksum " + checksum + ", " + catalog.size() + " nutrients)");
+    }
+
+    /**
+     * Type-ahead replay: every prefix of 300 food names, linear scan + sort versus FoodNameIndex
+     */
+    private static void benchmarkSearch(String cnfPath) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (String description : CnfCsvLoader.load(Paths.get(cnfPath)).getFoodDescriptions()) {
+            names.add(description.toLowerCase().trim());
+        }
+
+        FoodNameIndex index = null;
+        long start = 0;
+        for (int round = 0; round < 5; round++) {
+            start = System.nanoTime();
+            index = new FoodNameIndex(names);
+        }
+        report("search/build " + index + " (warm)", System.nanoTime() - start);
+
+        List<String> queries = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            String name = names.get(random.nextInt(names.size()));
+            int from = random.nextInt(Math.max(1, name.length() / 2));
+            for (int end = from + 1; end <= Math.min(name.length(), from + 12); end++) {
+                String query = name.substring(from, end).trim();
+                if (!query.isEmpty()) queries.add(query);
+            }
+        }
+
+        long checksum = 0;
+        for (int round = 0; round < 5; round++) {
+            long[] scanNanos = new long[queries.size()];
+            long[] indexNanos = new long[queries.size()];
+            long[] topNanos = new long[queries.size()];
+            for (int q = 0; q < queries.size(); q++) {
+                String term = queries.get(q);
+
+                long t0 = System.nanoTime();
+                checksum += legacySearch(names, term).size();
+                long t1 = System.nanoTime();
+                checksum -= index.search(term, Integer.MAX_VALUE).size();
+                long t2 = System.nanoTime();
+                checksum += index.search(term, 100).size();
+                long t3 = System.nanoTime();
+
+                scanNanos[q] = t1 - t0;
+                indexNanos[q] = t2 - t1;
+                topNanos[q] = t3 - t2;
+            }
+            if (round == 4) {
+                reportPercentiles("search/linear scan + sort", scanNanos);
+                reportPercentiles("search/FoodNameIndex (all matches)", indexNanos);
+                reportPercentiles("search/FoodNameIndex (top 100)", topNanos);
+            }
+        }
+        System.out.println("(" + queries.size() + " queries, checksum " + checksum + ")");
+    }
+
+    /**
+     * Memory and query cost of indexing the French names (FoodDescriptionF):
+     * English only, bilingual (French in the English ordinals and postings) and
+     * a separate French index, then prefix replays of French names
+     */
+    private static void benchmarkFrench(String cnfPath) throws IOException {
+        CnfDataset dataset = CnfCsvLoader.load(Paths.get(cnfPath));
+        List<String> names = new ArrayList<>();
+        Map<String, String> frenchNames = new HashMap<>();
+        List<String> folded = new ArrayList<>();
+        for (int i = 0; i < dataset.getFoodCount(); i++) {
+            String name = dataset.getFoodDescriptions()[i].toLowerCase().trim();
+            String french = dataset.getFoodDescriptionsF()[i].toLowerCase().trim();
+            names.add(name);
+            frenchNames.put(name, french);
+            folded.add(FoodNameIndex.fold(french));
+        }
+
+        long before = usedHeap();
+        FoodNameIndex english = new FoodNameIndex(names);
+        long englishHeap = usedHeap() - before;
+        before = usedHeap();
+        FoodNameIndex bilingual = new FoodNameIndex(names, frenchNames);
+        long bilingualHeap = usedHeap() - before;
+        before = usedHeap();
+        FoodNameIndex separate = new FoodNameIndex(folded);
+        long separateHeap = usedHeap() - before;
+
+        System.out.println(String.format(Locale.ROOT, "%-55s %10.1f KB %10.1f KB", "french/English only (byteSize, measured)",
+                english.byteSize() / 1024.0, englishHeap / 1024.0));
+        System.out.println(String.format(Locale.ROOT, "%-55s %10.1f KB %10.1f KB", "french/bilingual (byteSize, measured)",
+                bilingual.byteSize() / 1024.0, bilingualHeap / 1024.0));
+        System.out.println(String.format(Locale.ROOT, "%-55s %10.1f KB %10.1f KB", "french/  + separate French index",
+                (english.byteSize() + separate.byteSize()) / 1024.0, (englishHeap + separateHeap) / 1024.0));
+        System.out.println(bilingual + " / " + english + " + " + separate);
+
+        List<String> queries = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            String name = folded.get(random.nextInt(folded.size()));
+            for (int end = 1; end <= Math.min(name.length(), 12); end++) {
+                String query = name.substring(0, end).trim();
+                if (!query.isEmpty()) queries.add(query);
+            }
+        }
+
+        long checksum = 0;
+        for (int round = 0; round < 5; round++) {
+            long[] englishNanos = new long[queries.size()];
+            long[] bilingualEnglishNanos = new long[queries.size()];
+            long[] frenchNanos = new long[queries.size()];
+            long[] anyNanos = new long[queries.size()];
+            for (int q = 0; q < queries.size(); q++) {
+                String term = queries.get(q);
+
+                long t0 = System.nanoTime();
+                checksum += english.search(term, 100).size();
+                long t1 = System.nanoTime();
+                checksum -= bilingual.search(term, 100).size();
+                long t2 = System.nanoTime();
+                checksum += bilingual.search(term, FoodNameIndex.Language.FRENCH, 100).size();
+                long t3 = System.nanoTime();
+                checksum += bilingual.search(term, FoodNameIndex.Language.ANY, 100).size();
+                long t4 = System.nanoTime();
+
+                englishNanos[q] = t1 - t0;
+                bilingualEnglishNanos[q] = t2 - t1;
+                frenchNanos[q] = t3 - t2;
+                anyNanos[q] = t4 - t3;
+            }
+            if (round == 4) {
+                reportPercentiles("french/English only index, English (top 100)", englishNanos);
+                reportPercentiles("french/bilingual index, English (top 100)", bilingualEnglishNanos);
+                reportPercentiles("french/bilingual index, French (top 100)", frenchNanos);
+                reportPercentiles("french/bilingual index, either (top 100)", anyNanos);
+            }
+        }
+        System.out.println("(" + queries.size() + " queries, checksum " + checksum + ")");
+    }
+
+    /**
+     * Listing a food group (and searching within one) with the old map scan + sort
+     * versus the precomputed group ordinals; the dialog reads every listed name
+     */
+    private static void benchmarkGroups(String cnfPath) throws IOException {
+        CnfDataset dataset = CnfCsvLoader.load(Paths.get(cnfPath));
+        Map<Integer, String> groups = new HashMap<>();
+        for (int i = 0; i < dataset.getGroupIds().length; i++) {
+            groups.put(dataset.getGroupIds()[i], dataset.getGroupNames()[i]);
+        }
+        Map<String, Integer> foodToGroup = new HashMap<>();
+        for (int i = 0; i < dataset.getFoodIds().length; i++) {
+            foodToGroup.put(dataset.getFoodDescriptions()[i].toLowerCase().trim(), dataset.getFoodGroupIds()[i]);
+        }
+        FoodNameIndex names = new FoodNameIndex(foodToGroup.keySet());
+        FoodGroupIndex groupIndex = new FoodGroupIndex(groups, names, foodToGroup);
+
+        String[] terms = {"ch", "raw", "chee", "cooked", "salt"};
+        long checksum = 0;
+        for (int round = 0; round < 20; round++) {
+            long[] legacyNanos = new long[groups.size()];
+            long[] indexNanos = new long[groups.size()];
+            long[] legacyTextNanos = new long[groups.size() * terms.length];
+            long[] indexTextNanos = new long[groups.size() * terms.length];
+            int g = 0;
+            for (String groupName : groups.values()) {
+                long t0 = System.nanoTime();
+                checksum += legacyGroup(groups, foodToGroup, groupName).size();
+                long t1 = System.nanoTime();
+                List<String> view = names.view(groupIndex.members(groupIndex.find(groupName)));
+                for (String name : view) {
+                    checksum -= name.isEmpty() ? 0 : 1;
+                }
+                long t2 = System.nanoTime();
+                legacyNanos[g] = t1 - t0;
+                indexNanos[g] = t2 - t1;
+
+                for (int t = 0; t < terms.length; t++) {
+                    long t3 = System.nanoTime();
+                    List<String> legacy = legacySearch(legacyGroup(groups, foodToGroup, groupName), terms[t]);
+                    checksum += Math.min(100, legacy.size());
+                    long t4 = System.nanoTime();
+                    checksum -= names.search(terms[t], groupIndex.members(groupIndex.find(groupName)), 100).size();
+                    long t5 = System.nanoTime();
+                    legacyTextNanos[g * terms.length + t] = t4 - t3;
+                    indexTextNanos[g * terms.length + t] = t5 - t4;
+                }
+                g++;
+            }
+            if (round == 19) {
+                reportPercentiles("groups/map scan + sort", legacyNanos);
+                reportPercentiles("groups/FoodGroupIndex view", indexNanos);
+                reportPercentiles("groups/group + text, scan + filter", legacyTextNanos);
+                reportPercentiles("groups/group + text, intersection", indexTextNanos);
+            }
+        }
+        System.out.println("(" + groups.size() + " groups, checksum " + checksum + ")");
+    }
+
+    // The former ExternalAdapter.getIngredientsByGroup
+    private static List<String> legacyGroup(Map<Integer, String> groups, Map<String, Integer> foodToGroup,
+                                            String groupName) {
+        List<String> results = new ArrayList<>();
+        Integer targetGroupId = null;
+        for (Map.Entry<Integer, String> entry : groups.entrySet()) {
+            if (entry.getValue().toLowerCase().contains(groupName.toLowerCase())) {
+                targetGroupId = entry.getKey();
+                break;
+            }
+        }
+        if (targetGroupId != null) {
+            for (Map.Entry<String, Integer> entry : foodToGroup.entrySet()) {
+                if (entry.getValue().equals(targetGroupId)) {
+                    results.add(entry.getKey());
+                }
+            }
+        }
+        Collections.sort(results);
+        return results;
+    }
+
+    /**
+     * Swap candidates: the k nearest foods of the same group with at least 10% less
+     * (or more) of one macronutrient, from MacroIndex's KD-trees and from a scan of
+     * the group; mismatches counts queries where the two disagree
+     */
+    private static void benchmarkSwaps(String cnfPath) throws IOException {
+        CnfDataset dataset = CnfCsvLoader.load(Paths.get(cnfPath));
+        Map<Integer, String> groups = new HashMap<>();
+        for (int i = 0; i < dataset.getGroupIds().length; i++) {
+            groups.put(dataset.getGroupIds()[i], dataset.getGroupNames()[i]);
+        }
+        NutrientMatrix matrix = dataset.getNutrientMatrix();
+        Map<String, Integer> foodToGroup = new HashMap<>();
+        Map<String, Integer> rowOfFood = new HashMap<>();
+        for (int i = 0; i < dataset.getFoodIds().length; i++) {
+            int row = matrix.foodOrdinal(dataset.getFoodIds()[i]);
+            if (row >= 0 && matrix.hasData(row)) {
+                String name = dataset.getFoodDescriptions()[i].toLowerCase().trim();
+                foodToGroup.put(name, dataset.getFoodGroupIds()[i]);
+                rowOfFood.put(name, row);
+            }
+        }
+        FoodNameIndex names = new FoodNameIndex(foodToGroup.keySet());
+        FoodGroupIndex groupIndex = new FoodGroupIndex(groups, names, foodToGroup);
+
+        float[] amounts = new float[names.size() * MacroIndex.DIMENSIONS];
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            NutrientInfo info = matrix.vector(rowOfFood.get(names.name(ordinal))).toNutrientInfo();
+            int offset = ordinal * MacroIndex.DIMENSIONS;
+            amounts[offset + MacroIndex.CALORIES] = (float) info.getCalories();
+            amounts[offset + MacroIndex.PROTEIN] = (float) info.getProtein();
+            amounts[offset + MacroIndex.CARBS] = (float) info.getCarbs();
+            amounts[offset + MacroIndex.FAT] = (float) info.getFat();
+            amounts[offset + MacroIndex.FIBER] = (float) info.getFiber();
+        }
+        long buildStart = System.nanoTime();
+        MacroIndex index = new MacroIndex(groupIndex, amounts);
+        report("swaps/build " + index, System.nanoTime() - buildStart);
+        float[] points = scaledMacros(amounts);
+
+        int k = 8;
+        int queries = 5000;
+        Random random = new Random(17);
+        long checksum = 0;
+        int mismatches = 0;
+        for (int round = 0; round < 5; round++) {
+            long[] scanNanos = new long[queries];
+            long[] treeNanos = new long[queries];
+            for (int q = 0; q < queries; q++) {
+                int ordinal = random.nextInt(names.size());
+                int dimension = random.nextInt(MacroIndex.DIMENSIONS);
+                boolean lower = random.nextBoolean();
+
+                long t0 = System.nanoTime();
+                int[] scanned = scanNearest(points, groupIndex, index.groupOf(ordinal), ordinal, dimension, lower, k);
+                long t1 = System.nanoTime();
+                int[] nearest = index.nearest(ordinal, dimension, lower, k);
+                long t2 = System.nanoTime();
+
+                scanNanos[q] = t1 - t0;
+                treeNanos[q] = t2 - t1;
+                checksum += nearest.length;
+                if (!Arrays.equals(scanned, nearest)) {
+                    mismatches++;
+                }
+            }
+            if (round == 4) {
+                reportPercentiles("swaps/group scan, k=" + k, scanNanos);
+                reportPercentiles("swaps/MacroIndex KD-tree, k=" + k, treeNanos);
+            }
+        }
+        System.out.println("(" + names.size() + " foods, " + mismatches + " mismatches, checksum " + checksum + ")");
+    }
+
+    // Amounts divided by their standard deviation, as MacroIndex scales them
+    private static float[] scaledMacros(float[] amounts) {
+        int foods = amounts.length / MacroIndex.DIMENSIONS;
+        float[] points = new float[amounts.length];
+        for (int d = 0; d < MacroIndex.DIMENSIONS; d++) {
+            double sum = 0;
+            double sumOfSquares = 0;
+            for (int food = 0; food < foods; food++) {
+                double amount = amounts[food * MacroIndex.DIMENSIONS + d];
+                sum += amount;
+                sumOfSquares += amount * amount;
+            }
+            double mean = sum / foods;
+            double deviation = Math.sqrt(Math.max(0, sumOfSquares / foods - mean * mean));
+            float scale = deviation > 0 ? (float) (1.0 / deviation) : 1f;
+            for (int food = 0; food < foods; food++) {
+                points[food * MacroIndex.DIMENSIONS + d] = amounts[food * MacroIndex.DIMENSIONS + d] * scale;
+            }
+        }
+        return points;
+    }
+
+    // Every food of the group checked against the bound, then sorted by distance
+    private static int[] scanNearest(float[] points, FoodGroupIndex groups, int group, int ordinal, int dimension,
+                                     boolean lower, int k) {
+        if (group < 0) {
+            return new int[0];
+        }
+        int dims = MacroIndex.DIMENSIONS;
+        float value = points[ordinal * dims + dimension];
+        float bound = lower ? value * (1 - MacroIndex.MIN_CHANGE) : value * (1 + MacroIndex.MIN_CHANGE);
+        List<float[]> candidates = new ArrayList<>();
+        for (int member : groups.members(group)) {
+            float memberValue = points[member * dims + dimension];
+            if (member == ordinal || (lower ? memberValue >= bound : memberValue <= bound)) {
+                continue;
+            }
+            float distance = 0;
+            for (int d = 0; d < dims; d++) {
+                float difference = points[member * dims + d] - points[ordinal * dims + d];
+                distance += difference * difference;
+            }
+            candidates.add(new float[] {distance, member});
+        }
+        candidates.sort((a, b) -> a[0] != b[0] ? Float.compare(a[0], b[0]) : Float.compare(a[1], b[1]));
+        int[] nearest = new int[Math.min(k, candidates.size())];
+        for (int i = 0; i < nearest.length; i++) {
+            nearest[i] = (int) candidates.get(i)[1];
+        }
+        return nearest;
+    }
+
+    /**
+     * Measure name resolution: the old exact-then-contains scan over every measure
+     * name against MeasureDictionary, for full names ("2 slices") and bare units
+     * ("slices"); unresolved counts the queries each left without a measure
+     */
+    private static void benchmarkUnits(String cnfPath) throws IOException {
+        CnfDataset dataset = CnfCsvLoader.load(Paths.get(cnfPath));
+        Map<Integer, String> measureIdToName = new HashMap<>();
+        for (int i = 0; i < dataset.getMeasureIds().length; i++) {
+            measureIdToName.put(dataset.getMeasureIds()[i], dataset.getMeasureNames()[i]);
+        }
+        long buildStart = System.nanoTime();
+        MeasureDictionary dictionary = new MeasureDictionary(dataset.getMeasureIds(), dataset.getMeasureNames());
+        report("units/build " + dictionary, System.nanoTime() - buildStart);
+
+        List<String> units = new ArrayList<>();
+        for (String name : dataset.getMeasureNames()) {
+            units.add(name);
+            units.add(name.replaceFirst("^[0-9./]+\\s*", "").replaceFirst("\\s*[(,].*$", ""));
+        }
+
+        int queries = 5000;
+        Random random = new Random(18);
+        long checksum = 0;
+        int scanUnresolved = 0;
+        int dictionaryUnresolved = 0;
+        for (int round = 0; round < 5; round++) {
+            long[] scanNanos = new long[queries];
+            long[] dictionaryNanos = new long[queries];
+            for (int q = 0; q < queries; q++) {
+                String unit = units.get(random.nextInt(units.size()));
+
+                long t0 = System.nanoTime();
+                Integer scanned = legacyMeasureId(measureIdToName, unit);
+                long t1 = System.nanoTime();
+                int found = dictionary.find(unit);
+                long t2 = System.nanoTime();
+
+                scanNanos[q] = t1 - t0;
+                dictionaryNanos[q] = t2 - t1;
+                checksum += found;
+                if (round == 4) {
+                    scanUnresolved += scanned == null ? 1 : 0;
+                    dictionaryUnresolved += found < 0 ? 1 : 0;
+                }
+            }
+            if (round == 4) {
+                reportPercentiles("units/linear scan", scanNanos);
+                reportPercentiles("units/MeasureDictionary", dictionaryNanos);
+            }
+        }
+        System.out.println("(" + dictionary.size() + " measures, unresolved: scan " + scanUnresolved
+                + ", dictionary " + dictionaryUnresolved + ", checksum " + checksum + ")");
+    }
+
+    /**
+     * Conversion factor storage: retained heap of the old foodId -> (measureId -> factor)
+     * maps against ConversionFactorTable, random factor lookups in each, and the
+     * bytes a warm unit-to-grams conversion allocates (measure match plus factor)
+     */
+    private static void benchmarkConversions(String cnfPath) throws IOException {
+        CnfDataset dataset = CnfCsvLoader.load(Paths.get(cnfPath));
+        int[] foodIds = dataset.getConversionFoodIds();
+        int[] measureIds = dataset.getConversionMeasureIds();
+        double[] factors = dataset.getConversionFactors();
+
+        long before = usedHeap();
+        Map<Integer, Map<Integer, Double>> legacy = new HashMap<>();
+        for (int i = 0; i < foodIds.length; i++) {
+            legacy.computeIfAbsent(foodIds[i], k -> new HashMap<>()).put(measureIds[i], factors[i]);
+        }
+        long legacyBytes = usedHeap() - before;
+
+        before = usedHeap();
+        ConversionFactorTable table = new ConversionFactorTable(foodIds, measureIds, factors);
+        long tableBytes = usedHeap() - before;
+
+        System.out.println(String.format(Locale.ROOT, "%-55s %10.1f KB", "conversions/HashMap<Integer,Map<Integer,Double>>",
+                legacyBytes / 1024.0));
+        System.out.println(String.format(Locale.ROOT, "%-55s %10.1f KB", "conversions/ConversionFactorTable (measured)",
+                tableBytes / 1024.0));
+        System.out.println(String.format(Locale.ROOT, "%-55s %10.1f KB", "conversions/ConversionFactorTable (byteSize)",
+                table.byteSize() / 1024.0));
+
+        // Random existing (food, measure) pairs
+        int lookups = 2_000_000;
+        int[] rows = new int[lookups];
+        Random random = new Random(19);
+        for (int i = 0; i < lookups; i++) {
+            rows[i] = random.nextInt(foodIds.length);
+        }
+        double checksum = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int row : rows) {
+                checksum += legacy.get(foodIds[row]).get(measureIds[row]);
+            }
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int row : rows) {
+                checksum -= table.factor(foodIds[row], measureIds[row]);
+            }
+            long tableNanos = System.nanoTime() - start;
+
+            if (round == 2) {
+                report("conversions/nested map lookup x" + lookups, legacyNanos);
+                report("conversions/ConversionFactorTable lookup x" + lookups, tableNanos);
+            }
+        }
+
+        // Warm conversions by unit name, as UnitConversionService.convertToGrams does them
+        MeasureDictionary dictionary = new MeasureDictionary(dataset.getMeasureIds(), dataset.getMeasureNames());
+        String[] units = new String[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            units[i] = dictionary.name(measureIds[rows[i]]);
+        }
+        int[] tableMeasures = table.measureIds();
+        for (int round = 0; round < 3; round++) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < rows.length; i++) {
+                int food = table.foodOrdinal(foodIds[rows[i]]);
+                int measureId = dictionary.find(units[i], tableMeasures, table.start(food), table.end(food));
+                checksum += measureId >= 0 ? table.factor(foodIds[rows[i]], measureId) : 0;
+            }
+            long nanos = System.nanoTime() - start;
+            allocated = allocatedBytes() - allocated;
+            if (round == 2) {
+                report("conversions/convert by unit name x" + lookups, nanos);
+                System.out.println(String.format(Locale.ROOT, "%-55s %10.2f B", "conversions/allocated per conversion",
+                        (double) allocated / lookups));
+            }
+        }
+        System.out.println("(" + table + ", " + legacy.size() + " foods in maps, checksum " + checksum + ")");
+    }
+
+    // UnitConversionService's former findMeasureIdByName, without its logging
+    private static Integer legacyMeasureId(Map<Integer, String> measureIdToName, String unitName) {
+        String cleanUnitName = unitName.trim();
+        for (Map.Entry<Integer, String> entry : measureIdToName.entrySet()) {
+            if (entry.getValue().equalsIgnoreCase(cleanUnitName)) {
+                return entry.getKey();
+            }
+        }
+        for (Map.Entry<Integer, String> entry : measureIdToName.entrySet()) {
+            String measureName = entry.getValue().toLowerCase();
+            String searchUnit = cleanUnitName.toLowerCase();
+            if (measureName.contains(searchUnit) || searchUnit.contains(measureName.replace("1 ", ""))) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Misspelled names (1-2 random edits): old contains-either-way scan, brute-force
+     * edit distance scan and the BK-tree, with how often each finds the intended food
+     */
+    private static void benchmarkFuzzy(String cnfPath) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (String description : CnfCsvLoader.load(Paths.get(cnfPath)).getFoodDescriptions()) {
+            names.add(description.toLowerCase().trim());
+        }
+        FoodNameIndex index = new FoodNameIndex(names);
+
+        FuzzyNameMatcher matcher = null;
+        long start = 0;
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            matcher = new FuzzyNameMatcher(index);
+        }
+        report("fuzzy/build BK-tree (warm)", System.nanoTime() - start);
+
+        Random random = new Random(11);
+        int queryCount = 200;
+        String[] intended = new String[queryCount];
+        String[] queries = new String[queryCount];
+        for (int q = 0; q < queryCount; q++) {
+            intended[q] = index.name(random.nextInt(index.size()));
+            StringBuilder typo = new StringBuilder(intended[q]);
+            for (int edit = 0; edit <= random.nextInt(2); edit++) {
+                int at = random.nextInt(typo.length());
+                if (random.nextBoolean()) {
+                    typo.setCharAt(at, (char) ('a' + random.nextInt(26)));
+                } else {
+                    typo.deleteCharAt(at);
+                }
+            }
+            queries[q] = typo.toString();
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long[] containsNanos = new long[queryCount];
+            long[] scanNanos = new long[queryCount];
+            long[] treeNanos = new long[queryCount];
+            int containsHits = 0;
+            int scanHits = 0;
+            int treeHits = 0;
+            for (int q = 0; q < queryCount; q++) {
+                String term = queries[q];
+
+                long t0 = System.nanoTime();
+                String legacy = null;
+                for (String name : names) {
+                    if (name.contains(term) || term.contains(name)) {
+                        legacy = name;
+                        break;
+                    }
+                }
+                long t1 = System.nanoTime();
+                String scanned = null;
+                int best = 3;
+                for (int i = 0; i < index.size(); i++) {
+                    int distance = levenshtein(term, index.name(i));
+                    if (distance < best || (distance == best && scanned == null)) {
+                        best = distance;
+                        scanned = index.name(i);
+                    }
+                }
+                long t2 = System.nanoTime();
+                List<ca.nutrisci.application.dto.FoodMatch> tree = matcher.closest(term, 5, 3);
+                long t3 = System.nanoTime();
+
+                containsNanos[q] = t1 - t0;
+                scanNanos[q] = t2 - t1;
+                treeNanos[q] = t3 - t2;
+                if (intended[q].equals(legacy)) containsHits++;
+                if (intended[q].equals(scanned)) scanHits++;
+                if (!tree.isEmpty() && intended[q].equals(tree.get(0).getName())) treeHits++;
+            }
+            if (round == 2) {
+                reportPercentiles("fuzzy/contains scan (hits " + containsHits + "/" + queryCount + ")", containsNanos);
+                reportPercentiles("fuzzy/edit distance scan (hits " + scanHits + "/" + queryCount + ")", scanNanos);
+                reportPercentiles("fuzzy/BK-tree top 5, d<=3 (hits " + treeHits + "/" + queryCount + ")", treeNanos);
+            }
+        }
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[] row = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) row[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            int diagonal = row[0];
+            row[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int above = row[j];
+                row[j] = Math.min(Math.min(row[j - 1], above) + 1,
+                        diagonal + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+                diagonal = above;
+            }
+        }
+        return row[b.length()];
+    }
+
+    // What ExternalAdapter.searchIngredients used to do
+    private static List<String> legacySearch(List<String> names, String searchTerm) {
+        List<String> results = new ArrayList<>();
+        for (String ingredient : names) {
+            if (ingredient.contains(searchTerm)) {
+                results.add(ingredient);
+            }
+        }
+        results.sort((a, b) -> {
+            boolean aExact = a.startsWith(searchTerm);
+            boolean bExact = b.startsWith(searchTerm);
+            if (aExact && !bExact) return -1;
+            if (!aExact && bExact) return 1;
+            return a.compareTo(b);
+        });
+        return results;
+    }
+
+    static void reportPercentiles(String name, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.println(String.format(Locale.ROOT, "%-55s p50 %8.1f us  p99 %8.1f us  max %8.1f us", name,
+                sorted[sorted.length / 2] / 1000.0,
+                sorted[(int) (sorted.length * 0.99)] / 1000.0,
+                sorted[sorted.length - 1] / 1000.0));
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * JdbcNutritionGateway against ExternalAdapter: bulk import time per batch
+     * size, gateway startup once the tables are filled, and lookup latency with
+     * a cold and a warm cache
+     */
+    private static void benchmarkJdbc(String cnfPath) throws Exception {
+        DatabaseManager db = DatabaseManager.getInstance();
+        if (!db.isAvailable()) {
+            System.out.println("jdbc/skipped: database " + db.getDatabaseType() + " is not available");
+            return;
+        }
+
+        Path cnfDirectory = Paths.get(cnfPath);
+        new CnfDatabaseImporter(db, CnfDatabaseImporter.DEFAULT_BATCH_SIZE).importDirectory(cnfDirectory); // warm-up
+        for (int batchSize : new int[] {1, 100, 1000, 5000}) {
+            long start = System.nanoTime();
+            new CnfDatabaseImporter(db, batchSize).importDirectory(cnfDirectory);
+            report("jdbc/import, batch size " + batchSize, System.nanoTime() - start);
+        }
+
+        long start = System.nanoTime();
+        JdbcNutritionGateway jdbc = new JdbcNutritionGateway(db, cnfPath, JdbcNutritionGateway.DEFAULT_CACHE_SIZE);
+        jdbc.initialize();
+        report("jdbc/JdbcNutritionGateway startup (tables filled)", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        ExternalAdapter adapter = ExternalAdapter.getInstance(cnfPath);
+        adapter.initialize();
+        report("jdbc/ExternalAdapter startup", System.nanoTime() - start);
+
+        List<String> names = adapter.getAllIngredients();
+        List<String> queries = new ArrayList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            queries.add(names.get(random.nextInt(names.size())));
+        }
+
+        long checksum = 0;
+        String[] passes = {"cold", "warm"};
+        for (String pass : passes) {
+            long[] jdbcNanos = new long[queries.size()];
+            long[] adapterNanos = new long[queries.size()];
+            for (int q = 0; q < queries.size(); q++) {
+                String query = queries.get(q);
+
+                long t0 = System.nanoTime();
+                checksum += (long) jdbc.lookupIngredient(query).getCalories();
+                checksum += jdbc.lookupNutrientVector(query) != null ? 1 : 0;
+                long t1 = System.nanoTime();
+                checksum -= (long) adapter.lookupIngredient(query).getCalories();
+                checksum -= adapter.lookupNutrientVector(query) != null ? 1 : 0;
+                long t2 = System.nanoTime();
+
+                jdbcNanos[q] = t1 - t0;
+                adapterNanos[q] = t2 - t1;
+            }
+            reportPercentiles("jdbc/lookup, JdbcNutritionGateway (" + pass + ")", jdbcNanos);
+            reportPercentiles("jdbc/lookup, ExternalAdapter (" + pass + ")", adapterNanos);
+        }
+        System.out.println("(" + queries.size() + " lookups, checksum " + checksum + ", 0 if both agree)");
+    }
+
+    /**
+     * Meal scoring (MealLogService.calculateNutrients) with every ingredient
+     * weighed as eaten, weighed as purchased, and a mix of both. The refuse and
+     * yield adjustment is precomputed when the data loads, so all three should
+     * run at the same speed.
+     */
+    private static void benchmarkScoring(String cnfPath) {
+        ExternalAdapter adapter = ExternalAdapter.getInstance(cnfPath);
+        adapter.initialize();
+        MealLogService service = new MealLogService();
+
+        // 500 meals x 6 ingredients, resolved up front like meals read from storage
+        List<String> names = adapter.getAllIngredients();
+        List<MealDTO> meals = new ArrayList<>();
+        Random random = new Random(13);
+        for (int m = 0; m < 500; m++) {
+            List<IngredientDTO> ingredients = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                FoodRef ref = adapter.resolveFood(names.get(random.nextInt(names.size())));
+                ingredients.add(new IngredientDTO(ref.getName(), 25 + random.nextInt(200), "g", ref.getFoodId()));
+            }
+            meals.add(new MealDTO(null, null, null, "lunch", ingredients, null));
+        }
+
+        String[] modes = {"as eaten", "as purchased", "mixed"};
+        double checksum = 0;
+        for (int round = 0; round < 6; round++) {
+            for (int m = 0; m < modes.length; m++) {
+                int mode = (m + round) % modes.length; // Rotate so no mode always runs first
+                for (MealDTO meal : meals) {
+                    List<IngredientDTO> ingredients = meal.getIngredients();
+                    for (int i = 0; i < ingredients.size(); i++) {
+                        ingredients.get(i).setAsPurchased(mode == 1 || (mode == 2 && i % 2 == 0));
+                    }
+                }
+
+                int passes = 100;
+                long start = System.nanoTime();
+                for (int pass = 0; pass < passes; pass++) {
+                    for (MealDTO meal : meals) {
+                        checksum += service.calculateNutrients(meal, adapter).getNutrients().getCalories();
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+
+                if (round >= 3) {
+                    int scored = passes * meals.size();
+                    System.out.println(String.format(Locale.ROOT, "%-55s %10.0f meals/s",
+                            "scoring/" + modes[mode] + ", " + scored + " meals", scored / (elapsed / 1e9)));
+                }
+            }
+        }
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    /**
+     * Cold start of the nutrition gateway: how long the caller (the EDT at launch)
+     * is blocked versus when the background load finishes. Run it on its own for a
+     * cold number, as earlier scenarios leave the dataset cached by CnfSnapshot.
+     */
+    private static void benchmarkStartup(String cnfPath) {
+        long start = System.nanoTime();
+        ExternalAdapter adapter = ExternalAdapter.getInstance(cnfPath);
+        CompletableFuture<INutritionGateway> ready = adapter.initializeAsync((step, done, total) ->
+                report("startup/  " + done + "/" + total + " " + step, System.nanoTime() - start));
+        report("startup/caller blocked (getInstance + initializeAsync)", System.nanoTime() - start);
+
+        ready.join();
+        report("startup/data ready (available=" + adapter.isAvailable() + ")", System.nanoTime() - start);
+    }
+
+    static void report(String name, long nanos) {
+        System.out.println(String.format(Locale.ROOT, "%-55s %10.2f ms", name, nanos / 1_000_000.0));
+    }
+}
@@ -0,0 +1,330 @@
+package ca.nutrisci.benchmark;
+
+import ca.nutrisci.application.dto.IngredientDTO;
+import ca.nutrisci.application.dto.MealDTO;
+import ca.nutrisci.application.dto.NutrientInfo;
+import ca.nutrisci.domain.entities.Profile;
+import ca.nutrisci.infrastructure.data.repositories.FileMealLogRepo;
+import ca.nutrisci.infrastructure.data.repositories.FileProfileRepo;
+import ca.nutrisci.infrastructure.data.repositories.MealStorageFormat;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static ca.nutrisci.benchmark.CnfBenchmark.report;
+import static ca.nutrisci.benchmark.CnfBenchmark.reportPercentiles;
+
+/**
+ * MealLogBenchmark - Manual benchmarks for the file-based meal log
+ *
+ * Not a unit test (surefire only runs *Test classes). Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=ca.nutrisci.benchmark.MealLogBenchmark \
+ *     -Dexec.args="/tmp/meal-log-benchmark 10000 100000 1000000"
+ * </pre>
+ * The first argument is a scratch directory (its meals.csv, meals.bin and profiles.csv are overwritten),
+ * the rest are history sizes (10k, 100k and 1M meals when none are given).
+ * 1M meals need about 1 GB of heap, e.g. MAVEN_OPTS="-Xmx2g".
+ */
+public class MealLogBenchmark {
+
+    private static final int PROFILES = 20;
+    private static final int DAYS = 3650;
+    private static final String[] MEAL_TYPES = {"breakfast", "lunch", "dinner", "snack"};
+
+    public static void main(String[] args) throws Exception {
+        String directory = args.length > 0 ? args[0] : System.getProperty("java.io.tmpdir") + "/meal-log-benchmark";
+        int[] sizes = args.length > 1
+            ? java.util.Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+            : new int[] {10_000, 100_000, 1_000_000};
+
+        new File(directory).mkdirs();
+        benchmarkGroupCommit(directory + "/meals.csv");
+        for (int profiles : new int[] {1_000, 10_000}) {
+            benchmarkProfileDurability(directory + "/profiles.csv", profiles);
+        }
+        for (int size : sizes) {
+            benchmarkLog(directory + "/meals.csv", size);
+            benchmarkFormats(directory, size);
+        }
+    }
+
+    /**
+     * Rapid changes written behind in groups against the same changes each
+     * flushed (written and fsynced) on their own, as a synchronous write per
+     * change would be
+     */
+    private static void benchmarkGroupCommit(String mealsPath) throws IOException {
+        Files.deleteIfExists(Paths.get(mealsPath));
+        List<UUID> profiles = new ArrayList<>();
+        profiles.add(UUID.randomUUID());
+        Random random = new Random(23);
+        int changes = 500;
+
+        FileMealLogRepo repo = new FileMealLogRepo(mealsPath);
+        long start = System.nanoTime();
+        for (int i = 0; i < changes; i++) {
+            repo.addMeal(randomMeal(profiles, random));
+            repo.flush();
+        }
+        report("writebehind meal add, flushed each", (System.nanoTime() - start) / changes);
+        start = System.nanoTime();
+        for (int i = 0; i < changes; i++) {
+            repo.addMeal(randomMeal(profiles, random));
+        }
+        long queued = System.nanoTime() - start;
+        repo.flush();
+        report("writebehind meal add, caller's cost", queued / changes);
+        report("writebehind meal add, with one flush", (System.nanoTime() - start) / changes);
+        repo.close();
+    }
+
+    /**
+     * What crash-safe profile writes cost with the given number of profiles:
+     * a journal append and fsync per change or per group, an atomic checkpoint
+     * of the whole file, and the old unsafe rewrite in place (no fsync) it replaces
+     */
+    private static void benchmarkProfileDurability(String filePath, int count) throws IOException {
+        for (String suffix : new String[] {"", ".journal"}) {
+            Files.deleteIfExists(Paths.get(filePath + suffix));
+        }
+        String label = "profiles/" + count + " ";
+        FileProfileRepo repo = new FileProfileRepo(filePath);
+        List<Profile> profiles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            profiles.add(repo.save(new Profile("profile " + i, 30, "Female", 60, 165)));
+        }
+        repo.checkpoint();
+        Random random = new Random(24);
+
+        int changes = 300;
+        long start = System.nanoTime();
+        for (int i = 0; i < changes; i++) {
+            Profile profile = profiles.get(random.nextInt(count));
+            profile.setWeight(profile.getWeight() + 0.1);
+            repo.update(profile);
+            repo.flush();
+        }
+        report(label + "update, journaled + fsync each", (System.nanoTime() - start) / changes);
+        start = System.nanoTime();
+        for (int i = 0; i < changes; i++) {
+            Profile profile = profiles.get(random.nextInt(count));
+            profile.setWeight(profile.getWeight() + 0.1);
+            repo.update(profile);
+        }
+        repo.flush();
+        report(label + "update, journaled in one group", (System.nanoTime() - start) / changes);
+
+        int rounds = 10;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            repo.checkpoint();
+        }
+        report(label + "checkpoint (temp file + fsync + atomic move)", (System.nanoTime() - start) / rounds);
+
+        Profile profile = profiles.get(0);
+        profile.setWeight(profile.getWeight() + 0.1);
+        repo.update(profile);
+        repo.close();
+        start = System.nanoTime();
+        new FileProfileRepo(filePath).close();
+        report(label + "open (load + replay one journal record)", System.nanoTime() - start);
+
+        // The old saveAll: truncate the file and write every profile into it, once per change
+        List<String> lines = Files.readAllLines(Paths.get(filePath));
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
+                for (String line : lines) {
+                    writer.println(line);
+                }
+            }
+        }
+        report(label + "old rewrite in place per change (no fsync)", (System.nanoTime() - start) / rounds);
+        for (String suffix : new String[] {"", ".journal"}) {
+            Files.deleteIfExists(Paths.get(filePath + suffix));
+        }
+    }
+
+    /**
+     * Appends, index rebuild on open, lookups, edits and deletes against a log of
+     * the given size, and what one operation used to cost: reading the whole file
+     * and writing it back
+     */
+    private static void benchmarkLog(String filePath, int size) throws IOException {
+        Files.deleteIfExists(Paths.get(filePath));
+        List<UUID> profiles = new ArrayList<>();
+        for (int p = 0; p < PROFILES; p++) {
+            profiles.add(UUID.randomUUID());
+        }
+        Random random = new Random(21);
+        String label = "meallog/" + size + " ";
+
+        FileMealLogRepo repo = new FileMealLogRepo(filePath);
+        List<UUID> ids = new ArrayList<>(size);
+        long start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            ids.add(repo.addMeal(randomMeal(profiles, random)).getId());
+        }
+        repo.flush();
+        report(label + "add (per meal, written)", (System.nanoTime() - start) / size);
+        repo.close();
+
+        start = System.nanoTime();
+        repo = new FileMealLogRepo(filePath);
+        report(label + "open (index rebuild)", System.nanoTime() - start);
+
+        int operations = 2000;
+        long[] getNanos = new long[operations];
+        long[] existsNanos = new long[operations];
+        long[] editNanos = new long[operations];
+        long[] dayNanos = new long[operations];
+        long[] weekNanos = new long[operations];
+        for (int i = 0; i < operations; i++) {
+            UUID id = ids.get(random.nextInt(ids.size()));
+
+            long t0 = System.nanoTime();
+            MealDTO meal = repo.getSingleMealById(id);
+            long t1 = System.nanoTime();
+            repo.mealExists(id);
+            long t2 = System.nanoTime();
+            meal.getIngredients().get(0).setQuantity(meal.getIngredients().get(0).getQuantity() + 1);
+            repo.editMeal(id, meal);
+            long t3 = System.nanoTime();
+            repo.getMealsByTypeAndDate(meal.getProfileId(), meal.getDate(), meal.getMealType());
+            long t4 = System.nanoTime();
+            repo.getMealsByTimeInterval(meal.getProfileId(), meal.getDate(), meal.getDate().plusDays(6));
+            long t5 = System.nanoTime();
+
+            getNanos[i] = t1 - t0;
+            existsNanos[i] = t2 - t1;
+            editNanos[i] = t3 - t2;
+            dayNanos[i] = t4 - t3;
+            weekNanos[i] = t5 - t4;
+        }
+        reportPercentiles(label + "getSingleMealById", getNanos);
+        reportPercentiles(label + "mealExists", existsNanos);
+        reportPercentiles(label + "editMeal", editNanos);
+        reportPercentiles(label + "getMealsByTypeAndDate", dayNanos);
+        reportPercentiles(label + "getMealsByTimeInterval (week)", weekNanos);
+
+        // Delete enough to pass the compaction threshold, then compact explicitly to time it
+        int deletes = size / 2 + 1;
+        start = System.nanoTime();
+        for (int i = 0; i < deletes; i++) {
+            repo.deleteMeal(ids.get(i));
+        }
+        report(label + "deleteMeal (per meal)", (System.nanoTime() - start) / deletes);
+        System.out.println("(" + repo.getLogStats() + ")");
+        start = System.nanoTime();
+        repo.compact();
+        report(label + "compact", System.nanoTime() - start);
+        System.out.println("(" + repo.getLogStats() + ")");
+        repo.close();
+
+        // The old repo read and parsed the whole file for every operation and rewrote it for every write
+        Path copy = Paths.get(filePath + ".legacy");
+        Files.copy(Paths.get(filePath), copy, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        int rounds = 3;
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            legacyReadAndRewrite(copy.toString());
+        }
+        report(label + "old per-write cost (read + rewrite, after compaction)", (System.nanoTime() - start) / rounds);
+        Files.deleteIfExists(copy);
+    }
+
+    /**
+     * The CSV and binary meal formats on the same meals: file size, conversion,
+     * open (index rebuild) and read throughput, reading every profile's history
+     */
+    private static void benchmarkFormats(String directory, int size) throws IOException {
+        Path csvPath = Paths.get(directory, MealStorageFormat.CSV.fileName());
+        Path binaryPath = Paths.get(directory, MealStorageFormat.BINARY.fileName());
+        Files.deleteIfExists(csvPath);
+        Files.deleteIfExists(binaryPath);
+        List<UUID> profiles = new ArrayList<>();
+        for (int p = 0; p < PROFILES; p++) {
+            profiles.add(UUID.randomUUID());
+        }
+        Random random = new Random(25);
+        String label = "mealformat/" + size + " ";
+
+        FileMealLogRepo csv = new FileMealLogRepo(csvPath.toString());
+        for (int i = 0; i < size; i++) {
+            csv.addMeal(randomMeal(profiles, random));
+        }
+        csv.close();
+
+        long start = System.nanoTime();
+        FileMealLogRepo.convert(csvPath.toString(), MealStorageFormat.CSV, binaryPath.toString(), MealStorageFormat.BINARY);
+        report(label + "convert CSV to binary", System.nanoTime() - start);
+
+        for (MealStorageFormat format : MealStorageFormat.values()) {
+            Path path = format == MealStorageFormat.CSV ? csvPath : binaryPath;
+            String name = label + format.name().toLowerCase() + " ";
+            System.out.println(String.format(java.util.Locale.ROOT, "%-55s %10.1f bytes/meal (%d bytes)",
+                name + "file size", (double) Files.size(path) / size, Files.size(path)));
+
+            start = System.nanoTime();
+            FileMealLogRepo repo = new FileMealLogRepo(path.toString(), format);
+            report(name + "open (index rebuild)", System.nanoTime() - start);
+
+            int rounds = 3;
+            long read = 0;
+            start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (UUID profile : profiles) {
+                    read += repo.getMealLogHistory(profile).size();
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.println(String.format(java.util.Locale.ROOT, "%-55s %10.0f meals/s",
+                name + "read (every history)", read * 1e9 / nanos));
+            repo.close();
+        }
+    }
+
+    private static MealDTO randomMeal(List<UUID> profiles, Random random) {
+        List<IngredientDTO> ingredients = new ArrayList<>();
+        int count = 1 + random.nextInt(5);
+        for (int i = 0; i < count; i++) {
+            ingredients.add(new IngredientDTO("food " + random.nextInt(5000), 10 + random.nextInt(300), "g",
+                                              1 + random.nextInt(6000)));
+        }
+        return new MealDTO(null, profiles.get(random.nextInt(profiles.size())),
+            LocalDate.of(2015, 1, 1).plusDays(random.nextInt(DAYS)),
+            MEAL_TYPES[random.nextInt(MEAL_TYPES.length)], ingredients,
+            new NutrientInfo(random.nextInt(900), random.nextInt(50), random.nextInt(100), random.nextInt(40),
+                             random.nextInt(15)));
+    }
+
+    // Line by line, as loadAllMeals and saveMeals did (a lower bound: no CSV parsing)
+    private static void legacyReadAndRewrite(String filePath) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
+            for (String line : lines) {
+                writer.println(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import ca.nutrisci.application.dto.IngredientDTO;
+import ca.nutrisci.application.dto.MealDTO;
+import ca.nutrisci.application.dto.NutrientInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileMealLogRepoTest {
+
+    private static final UUID PROFILE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    @TempDir
+    Path dir;
+
+    static MealDTO meal(int i) {
+        List<IngredientDTO> ingredients = new ArrayList<>(Arrays.asList(
+            new IngredientDTO("food " + i, 100 + i, "g", 1000 + i),
+            new IngredientDTO("milk, partly skimmed", 2, "250ml", 61)));
+        return new MealDTO(null, PROFILE, LocalDate.of(2025, 1, 1).plusDays(i % 7), "lunch", ingredients,
+                           new NutrientInfo(i, 1, 2, 3, 4));
+    }
+
+    private Path log() {
+        return dir.resolve("meals.csv");
+    }
+
+    private FileMealLogRepo open() {
+        return new FileMealLogRepo(log().toString());
+    }
+
+    private List<UUID> addMeals(FileMealLogRepo repo, int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(repo.addMeal(meal(i)).getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void testTombstoneCompactionReopenCycle() {
+        FileMealLogRepo repo = open();
+        List<UUID> ids = addMeals(repo, 30);
+        for (int i = 0; i < 10; i++) {
+            MealDTO edited = repo.getSingleMealById(ids.get(i));
+            edited.getIngredients().get(0).setQuantity(500 + i);
+            repo.editMeal(ids.get(i), edited);
+        }
+        for (int i = 20; i < 30; i++) {
+            repo.deleteMeal(ids.get(i));
+        }
+        assertFalse(repo.mealExists(ids.get(25)));
+        assertThrows(IllegalArgumentException.class, () -> repo.deleteMeal(ids.get(25)));
+
+        repo.compact();
+        assertTrue(repo.getLogStats().startsWith("20 meals, 0 dead records"), repo.getLogStats());
+        repo.close();
+
+        FileMealLogRepo reopened = open();
+        assertEquals(20, reopened.getMealLogHistory(PROFILE).size());
+        for (int i = 0; i < 20; i++) {
+            MealDTO meal = reopened.getSingleMealById(ids.get(i));
+            assertEquals(i < 10 ? 500.0 + i : 100.0 + i, meal.getIngredients().get(0).getQuantity(), 0.0);
+            assertEquals("250ml", meal.getIngredients().get(1).getUnit());
+            assertEquals("milk, partly skimmed", meal.getIngredients().get(1).getName());
+        }
+        for (int i = 20; i < 30; i++) {
+            assertNull(reopened.getSingleMealById(ids.get(i)));
+        }
+        reopened.close();
+    }
+
+    @Test
+    void testDeleteSurvivesReopenWithoutCompaction() {
+        FileMealLogRepo repo = open();
+        List<UUID> ids = addMeals(repo, 3);
+        repo.deleteMeal(ids.get(1));
+        repo.close();
+
+        FileMealLogRepo reopened = open();
+        assertTrue(reopened.getLogStats().startsWith("2 meals, 2 dead records"), reopened.getLogStats());
+        assertFalse(reopened.mealExists(ids.get(1)));
+        reopened.close();
+    }
+
+    @Test
+    void testLastLineWithoutLineBreakIsKept() throws Exception {
+        FileMealLogRepo repo = open();
+        addMeals(repo, 3);
+        repo.close();
+        byte[] bytes = Files.readAllBytes(log());
+        Files.write(log(), Arrays.copyOf(bytes, bytes.length - 1)); // Hand-edited: no final line break
+
+        FileMealLogRepo reopened = open();
+        assertEquals(3, reopened.getMealLogHistory(PROFILE).size());
+        reopened.addMeal(meal(3));
+        reopened.close();
+
+        assertFalse(Files.exists(dir.resolve("meals.csv.unreadable")));
+        FileMealLogRepo again = open();
+        assertEquals(4, again.getMealLogHistory(PROFILE).size());
+        again.close();
+    }
+
+    @Test
+    void testBlankLinesAreSkipped() throws Exception {
+        FileMealLogRepo repo = open();
+        addMeals(repo, 2);
+        repo.close();
+        Files.write(log(), "\n   \r\n\t\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FileMealLogRepo reopened = open();
+        assertEquals(2, reopened.getMealLogHistory(PROFILE).size());
+        reopened.addMeal(meal(2));
+        reopened.close();
+
+        assertFalse(Files.exists(dir.resolve("meals.csv.unreadable")));
+        FileMealLogRepo again = open();
+        assertEquals(3, again.getMealLogHistory(PROFILE).size());
+        again.compact();
+        again.close();
+        assertFalse(new String(Files.readAllBytes(log()), StandardCharsets.UTF_8).contains("\n\n"));
+    }
+
+    @Test
+    void testTornLastRecordIsMovedToSideFile() throws Exception {
+        FileMealLogRepo repo = open();
+        addMeals(repo, 3);
+        repo.close();
+        long size = Files.size(log());
+        Files.write(log(), "0b9c8f4e-partial,record".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FileMealLogRepo reopened = open();
+        assertEquals(3, reopened.getMealLogHistory(PROFILE).size());
+        reopened.close();
+        assertEquals(size, Files.size(log()));
+        assertEquals("0b9c8f4e-partial,record",
+                     new String(Files.readAllBytes(dir.resolve("meals.csv.unreadable")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testUnreadableRecordIsCopiedToSideFileOnCompaction() throws Exception {
+        FileMealLogRepo repo = open();
+        addMeals(repo, 2);
+        repo.close();
+        Files.write(log(), "not a meal\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FileMealLogRepo reopened = open();
+        reopened.addMeal(meal(2));
+        assertEquals(3, reopened.getMealLogHistory(PROFILE).size());
+        reopened.compact();
+        reopened.close();
+
+        assertEquals("not a meal\n",
+                     new String(Files.readAllBytes(dir.resolve("meals.csv.unreadable")), StandardCharsets.UTF_8));
+        assertFalse(new String(Files.readAllBytes(log()), StandardCharsets.UTF_8).contains("not a meal"));
+        FileMealLogRepo compacted = open();
+        assertEquals(3, compacted.getMealLogHistory(PROFILE).size());
+        compacted.close();
+    }
+
+    @Test
+    void testFileInAnotherFormatIsLeftAlone() throws Exception {
+        Path binary = dir.resolve("meals.bin");
+        FileMealLogRepo repo = new FileMealLogRepo(binary.toString(), MealStorageFormat.BINARY);
+        addMeals(repo, 3);
+        repo.close();
+        byte[] bytes = Files.readAllBytes(binary);
+
+        FileMealLogRepo wrong = new FileMealLogRepo(binary.toString(), MealStorageFormat.CSV);
+        assertTrue(wrong.getMealLogHistory(PROFILE).isEmpty());
+        wrong.close();
+        assertArrayEquals(bytes, Files.readAllBytes(binary));
+    }
+
+    private FileMealLogRepo openBinary() {
+        return new FileMealLogRepo(dir.resolve("meals.bin").toString(), MealStorageFormat.BINARY);
+    }
+
+    private static void assertSameMeal(MealDTO expected, MealDTO actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getMealType(), actual.getMealType());
+        assertEquals(expected.getNutrients().getCalories(), actual.getNutrients().getCalories(), 0.0);
+        assertEquals(expected.getIngredients().size(), actual.getIngredients().size());
+        for (int i = 0; i < expected.getIngredients().size(); i++) {
+            IngredientDTO want = expected.getIngredients().get(i);
+            IngredientDTO got = actual.getIngredients().get(i);
+            assertEquals(want.getName(), got.getName());
+            assertEquals(want.getUnit(), got.getUnit());
+            assertEquals(want.getQuantity(), got.getQuantity(), 0.0);
+            assertEquals(want.getFoodId(), got.getFoodId());
+        }
+    }
+
+    @Test
+    void testConvertCsvToBinary() {
+        FileMealLogRepo csv = open();
+        List<UUID> ids = addMeals(csv, 5);
+        MealDTO custom = meal(5);
+        custom.setMealType("second breakfast");
+        ids.add(csv.addMeal(custom).getId());
+        csv.deleteMeal(ids.get(0));
+        List<MealDTO> expected = new ArrayList<>();
+        for (UUID id : ids.subList(1, ids.size())) {
+            expected.add(csv.getSingleMealById(id));
+        }
+        csv.close();
+
+        Path binary = dir.resolve("meals.bin");
+        assertEquals(5, FileMealLogRepo.convert(log().toString(), MealStorageFormat.CSV,
+                                                binary.toString(), MealStorageFormat.BINARY));
+        assertThrows(IllegalArgumentException.class, () -> FileMealLogRepo.convert(
+            log().toString(), MealStorageFormat.CSV, binary.toString(), MealStorageFormat.BINARY));
+
+        FileMealLogRepo repo = openBinary();
+        assertNull(repo.getSingleMealById(ids.get(0)));
+        for (MealDTO meal : expected) {
+            assertSameMeal(meal, repo.getSingleMealById(meal.getId()));
+        }
+        repo.close();
+    }
+
+    @Test
+    void testMealWithoutTypeIsSkippedByTypeQueries() {
+        FileMealLogRepo repo = openBinary();
+        MealDTO untyped = meal(0);
+        untyped.setMealType(null);
+        UUID untypedId = repo.addMeal(untyped).getId();
+        UUID lunchId = repo.addMeal(meal(7)).getId(); // Same day as meal(0)
+        LocalDate day = meal(0).getDate();
+
+        List<MealDTO> lunches = repo.getMealsByTypeAndDate(PROFILE, day, "LUNCH");
+        assertEquals(1, lunches.size());
+        assertEquals(lunchId, lunches.get(0).getId());
+        repo.close();
+
+        FileMealLogRepo reopened = openBinary();
+        assertEquals(1, reopened.getMealsByTypeAndDate(PROFILE, day, "lunch").size());
+        assertNull(reopened.getSingleMealById(untypedId).getMealType());
+        assertEquals(2, reopened.getMealLogHistory(PROFILE).size());
+        reopened.close();
+    }
+
+    @Test
+    void testBinaryCompactionDefinesNamesAgain() {
+        FileMealLogRepo repo = openBinary();
+        List<UUID> ids = addMeals(repo, 10);
+        for (int i = 0; i < 5; i++) {
+            repo.deleteMeal(ids.get(i)); // Including meal 0, the one whose frames defined "g" and "250ml"
+        }
+        repo.compact();
+        repo.close();
+
+        FileMealLogRepo reopened = openBinary();
+        assertTrue(reopened.getLogStats().startsWith("5 meals, 0 dead records"), reopened.getLogStats());
+        for (int i = 5; i < 10; i++) {
+            MealDTO meal = reopened.getSingleMealById(ids.get(i));
+            assertEquals("food " + i, meal.getIngredients().get(0).getName());
+            assertEquals("g", meal.getIngredients().get(0).getUnit());
+            assertEquals("milk, partly skimmed", meal.getIngredients().get(1).getName());
+            assertEquals("250ml", meal.getIngredients().get(1).getUnit());
+        }
+        MealDTO added = reopened.addMeal(meal(10)); // New names are numbered after the defined ones
+        reopened.close();
+
+        FileMealLogRepo again = openBinary();
+        assertEquals("food 10", again.getSingleMealById(added.getId()).getIngredients().get(0).getName());
+        assertEquals("food 9", again.getSingleMealById(ids.get(9)).getIngredients().get(0).getName());
+        again.close();
+    }
+
+    @Test
+    void testBinaryLogIsIndexedAgainAfterOutsideEdit() {
+        FileMealLogRepo repo = openBinary();
+        UUID first = repo.addMeal(meal(0)).getId();
+        repo.flush();
+
+        FileMealLogRepo outside = openBinary();
+        UUID outsideId = outside.addMeal(meal(1)).getId(); // Defines "food 1"
+        outside.close();
+
+        assertEquals("food 1", repo.getSingleMealById(outsideId).getIngredients().get(0).getName());
+        UUID inside = repo.addMeal(meal(2)).getId(); // "food 2" must not reuse the id of "food 1"
+        repo.close();
+
+        FileMealLogRepo reopened = openBinary();
+        assertEquals("food 0", reopened.getSingleMealById(first).getIngredients().get(0).getName());
+        assertEquals("food 1", reopened.getSingleMealById(outsideId).getIngredients().get(0).getName());
+        assertEquals("food 2", reopened.getSingleMealById(inside).getIngredients().get(0).getName());
+        reopened.close();
+    }
+
+    @Test
+    void testCorruptBinaryRecordIsSkipped() throws Exception {
+        Path binary = dir.resolve("meals.bin");
+        FileMealLogRepo repo = openBinary();
+        UUID first = repo.addMeal(meal(0)).getId();
+        UUID second = repo.addMeal(meal(1)).getId();
+        repo.flush();
+        long secondEnd = Files.size(binary);
+        UUID third = repo.addMeal(meal(2)).getId();
+        repo.close();
+        byte[] bytes = Files.readAllBytes(binary);
+        bytes[(int) secondEnd - 5] ^= 0x40; // In the second meal's own frame
+        Files.write(binary, bytes);
+
+        FileMealLogRepo reopened = openBinary();
+        assertNotNull(reopened.getSingleMealById(first));
+        assertNull(reopened.getSingleMealById(second));
+        assertEquals("food 2", reopened.getSingleMealById(third).getIngredients().get(0).getName());
+        reopened.compact();
+        reopened.close();
+
+        byte[] saved = Files.readAllBytes(dir.resolve("meals.bin.unreadable"));
+        assertTrue(saved.length > 0);
+        assertArrayEquals(Arrays.copyOfRange(bytes, (int) secondEnd - saved.length, (int) secondEnd), saved);
+        FileMealLogRepo compacted = openBinary();
+        assertEquals(2, compacted.getMealLogHistory(PROFILE).size());
+        compacted.close();
+    }
+
+    @Test
+    void testTornBinaryTailIsMovedToSideFile() throws Exception {
+        Path binary = dir.resolve("meals.bin");
+        FileMealLogRepo repo = openBinary();
+        addMeals(repo, 3);
+        repo.close();
+        byte[] bytes = Files.readAllBytes(binary);
+        byte[] torn = Arrays.copyOfRange(bytes, bytes.length - 40, bytes.length - 10); // Part of the last frame again
+        Files.write(binary, torn, StandardOpenOption.APPEND);
+
+        FileMealLogRepo reopened = openBinary();
+        assertEquals(3, reopened.getMealLogHistory(PROFILE).size());
+        reopened.close();
+        assertEquals(bytes.length, Files.size(binary));
+        assertArrayEquals(torn, Files.readAllBytes(dir.resolve("meals.bin.unreadable")));
+    }
+}
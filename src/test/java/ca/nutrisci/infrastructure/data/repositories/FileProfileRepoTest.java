@@ -0,0 +1,66 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import ca.nutrisci.domain.entities.Profile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileProfileRepoTest {
+
+    @TempDir
+    Path dir;
+
+    private static Profile profile(String name) {
+        return new Profile(UUID.randomUUID(), name, 30, "Female", 60, 170, false, "metric", LocalDateTime.now());
+    }
+
+    @Test
+    void testTornJournalKeepsEarlierProfiles() throws Exception {
+        Path path = dir.resolve("profiles.csv");
+        FileProfileRepo repo = new FileProfileRepo(path.toString());
+        Profile ann = repo.save(profile("Ann"));
+        repo.checkpoint();
+        Profile bob = repo.save(profile("Bob"));
+        repo.flush();
+        repo.save(profile("Cy"));
+        repo.close();
+        Path journal = dir.resolve("profiles.csv.journal");
+        byte[] bytes = Files.readAllBytes(journal);
+        Files.write(journal, Arrays.copyOf(bytes, bytes.length - 20)); // Cy's record, torn
+
+        FileProfileRepo reopened = new FileProfileRepo(path.toString());
+        assertEquals(2, reopened.findAll().size());
+        Profile dee = reopened.save(profile("Dee"));
+        reopened.close();
+
+        FileProfileRepo again = new FileProfileRepo(path.toString());
+        assertNotNull(again.findById(ann.getId()));
+        assertNotNull(again.findById(bob.getId()));
+        assertNotNull(again.findById(dee.getId()));
+        assertEquals(3, again.findAll().size());
+        again.close();
+    }
+
+    @Test
+    void testUnreadableFileFailsInsteadOfStartingEmpty() throws Exception {
+        Path path = dir.resolve("profiles.csv");
+        FileProfileRepo repo = new FileProfileRepo(path.toString());
+        repo.save(profile("Ann"));
+        repo.checkpoint();
+        repo.close();
+        Files.write(path, "\"not-a-uuid\",\"Bob\"\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        byte[] bytes = Files.readAllBytes(path);
+
+        assertThrows(IllegalStateException.class, () -> new FileProfileRepo(path.toString()));
+        assertArrayEquals(bytes, Files.readAllBytes(path));
+    }
+}
@@ -0,0 +1,158 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournaledCsvFileTest {
+
+    private static final String[] HEADER = {"id", "name", "note"};
+
+    @TempDir
+    Path dir;
+
+    private Path path;
+
+    @BeforeEach
+    void setUp() {
+        path = dir.resolve("rows.csv");
+    }
+
+    private JournaledCsvFile open() throws Exception {
+        JournaledCsvFile file = new JournaledCsvFile(path.toString());
+        file.load(HEADER);
+        return file;
+    }
+
+    private static Map<String, String[]> rows(String... idsAndNames) {
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        for (int i = 0; i < idsAndNames.length; i += 2) {
+            rows.put(idsAndNames[i], idsAndNames[i + 1] == null ? null
+                : new String[] {idsAndNames[i], idsAndNames[i + 1], "quoted \"note\", with comma"});
+        }
+        return rows;
+    }
+
+    private static String names(List<String[]> rows) {
+        StringBuilder names = new StringBuilder();
+        for (String[] row : rows.subList(1, rows.size())) {
+            names.append(row[1]).append(';');
+        }
+        return names.toString();
+    }
+
+    private Path journal() {
+        return dir.resolve("rows.csv.journal");
+    }
+
+    @Test
+    void testJournalIsReplayedAndCheckpointed() throws Exception {
+        JournaledCsvFile file = open();
+        file.append(rows("1", "Ann", "2", "Bob"));
+        file.append(rows("1", null, "3", "Cy"));
+
+        List<String[]> loaded = new JournaledCsvFile(path.toString()).load(HEADER);
+        assertArrayEquals(HEADER, loaded.get(0));
+        assertEquals("Bob;Cy;", names(loaded));
+        assertEquals("quoted \"note\", with comma", loaded.get(1)[2]);
+        assertEquals(0, Files.size(journal()), "Replayed journal is checkpointed");
+        assertEquals("Bob;Cy;", names(new JournaledCsvFile(path.toString()).load(HEADER)));
+    }
+
+    @Test
+    void testTornRecordInsideQuotedFieldDropsOnlyTheTail() throws Exception {
+        JournaledCsvFile file = open();
+        file.append(rows("1", "Ann"));
+        file.append(rows("2", "Bob"));
+        long intact = Files.size(journal());
+        file.append(rows("3", "Cy, the third"));
+        byte[] bytes = Files.readAllBytes(journal());
+        // Cut off inside the quoted name, leaving an open quote
+        int cut = new String(bytes, StandardCharsets.UTF_8).indexOf("Cy,") + 2;
+        Files.write(journal(), Arrays.copyOf(bytes, cut));
+        assertTrue(cut > intact);
+
+        JournaledCsvFile reopened = new JournaledCsvFile(path.toString());
+        assertEquals("Ann;Bob;", names(reopened.load(HEADER)));
+        reopened.append(rows("4", "Dee"));
+
+        assertEquals("Ann;Bob;Dee;", names(new JournaledCsvFile(path.toString()).load(HEADER)));
+    }
+
+    @Test
+    void testDamagedRecordStopsReplay() throws Exception {
+        JournaledCsvFile file = open();
+        file.append(rows("1", "Ann"));
+        file.append(rows("2", "Bob"));
+        file.append(rows("3", "Cy"));
+        byte[] bytes = Files.readAllBytes(journal());
+        int bob = new String(bytes, StandardCharsets.UTF_8).indexOf("Bob");
+        bytes[bob] = 'J';
+        Files.write(journal(), bytes);
+
+        assertEquals("Ann;", names(new JournaledCsvFile(path.toString()).load(HEADER)));
+    }
+
+    @Test
+    void testLeftoverTempFileIsIgnored() throws Exception {
+        JournaledCsvFile file = open();
+        file.append(rows("1", "Ann"));
+        Files.write(dir.resolve("rows.csv.tmp"), "half a checkpoint".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("Ann;", names(new JournaledCsvFile(path.toString()).load(HEADER)));
+        assertFalse(Files.exists(dir.resolve("rows.csv.tmp")));
+    }
+
+    @Test
+    void testNonAsciiSurvivesJournalAndCheckpoint() throws Exception {
+        JournaledCsvFile file = open();
+        file.append(rows("1", "Zoë Ångström 李"));
+        assertEquals("Zoë Ångström 李;", names(new JournaledCsvFile(path.toString()).load(HEADER)));
+
+        JournaledCsvFile checkpointed = open();
+        checkpointed.checkpoint(rows("2", "Renée"), Arrays.asList(HEADER,
+            new String[] {"1", "Zoë Ångström 李", ""}, new String[] {"2", "Renée", ""}));
+        assertEquals("Zoë Ångström 李;Renée;", names(new JournaledCsvFile(path.toString()).load(HEADER)));
+    }
+
+    @Test
+    void testLegacyCharsetFileIsConvertedOnce() throws Exception {
+        String legacy = "id,name,note\n1,Renée,café au lait\n";
+        Files.write(path, legacy.getBytes(JournaledCsvFile.LEGACY_CHARSET));
+
+        List<String[]> loaded = new JournaledCsvFile(path.toString()).load(HEADER);
+        assertEquals("Renée;", names(loaded));
+        assertEquals("café au lait", loaded.get(1)[2]);
+        String converted = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        assertTrue(converted.contains("Renée"), "Checkpointed as UTF-8: " + converted);
+
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        Files.setLastModifiedTime(path, FileTime.fromMillis(modified - 10_000));
+        assertEquals("Renée;", names(new JournaledCsvFile(path.toString()).load(HEADER)));
+        assertEquals(modified - 10_000, Files.getLastModifiedTime(path).toMillis(), "Converted only once");
+    }
+
+    @Test
+    void testCheckpointWritesCurrentHeader() throws Exception {
+        Files.write(path, "id,name\n1,Ann\n".getBytes(StandardCharsets.UTF_8)); // Older version's columns
+        JournaledCsvFile file = new JournaledCsvFile(path.toString());
+        file.load(HEADER);
+        file.append(rows("2", "Bob"));
+
+        List<String[]> loaded = new JournaledCsvFile(path.toString()).load(HEADER);
+        assertArrayEquals(HEADER, loaded.get(0));
+        assertEquals("Ann;Bob;", names(loaded));
+        assertTrue(new String(Files.readAllBytes(path), StandardCharsets.UTF_8).startsWith("\"id\",\"name\",\"note\""));
+    }
+}
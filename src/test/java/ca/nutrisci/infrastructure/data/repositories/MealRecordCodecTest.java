@@ -0,0 +1,139 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import ca.nutrisci.application.dto.IngredientDTO;
+import ca.nutrisci.application.dto.MealDTO;
+import ca.nutrisci.application.dto.NutrientInfo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MealRecordCodecTest {
+
+    private static MealDTO meal() {
+        IngredientDTO bread = new IngredientDTO("Bread, whole wheat", 2.5, null, 4321);
+        bread.setAsPurchased(true);
+        List<IngredientDTO> ingredients = new ArrayList<>(Arrays.asList(
+            bread, new IngredientDTO("Café au lait", 1, "250ml", 61)));
+        return new MealDTO(UUID.randomUUID(), UUID.randomUUID(), LocalDate.of(2025, 6, 22), "second breakfast",
+                           ingredients, new NutrientInfo(412.345678, 12.125, 60.0625, 9.99, 7.5));
+    }
+
+    // Read frames in order into a codec, as a scan of the log would; the key of the last one
+    private static MealRecordFormat.MealKey readAll(MealRecordCodec codec, List<byte[]> frames) {
+        MealRecordFormat.MealKey key = null;
+        for (byte[] frame : frames) {
+            assertEquals(frame.length, codec.frameLength(frame, 0, frame.length));
+            key = codec.readKey(frame, 0, frame.length);
+        }
+        return key;
+    }
+
+    @Test
+    void testMealRoundTripKeepsEveryField() {
+        MealDTO meal = meal();
+        List<byte[]> frames = new MealRecordCodec().writeMeal(meal);
+        byte[] mealFrame = frames.get(frames.size() - 1);
+
+        MealRecordCodec reader = new MealRecordCodec();
+        MealRecordFormat.MealKey key = readAll(reader, frames);
+        assertEquals(meal.getId(), key.id);
+        assertEquals(meal.getProfileId(), key.profileId);
+        assertEquals(meal.getDate(), key.date);
+        assertEquals("second breakfast", key.mealType);
+
+        MealDTO read = reader.readMeal(mealFrame, 0, mealFrame.length);
+        assertEquals("second breakfast", read.getMealType());
+        assertEquals(412.345678, read.getNutrients().getCalories(), 0.0);
+        assertEquals(60.0625, read.getNutrients().getCarbs(), 0.0);
+        IngredientDTO bread = read.getIngredients().get(0);
+        assertEquals("Bread, whole wheat", bread.getName());
+        assertEquals("g", bread.getUnit(), "A missing unit is grams");
+        assertEquals(2.5, bread.getQuantity(), 0.0);
+        assertEquals(4321, bread.getFoodId());
+        assertTrue(bread.isAsPurchased());
+        IngredientDTO coffee = read.getIngredients().get(1);
+        assertEquals("Café au lait", coffee.getName());
+        assertEquals("250ml", coffee.getUnit());
+        assertFalse(coffee.isAsPurchased());
+    }
+
+    @Test
+    void testNamesAreDefinedOnlyOnce() {
+        MealRecordCodec codec = new MealRecordCodec();
+        assertEquals(6, codec.writeMeal(meal()).size(), "The meal type, 2 names and 2 units, then the meal");
+        assertEquals(1, codec.writeMeal(meal()).size());
+        assertEquals(5, codec.preamble().size());
+    }
+
+    @Test
+    void testTombstoneRoundTrip() {
+        UUID id = UUID.randomUUID();
+        byte[] frame = new MealRecordCodec().writeTombstone(id);
+
+        MealRecordFormat.MealKey key = new MealRecordCodec().readKey(frame, 0, frame.length);
+        assertTrue(key.isTombstone());
+        assertEquals(id, key.id);
+    }
+
+    @Test
+    void testHeader() {
+        MealRecordCodec codec = new MealRecordCodec();
+        byte[] header = codec.header();
+        assertEquals(header.length, codec.frameLength(header, 0, header.length));
+        assertTrue(codec.isHeader(header, 0, header.length));
+        assertNull(codec.readKey(header, 0, header.length));
+    }
+
+    @Test
+    void testCorruptFrameIsToldApartFromTornFrame() {
+        List<byte[]> frames = new MealRecordCodec().writeMeal(meal());
+        byte[] frame = frames.get(frames.size() - 1);
+        MealRecordCodec codec = new MealRecordCodec();
+
+        assertEquals(0, codec.frameLength(frame, 0, frame.length - 1), "Torn: not complete yet");
+        assertEquals(0, codec.frameLength(frame, 0, 5), "Torn inside the frame header");
+
+        byte[] badBody = frame.clone();
+        badBody[frame.length - 3] ^= 0x10;
+        assertEquals(-1, codec.frameLength(badBody, 0, badBody.length), "Checksum");
+
+        byte[] badLength = frame.clone();
+        badLength[2] ^= 0x01;
+        assertEquals(-1, codec.frameLength(badLength, 0, badLength.length), "Length check");
+    }
+
+    @Test
+    void testMealWithUndefinedNameIsUnreadable() {
+        List<byte[]> frames = new MealRecordCodec().writeMeal(meal());
+        byte[] mealFrame = frames.get(frames.size() - 1);
+
+        MealRecordCodec reader = new MealRecordCodec();
+        readAll(reader, frames.subList(1, frames.size() - 1)); // The meal type's definition is lost
+        assertThrows(IllegalArgumentException.class, () -> reader.readKey(mealFrame, 0, mealFrame.length));
+        assertThrows(IllegalArgumentException.class, () -> reader.readMeal(mealFrame, 0, mealFrame.length));
+    }
+
+    @Test
+    void testNamesAfterALostDefinitionKeepTheirIds() {
+        MealRecordCodec writer = new MealRecordCodec();
+        writer.writeMeal(meal());
+        List<byte[]> frames = writer.preamble();
+
+        MealRecordCodec reader = new MealRecordCodec();
+        readAll(reader, frames.subList(1, frames.size()));
+        assertEquals(4, reader.preamble().size());
+        // A meal using only the surviving names is still readable
+        MealDTO coffeeOnly = new MealDTO(UUID.randomUUID(), UUID.randomUUID(), LocalDate.of(2025, 6, 23), "lunch",
+            new ArrayList<>(List.of(new IngredientDTO("Café au lait", 1, "250ml", 61))), new NutrientInfo());
+        List<byte[]> written = writer.writeMeal(coffeeOnly);
+        assertEquals(1, written.size());
+        byte[] frame = written.get(0);
+        assertEquals("Café au lait", reader.readMeal(frame, 0, frame.length).getIngredients().get(0).getName());
+    }
+}
@@ -0,0 +1,81 @@
+package ca.nutrisci.infrastructure.data.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindTest {
+
+    private static final long INTERVAL_MILLIS = 20;
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for " + what);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void testChangesAreWrittenAsOneGroup() throws InterruptedException {
+        AtomicInteger flushes = new AtomicInteger();
+        WriteBehind writeBehind = new WriteBehind("group", flushes::incrementAndGet, INTERVAL_MILLIS, 1000);
+        for (int i = 0; i < 50; i++) {
+            writeBehind.changed();
+        }
+        await(() -> flushes.get() > 0, "the group flush");
+        Thread.sleep(INTERVAL_MILLIS * 5);
+        assertEquals(1, flushes.get());
+        writeBehind.close();
+        assertEquals(2, flushes.get(), "close() flushes");
+    }
+
+    @Test
+    void testMaxPendingChangesFlushesWithoutWaiting() throws InterruptedException {
+        AtomicInteger flushes = new AtomicInteger();
+        WriteBehind writeBehind = new WriteBehind("full", flushes::incrementAndGet, 60_000, 10);
+        for (int i = 0; i < 10; i++) {
+            writeBehind.changed();
+        }
+        await(() -> flushes.get() == 1, "the flush of a full group");
+        writeBehind.close();
+    }
+
+    @Test
+    void testFailedFlushIsRetriedWithoutFurtherChanges() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger written = new AtomicInteger();
+        WriteBehind writeBehind = new WriteBehind("failing", () -> {
+            if (attempts.incrementAndGet() <= 3) {
+                throw new IOException("disk full");
+            }
+            written.incrementAndGet();
+        }, INTERVAL_MILLIS, 1000);
+
+        writeBehind.changed();
+        await(() -> written.get() == 1, "a retry to succeed");
+        assertEquals(4, attempts.get());
+
+        Thread.sleep(INTERVAL_MILLIS * 10);
+        assertEquals(4, attempts.get(), "No retries after a successful flush");
+        writeBehind.close();
+    }
+
+    @Test
+    void testClosedRepositoryIsNotRetried() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        WriteBehind writeBehind = new WriteBehind("closed", () -> {
+            attempts.incrementAndGet();
+            throw new IOException("read-only file system");
+        }, INTERVAL_MILLIS, 1000);
+
+        writeBehind.close();
+        assertEquals(1, attempts.get());
+        Thread.sleep(INTERVAL_MILLIS * 10);
+        assertEquals(1, attempts.get());
+    }
+}
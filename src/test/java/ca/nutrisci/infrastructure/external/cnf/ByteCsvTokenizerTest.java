@@ -0,0 +1,118 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteCsvTokenizerTest {
+
+    @TempDir
+    Path dir;
+
+    private Path file(byte[] bytes) throws IOException {
+        return Files.write(dir.resolve("test.csv"), bytes);
+    }
+
+    private ByteCsvTokenizer tokenizer(String text) throws IOException {
+        return new ByteCsvTokenizer(file(text.getBytes(CnfCsvLoader.CNF_CHARSET)), CnfCsvLoader.CNF_CHARSET);
+    }
+
+    @Test
+    void testQuotedFields() throws IOException {
+        try (ByteCsvTokenizer csv = tokenizer("1,\"Cheese, cheddar\",\"6\"\" sub\"\n"
+                                              + "2,\"Beverages\nand drinks\",\"\"\n")) {
+            assertTrue(csv.next());
+            assertEquals(3, csv.fieldCount());
+            assertEquals(1, csv.fieldInt(0));
+            assertEquals("Cheese, cheddar", csv.fieldString(1));
+            assertEquals("6\" sub", csv.fieldString(2));
+
+            assertTrue(csv.next());
+            assertEquals("Beverages\nand drinks", csv.fieldString(1), "Line break inside quotes");
+            assertTrue(csv.isEmpty(2));
+            assertEquals(2, csv.recordNumber());
+            assertFalse(csv.next());
+        }
+    }
+
+    @Test
+    void testTrimmingLineEndingsAndEmptyFields() throws IOException {
+        try (ByteCsvTokenizer csv = tokenizer("  5 , 2.50 ,,\" padded \"\r\n7,x")) {
+            assertTrue(csv.next());
+            assertEquals(4, csv.fieldCount());
+            assertEquals(5, csv.fieldInt(0));
+            assertEquals(2.5, csv.fieldDouble(1), 0.0);
+            assertTrue(csv.isEmpty(2));
+            assertTrue(csv.fieldEquals(3, "padded"));
+
+            assertTrue(csv.next(), "Last line without a line break");
+            assertEquals("x", csv.fieldString(1));
+            assertFalse(csv.next());
+        }
+    }
+
+    @Test
+    void testNumbers() throws IOException {
+        try (ByteCsvTokenizer csv = tokenizer("-42,0.001,-3.25,1.5E3,12345678901234567890.5,abc,\n")) {
+            assertTrue(csv.next());
+            assertEquals(-42, csv.fieldInt(0));
+            assertEquals(0.001, csv.fieldDouble(1), 0.0);
+            assertEquals(-3.25, csv.fieldDouble(2), 0.0);
+            assertEquals(1500.0, csv.fieldDouble(3), 0.0);
+            assertEquals(12345678901234567890.5, csv.fieldDouble(4), 0.0);
+            assertThrows(NumberFormatException.class, () -> csv.fieldInt(5));
+            assertThrows(NumberFormatException.class, () -> csv.fieldDouble(6));
+            assertThrows(IndexOutOfBoundsException.class, () -> csv.fieldString(7));
+        }
+    }
+
+    @Test
+    void testEscapedQuoteAcrossBufferBoundary() throws IOException {
+        // The escaped quote's two bytes straddle the 64K read buffer
+        StringBuilder text = new StringBuilder("\"");
+        while (text.length() < 64 * 1024 - 1) {
+            text.append('a');
+        }
+        text.append("\"\"b\",2\n");
+        try (ByteCsvTokenizer csv = tokenizer(text.toString())) {
+            assertTrue(csv.next());
+            String field = csv.fieldString(0);
+            assertEquals(64 * 1024, field.length());
+            assertTrue(field.endsWith("a\"b"));
+            assertEquals(2, csv.fieldInt(1));
+        }
+    }
+
+    @Test
+    void testWindows1252Text() throws IOException {
+        // "Café" with an e-acute (0xE9) and a right single quote (0x92, outside Latin-1)
+        byte[] bytes = {'1', ',', 'C', 'a', 'f', (byte) 0xE9, ',', 'M', 'o', 'm', (byte) 0x92, 's', '\n'};
+        try (ByteCsvTokenizer csv = new ByteCsvTokenizer(file(bytes), CnfCsvLoader.CNF_CHARSET)) {
+            assertTrue(csv.next());
+            assertEquals("Café", csv.fieldString(1));
+            assertEquals("Mom’s", csv.fieldString(2));
+            assertFalse(csv.fieldEquals(1, "Cafe"));
+        }
+        try (ByteCsvTokenizer csv = new ByteCsvTokenizer(file(bytes), StandardCharsets.ISO_8859_1)) {
+            assertTrue(csv.next());
+            assertEquals("Café", csv.fieldString(1), "Only the charset given decodes the text");
+        }
+    }
+
+    @Test
+    void testByteRange() throws IOException {
+        Path file = file("header\n1,a\n2,b\n3,c\n".getBytes(StandardCharsets.US_ASCII));
+        try (ByteCsvTokenizer csv = new ByteCsvTokenizer(file, 11, 15, CnfCsvLoader.CNF_CHARSET)) {
+            assertTrue(csv.next());
+            assertEquals(2, csv.fieldInt(0));
+            assertEquals("b", csv.fieldString(1));
+            assertFalse(csv.next());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CnfCsvLoaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRowsWithBadIdsAreSkipped() throws IOException {
+        Files.writeString(dir.resolve(CnfCsvLoader.FOOD_GROUP_FILE),
+            "FoodGroupID,FoodGroupCode,FoodGroupName,FoodGroupNameF\n"
+            + "1,1,Dairy and Egg Products,Produits laitiers et oeufs\n"
+            + "x2,2,Broken,Casse\n"
+            + "22,22,Mixed Dishes,Plats mixtes\n");
+        Files.writeString(dir.resolve(CnfCsvLoader.FOOD_NAME_FILE),
+            "FoodID,FoodCode,FoodGroupID,FoodSourceID,FoodDescription,FoodDescriptionF\n"
+            + "2,2,1,20,Cheese souffle,Souffle au fromage\n"
+            + ",3,1,20,No id,Sans identifiant\n"
+            + "4,4,?,20,\"Chop suey, with meat, canned\",\"Chop suey, avec viande, conserve\"\n");
+
+        CnfDataset dataset = CnfCsvLoader.load(dir);
+        assertArrayEquals(new int[] {1, 22}, dataset.getGroupIds());
+        assertArrayEquals(new Object[] {"Dairy and Egg Products", "Mixed Dishes"}, dataset.getGroupNames());
+        assertArrayEquals(new int[] {2, 4}, dataset.getFoodIds());
+        assertArrayEquals(new int[] {1, -1}, dataset.getFoodGroupIds(), "Unknown group kept as -1");
+        assertEquals("Chop suey, with meat, canned", dataset.getFoodDescriptions()[1]);
+    }
+}
@@ -0,0 +1,131 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import ca.nutrisci.application.dto.NutrientCatalog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CnfSnapshotTest {
+
+    private static final long STAMP = 1_750_550_400_000L;
+
+    @TempDir
+    Path dir;
+
+    private static CnfDataset dataset() {
+        int[] foodIds = {2, 4};
+        NutrientCatalog catalog = new NutrientCatalog(new int[] {203, 208}, new String[] {"PROT", "KCAL"},
+                new String[] {"g", "kCal"}, new String[] {"PROTEIN", "ENERGY (KILOCALORIES)"});
+        return new CnfDataset(new int[] {1, 22}, new String[] {"Dairy and Egg Products", "Mixed Dishes"},
+                foodIds, new int[] {1, 22}, new String[] {"Crème brûlée", "Chop suey, with meat, canned"},
+                new String[] {"Crème brûlée", "Chop suey, avec viande, conserve"},
+                new NutrientMatrix(foodIds, catalog, new float[] {9.9f, 204f, 0f, 61f}),
+                new int[] {341, 415}, new String[] {"100ml", "250ml"},
+                new int[] {2, 2}, new int[] {341, 415}, new double[] {0.40152, 1.0038},
+                new int[] {4}, new double[] {0.25},
+                new int[] {4}, new int[] {9}, new double[] {87.5},
+                new int[] {9}, new String[] {"Drained solids"});
+    }
+
+    @Test
+    void testWriteReadRoundTrip() throws IOException {
+        Path snapshot = dir.resolve(CnfSnapshot.SNAPSHOT_FILE);
+        CnfSnapshot.write(dataset(), STAMP, snapshot);
+
+        CnfDataset read = CnfSnapshot.read(snapshot, STAMP);
+        assertArrayEquals(new Object[] {"Dairy and Egg Products", "Mixed Dishes"}, read.getGroupNames());
+        assertArrayEquals(new Object[] {"Crème brûlée", "Chop suey, with meat, canned"}, read.getFoodDescriptions());
+        assertEquals("Chop suey, avec viande, conserve", read.getFoodDescriptionsF()[1]);
+        assertEquals(2, read.getNutrientCount());
+        assertEquals(61.0, read.getNutrientMatrix().amount(4, 208), 0.0);
+        assertEquals(9.9f, read.getNutrientMatrix().get(0, 0), 0.0f);
+        assertEquals("kCal", read.getNutrientCatalog().getUnit(1));
+        assertArrayEquals(new double[] {0.40152, 1.0038}, read.getConversionFactors(), 0.0);
+        assertEquals(415, read.getConversionMeasureIds()[1]);
+        assertEquals("250ml", read.getMeasureNames()[1]);
+        assertEquals(0.25, read.getRefuseAmounts()[0], 0.0);
+        assertEquals(87.5, read.getYieldAmounts()[0], 0.0);
+        assertEquals("Drained solids", read.getYieldDescriptions()[0]);
+    }
+
+    @Test
+    void testStaleStampIsRejected() throws IOException {
+        Path snapshot = dir.resolve(CnfSnapshot.SNAPSHOT_FILE);
+        CnfSnapshot.write(dataset(), STAMP, snapshot);
+
+        assertNull(CnfSnapshot.read(snapshot, STAMP + 1));
+        assertEquals(2, CnfSnapshot.read(snapshot, 0).getFoodCount(), "0 accepts any stamp");
+    }
+
+    @Test
+    void testOtherFileIsNotASnapshot() throws IOException {
+        Path file = Files.write(dir.resolve(CnfSnapshot.SNAPSHOT_FILE), new byte[64]);
+        assertThrows(IOException.class, () -> CnfSnapshot.read(file, 0));
+    }
+
+    @Test
+    void testSnapshotIsRebuiltWhenCsvChanges() throws IOException {
+        Path groups = Files.writeString(dir.resolve(CnfCsvLoader.FOOD_GROUP_FILE),
+            "FoodGroupID,FoodGroupCode,FoodGroupName,FoodGroupNameF\n22,22,Mixed Dishes,Plats mixtes\n");
+        Path foods = dir.resolve(CnfCsvLoader.FOOD_NAME_FILE);
+        String header = "FoodID,FoodCode,FoodGroupID,FoodSourceID,FoodDescription,FoodDescriptionF\n";
+        Files.writeString(foods, header + "2,2,22,20,Cheese souffle,Souffle au fromage\n");
+        Files.setLastModifiedTime(groups, FileTime.fromMillis(STAMP));
+        Files.setLastModifiedTime(foods, FileTime.fromMillis(STAMP));
+
+        long stamp = CnfSnapshot.sourceStamp(dir);
+        CnfDataset first = CnfSnapshot.loadOrCompile(dir);
+        assertEquals(1, first.getFoodCount());
+        Path snapshot = dir.resolve(CnfSnapshot.SNAPSHOT_FILE);
+        assertNotNull(CnfSnapshot.read(snapshot, stamp));
+        assertSame(first, CnfSnapshot.loadOrCompile(dir), "Unchanged CSVs are not read again");
+
+        Files.writeString(foods, header + "2,2,22,20,Cheese souffle,Souffle au fromage\n"
+                          + "4,4,22,20,\"Chop suey, with meat, canned\",\"Chop suey, avec viande, conserve\"\n");
+        Files.setLastModifiedTime(foods, FileTime.fromMillis(STAMP + 60_000));
+
+        long newStamp = CnfSnapshot.sourceStamp(dir);
+        assertNotEquals(stamp, newStamp);
+        CnfDataset second = CnfSnapshot.loadOrCompile(dir);
+        assertEquals(2, second.getFoodCount());
+        assertEquals("Chop suey, with meat, canned", second.getFoodDescriptions()[1]);
+        assertNull(CnfSnapshot.read(snapshot, stamp), "The stale snapshot was replaced");
+        assertEquals(2, CnfSnapshot.read(snapshot, newStamp).getFoodCount());
+    }
+
+    @Test
+    void testStampChangesWhenFilesAreAddedOrRemoved() throws IOException {
+        assertEquals(0, CnfSnapshot.sourceStamp(dir), "No CSVs");
+
+        Path groups = Files.writeString(dir.resolve(CnfCsvLoader.FOOD_GROUP_FILE),
+            "FoodGroupID,FoodGroupCode,FoodGroupName,FoodGroupNameF\n22,22,Mixed Dishes,Plats mixtes\n");
+        Files.setLastModifiedTime(groups, FileTime.fromMillis(STAMP));
+        long groupsOnly = CnfSnapshot.sourceStamp(dir);
+        assertNotEquals(0, groupsOnly);
+        assertEquals(groupsOnly, CnfSnapshot.sourceStamp(dir));
+
+        // A file unpacked with its original, older timestamp still counts
+        Path foods = Files.writeString(dir.resolve(CnfCsvLoader.FOOD_NAME_FILE),
+            "FoodID,FoodCode,FoodGroupID,FoodSourceID,FoodDescription,FoodDescriptionF\n");
+        Files.setLastModifiedTime(foods, FileTime.fromMillis(STAMP - 86_400_000L));
+        long both = CnfSnapshot.sourceStamp(dir);
+        assertNotEquals(groupsOnly, both);
+
+        Files.delete(groups);
+        long foodsOnly = CnfSnapshot.sourceStamp(dir);
+        assertNotEquals(both, foodsOnly);
+        assertNotEquals(groupsOnly, foodsOnly);
+
+        // Same name and timestamp, different size
+        Files.writeString(foods, "FoodID,FoodCode,FoodGroupID,FoodSourceID,FoodDescription,FoodDescriptionF\n"
+                          + "2,2,22,20,Cheese souffle,Souffle au fromage\n");
+        Files.setLastModifiedTime(foods, FileTime.fromMillis(STAMP - 86_400_000L));
+        assertNotEquals(foodsOnly, CnfSnapshot.sourceStamp(dir));
+    }
+}
@@ -0,0 +1,85 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConversionFactorTableTest {
+
+    @Test
+    void testLookupsAndDuplicateRows() {
+        // Unsorted rows; (7, 3) appears twice and (2, 1) three times
+        int[] foodIds =    {7,   2,   7,   5,   2,   7,   2};
+        int[] measureIds = {3,   1,   1,   9,   1,   3,   1};
+        double[] factors = {0.5, 1.0, 2.0, 4.0, 1.5, 0.75, 3.0};
+        ConversionFactorTable table = new ConversionFactorTable(foodIds, measureIds, factors);
+
+        assertEquals(3, table.foodCount());
+        assertEquals(4, table.size(), "One factor per distinct (food, measure)");
+        assertEquals(0.75, table.factor(7, 3), 0.0, "Last row wins");
+        assertEquals(3.0, table.factor(2, 1), 0.0, "Last row wins");
+        assertEquals(2.0, table.factor(7, 1), 0.0);
+        assertEquals(4.0, table.factor(5, 9), 0.0);
+        assertTrue(Double.isNaN(table.factor(7, 9)), "Food without that measure");
+        assertTrue(Double.isNaN(table.factor(6, 1)), "Food without factors");
+
+        assertEquals(-1, table.foodOrdinal(6));
+        int food = table.foodOrdinal(7);
+        assertEquals(2, food, "Foods are in FoodID order");
+        assertEquals(7, table.foodId(food));
+        assertEquals(2, table.end(food) - table.start(food));
+        assertEquals(1, table.measureId(table.start(food)), "Measures are sorted within a food");
+        assertEquals(3, table.measureId(table.start(food) + 1));
+        assertEquals(0.75, table.factor(table.start(food) + 1), 0.0);
+        assertEquals(table.size(), table.end(table.foodCount() - 1));
+    }
+
+    @Test
+    void testRandomRowsMatchHashMap() {
+        Random random = new Random(5);
+        int rows = 5000;
+        int[] foodIds = new int[rows];
+        int[] measureIds = new int[rows];
+        double[] factors = new double[rows];
+        Map<Long, Double> expected = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            foodIds[row] = random.nextInt(300);
+            measureIds[row] = random.nextInt(40);
+            factors[row] = random.nextDouble();
+            expected.put(((long) foodIds[row] << 32) | measureIds[row], factors[row]);
+        }
+        ConversionFactorTable table = new ConversionFactorTable(foodIds, measureIds, factors);
+
+        assertEquals(expected.size(), table.size());
+        for (int foodId = -1; foodId <= 300; foodId++) {
+            for (int measureId = 0; measureId < 40; measureId++) {
+                Double factor = expected.get(((long) foodId << 32) | measureId);
+                double actual = table.factor(foodId, measureId);
+                if (factor == null) {
+                    assertTrue(Double.isNaN(actual), "(" + foodId + ", " + measureId + ")");
+                } else {
+                    assertEquals(factor, actual, 0.0, "(" + foodId + ", " + measureId + ")");
+                }
+            }
+        }
+        for (int ordinal = 0; ordinal < table.foodCount(); ordinal++) {
+            assertEquals(ordinal, table.foodOrdinal(table.foodId(ordinal)));
+            for (int position = table.start(ordinal) + 1; position < table.end(ordinal); position++) {
+                assertTrue(table.measureId(position - 1) < table.measureId(position));
+            }
+        }
+    }
+
+    @Test
+    void testEmptyTable() {
+        ConversionFactorTable table = new ConversionFactorTable(new int[0], new int[0], new double[0]);
+        assertEquals(0, table.foodCount());
+        assertEquals(0, table.size());
+        assertEquals(-1, table.foodOrdinal(1));
+        assertTrue(Double.isNaN(table.factor(1, 1)));
+    }
+}
@@ -0,0 +1,285 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * CsvTokenizer - Single-pass, character-level CSV tokenizer for the Canada Nutrient File
+ *
+ * The Reader-based counterpart of ByteCsvTokenizer, kept with the tests as the
+ * baseline CnfBenchmark compares the byte tokenizer against. Numbers are parsed
+ * by the same CsvNumbers code.
+ *
+ * Reads one record at a time into a reusable buffer and exposes its fields as
+ * views, so tokenizing a row allocates nothing. Handles quoted fields, escaped
+ * quotes ("") and line breaks inside quotes (FOOD GROUP.csv has some).
+ * Field values are trimmed, matching the old split(...).trim() behaviour.
+ *
+ * Typical use:
+ * <pre>
+ * try (CsvTokenizer csv = new CsvTokenizer(reader)) {
+ *     csv.next(); // header
+ *     while (csv.next()) {
+ *         int foodId = csv.fieldInt(0);
+ *         double value = csv.fieldDouble(2);
+ *     }
+ * }
+ * </pre>
+ */
+public final class CsvTokenizer implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    // Current record (unquoted field contents laid out back to back)
+    private char[] record = new char[256];
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private int fieldCount;
+    private long recordNumber;
+    private byte[] numberBytes = new byte[32];
+
+    private final FieldView view = new FieldView();
+
+    public CsvTokenizer(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Advance to the next record.
+     * @return false at end of input
+     */
+    public boolean next() throws IOException {
+        fieldCount = 0;
+        int length = 0;
+        int start = 0;
+        boolean inQuotes = false;
+        boolean sawAnything = false;
+
+        while (true) {
+            if (position >= limit && !fill()) {
+                if (!sawAnything) {
+                    return false;
+                }
+                addField(start, length);
+                recordNumber++;
+                return true;
+            }
+
+            char c = buffer[position++];
+            sawAnything = true;
+
+            if (inQuotes) {
+                if (c == '"') {
+                    if (position >= limit && !fill()) {
+                        inQuotes = false;
+                        continue;
+                    }
+                    if (buffer[position] == '"') {
+                        position++;
+                        length = append(length, '"');
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    length = append(length, c);
+                }
+            } else if (c == ',') {
+                addField(start, length);
+                start = length;
+            } else if (c == '\n') {
+                addField(start, length);
+                recordNumber++;
+                return true;
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c != '\r') {
+                length = append(length, c);
+            }
+        }
+    }
+
+    /**
+     * Number of fields in the current record
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * 1-based number of the current record (the header is record 1)
+     */
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * View of field i. The returned sequence is reused: it is only valid until the
+     * next call to field(...) or next(). Use fieldString(...) to keep a value.
+     */
+    public CharSequence field(int i) {
+        checkIndex(i);
+        view.start = fieldStart[i];
+        view.end = fieldEnd[i];
+        return view;
+    }
+
+    /**
+     * Field i as a new String
+     */
+    public String fieldString(int i) {
+        checkIndex(i);
+        return new String(record, fieldStart[i], fieldEnd[i] - fieldStart[i]);
+    }
+
+    public boolean isEmpty(int i) {
+        return i >= fieldCount || fieldStart[i] == fieldEnd[i];
+    }
+
+    /**
+     * Check whether field i is exactly the given text (no allocation)
+     */
+    public boolean fieldEquals(int i, String text) {
+        checkIndex(i);
+        int length = fieldEnd[i] - fieldStart[i];
+        if (length != text.length()) {
+            return false;
+        }
+        for (int k = 0; k < length; k++) {
+            if (record[fieldStart[i] + k] != text.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse field i as an int without creating a String
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    public int fieldInt(int i) {
+        int length = numberBytes(i);
+        try {
+            return CsvNumbers.parseInt(numberBytes, 0, length);
+        } catch (NumberFormatException e) {
+            throw numberFormat(i);
+        }
+    }
+
+    /**
+     * Parse field i as a double. Plain decimals (the only form the CNF uses) are
+     * parsed in place; anything else falls back to Double.parseDouble.
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    public double fieldDouble(int i) {
+        int length = numberBytes(i);
+        try {
+            return CsvNumbers.parseDouble(numberBytes, 0, length);
+        } catch (NumberFormatException e) {
+            throw numberFormat(i);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Private helper methods
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private int append(int length, char c) {
+        if (length == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[length] = c;
+        return length + 1;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStart.length) {
+            fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+            fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+        }
+        // Trim surrounding whitespace (including line breaks kept inside quotes)
+        while (start < end && record[start] <= ' ') start++;
+        while (end > start && record[end - 1] <= ' ') end--;
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = end;
+        fieldCount++;
+    }
+
+    // Copy field i into numberBytes for CsvNumbers; characters outside Latin-1 can't be part of a number
+    private int numberBytes(int i) {
+        checkIndex(i);
+        int length = fieldEnd[i] - fieldStart[i];
+        if (length == 0) {
+            throw new NumberFormatException("Empty field " + i + " in record " + recordNumber);
+        }
+        if (length > numberBytes.length) {
+            numberBytes = new byte[length];
+        }
+        for (int k = 0; k < length; k++) {
+            char c = record[fieldStart[i] + k];
+            numberBytes[k] = c <= 0xFF ? (byte) c : (byte) '?';
+        }
+        return length;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + i + " of " + fieldCount + " in record " + recordNumber);
+        }
+    }
+
+    private NumberFormatException numberFormat(int i) {
+        return new NumberFormatException("Invalid number '" + fieldString(i) + "' in record " + recordNumber);
+    }
+
+    /**
+     * Reusable CharSequence over a slice of the current record
+     */
+    private final class FieldView implements CharSequence {
+        private int start;
+        private int end;
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= end - start) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return record[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(record, start + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            return new String(record, start, end - start);
+        }
+    }
+}
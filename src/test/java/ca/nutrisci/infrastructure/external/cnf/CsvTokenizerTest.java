@@ -0,0 +1,100 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvTokenizerTest {
+
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    private static CsvTokenizer tokenizer(String text) {
+        return new CsvTokenizer(new StringReader(text));
+    }
+
+    @Test
+    void testQuotedFields() throws IOException {
+        try (CsvTokenizer csv = tokenizer("1,\"Cheese, cheddar\",\"6\"\" sub\"\n"
+                                          + "2,\"Beverages\nand drinks\",\"\"\n")) {
+            assertTrue(csv.next());
+            assertEquals(3, csv.fieldCount());
+            assertEquals(1, csv.fieldInt(0));
+            assertEquals("Cheese, cheddar", csv.fieldString(1));
+            assertEquals("6\" sub", csv.fieldString(2));
+
+            assertTrue(csv.next());
+            assertEquals("Beverages\nand drinks", csv.fieldString(1), "Line break inside quotes");
+            assertTrue(csv.isEmpty(2));
+            assertEquals(2, csv.recordNumber());
+            assertFalse(csv.next());
+        }
+    }
+
+    @Test
+    void testTrimmingLineEndingsAndEmptyFields() throws IOException {
+        try (CsvTokenizer csv = tokenizer("  5 , 2.50 ,,\" padded \"\r\n7,x")) {
+            assertTrue(csv.next());
+            assertEquals(4, csv.fieldCount());
+            assertEquals(5, csv.fieldInt(0));
+            assertEquals(2.5, csv.fieldDouble(1), 0.0);
+            assertTrue(csv.isEmpty(2));
+            assertTrue(csv.fieldEquals(3, "padded"));
+            assertEquals("padded", csv.field(3).toString());
+
+            assertTrue(csv.next(), "Last line without a line break");
+            assertEquals("x", csv.fieldString(1));
+            assertFalse(csv.next());
+        }
+    }
+
+    @Test
+    void testNumbers() throws IOException {
+        try (CsvTokenizer csv = tokenizer("-42,0.001,-3.25,1.5E3,12345678901234567890.5,abc,\n")) {
+            assertTrue(csv.next());
+            assertEquals(-42, csv.fieldInt(0));
+            assertEquals(0.001, csv.fieldDouble(1), 0.0);
+            assertEquals(-3.25, csv.fieldDouble(2), 0.0);
+            assertEquals(1500.0, csv.fieldDouble(3), 0.0);
+            assertEquals(12345678901234567890.5, csv.fieldDouble(4), 0.0);
+            assertThrows(NumberFormatException.class, () -> csv.fieldInt(5));
+            assertThrows(NumberFormatException.class, () -> csv.fieldDouble(6));
+            assertThrows(IndexOutOfBoundsException.class, () -> csv.fieldString(7));
+        }
+    }
+
+    @Test
+    void testEscapedQuoteAcrossBufferBoundary() throws IOException {
+        // The escaped quote's two characters straddle the 64K read buffer
+        StringBuilder text = new StringBuilder("\"");
+        while (text.length() < 64 * 1024 - 1) {
+            text.append('a');
+        }
+        text.append("\"\"b\",2\n");
+        try (CsvTokenizer csv = tokenizer(text.toString())) {
+            assertTrue(csv.next());
+            String field = csv.fieldString(0);
+            assertEquals(64 * 1024, field.length());
+            assertTrue(field.endsWith("a\"b"));
+            assertEquals(2, csv.fieldInt(1));
+        }
+    }
+
+    @Test
+    void testWindows1252Text() throws IOException {
+        // "Café" with an e-acute (0xE9) and a right single quote (0x92, outside Latin-1)
+        byte[] bytes = {'1', ',', 'C', 'a', 'f', (byte) 0xE9, ',', 'M', 'o', 'm', (byte) 0x92, 's', '\n'};
+        try (CsvTokenizer csv = new CsvTokenizer(
+                new InputStreamReader(new ByteArrayInputStream(bytes), WINDOWS_1252))) {
+            assertTrue(csv.next());
+            assertEquals("Café", csv.fieldString(1));
+            assertTrue(csv.fieldEquals(1, "Café"));
+            assertEquals("Mom’s", csv.fieldString(2));
+        }
+    }
+}
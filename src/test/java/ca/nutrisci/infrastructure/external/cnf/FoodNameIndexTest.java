@@ -0,0 +1,169 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Posting list intersection and top-k ranking checked against a plain scan
+ * over the names. The generated names share a small vocabulary, so common
+ * grams ("e", "a", " ") end up stored as bitmaps and rare ones as sorted lists.
+ */
+public class FoodNameIndexTest {
+
+    private static final String[] WORDS = {
+        "apple", "apples", "pie", "cheese", "cheddar", "cream", "ice", "rice", "sauce",
+        "beef", "raw", "cooked", "dried", "plain", "bread", "app", "peach", "pecan"
+    };
+
+    private List<String> names;
+    private FoodNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        TreeSet<String> generated = new TreeSet<>();
+        while (generated.size() < 600) {
+            StringBuilder name = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+            for (int words = random.nextInt(4); words > 0; words--) {
+                name.append(random.nextBoolean() ? ", " : " ").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            generated.add(name.toString());
+        }
+        generated.add("apple");
+        names = new ArrayList<>(generated);
+        index = new FoodNameIndex(names);
+    }
+
+    private List<String> queries() {
+        List<String> queries = new ArrayList<>(Arrays.asList(
+            "e", "a", "z", " ", "ch", "ic", "che", "ice", ", r", "apple", "apples", "pie, ", "cream ice",
+            "e c", "cheddar cheese", "pecan pie", "xyz", "applesauce", "ed"));
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            String name = names.get(random.nextInt(names.size()));
+            int start = random.nextInt(name.length());
+            queries.add(name.substring(start, start + 1 + random.nextInt(name.length() - start)));
+        }
+        return queries;
+    }
+
+    private int[] scanContaining(String term) {
+        List<Integer> matches = new ArrayList<>();
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            if (names.get(ordinal).contains(term)) {
+                matches.add(ordinal);
+            }
+        }
+        return matches.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Exact, prefix, word prefix, substring; alphabetical within a rank
+    private static int scanRank(String name, String term) {
+        if (name.equals(term)) return 0;
+        if (name.startsWith(term)) return 1;
+        for (int at = name.indexOf(term); at > 0; at = name.indexOf(term, at + 1)) {
+            if (!Character.isLetterOrDigit(name.charAt(at - 1))) return 2;
+        }
+        return 3;
+    }
+
+    private List<String> scanSearch(String term, int limit) {
+        List<String> matches = new ArrayList<>();
+        for (int ordinal : scanContaining(term)) {
+            matches.add(names.get(ordinal));
+        }
+        matches.sort(Comparator.comparingInt((String name) -> scanRank(name, term))
+                .thenComparing(Comparator.naturalOrder()));
+        return matches.subList(0, Math.min(limit, matches.size()));
+    }
+
+    @Test
+    void testNamesAreSortedAndDeduplicated() {
+        FoodNameIndex small = new FoodNameIndex(Arrays.asList("rice", "apple", "rice", "bread"));
+        assertEquals(3, small.size());
+        assertEquals("apple", small.name(0));
+        assertEquals(2, small.ordinalOf("rice"));
+        assertEquals(-1, small.ordinalOf("ric"));
+    }
+
+    @Test
+    void testContainingMatchesScan() {
+        for (String term : queries()) {
+            assertArrayEquals(scanContaining(term), index.containing(term), "containing(\"" + term + "\")");
+        }
+        assertEquals(0, index.containing("").length);
+    }
+
+    @Test
+    void testSearchRanksLikeScan() {
+        for (String term : queries()) {
+            for (int limit : new int[] {1, 5, 20, 1000}) {
+                assertEquals(scanSearch(term, limit), index.search(term, limit),
+                        "search(\"" + term + "\", " + limit + ")");
+            }
+        }
+        assertTrue(index.search("apple", 0).isEmpty());
+    }
+
+    @Test
+    void testSearchWithinOrdinals() {
+        int[] within = new int[names.size() / 3];
+        for (int i = 0; i < within.length; i++) {
+            within[i] = i * 3;
+        }
+        for (String term : Arrays.asList("e", "pie", "cream", "apple")) {
+            List<String> expected = new ArrayList<>();
+            for (String name : scanSearch(term, names.size())) {
+                if (names.indexOf(name) % 3 == 0 && names.indexOf(name) / 3 < within.length) {
+                    expected.add(name);
+                }
+            }
+            assertEquals(expected.subList(0, Math.min(10, expected.size())), index.search(term, within, 10),
+                    "search(\"" + term + "\") within every third name");
+        }
+    }
+
+    @Test
+    void testRankOrder() {
+        FoodNameIndex small = new FoodNameIndex(Arrays.asList(
+            "pineapple", "apple pie", "apple", "crab apple", "apples, dried", "snapple"));
+        assertEquals(Arrays.asList("apple", "apple pie", "apples, dried", "crab apple", "pineapple", "snapple"),
+                small.search("apple", 10));
+        assertEquals(Arrays.asList("apple", "apple pie"), small.search("apple", 2));
+        assertEquals(Arrays.asList("crab apple", "pineapple"), small.search("apple", new int[] {3, 4}, 10));
+    }
+
+    @Test
+    void testBestMatch() {
+        FoodNameIndex small = new FoodNameIndex(Arrays.asList("apples", "apple pie", "rice"));
+        assertEquals("apples", small.bestMatch("apples"));
+        assertEquals("apple pie", small.bestMatch("apple"), "Best-ranked name containing the term");
+        assertEquals("apples", small.bestMatch("fresh apples"), "Longest name inside the term");
+        assertNull(small.bestMatch("bread"));
+    }
+
+    @Test
+    void testFrenchNamesMatchWithoutAccents() {
+        FoodNameIndex bilingual = new FoodNameIndex(Arrays.asList("liver pate", "egg, whole", "cheese"),
+                Map.of("liver pate", "pâté de foie", "egg, whole", "œuf, entier"));
+        assertEquals(2, bilingual.frenchCount());
+        assertNull(bilingual.frenchName(bilingual.ordinalOf("cheese")));
+
+        assertArrayEquals(new int[] {bilingual.ordinalOf("liver pate")},
+                bilingual.containing("pate", FoodNameIndex.Language.FRENCH));
+        assertEquals(Arrays.asList("œuf, entier"), bilingual.search("oeuf", FoodNameIndex.Language.FRENCH, 5));
+        assertEquals(Arrays.asList("egg, whole"), bilingual.search("oeuf", FoodNameIndex.Language.ANY, 5));
+        assertTrue(bilingual.search("oeuf", FoodNameIndex.Language.ENGLISH, 5).isEmpty());
+        assertEquals(Arrays.asList("cheese"), bilingual.search("chee", FoodNameIndex.Language.ANY, 5));
+    }
+}
@@ -0,0 +1,135 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import ca.nutrisci.application.dto.FoodMatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BK-tree lookups checked against computing the distance to every name
+ */
+public class FuzzyNameMatcherTest {
+
+    private static final String[] WORDS = {
+        "apple", "pie", "cheese", "cheddar", "cream", "ice", "rice", "beef", "raw", "bread", "peach", "pecan"
+    };
+
+    private FoodNameIndex index;
+    private FuzzyNameMatcher matcher;
+    private List<String> terms;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(11);
+        TreeSet<String> names = new TreeSet<>();
+        while (names.size() < 400) {
+            StringBuilder name = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+            for (int words = random.nextInt(3); words > 0; words--) {
+                name.append(", ").append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            names.add(name.toString());
+        }
+        index = new FoodNameIndex(names);
+        matcher = new FuzzyNameMatcher(index);
+
+        // Names with a few random edits, plus terms far from everything
+        terms = new ArrayList<>(Arrays.asList("", "x", "chese", "aple pie", "zzzzzzzzzzzz", "ice, ice, ice, ice"));
+        List<String> all = new ArrayList<>(names);
+        for (int i = 0; i < 100; i++) {
+            StringBuilder term = new StringBuilder(all.get(random.nextInt(all.size())));
+            for (int edits = random.nextInt(4); edits > 0 && term.length() > 0; edits--) {
+                int at = random.nextInt(term.length());
+                switch (random.nextInt(3)) {
+                    case 0: term.deleteCharAt(at); break;
+                    case 1: term.setCharAt(at, (char) ('a' + random.nextInt(26))); break;
+                    default: term.insert(at, (char) ('a' + random.nextInt(26))); break;
+                }
+            }
+            terms.add(term.toString());
+        }
+    }
+
+    // Every name within maxDistance, closest first, ties in ordinal order
+    private List<String> scan(String term, int k, int maxDistance) {
+        List<long[]> hits = new ArrayList<>();
+        for (int ordinal = 0; ordinal < index.size(); ordinal++) {
+            int distance = FuzzyNameMatcher.distance(term, index.name(ordinal));
+            if (distance <= maxDistance) {
+                hits.add(new long[] {distance, ordinal});
+            }
+        }
+        hits.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, hits.size()); i++) {
+            expected.add(index.name((int) hits.get(i)[1]) + "@" + hits.get(i)[0]);
+        }
+        return expected;
+    }
+
+    private static List<String> describe(List<FoodMatch> matches) {
+        List<String> described = new ArrayList<>();
+        for (FoodMatch match : matches) {
+            described.add(match.getName() + "@" + match.getDistance());
+        }
+        return described;
+    }
+
+    @Test
+    void testDistance() {
+        assertEquals(0, FuzzyNameMatcher.distance("apple", "apple"));
+        assertEquals(1, FuzzyNameMatcher.distance("aple", "apple"));
+        assertEquals(1, FuzzyNameMatcher.distance("applr", "apple"));
+        assertEquals(3, FuzzyNameMatcher.distance("kitten", "sitting"));
+        assertEquals(5, FuzzyNameMatcher.distance("", "bread"));
+    }
+
+    @Test
+    void testClosestMatchesScan() {
+        for (String term : terms) {
+            for (int k : new int[] {1, 3, 10}) {
+                for (int maxDistance : new int[] {0, 2, 5, 100}) {
+                    assertEquals(scan(term, k, maxDistance), describe(matcher.closest(term, k, maxDistance)),
+                            "closest(\"" + term + "\", " + k + ", " + maxDistance + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testClosestEachMatchesClosest() {
+        String[] batch = terms.toArray(new String[0]);
+        int[] maxDistances = new int[batch.length];
+        Random random = new Random(3);
+        for (int i = 0; i < maxDistances.length; i++) {
+            maxDistances[i] = random.nextInt(6);
+        }
+
+        FoodMatch[] each = matcher.closestEach(batch, maxDistances);
+        assertEquals(batch.length, each.length);
+        for (int i = 0; i < batch.length; i++) {
+            List<String> expected = scan(batch[i], 1, maxDistances[i]);
+            List<String> actual = each[i] == null ? Collections.emptyList()
+                    : describe(Collections.singletonList(each[i]));
+            assertEquals(expected, actual, "closestEach for \"" + batch[i] + "\" within " + maxDistances[i]);
+        }
+    }
+
+    @Test
+    void testEmptyAndDegenerateInputs() {
+        FuzzyNameMatcher empty = new FuzzyNameMatcher(new FoodNameIndex(Collections.emptyList()));
+        assertTrue(empty.closest("apple", 3, 2).isEmpty());
+        assertNull(empty.closestEach(new String[] {"apple"}, new int[] {2})[0]);
+
+        assertTrue(matcher.closest("apple", 0, 2).isEmpty());
+        assertTrue(matcher.closest("apple", 3, -1).isEmpty());
+        assertEquals(0, matcher.closestEach(new String[0], new int[0]).length);
+    }
+}
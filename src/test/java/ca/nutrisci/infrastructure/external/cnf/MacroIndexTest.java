@@ -0,0 +1,170 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KD-tree queries checked against scanning every food of the group. Most amounts
+ * are drawn from a few coarse values so there are plenty of ties and equal
+ * coordinates around the split medians.
+ */
+public class MacroIndexTest {
+
+    private static final int FOODS = 400;
+    private static final Map<Integer, String> GROUP_NAMES =
+        Map.of(1, "Dairy", 2, "Fruits", 3, "Vegetables", 4, "Baked Products");
+
+    private final Map<String, Integer> groupOfFood = new HashMap<>();
+    private FoodNameIndex names;
+    private FoodGroupIndex groups;
+    private float[] amounts;
+    private MacroIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(17);
+        List<String> foodNames = new ArrayList<>();
+        for (int food = 0; food < FOODS; food++) {
+            String name = String.format("food %03d", food);
+            foodNames.add(name);
+            if (food % 10 != 0) { // Every tenth food has no group
+                groupOfFood.put(name, 1 + random.nextInt(4));
+            }
+        }
+        names = new FoodNameIndex(foodNames);
+        groups = new FoodGroupIndex(GROUP_NAMES, names, groupOfFood);
+
+        amounts = new float[names.size() * MacroIndex.DIMENSIONS];
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            int offset = ordinal * MacroIndex.DIMENSIONS;
+            amounts[offset + MacroIndex.CALORIES] = 10 * random.nextInt(60);
+            amounts[offset + MacroIndex.PROTEIN] = random.nextInt(30);
+            amounts[offset + MacroIndex.CARBS] = random.nextInt(8) * 10.5f;
+            amounts[offset + MacroIndex.FAT] = random.nextFloat() * 40;
+            amounts[offset + MacroIndex.FIBER] = random.nextInt(3);
+        }
+        index = new MacroIndex(groups, amounts);
+    }
+
+    // The index's points: every dimension divided by its standard deviation
+    private float[] scaledPoints() {
+        int foods = amounts.length / MacroIndex.DIMENSIONS;
+        float[] points = new float[amounts.length];
+        for (int dimension = 0; dimension < MacroIndex.DIMENSIONS; dimension++) {
+            double sum = 0;
+            double sumOfSquares = 0;
+            for (int food = 0; food < foods; food++) {
+                double amount = amounts[food * MacroIndex.DIMENSIONS + dimension];
+                sum += amount;
+                sumOfSquares += amount * amount;
+            }
+            double mean = sum / foods;
+            double deviation = Math.sqrt(Math.max(0, sumOfSquares / foods - mean * mean));
+            float scale = deviation > 0 ? (float) (1.0 / deviation) : 1f;
+            for (int food = 0; food < foods; food++) {
+                points[food * MacroIndex.DIMENSIONS + dimension] = amounts[food * MacroIndex.DIMENSIONS + dimension] * scale;
+            }
+        }
+        return points;
+    }
+
+    // Same-group foods meeting the bound, closest first, ties in ordinal order
+    private int[] scan(float[] points, int ordinal, int dimension, boolean lower, int k) {
+        int group = expectedGroup(ordinal);
+        if (group < 0 || k <= 0) {
+            return new int[0];
+        }
+        float bound = 0;
+        if (dimension >= 0) {
+            float value = points[ordinal * MacroIndex.DIMENSIONS + dimension];
+            bound = lower ? value * (1 - MacroIndex.MIN_CHANGE) : value * (1 + MacroIndex.MIN_CHANGE);
+        }
+        List<Integer> candidates = new ArrayList<>();
+        Map<Integer, Float> distances = new HashMap<>();
+        for (int other : groups.members(group)) {
+            if (other == ordinal) {
+                continue;
+            }
+            if (dimension >= 0) {
+                float value = points[other * MacroIndex.DIMENSIONS + dimension];
+                if (lower ? !(value < bound) : !(value > bound)) {
+                    continue;
+                }
+            }
+            float sum = 0;
+            for (int d = 0; d < MacroIndex.DIMENSIONS; d++) {
+                float difference = points[other * MacroIndex.DIMENSIONS + d] - points[ordinal * MacroIndex.DIMENSIONS + d];
+                sum += difference * difference;
+            }
+            candidates.add(other);
+            distances.put(other, sum);
+        }
+        candidates.sort((a, b) -> distances.get(a).equals(distances.get(b))
+                ? Integer.compare(a, b) : Float.compare(distances.get(a), distances.get(b)));
+        return candidates.subList(0, Math.min(k, candidates.size())).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int expectedGroup(int ordinal) {
+        Integer groupId = groupOfFood.get(names.name(ordinal));
+        return groupId != null ? groups.find(GROUP_NAMES.get(groupId)) : -1;
+    }
+
+    @Test
+    void testNearestMatchesGroupScan() {
+        float[] points = scaledPoints();
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            for (int k : new int[] {1, 5, 200}) {
+                assertArrayEquals(scan(points, ordinal, -1, false, k), index.nearest(ordinal, -1, false, k),
+                        "nearest(" + names.name(ordinal) + ", k=" + k + ")");
+            }
+        }
+    }
+
+    @Test
+    void testBoundedNearestMatchesGroupScan() {
+        float[] points = scaledPoints();
+        for (int ordinal = 0; ordinal < names.size(); ordinal += 3) {
+            for (int dimension = 0; dimension < MacroIndex.DIMENSIONS; dimension++) {
+                for (boolean lower : new boolean[] {true, false}) {
+                    for (int k : new int[] {1, 10}) {
+                        assertArrayEquals(scan(points, ordinal, dimension, lower, k),
+                                index.nearest(ordinal, dimension, lower, k),
+                                "nearest(" + names.name(ordinal) + ", dimension " + dimension
+                                        + (lower ? " lower" : " higher") + ", k=" + k + ")");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testGroupsAndDegenerateQueries() {
+        for (int ordinal = 0; ordinal < names.size(); ordinal++) {
+            assertEquals(expectedGroup(ordinal), index.groupOf(ordinal), names.name(ordinal));
+        }
+        int ungrouped = names.ordinalOf("food 000");
+        assertEquals(0, index.nearest(ungrouped, -1, false, 5).length);
+        assertEquals(0, index.nearest(names.ordinalOf("food 001"), -1, false, 0).length);
+
+        MacroIndex empty = new MacroIndex(new FoodGroupIndex(Map.of(), names, Map.of()), amounts);
+        assertEquals(0, empty.nearest(1, MacroIndex.FAT, true, 5).length);
+    }
+
+    @Test
+    void testDimensionNames() {
+        assertEquals(MacroIndex.CALORIES, MacroIndex.dimension("Calories"));
+        assertEquals(MacroIndex.CARBS, MacroIndex.dimension(" carbohydrates "));
+        assertEquals(MacroIndex.CARBS, MacroIndex.dimension("carbs"));
+        assertEquals(MacroIndex.FIBER, MacroIndex.dimension("FIBER"));
+        assertEquals(-1, MacroIndex.dimension("sugar"));
+        assertEquals(-1, MacroIndex.dimension(null));
+    }
+}
@@ -0,0 +1,98 @@
+package ca.nutrisci.infrastructure.external.cnf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MeasureDictionaryTest {
+
+    private MeasureDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        // Out of id order on purpose; 9 and 10 normalize to the same name
+        int[] ids = {12, 10, 11, 9, 13, 14, 15, 16, 17, 18, 19, 20};
+        String[] names = {
+            "1 slice (0.6cm)", "1 slice", "2 slices", "1 Slice", "250ml", "1/2 fruit (13cm dia)",
+            "1 tbsp", "1 cup, chopped", "1 cup", "1 cup sliced", "2 Peaches", "3 berries"
+        };
+        dictionary = new MeasureDictionary(ids, names);
+    }
+
+    @Test
+    void testParsing() {
+        assertEquals(12, dictionary.size());
+        assertEquals("1/2 fruit (13cm dia)", dictionary.name(14));
+        assertEquals(0.5, dictionary.quantity(14), 0.0);
+        assertEquals("fruit", dictionary.unit(14));
+        assertEquals("(13cm dia)", dictionary.descriptor(14));
+
+        assertEquals(250, dictionary.quantity(13), 0.0);
+        assertEquals("ml", dictionary.unit(13));
+        assertEquals("", dictionary.descriptor(13));
+
+        assertEquals(2, dictionary.quantity(11), 0.0);
+        assertEquals("slice", dictionary.unit(11), "Plural units are stored singular");
+        assertEquals("tablespoon", dictionary.unit(15));
+        assertEquals("peach", dictionary.unit(19));
+        assertEquals("berry", dictionary.unit(20));
+        assertEquals("cup", dictionary.unit(16));
+        assertEquals(", chopped", dictionary.descriptor(16));
+        assertEquals("cup sliced", dictionary.unit(18));
+
+        assertNull(dictionary.name(99));
+        assertNull(dictionary.unit(99));
+        assertEquals(1, dictionary.quantity(99), 0.0);
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("1 cup (sliced)", MeasureDictionary.normalize("  1  Cup ( sliced ) "));
+        assertEquals("250ml", MeasureDictionary.normalize("250ML"));
+    }
+
+    @Test
+    void testPlainMeasuresRankFirst() {
+        assertEquals(9, dictionary.find("slice"), "Plain, quantity one, lowest id");
+        assertEquals(9, dictionary.find("1 slice"), "Exact name, lowest id among equal names");
+        assertEquals(11, dictionary.find("2 slices"), "Exact name before plain measures");
+        assertEquals(12, dictionary.find("slice (0.6cm)"), "Same descriptor first");
+        assertEquals(17, dictionary.find("cup"), "No descriptor before \"1 cup, chopped\"");
+        assertEquals(15, dictionary.find("tablespoons"));
+        assertEquals(15, dictionary.find("TBSP"));
+        assertEquals(19, dictionary.find("peach"));
+    }
+
+    @Test
+    void testWordMatches() {
+        assertEquals(18, dictionary.find("sliced cup"), "Unit containing all the words");
+        assertEquals(17, dictionary.find("cup"));
+        assertEquals(18, dictionary.find("cup", new int[] {18, 20}), "Word match when the exact unit is missing");
+        assertEquals(-1, dictionary.find("bowl"));
+        assertEquals(-1, dictionary.find(null));
+    }
+
+    @Test
+    void testFindAmongAvailableMeasures() {
+        assertEquals(10, dictionary.find("slice", new int[] {10, 12}));
+        assertEquals(12, dictionary.find("slice", new int[] {12, 13}));
+        assertEquals(-1, dictionary.find("slice", new int[] {13, 14}));
+
+        int[] table = {1, 11, 12, 13, 50};
+        assertEquals(11, dictionary.find("slice", table, 0, 5));
+        assertEquals(12, dictionary.find("slice", table, 2, 4), "Only the given range is searched");
+        assertEquals(-1, dictionary.find("slice", table, 3, 5));
+    }
+
+    @Test
+    void testQuantityOf() {
+        assertEquals(0.5, dictionary.quantityOf("1/2 cup"), 0.0);
+        assertEquals(2, dictionary.quantityOf("2 slices"), 0.0);
+        assertEquals(1.5, dictionary.quantityOf("1.5 tbsp"), 0.0);
+        assertEquals(1, dictionary.quantityOf("cup"), 0.0);
+        assertEquals(1, dictionary.quantityOf("0 cup"), 0.0, "Non-positive quantities count as one");
+        assertEquals(1, dictionary.quantityOf(null), 0.0);
+        assertEquals(dictionary.quantityOf("1/2 cup"), dictionary.quantityOf("1/2 cup"), 0.0, "Cached query");
+    }
+}